@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.benchmarks.aggregate;
+
+import org.apache.flink.api.common.functions.LongLongPreAggregateFunction;
+import org.apache.flink.api.common.functions.PreAggregateFunction;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.streaming.api.operators.PreAggregateProcTimeStreamOperator;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.util.Collector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.annotation.Nullable;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the generic {@link PreAggregateFunction}, which boxes keys and values into a heap
+ * map, with the primitive-specialized {@link LongLongPreAggregateFunction} for the sum of long
+ * values per long key. Each invocation adds a batch of records to the bundle of the
+ * PreAggregate operator and then flushes it.
+ *
+ * <p>Run {@code java -jar target/benchmarks.jar PreAggregateFunctionBenchmark -prof gc} to
+ * also compare the allocation rate of both functions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class PreAggregateFunctionBenchmark {
+
+	private static final int RECORDS_PER_INVOCATION = 100_000;
+
+	@Param({"100", "10000", "100000"})
+	public int numKeys;
+
+	@Param({"generic", "primitive"})
+	public String function;
+
+	private OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> harness;
+	private StreamRecord<Tuple2<Long, Long>>[] records;
+	private long processingTime;
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(".*" + PreAggregateFunctionBenchmark.class.getCanonicalName() + ".*")
+			.build();
+
+		new Runner(options).run();
+	}
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		PreAggregateFunction<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> preAggregateFunction =
+			"primitive".equals(function) ? new PrimitiveSumFunction() : new GenericSumFunction();
+		KeySelector<Tuple2<Long, Long>, Long> keySelector = (KeySelector<Tuple2<Long, Long>, Long>) value -> value.f0;
+
+		harness = new OneInputStreamOperatorTestHarness<>(
+			new PreAggregateProcTimeStreamOperator<>(preAggregateFunction, keySelector, 1000, false));
+		harness.open();
+		processingTime = 0;
+
+		Random random = new Random(42);
+		records = new StreamRecord[RECORDS_PER_INVOCATION];
+		for (int i = 0; i < RECORDS_PER_INVOCATION; i++) {
+			records[i] = new StreamRecord<>(Tuple2.of((long) random.nextInt(numKeys), 1L));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		harness.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS_PER_INVOCATION)
+	public void processAndFlush() throws Exception {
+		for (StreamRecord<Tuple2<Long, Long>> record : records) {
+			harness.processElement(record);
+		}
+		processingTime += 1000;
+		harness.setProcessingTime(processingTime);
+		harness.getOutput().clear();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static class GenericSumFunction
+		extends PreAggregateFunction<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> {
+
+		@Override
+		public Long addInput(@Nullable Long value, Tuple2<Long, Long> input) {
+			return value == null ? input.f1 : value + input.f1;
+		}
+
+		@Override
+		public void collect(Map<Long, Long> buffer, Collector<Tuple2<Long, Long>> out) {
+			for (Map.Entry<Long, Long> entry : buffer.entrySet()) {
+				out.collect(Tuple2.of(entry.getKey(), entry.getValue()));
+			}
+		}
+	}
+
+	private static class PrimitiveSumFunction
+		extends LongLongPreAggregateFunction<Tuple2<Long, Long>, Tuple2<Long, Long>> {
+
+		private final Tuple2<Long, Long> output = new Tuple2<>();
+
+		@Override
+		public long getKey(Tuple2<Long, Long> input) {
+			return input.f0;
+		}
+
+		@Override
+		public long initialValue() {
+			return 0L;
+		}
+
+		@Override
+		public long add(long value, Tuple2<Long, Long> input) {
+			return value + input.f1;
+		}
+
+		@Override
+		public void collect(long key, long value, Collector<Tuple2<Long, Long>> out) {
+			output.f0 = key;
+			output.f1 = value;
+			out.collect(output);
+		}
+	}
+}
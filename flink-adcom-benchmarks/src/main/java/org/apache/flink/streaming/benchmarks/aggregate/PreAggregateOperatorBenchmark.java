@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.benchmarks.aggregate;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.streaming.api.operators.PreAggregateProcTimeStreamOperator;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@code processElement} of the {@link PreAggregateProcTimeStreamOperator}
+ * against the {@code MapBundleOperator} of the table runtime and a {@code StreamGroupedReduce}
+ * without pre-aggregation, across key cardinalities and skews. The bundles never flush during the
+ * measurement, {@link PreAggregateFlushBenchmark} measures the flushes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class PreAggregateOperatorBenchmark {
+
+	private static final int RECORDS_PER_INVOCATION = 100_000;
+
+	@Param({"100", "10000", "1000000"})
+	public int numKeys;
+
+	@Param({PreAggregateWorkload.UNIFORM, PreAggregateWorkload.ZIPF})
+	public String skew;
+
+	@Param({PreAggregateWorkload.PRE_AGGREGATE, PreAggregateWorkload.MAP_BUNDLE, PreAggregateWorkload.GROUPED_REDUCE})
+	public String operator;
+
+	private OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> harness;
+	private StreamRecord<Tuple2<Long, Long>>[] records;
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(".*" + PreAggregateOperatorBenchmark.class.getCanonicalName() + ".*")
+			.build();
+
+		new Runner(options).run();
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		harness = PreAggregateWorkload.harness(operator);
+		harness.open();
+		records = PreAggregateWorkload.records(RECORDS_PER_INVOCATION, numKeys, skew);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		harness.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS_PER_INVOCATION)
+	public void processElement() throws Exception {
+		for (StreamRecord<Tuple2<Long, Long>> record : records) {
+			harness.processElement(record);
+		}
+		// only the grouped reduce emits while processing
+		harness.getOutput().clear();
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.benchmarks.aggregate;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.functions.PreAggregateFunction;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.api.operators.PreAggregateProcTimeStreamOperator;
+import org.apache.flink.streaming.api.operators.StreamGroupedReduce;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.table.runtime.operators.bundle.MapBundleFunction;
+import org.apache.flink.table.runtime.operators.bundle.MapBundleOperator;
+import org.apache.flink.table.runtime.operators.bundle.trigger.CountBundleTrigger;
+import org.apache.flink.util.Collector;
+
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The records and the operators that the pre-aggregation benchmarks compare: the sum of long
+ * values per long key with the {@link PreAggregateProcTimeStreamOperator}, the
+ * {@link MapBundleOperator} of the table runtime and a {@link StreamGroupedReduce} without
+ * pre-aggregation.
+ */
+final class PreAggregateWorkload {
+
+	static final String PRE_AGGREGATE = "preAggregate";
+	static final String MAP_BUNDLE = "mapBundle";
+	static final String GROUPED_REDUCE = "groupedReduce";
+
+	static final String UNIFORM = "uniform";
+	static final String ZIPF = "zipf";
+
+	/** The interval of the PreAggregate operator, which only flushes when a benchmark advances the processing time. */
+	static final long INTERVAL_MS = 1000;
+
+	private static final KeySelector<Tuple2<Long, Long>, Long> KEY_SELECTOR = new SumKeySelector();
+
+	private PreAggregateWorkload() {
+	}
+
+	/**
+	 * @param skew {@link #UNIFORM} keys, or {@link #ZIPF} keys with the exponent 1, where the
+	 *     most frequent key is the key 0
+	 */
+	@SuppressWarnings("unchecked")
+	static StreamRecord<Tuple2<Long, Long>>[] records(int numRecords, int numKeys, String skew) {
+		Random random = new Random(42);
+		double[] cumulativeWeights = ZIPF.equals(skew) ? zipfCumulativeWeights(numKeys) : null;
+		StreamRecord<Tuple2<Long, Long>>[] records = new StreamRecord[numRecords];
+		for (int i = 0; i < numRecords; i++) {
+			long key;
+			if (cumulativeWeights == null) {
+				key = random.nextInt(numKeys);
+			} else {
+				int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+				key = index >= 0 ? index : Math.min(-index - 1, numKeys - 1);
+			}
+			records[i] = new StreamRecord<>(Tuple2.of(key, 1L));
+		}
+		return records;
+	}
+
+	private static double[] zipfCumulativeWeights(int numKeys) {
+		double[] cumulativeWeights = new double[numKeys];
+		double sum = 0;
+		for (int i = 0; i < numKeys; i++) {
+			sum += 1.0 / (i + 1);
+			cumulativeWeights[i] = sum;
+		}
+		for (int i = 0; i < numKeys; i++) {
+			cumulativeWeights[i] /= sum;
+		}
+		return cumulativeWeights;
+	}
+
+	static OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> harness(String operator)
+		throws Exception {
+		switch (operator) {
+			case PRE_AGGREGATE:
+				return new OneInputStreamOperatorTestHarness<>(preAggregateOperator());
+			case MAP_BUNDLE:
+				return new OneInputStreamOperatorTestHarness<>(mapBundleOperator());
+			case GROUPED_REDUCE:
+				TupleTypeInfo<Tuple2<Long, Long>> typeInfo =
+					new TupleTypeInfo<>(BasicTypeInfo.LONG_TYPE_INFO, BasicTypeInfo.LONG_TYPE_INFO);
+				return new KeyedOneInputStreamOperatorTestHarness<>(
+					new StreamGroupedReduce<>(new SumReduceFunction(), typeInfo.createSerializer(new ExecutionConfig())),
+					KEY_SELECTOR,
+					BasicTypeInfo.LONG_TYPE_INFO);
+			default:
+				throw new IllegalArgumentException("Unknown operator " + operator);
+		}
+	}
+
+	static OneInputStreamOperator<Tuple2<Long, Long>, Tuple2<Long, Long>> preAggregateOperator() {
+		return new PreAggregateProcTimeStreamOperator<>(new SumPreAggregateFunction(), KEY_SELECTOR, INTERVAL_MS, false);
+	}
+
+	/**
+	 * @return a MapBundleOperator that only flushes when a benchmark finishes its bundle
+	 */
+	static MapBundleOperator<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> mapBundleOperator() {
+		return new MapBundleOperator<>(new SumMapBundleFunction(), new CountBundleTrigger<>(Long.MAX_VALUE), KEY_SELECTOR);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static class SumKeySelector implements KeySelector<Tuple2<Long, Long>, Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Long getKey(Tuple2<Long, Long> value) {
+			return value.f0;
+		}
+	}
+
+	private static class SumPreAggregateFunction
+		extends PreAggregateFunction<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> {
+
+		@Override
+		public Long addInput(@Nullable Long value, Tuple2<Long, Long> input) {
+			return value == null ? input.f1 : value + input.f1;
+		}
+
+		@Override
+		public void collect(Map<Long, Long> buffer, Collector<Tuple2<Long, Long>> out) {
+			for (Map.Entry<Long, Long> entry : buffer.entrySet()) {
+				out.collect(Tuple2.of(entry.getKey(), entry.getValue()));
+			}
+		}
+	}
+
+	private static class SumMapBundleFunction
+		extends MapBundleFunction<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> {
+
+		@Override
+		public Long addInput(@Nullable Long value, Tuple2<Long, Long> input) {
+			return value == null ? input.f1 : value + input.f1;
+		}
+
+		@Override
+		public void finishBundle(Map<Long, Long> buffer, Collector<Tuple2<Long, Long>> out) {
+			for (Map.Entry<Long, Long> entry : buffer.entrySet()) {
+				out.collect(Tuple2.of(entry.getKey(), entry.getValue()));
+			}
+		}
+	}
+
+	private static class SumReduceFunction implements ReduceFunction<Tuple2<Long, Long>> {
+
+		@Override
+		public Tuple2<Long, Long> reduce(Tuple2<Long, Long> value1, Tuple2<Long, Long> value2) {
+			return Tuple2.of(value1.f0, value1.f1 + value2.f1);
+		}
+	}
+}
@@ -44,6 +44,8 @@ public class TaxiRideCountTablePreAggregate {
 		if (genericParam.getMini_batch_size() > 0) {
 			configuration.setString("table.exec.mini-batch.size", String.valueOf(genericParam.getMini_batch_size()));
 		}
+		// adapt the latency of the local aggregation with the pre-aggregate controller
+		configuration.setString("table.exec.mini-batch.adaptive.enabled", Boolean.toString(genericParam.isMini_batch_adaptive()));
 		// enable two-phase, i.e. local-global aggregation
 		if (genericParam.isTwoPhaseAgg()) {
 			configuration.setString("table.optimizer.agg-phase-strategy", "TWO_PHASE");
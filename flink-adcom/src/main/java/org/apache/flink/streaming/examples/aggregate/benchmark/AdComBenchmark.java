@@ -0,0 +1,318 @@
+package org.apache.flink.streaming.examples.aggregate.benchmark;
+
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.api.java.utils.ParameterTool;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+import org.apache.flink.core.execution.JobClient;
+import org.apache.flink.runtime.controller.PreAggregateTrace;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scripted benchmark of the count query of {@code TaxiRideCountPreAggregate} without combining, with the static
+ * {@code combine} and with the {@code adCombine} of the controller. Every mode runs the same {@link RateProfile} on a
+ * local MiniCluster, and the report compares their throughput, their latency percentiles and, for {@code adCombine},
+ * the trajectory of the intervals from the controller trace and the time until it converged.
+ *
+ * <p>The driver needs neither the data rate and workload files nor an MQTT broker: it publishes the rate of the
+ * profile to the {@link BenchmarkSource} on an in-process {@link BenchmarkControlChannel}, and the records carry
+ * their creation time to the {@link BenchmarkLatencySink}.
+ *
+ * <pre>
+ * --profile step:20s:10000,ramp:20s:10000:40000,spike:5s:80000,step:20s:10000
+ * --modes none,combine,adCombine --parallelism 2 --keys 10000 --skew zipf --interval 100 --reducer-cost 50
+ * --report /tmp/adcom-report.txt --pre-aggregate.controller.policy aimd
+ * </pre>
+ *
+ * <p>All parameters that start with {@code pre-aggregate.} are passed to the configuration of the job. The controller
+ * runs every {@link #DEFAULT_CONTROLLER_PERIOD} by default, so it has a few rounds in a run of a few minutes.
+ */
+public class AdComBenchmark {
+
+	public static final String MODE_NONE = "none";
+	public static final String MODE_COMBINE = "combine";
+	public static final String MODE_AD_COMBINE = "adCombine";
+
+	private static final String DEFAULT_PROFILE = "step:20s:10000,ramp:20s:10000:40000,spike:5s:80000,step:20s:10000";
+	private static final Duration DEFAULT_CONTROLLER_PERIOD = Duration.ofSeconds(5);
+	private static final Duration DEFAULT_SIGNALS_PUBLISH_INTERVAL = Duration.ofSeconds(1);
+	private static final Duration DEFAULT_SIGNALS_SAMPLING_INTERVAL = Duration.ofMillis(250);
+	/** An interval changes by more than this fraction before the controller counts as not converged. */
+	private static final double CONVERGENCE_TOLERANCE = 0.1;
+	private static final long DRIVER_TICK_MS = 50;
+	private static final long SOURCES_RUNNING_TIMEOUT_MS = 60_000;
+
+	private final RateProfile profile;
+	private final int parallelism;
+	private final int numKeys;
+	private final String skew;
+	private final long intervalMs;
+	private final long reducerCostMicros;
+	private final Configuration configuration;
+
+	public AdComBenchmark(RateProfile profile, int parallelism, int numKeys, String skew, long intervalMs,
+						  long reducerCostMicros, Configuration configuration) {
+		this.profile = profile;
+		this.parallelism = parallelism;
+		this.numKeys = numKeys;
+		this.skew = skew;
+		this.intervalMs = intervalMs;
+		this.reducerCostMicros = reducerCostMicros;
+		this.configuration = configuration;
+	}
+
+	public static void main(String[] args) throws Exception {
+		// @formatter:off
+		ParameterTool params = ParameterTool.fromArgs(args);
+		RateProfile profile = RateProfile.parse(params.get("profile", DEFAULT_PROFILE));
+		String[] modes = params.get("modes", MODE_NONE + "," + MODE_COMBINE + "," + MODE_AD_COMBINE).split(",");
+
+		Configuration configuration = new Configuration();
+		configuration.set(PreAggregateControllerOptions.PERIOD, DEFAULT_CONTROLLER_PERIOD);
+		configuration.set(PreAggregateControllerOptions.SIGNALS_PUBLISH_INTERVAL, DEFAULT_SIGNALS_PUBLISH_INTERVAL);
+		configuration.set(PreAggregateControllerOptions.SIGNALS_SAMPLING_INTERVAL, DEFAULT_SIGNALS_SAMPLING_INTERVAL);
+		for (Map.Entry<String, String> entry : params.toMap().entrySet()) {
+			if (entry.getKey().startsWith("pre-aggregate.")) {
+				configuration.setString(entry.getKey(), entry.getValue());
+			}
+		}
+
+		AdComBenchmark benchmark = new AdComBenchmark(
+			profile,
+			params.getInt("parallelism", 2),
+			params.getInt("keys", 10000),
+			params.get("skew", BenchmarkSource.UNIFORM),
+			params.getLong("interval", 100),
+			params.getLong("reducer-cost", 50),
+			configuration);
+		System.out.println("[" + AdComBenchmark.class.getSimpleName() + "] profile " + profile + " (" + profile.getDurationMs() + " ms)");
+
+		List<Report> reports = new ArrayList<>();
+		for (String mode : modes) {
+			reports.add(benchmark.run(mode.trim()));
+		}
+
+		printReports(reports, System.out);
+		if (params.has("report")) {
+			try (PrintStream out = new PrintStream(new File(params.get("report")), StandardCharsets.UTF_8.name())) {
+				printReports(reports, out);
+			}
+		}
+		// @formatter:on
+	}
+
+	/**
+	 * Runs the profile once with the given combining mode and returns its report.
+	 */
+	public Report run(String mode) throws Exception {
+		String channelId = mode + "-" + UUID.randomUUID();
+		File traceDirectory = Files.createTempDirectory("adcom-benchmark-trace").toFile();
+		Configuration jobConfiguration = new Configuration(configuration);
+		jobConfiguration.set(PreAggregateControllerOptions.TRACE_DIRECTORY, traceDirectory.getAbsolutePath());
+
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.createLocalEnvironment(parallelism, jobConfiguration);
+		DataStream<Tuple3<Long, Long, Long>> tuples = env
+			.addSource(new BenchmarkSource(channelId, numKeys, skew)).name("BenchmarkSource");
+
+		DataStream<Tuple3<Long, Long, Long>> preAggregatedStream;
+		switch (mode) {
+			case MODE_NONE:
+				preAggregatedStream = tuples;
+				break;
+			case MODE_COMBINE:
+				preAggregatedStream = tuples.combine(new BenchmarkPreAggregateFunction(), intervalMs).name("PreAggregate");
+				break;
+			case MODE_AD_COMBINE:
+				preAggregatedStream = tuples.adCombine(new BenchmarkPreAggregateFunction(), intervalMs).name("PreAggregate");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown mode " + mode + ", use " + MODE_NONE + ", " + MODE_COMBINE +
+					" or " + MODE_AD_COMBINE + ".");
+		}
+		preAggregatedStream
+			.keyBy(new BenchmarkKeySelector())
+			.reduce(new BenchmarkReduceFunction(reducerCostMicros)).name("Reducer")
+			.addSink(new BenchmarkLatencySink(channelId)).name("LatencySink");
+
+		BenchmarkControlChannel channel = BenchmarkControlChannel.open(channelId, parallelism);
+		try {
+			JobClient jobClient = env.executeAsync(AdComBenchmark.class.getSimpleName() + "-" + mode);
+			if (!channel.awaitSourcesRunning(SOURCES_RUNNING_TIMEOUT_MS)) {
+				jobClient.cancel().get();
+				throw new IllegalStateException("The sources of the " + mode + " run did not start within " +
+					SOURCES_RUNNING_TIMEOUT_MS + " ms.");
+			}
+			System.out.println("[" + AdComBenchmark.class.getSimpleName() + "] running " + mode);
+			long startMs = System.currentTimeMillis();
+			long elapsedMs;
+			while ((elapsedMs = System.currentTimeMillis() - startMs) < profile.getDurationMs()) {
+				channel.setRate(profile.rateAt(elapsedMs));
+				Thread.sleep(DRIVER_TICK_MS);
+			}
+			channel.finish();
+			jobClient.getJobExecutionResult().get(SOURCES_RUNNING_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			long durationMs = System.currentTimeMillis() - startMs;
+
+			Report report = new Report(mode, durationMs, channel);
+			report.readTrace(traceDirectory, intervalMs);
+			return report;
+		} finally {
+			channel.close();
+			deleteDirectory(traceDirectory);
+		}
+	}
+
+	private static void deleteDirectory(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (!file.delete()) {
+					file.deleteOnExit();
+				}
+			}
+		}
+		if (!directory.delete()) {
+			directory.deleteOnExit();
+		}
+	}
+
+	private static void printReports(List<Report> reports, PrintStream out) {
+		// @formatter:off
+		out.println(String.format("%-10s %12s %12s %10s %10s %10s %10s %10s %14s",
+			"mode", "records/s", "results/s", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms", "converged ms"));
+		for (Report report : reports) {
+			out.println(String.format("%-10s %12.1f %12.1f %10.1f %10d %10d %10d %10d %14d",
+				report.getMode(), report.getThroughput(), report.getResultRate(), report.getLatencyMeanMs(),
+				report.getLatency50Ms(), report.getLatency95Ms(), report.getLatency99Ms(), report.getLatencyMaxMs(),
+				report.getConvergenceTimeMs()));
+		}
+		for (Report report : reports) {
+			if (!report.getIntervals().isEmpty()) {
+				out.println();
+				out.println("interval trajectory of " + report.getMode() + " (ms since the first signals, subtask, interval ms)");
+				for (PreAggregateTrace.Interval interval : report.getIntervals()) {
+					out.println(interval.getTimeMs() + "," + interval.getSubtaskIndex() + "," + interval.getIntervalMs());
+				}
+			}
+		}
+		// @formatter:on
+	}
+
+	/**
+	 * The result of a run of a mode. The latencies are from the creation of the oldest record of a result to the
+	 * sink, the throughput is the rate of records that the sources emitted, which falls below the rate of the profile
+	 * under backpressure.
+	 */
+	public static class Report {
+		private final String mode;
+		private final long durationMs;
+		private final double throughput;
+		private final double resultRate;
+		private final double latencyMeanMs;
+		private final long latency50Ms;
+		private final long latency95Ms;
+		private final long latency99Ms;
+		private final long latencyMaxMs;
+		private final List<PreAggregateTrace.Interval> intervals = new ArrayList<>();
+		private long convergenceTimeMs = -1;
+
+		Report(String mode, long durationMs, BenchmarkControlChannel channel) {
+			this.mode = mode;
+			this.durationMs = durationMs;
+			this.throughput = channel.getNumRecordsEmitted() * 1000.0 / durationMs;
+			this.resultRate = channel.getNumResults() * 1000.0 / durationMs;
+			this.latencyMeanMs = channel.getLatencyMeanMs();
+			this.latency50Ms = channel.getLatencyPercentileMs(0.5);
+			this.latency95Ms = channel.getLatencyPercentileMs(0.95);
+			this.latency99Ms = channel.getLatencyPercentileMs(0.99);
+			this.latencyMaxMs = channel.getLatencyPercentileMs(1.0);
+		}
+
+		/**
+		 * Reads the intervals that the controller decided from its trace, with their times relative to the first
+		 * signals of the trace. The controller converged after the last change of an interval by more than
+		 * {@link #CONVERGENCE_TOLERANCE}, which is 0 if it never changed one. There is no trace without the
+		 * controller, which leaves the convergence time at -1.
+		 */
+		void readTrace(File traceDirectory, long initialIntervalMs) throws IOException {
+			File[] traces = traceDirectory.listFiles((dir, name) -> name.endsWith(".trace"));
+			if (traces == null || traces.length == 0) {
+				return;
+			}
+			PreAggregateTrace trace = PreAggregateTrace.read(traces[0]);
+			if (trace.getSignals().isEmpty()) {
+				return;
+			}
+			long startMs = trace.getSignals().get(0).getTimeMs();
+			Map<Integer, Long> lastIntervalsMs = new HashMap<>();
+			convergenceTimeMs = 0;
+			for (PreAggregateTrace.Interval interval : trace.getIntervals()) {
+				long timeMs = interval.getTimeMs() - startMs;
+				intervals.add(new PreAggregateTrace.Interval(timeMs, interval.getSubtaskIndex(), interval.getIntervalMs()));
+				long lastIntervalMs = lastIntervalsMs.getOrDefault(interval.getSubtaskIndex(), initialIntervalMs);
+				if (Math.abs(interval.getIntervalMs() - lastIntervalMs) > CONVERGENCE_TOLERANCE * lastIntervalMs) {
+					convergenceTimeMs = timeMs;
+				}
+				lastIntervalsMs.put(interval.getSubtaskIndex(), interval.getIntervalMs());
+			}
+		}
+
+		public String getMode() {
+			return mode;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		public double getThroughput() {
+			return throughput;
+		}
+
+		public double getResultRate() {
+			return resultRate;
+		}
+
+		public double getLatencyMeanMs() {
+			return latencyMeanMs;
+		}
+
+		public long getLatency50Ms() {
+			return latency50Ms;
+		}
+
+		public long getLatency95Ms() {
+			return latency95Ms;
+		}
+
+		public long getLatency99Ms() {
+			return latency99Ms;
+		}
+
+		public long getLatencyMaxMs() {
+			return latencyMaxMs;
+		}
+
+		public List<PreAggregateTrace.Interval> getIntervals() {
+			return intervals;
+		}
+
+		public long getConvergenceTimeMs() {
+			return convergenceTimeMs;
+		}
+	}
+}
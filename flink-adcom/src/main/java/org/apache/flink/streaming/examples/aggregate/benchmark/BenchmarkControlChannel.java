@@ -0,0 +1,144 @@
+package org.apache.flink.streaming.examples.aggregate.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The in-process channel between the {@link AdComBenchmark} driver and the functions of its job on the MiniCluster,
+ * which replaces the data rate file and the MQTT broker of the examples. The driver publishes the target data rate and
+ * the end of the run, and the functions count the records and the latencies that the report needs.
+ *
+ * <p>Functions find the channel of their run by its id, since they are serialized into the job. This only works
+ * because the MiniCluster runs in the JVM of the driver.
+ */
+public class BenchmarkControlChannel {
+
+	/** The latencies are recorded in buckets of 1 ms up to this bound, and in an overflow bucket above it. */
+	private static final int MAX_LATENCY_MS = 60_000;
+
+	private static final Map<String, BenchmarkControlChannel> CHANNELS = new ConcurrentHashMap<>();
+
+	private final String id;
+	private final CountDownLatch sourcesRunning;
+	private final LongAdder numRecordsEmitted = new LongAdder();
+	private final LongAdder numResults = new LongAdder();
+	private final AtomicLongArray latencyHistogram = new AtomicLongArray(MAX_LATENCY_MS + 2);
+	private volatile double rate;
+	private volatile boolean finished;
+
+	private BenchmarkControlChannel(String id, int numSources) {
+		this.id = id;
+		this.sourcesRunning = new CountDownLatch(numSources);
+	}
+
+	public static BenchmarkControlChannel open(String id, int numSources) {
+		BenchmarkControlChannel channel = new BenchmarkControlChannel(id, numSources);
+		if (CHANNELS.putIfAbsent(id, channel) != null) {
+			throw new IllegalStateException("The control channel " + id + " is already open.");
+		}
+		return channel;
+	}
+
+	public static BenchmarkControlChannel get(String id) {
+		BenchmarkControlChannel channel = CHANNELS.get(id);
+		if (channel == null) {
+			throw new IllegalStateException("There is no control channel " + id + ". The benchmark job has to run on " +
+				"the MiniCluster of the " + AdComBenchmark.class.getSimpleName() + " driver.");
+		}
+		return channel;
+	}
+
+	public void close() {
+		finished = true;
+		CHANNELS.remove(id, this);
+	}
+
+	// ------------------------------------------------------------------------
+	// driver side
+	// ------------------------------------------------------------------------
+
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+
+	public void finish() {
+		this.finished = true;
+	}
+
+	/**
+	 * Waits until all source subtasks run, so the profile starts when the job is deployed and not when it is submitted.
+	 */
+	public boolean awaitSourcesRunning(long timeoutMs) throws InterruptedException {
+		return sourcesRunning.await(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	public long getNumRecordsEmitted() {
+		return numRecordsEmitted.sum();
+	}
+
+	public long getNumResults() {
+		return numResults.sum();
+	}
+
+	/**
+	 * @return the latency in ms below which the given fraction of the results are, or {@link #MAX_LATENCY_MS} + 1 if
+	 * the fraction is in the overflow bucket, or -1 if there are no results
+	 */
+	public long getLatencyPercentileMs(double fraction) {
+		long total = 0;
+		for (int i = 0; i < latencyHistogram.length(); i++) {
+			total += latencyHistogram.get(i);
+		}
+		if (total == 0) {
+			return -1;
+		}
+		long rank = (long) Math.ceil(fraction * total);
+		long count = 0;
+		for (int i = 0; i < latencyHistogram.length(); i++) {
+			count += latencyHistogram.get(i);
+			if (count >= Math.max(rank, 1)) {
+				return i;
+			}
+		}
+		return MAX_LATENCY_MS + 1;
+	}
+
+	public double getLatencyMeanMs() {
+		long total = 0;
+		double sum = 0;
+		for (int i = 0; i < latencyHistogram.length(); i++) {
+			total += latencyHistogram.get(i);
+			sum += (double) i * latencyHistogram.get(i);
+		}
+		return total == 0 ? -1 : sum / total;
+	}
+
+	// ------------------------------------------------------------------------
+	// job side
+	// ------------------------------------------------------------------------
+
+	public void sourceRunning() {
+		sourcesRunning.countDown();
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	public void addRecordsEmitted(long numRecords) {
+		numRecordsEmitted.add(numRecords);
+	}
+
+	public void addResult(long latencyMs) {
+		numResults.increment();
+		latencyHistogram.incrementAndGet((int) Math.max(0, Math.min(latencyMs, MAX_LATENCY_MS + 1)));
+	}
+}
@@ -0,0 +1,14 @@
+package org.apache.flink.streaming.examples.aggregate.benchmark;
+
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple3;
+
+public class BenchmarkKeySelector implements KeySelector<Tuple3<Long, Long, Long>, Long> {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public Long getKey(Tuple3<Long, Long, Long> value) {
+		return value.f0;
+	}
+}
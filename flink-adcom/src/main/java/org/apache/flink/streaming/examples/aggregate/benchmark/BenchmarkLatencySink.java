@@ -0,0 +1,31 @@
+package org.apache.flink.streaming.examples.aggregate.benchmark;
+
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+
+/**
+ * Records the latency of every result, from the creation time that it carries to its arrival at the sink, on the
+ * {@link BenchmarkControlChannel}.
+ */
+public class BenchmarkLatencySink extends RichSinkFunction<Tuple3<Long, Long, Long>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String channelId;
+	private transient BenchmarkControlChannel channel;
+
+	public BenchmarkLatencySink(String channelId) {
+		this.channelId = channelId;
+	}
+
+	@Override
+	public void open(Configuration parameters) {
+		this.channel = BenchmarkControlChannel.get(channelId);
+	}
+
+	@Override
+	public void invoke(Tuple3<Long, Long, Long> value, Context context) {
+		channel.addResult(System.currentTimeMillis() - value.f2);
+	}
+}
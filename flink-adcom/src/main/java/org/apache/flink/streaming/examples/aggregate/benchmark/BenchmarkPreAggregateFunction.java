@@ -0,0 +1,47 @@
+package org.apache.flink.streaming.examples.aggregate.benchmark;
+
+import org.apache.flink.api.common.functions.PreAggregateFunction;
+import org.apache.flink.api.common.functions.PreAggregateValueMerger;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.util.Collector;
+
+import javax.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * Counts the {@code (key, count, creationTimeMs)} records of a key as {@code TaxiRideCountPreAggregateFunction}, and
+ * keeps the creation time of the oldest record, so the latency at the sink includes the time that records wait in the
+ * bundle. The counts of co-located subtasks can be merged, see {@code pre-aggregate.task-manager-combine.enabled}.
+ */
+public class BenchmarkPreAggregateFunction
+	extends PreAggregateFunction<Long, Tuple2<Long, Long>, Tuple3<Long, Long, Long>, Tuple3<Long, Long, Long>>
+	implements PreAggregateValueMerger<Tuple2<Long, Long>> {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public Tuple2<Long, Long> addInput(@Nullable Tuple2<Long, Long> value, Tuple3<Long, Long, Long> input) {
+		if (value == null) {
+			return Tuple2.of(input.f1, input.f2);
+		}
+		value.f0 += input.f1;
+		value.f1 = Math.min(value.f1, input.f2);
+		return value;
+	}
+
+	@Override
+	public Tuple2<Long, Long> merge(Tuple2<Long, Long> value, Tuple2<Long, Long> other) {
+		value.f0 += other.f0;
+		value.f1 = Math.min(value.f1, other.f1);
+		return value;
+	}
+
+	@Override
+	public void collect(Map<Long, Tuple2<Long, Long>> buffer, Collector<Tuple3<Long, Long, Long>> out) {
+		for (Map.Entry<Long, Tuple2<Long, Long>> entry : buffer.entrySet()) {
+			out.collect(Tuple3.of(entry.getKey(), entry.getValue().f0, entry.getValue().f1));
+		}
+	}
+}
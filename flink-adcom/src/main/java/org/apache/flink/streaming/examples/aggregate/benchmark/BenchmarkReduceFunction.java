@@ -0,0 +1,31 @@
+package org.apache.flink.streaming.examples.aggregate.benchmark;
+
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.java.tuple.Tuple3;
+
+/**
+ * Sums the counts of a key as {@code TaxiRideSumReduceFunction} and keeps the creation time of the newest input, so
+ * every result carries the creation time of the records that it just added. A busy wait per input makes the reducer
+ * the bottleneck of the job, which is the situation that the pre-aggregation is for.
+ */
+public class BenchmarkReduceFunction implements ReduceFunction<Tuple3<Long, Long, Long>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long costNanos;
+
+	public BenchmarkReduceFunction(long costMicros) {
+		this.costNanos = costMicros * 1000L;
+	}
+
+	@Override
+	public Tuple3<Long, Long, Long> reduce(Tuple3<Long, Long, Long> value1, Tuple3<Long, Long, Long> value2) {
+		if (costNanos > 0) {
+			long deadline = System.nanoTime() + costNanos;
+			while (System.nanoTime() < deadline) {
+				// simulates an expensive downstream operator
+			}
+		}
+		return Tuple3.of(value1.f0, value1.f1 + value2.f1, value2.f2);
+	}
+}
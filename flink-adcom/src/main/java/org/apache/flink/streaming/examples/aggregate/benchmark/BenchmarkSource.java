@@ -0,0 +1,105 @@
+package org.apache.flink.streaming.examples.aggregate.benchmark;
+
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.functions.source.RichParallelSourceFunction;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Emits {@code (key, 1, creationTimeMs)} records at the rate that the driver publishes on the
+ * {@link BenchmarkControlChannel}, split evenly across the source subtasks. The source sends a batch of records every
+ * {@link #TICK_MS} and does not catch up on the records that it could not send under backpressure, so the emitted
+ * records of a run tell the throughput that the job sustained. It finishes when the driver finishes the run.
+ */
+public class BenchmarkSource extends RichParallelSourceFunction<Tuple3<Long, Long, Long>> {
+
+	public static final String UNIFORM = "uniform";
+	public static final String ZIPF = "zipf";
+
+	private static final long TICK_MS = 10;
+
+	private final String channelId;
+	private final int numKeys;
+	private final String skew;
+	private volatile boolean running = true;
+
+	private transient BenchmarkControlChannel channel;
+	private transient Random random;
+	private transient double[] cumulativeWeights;
+
+	/**
+	 * @param skew {@link #UNIFORM} keys, or {@link #ZIPF} keys with the exponent 1, where the most frequent key is the
+	 *     key 0
+	 */
+	public BenchmarkSource(String channelId, int numKeys, String skew) {
+		if (!UNIFORM.equals(skew) && !ZIPF.equals(skew)) {
+			throw new IllegalArgumentException("Unknown skew " + skew + ", use " + UNIFORM + " or " + ZIPF + ".");
+		}
+		this.channelId = channelId;
+		this.numKeys = numKeys;
+		this.skew = skew;
+	}
+
+	@Override
+	public void open(Configuration parameters) {
+		this.channel = BenchmarkControlChannel.get(channelId);
+		this.random = new Random(42 + getRuntimeContext().getIndexOfThisSubtask());
+		if (ZIPF.equals(skew)) {
+			this.cumulativeWeights = new double[numKeys];
+			double sum = 0;
+			for (int i = 0; i < numKeys; i++) {
+				sum += 1.0 / (i + 1);
+				cumulativeWeights[i] = sum;
+			}
+			for (int i = 0; i < numKeys; i++) {
+				cumulativeWeights[i] /= sum;
+			}
+		}
+	}
+
+	@Override
+	public void run(SourceContext<Tuple3<Long, Long, Long>> ctx) throws Exception {
+		int parallelism = getRuntimeContext().getNumberOfParallelSubtasks();
+		channel.sourceRunning();
+		double carry = 0;
+		long nextTickMs = System.currentTimeMillis();
+		while (running && !channel.isFinished()) {
+			double records = channel.getRate() / parallelism * TICK_MS / 1000.0 + carry;
+			long numRecords = (long) records;
+			carry = records - numRecords;
+
+			long now = System.currentTimeMillis();
+			synchronized (ctx.getCheckpointLock()) {
+				for (long i = 0; i < numRecords; i++) {
+					ctx.collect(Tuple3.of(nextKey(), 1L, now));
+				}
+			}
+			channel.addRecordsEmitted(numRecords);
+
+			nextTickMs += TICK_MS;
+			long sleepMs = nextTickMs - System.currentTimeMillis();
+			if (sleepMs > 0) {
+				Thread.sleep(sleepMs);
+			} else {
+				// behind the schedule because of backpressure: drop the missed ticks instead of bursting
+				nextTickMs = System.currentTimeMillis();
+				carry = 0;
+			}
+		}
+	}
+
+	private long nextKey() {
+		if (cumulativeWeights == null) {
+			return random.nextInt(numKeys);
+		}
+		int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+		return index >= 0 ? index : Math.min(-index - 1, numKeys - 1);
+	}
+
+	@Override
+	public void cancel() {
+		running = false;
+	}
+}
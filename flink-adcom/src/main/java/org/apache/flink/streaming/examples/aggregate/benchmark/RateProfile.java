@@ -0,0 +1,158 @@
+package org.apache.flink.streaming.examples.aggregate.benchmark;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A declarative data rate profile of the {@link AdComBenchmark}: a comma separated list of phases that run one after
+ * the other.
+ *
+ * <pre>
+ * step:&lt;duration&gt;:&lt;rate&gt;                  a constant rate
+ * ramp:&lt;duration&gt;:&lt;fromRate&gt;:&lt;toRate&gt;      a rate that changes linearly
+ * spike:&lt;duration&gt;:&lt;rate&gt;                 a constant rate, a name for a short burst
+ * </pre>
+ *
+ * <p>Durations accept the units ms, s and min, e.g. {@code step:30s:10000,ramp:1min:10000:50000,spike:5s:100000}.
+ * Rates are records per second of all source subtasks together.
+ */
+public class RateProfile implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<Phase> phases;
+	private final long durationMs;
+
+	public RateProfile(List<Phase> phases) {
+		if (phases.isEmpty()) {
+			throw new IllegalArgumentException("A rate profile needs at least one phase.");
+		}
+		this.phases = new ArrayList<>(phases);
+		long duration = 0;
+		for (Phase phase : phases) {
+			duration += phase.getDurationMs();
+		}
+		this.durationMs = duration;
+	}
+
+	public static RateProfile parse(String profile) {
+		List<Phase> phases = new ArrayList<>();
+		for (String phase : profile.split(",")) {
+			String[] fields = phase.trim().split(":");
+			try {
+				switch (fields[0]) {
+					case "step":
+					case "spike":
+						checkFields(phase, fields, 3);
+						phases.add(new Phase(fields[0], parseDurationMs(fields[1]), Double.parseDouble(fields[2]), Double.parseDouble(fields[2])));
+						break;
+					case "ramp":
+						checkFields(phase, fields, 4);
+						phases.add(new Phase(fields[0], parseDurationMs(fields[1]), Double.parseDouble(fields[2]), Double.parseDouble(fields[3])));
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown phase [" + phase + "] of the rate profile.");
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Malformed phase [" + phase + "] of the rate profile.", e);
+			}
+		}
+		return new RateProfile(phases);
+	}
+
+	private static void checkFields(String phase, String[] fields, int expected) {
+		if (fields.length != expected) {
+			throw new IllegalArgumentException("The phase [" + phase + "] of the rate profile needs " + (expected - 1) + " parameters.");
+		}
+	}
+
+	private static long parseDurationMs(String duration) {
+		if (duration.endsWith("ms")) {
+			return Long.parseLong(duration.substring(0, duration.length() - 2));
+		} else if (duration.endsWith("min")) {
+			return Long.parseLong(duration.substring(0, duration.length() - 3)) * 60_000L;
+		} else if (duration.endsWith("s")) {
+			return Long.parseLong(duration.substring(0, duration.length() - 1)) * 1000L;
+		}
+		return Long.parseLong(duration);
+	}
+
+	/**
+	 * @return the rate in records per second at a time since the start of the profile, or 0 after its end
+	 */
+	public double rateAt(long elapsedMs) {
+		long phaseStartMs = 0;
+		for (Phase phase : phases) {
+			if (elapsedMs < phaseStartMs + phase.getDurationMs()) {
+				double progress = (double) (elapsedMs - phaseStartMs) / phase.getDurationMs();
+				return phase.getFromRate() + (phase.getToRate() - phase.getFromRate()) * progress;
+			}
+			phaseStartMs += phase.getDurationMs();
+		}
+		return 0;
+	}
+
+	public long getDurationMs() {
+		return durationMs;
+	}
+
+	public List<Phase> getPhases() {
+		return Collections.unmodifiableList(phases);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Phase phase : phases) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(phase);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * A phase of the profile, which changes the rate linearly from its first to its last rate.
+	 */
+	public static class Phase implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String type;
+		private final long durationMs;
+		private final double fromRate;
+		private final double toRate;
+
+		public Phase(String type, long durationMs, double fromRate, double toRate) {
+			if (durationMs <= 0 || fromRate < 0 || toRate < 0) {
+				throw new IllegalArgumentException("A phase needs a positive duration and non-negative rates.");
+			}
+			this.type = type;
+			this.durationMs = durationMs;
+			this.fromRate = fromRate;
+			this.toRate = toRate;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		public double getFromRate() {
+			return fromRate;
+		}
+
+		public double getToRate() {
+			return toRate;
+		}
+
+		@Override
+		public String toString() {
+			return fromRate == toRate
+				? type + ":" + durationMs + "ms:" + (long) fromRate
+				: type + ":" + durationMs + "ms:" + (long) fromRate + ":" + (long) toRate;
+		}
+	}
+}
@@ -1,28 +1,40 @@
 package org.apache.flink.streaming.examples.aggregate.udfs;
 
-import org.apache.flink.api.common.functions.PreAggregateFunction;
+import org.apache.flink.api.common.functions.LongLongPreAggregateFunction;
+import org.apache.flink.api.common.functions.PreAggregateValueMerger;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.util.Collector;
 
-import javax.annotation.Nullable;
+public class TaxiRideCountPreAggregateFunction extends LongLongPreAggregateFunction<Tuple2<Long, Long>, Tuple2<Long, Long>>
+	implements PreAggregateValueMerger<Long> {
 
-import java.util.Map;
+	/** The output record is reused for every key of the bundle */
+	private final Tuple2<Long, Long> output = new Tuple2<>();
 
-public class TaxiRideCountPreAggregateFunction extends PreAggregateFunction<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> {
+	@Override
+	public long getKey(Tuple2<Long, Long> input) {
+		return input.f0;
+	}
+
+	@Override
+	public long initialValue() {
+		return 0L;
+	}
+
+	@Override
+	public long add(long value, Tuple2<Long, Long> input) {
+		return value + input.f1;
+	}
 
 	@Override
-	public Long addInput(@Nullable Long value, Tuple2<Long, Long> input) throws Exception {
-		if (value == null) {
-			return input.f1;
-		} else {
-			return value + input.f1;
-		}
+	public Long merge(Long value, Long other) {
+		return value + other;
 	}
 
 	@Override
-	public void collect(Map<Long, Long> buffer, Collector<Tuple2<Long, Long>> out) {
-		for (Map.Entry<Long, Long> entry : buffer.entrySet()) {
-			out.collect(Tuple2.of(entry.getKey(), entry.getValue()));
-		}
+	public void collect(long key, long value, Collector<Tuple2<Long, Long>> out) {
+		output.f0 = key;
+		output.f1 = value;
+		out.collect(output);
 	}
 }
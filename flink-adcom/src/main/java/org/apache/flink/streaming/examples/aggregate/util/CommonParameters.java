@@ -53,6 +53,7 @@ public class CommonParameters {
 	public static final String TABLE_MINI_BATCH_LATENCY = "mini_batch_latency";
 	public static final String TABLE_MINI_BATCH_SIZE = "mini_batch_size";
 	public static final String TABLE_MINI_BATCH_TWO_PHASE = "mini_batch_two_phase";
+	public static final String TABLE_MINI_BATCH_ADAPTIVE = "mini_batch_adaptive";
 	public static final String ENABLE_END_TO_END_LATENCY_MONITOR = "enableEndToEndLatency";
 	public static final String CONTROLLER = "controller";
 	public static final String COMBINER = "combiner";
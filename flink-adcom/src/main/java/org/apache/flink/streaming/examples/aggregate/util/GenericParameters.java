@@ -25,6 +25,7 @@ public class GenericParameters {
 	private final String mini_batch_allow_latency;
 	private final int mini_batch_size;
 	private final boolean twoPhaseAgg;
+	private final boolean mini_batch_adaptive;
 
 	public GenericParameters(String[] args) {
 		// @formatter:off
@@ -46,6 +47,7 @@ public class GenericParameters {
 		mini_batch_allow_latency = params.get(TABLE_MINI_BATCH_LATENCY, "").replace("_", " ");
 		mini_batch_size = params.getInt(TABLE_MINI_BATCH_SIZE, 0);
 		twoPhaseAgg = params.getBoolean(TABLE_MINI_BATCH_TWO_PHASE, false);
+		mini_batch_adaptive = params.getBoolean(TABLE_MINI_BATCH_ADAPTIVE, false);
 		// @formatter:on
 	}
 
@@ -71,6 +73,7 @@ public class GenericParameters {
 		System.out.println("Table API: mini-batch.latency                           : " + mini_batch_allow_latency);
 		System.out.println("Table API: mini_batch.size                              : " + mini_batch_size);
 		System.out.println("Table API: mini_batch.two_phase                         : " + twoPhaseAgg);
+		System.out.println("Table API: mini_batch.adaptive                          : " + mini_batch_adaptive);
 		// @formatter:on
 	}
 
@@ -145,4 +148,8 @@ public class GenericParameters {
 	public boolean isTwoPhaseAgg() {
 		return twoPhaseAgg;
 	}
+
+	public boolean isMini_batch_adaptive() {
+		return mini_batch_adaptive;
+	}
 }
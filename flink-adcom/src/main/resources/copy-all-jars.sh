@@ -32,6 +32,7 @@ cp /home/felipe/workspace-idea/flink-partition-tests/flink-adcom/target/flink-ad
 
 # Table API: TaxiRide pre-aggregation
 # ./bin/flink run ../flink-applications/flink-adcom_2.12-1.12-SNAPSHOT-TaxiRideCountTablePreAggregate.jar -input /home/flink/nycTaxiRides.gz -output mqtt -sinkHost 192.168.56.101 -disableOperatorChaining false -mini_batch_enabled true -mini_batch_latency 1_s -mini_batch_size 1000 -mini_batch_two_phase true -parallelism-table 8
+# ./bin/flink run ../flink-applications/flink-adcom_2.12-1.12-SNAPSHOT-TaxiRideCountTablePreAggregate.jar -input /home/flink/nycTaxiRides.gz -output mqtt -sinkHost 192.168.56.101 -disableOperatorChaining false -mini_batch_enabled true -mini_batch_latency 1_s -mini_batch_size 1000 -mini_batch_two_phase true -mini_batch_adaptive true -parallelism-table 8
 
 ########################################################################
 # CLUSTER ENVIRONMENT
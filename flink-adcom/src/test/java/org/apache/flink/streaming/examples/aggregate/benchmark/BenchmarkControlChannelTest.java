@@ -0,0 +1,81 @@
+package org.apache.flink.streaming.examples.aggregate.benchmark;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link BenchmarkControlChannel}.
+ */
+public class BenchmarkControlChannelTest extends TestLogger {
+
+	private static final String ID = BenchmarkControlChannelTest.class.getSimpleName();
+
+	private BenchmarkControlChannel channel;
+
+	@Before
+	public void open() {
+		channel = BenchmarkControlChannel.open(ID, 1);
+	}
+
+	@After
+	public void close() {
+		channel.close();
+	}
+
+	@Test
+	public void testNoResults() {
+		assertEquals(-1, channel.getLatencyPercentileMs(0.5));
+		assertEquals(-1, channel.getLatencyMeanMs(), 0.0);
+	}
+
+	@Test
+	public void testLatencyPercentile() {
+		for (int i = 1; i <= 100; i++) {
+			channel.addResult(i);
+		}
+
+		assertEquals(100, channel.getNumResults());
+		assertEquals(1, channel.getLatencyPercentileMs(0.0));
+		assertEquals(1, channel.getLatencyPercentileMs(0.01));
+		assertEquals(50, channel.getLatencyPercentileMs(0.5));
+		assertEquals(51, channel.getLatencyPercentileMs(0.501));
+		assertEquals(99, channel.getLatencyPercentileMs(0.99));
+		assertEquals(100, channel.getLatencyPercentileMs(1.0));
+		assertEquals(50.5, channel.getLatencyMeanMs(), 0.0);
+	}
+
+	@Test
+	public void testLatencyPercentileOfOverflow() {
+		channel.addResult(-5);
+		channel.addResult(10);
+		channel.addResult(60_000);
+		channel.addResult(Long.MAX_VALUE);
+
+		assertEquals(0, channel.getLatencyPercentileMs(0.25));
+		assertEquals(10, channel.getLatencyPercentileMs(0.5));
+		assertEquals(60_000, channel.getLatencyPercentileMs(0.75));
+		assertEquals(60_001, channel.getLatencyPercentileMs(1.0));
+	}
+
+	@Test
+	public void testGet() {
+		assertSame(channel, BenchmarkControlChannel.get(ID));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testOpenTwice() {
+		BenchmarkControlChannel.open(ID, 1);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetAfterClose() {
+		channel.close();
+		BenchmarkControlChannel.get(ID);
+	}
+}
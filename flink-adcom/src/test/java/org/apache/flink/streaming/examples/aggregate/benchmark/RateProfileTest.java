@@ -0,0 +1,71 @@
+package org.apache.flink.streaming.examples.aggregate.benchmark;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link RateProfile}.
+ */
+public class RateProfileTest extends TestLogger {
+
+	@Test
+	public void testParse() {
+		RateProfile profile = RateProfile.parse("step:30s:10000, ramp:1min:10000:50000,spike:500ms:100000,step:2000:10");
+
+		assertEquals(4, profile.getPhases().size());
+		assertEquals(30_000L + 60_000L + 500L + 2000L, profile.getDurationMs());
+		assertEquals("step:30000ms:10000,ramp:60000ms:10000:50000,spike:500ms:100000,step:2000ms:10", profile.toString());
+		assertEquals(profile.toString(), RateProfile.parse(profile.toString()).toString());
+	}
+
+	@Test
+	public void testRateAt() {
+		RateProfile profile = RateProfile.parse("step:10s:1000,ramp:10s:1000:3000,spike:1s:50000");
+
+		assertEquals(1000, profile.rateAt(0), 0.0);
+		assertEquals(1000, profile.rateAt(9_999), 0.0);
+		assertEquals(1000, profile.rateAt(10_000), 0.0);
+		assertEquals(2000, profile.rateAt(15_000), 0.0);
+		assertEquals(50000, profile.rateAt(20_000), 0.0);
+		assertEquals(50000, profile.rateAt(20_999), 0.0);
+		assertEquals(0, profile.rateAt(21_000), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownPhase() {
+		RateProfile.parse("step:1s:10,burst:1s:10");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingRate() {
+		RateProfile.parse("ramp:1s:10");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyFields() {
+		RateProfile.parse("step:1s:10:20");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedDuration() {
+		RateProfile.parse("step:1h:10");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedRate() {
+		RateProfile.parse("step:1s:fast");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroDuration() {
+		RateProfile.parse("step:0s:10");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeRate() {
+		RateProfile.parse("ramp:1s:10:-1");
+	}
+}
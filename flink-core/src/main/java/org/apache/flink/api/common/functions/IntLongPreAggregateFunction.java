@@ -0,0 +1,58 @@
+package org.apache.flink.api.common.functions;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.util.Collector;
+
+import javax.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * A {@link PreAggregateFunction} with primitive int keys and primitive long values. The
+ * PreAggregate operator keeps the bundle of such a function in an open addressing map of
+ * primitives, so that adding an element to the bundle neither boxes the key nor the value.
+ * To also avoid allocations when the bundle is flushed, implementations should reuse their
+ * output record in {@link #collect(int, long, Collector)}.
+ *
+ * <p>The boxed methods of {@link PreAggregateFunction} are implemented on top of the primitive
+ * ones, so the function can still be used where a heap bundle of objects is required.
+ *
+ * @param <IN> Type of the input elements.
+ * @param <OUT> Type of the output elements.
+ */
+@PublicEvolving
+public abstract class IntLongPreAggregateFunction<IN, OUT> extends PreAggregateFunction<Integer, Long, IN, OUT> {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Returns the key of the given input.
+	 */
+	public abstract int getKey(IN input) throws Exception;
+
+	/**
+	 * Returns the value of a key that is not in the bundle yet, e.g. 0 for a sum.
+	 */
+	public abstract long initialValue();
+
+	/**
+	 * Adds the given input to the given value, returning the new bundle value.
+	 */
+	public abstract long add(long value, IN input) throws Exception;
+
+	/**
+	 * Transforms one entry of the bundle to zero, one, or more output elements.
+	 */
+	public abstract void collect(int key, long value, Collector<OUT> out) throws Exception;
+
+	@Override
+	public final Long addInput(@Nullable Long value, IN input) throws Exception {
+		return add(value == null ? initialValue() : value, input);
+	}
+
+	@Override
+	public final void collect(Map<Integer, Long> buffer, Collector<OUT> out) throws Exception {
+		for (Map.Entry<Integer, Long> entry : buffer.entrySet()) {
+			collect(entry.getKey(), entry.getValue(), out);
+		}
+	}
+}
@@ -33,6 +33,15 @@ public abstract class PreAggregateFunction<K, V, IN, OUT> implements Function {
 	 */
 	public abstract void collect(Map<K, V> buffer, Collector<OUT> out) throws Exception;
 
+	/**
+	 * Whether {@link #collect(Map, Collector)} may reuse an output element for the next one. The
+	 * partials that are held after they were collected are then copied. Functions that emit
+	 * distinct objects, such as the values of the buffer, return false to save the copy.
+	 */
+	public boolean reusesOutput() {
+		return true;
+	}
+
 	public void close() throws Exception {
 	}
 }
@@ -0,0 +1,21 @@
+package org.apache.flink.api.common.functions;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+/**
+ * Implemented by a {@link PreAggregateFunction} whose bundle values of the same key can be merged,
+ * e.g. the sums of two bundles are added. It lets the co-located subtasks of a pre-aggregate
+ * operator combine their partials once more before they are emitted, see
+ * {@link org.apache.flink.configuration.PreAggregateOptions#TASK_MANAGER_COMBINE_ENABLED}.
+ *
+ * @param <V> The value to pre-aggregate elements.
+ */
+@PublicEvolving
+public interface PreAggregateValueMerger<V> {
+
+	/**
+	 * Merges two bundle values of the same key, returning the merged value. The function may modify
+	 * and return the first value, the second one is not used afterwards.
+	 */
+	V merge(V value, V other) throws Exception;
+}
@@ -2061,4 +2061,22 @@ public class TypeExtractor {
 			functionName,
 			allowMissing);
 	}
+
+	/**
+	 * Returns the type of the bundle values of the given {@link PreAggregateFunction}.
+	 */
+	@PublicEvolving
+	public static <IN, V> TypeInformation<V> getPreAggregateValueType(
+		PreAggregateFunction<?, V, IN, ?> preAggregateInterface, TypeInformation<IN> inType,
+		String functionName, boolean allowMissing) {
+		return getUnaryOperatorReturnType(
+			preAggregateInterface,
+			PreAggregateFunction.class,
+			2,
+			1,
+			NO_INDEX,
+			inType,
+			functionName,
+			allowMissing);
+	}
 }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.configuration;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+import java.time.Duration;
+
+/**
+ * {@link ConfigOption}s for the controller of the adaptive pre-aggregate operator (AdCom).
+ */
+@PublicEvolving
+public class PreAggregateControllerOptions {
+
+	public static final ConfigOption<Duration> PERIOD =
+		ConfigOptions.key("pre-aggregate.controller.period")
+			.durationType()
+			.defaultValue(Duration.ofSeconds(120))
+			.withDescription("The period between two rounds of the pre-aggregate controller. Each round computes " +
+				"the next interval of every pre-aggregate subtask.");
+
+	public static final ConfigOption<String> POLICY =
+		ConfigOptions.key("pre-aggregate.controller.policy")
+			.stringType()
+			.defaultValue("pi")
+			.withDescription("The policy that computes the next interval of the pre-aggregate subtasks from their " +
+				"signals: 'pi' for a proportional-integral controller per subtask, 'threshold' for the same step " +
+				"of all subtasks when their average output buffer pool usage leaves a reference band, 'aimd' for " +
+				"an additive-increase/multiplicative-decrease of the rate of emitted partials per subtask, or the " +
+				"fully qualified class name of a PreAggregateControllerPolicy with a public constructor that " +
+				"takes the Configuration of the controller.");
+
+	public static final ConfigOption<String> TRACE_DIRECTORY =
+		ConfigOptions.key("pre-aggregate.controller.trace-dir")
+			.stringType()
+			.noDefaultValue()
+			.withDescription("The directory where the pre-aggregate controller records the signals of every " +
+				"subtask and every new interval to a trace file per pre-aggregate operator. The traces can be " +
+				"replayed offline against any policy with the PreAggregateSimulator. Tracing is disabled if it " +
+				"is not set.");
+
+	public static final ConfigOption<Duration> SIGNALS_SAMPLING_INTERVAL =
+		ConfigOptions.key("pre-aggregate.controller.signals.sampling-interval")
+			.durationType()
+			.defaultValue(Duration.ofSeconds(30))
+			.withDescription("The interval between two samples of the buffer usages, the idle time and the " +
+				"throughput of a pre-aggregate subtask. The metrics are looked up once, so intervals of one second " +
+				"or less are cheap and let the controller react to short rate spikes.");
+
+	public static final ConfigOption<Duration> SIGNALS_PUBLISH_INTERVAL =
+		ConfigOptions.key("pre-aggregate.controller.signals.publish-interval")
+			.durationType()
+			.defaultValue(Duration.ofSeconds(30))
+			.withDescription("The interval between two publications of the signals of a pre-aggregate subtask to " +
+				"the controller. It cannot be lower than the sampling interval and should not be greater than the " +
+				"period of the controller.");
+
+	public static final ConfigOption<Double> SIGNALS_EWMA_ALPHA =
+		ConfigOptions.key("pre-aggregate.controller.signals.ewma-alpha")
+			.doubleType()
+			.defaultValue(0.0)
+			.withDescription("The weight, in (0, 1], of the newest sample in the exponentially weighted mean of " +
+				"the buffer usages that a pre-aggregate subtask publishes, together with the min, max and quantiles " +
+				"of the samples since its last publication. The default 0 publishes the statistics " +
+				"of a reservoir histogram over the last two minutes instead, which is too slow to follow short " +
+				"rate spikes.");
+
+	public static final ConfigOption<Double> HYSTERESIS =
+		ConfigOptions.key("pre-aggregate.controller.hysteresis")
+			.doubleType()
+			.defaultValue(0.0)
+			.withDescription("The band, in percent of output buffer pool usage around the setpoint, in which the " +
+				"pre-aggregate controller keeps the interval of a subtask and does not integrate the error. It " +
+				"avoids oscillations of a fast controller around the setpoint.");
+
+	public static final ConfigOption<Double> SETPOINT =
+		ConfigOptions.key("pre-aggregate.controller.setpoint")
+			.doubleType()
+			.defaultValue(50.0)
+			.withDescription("The output buffer pool usage, in percent, that the pre-aggregate controller tries " +
+				"to keep on every pre-aggregate subtask.");
+
+	public static final ConfigOption<Duration> LATENCY_SLO =
+		ConfigOptions.key("pre-aggregate.controller.latency-slo")
+			.durationType()
+			.defaultValue(Duration.ZERO)
+			.withDescription("The latency objective of the records up to the output of a pre-aggregate subtask. " +
+				"The controller caps the interval of every subtask at the objective minus the latency measured " +
+				"by the latency markers up to the subtask, so the pre-aggregation maximizes the throughput " +
+				"without violating the objective, and the subtasks count the flushes that violated it. It " +
+				"requires the latency tracking of the job. The default 0 disables the objective.");
+
+	public static final ConfigOption<Double> LATENCY_SLO_QUANTILE =
+		ConfigOptions.key("pre-aggregate.controller.latency-slo.quantile")
+			.doubleType()
+			.defaultValue(0.99)
+			.withDescription("The quantile of the latency markers that has to respect " +
+				"'pre-aggregate.controller.latency-slo'.");
+
+	public static final ConfigOption<Double> PROPORTIONAL_GAIN =
+		ConfigOptions.key("pre-aggregate.controller.kp")
+			.doubleType()
+			.defaultValue(10.0)
+			.withDescription("The proportional gain of the pre-aggregate controller, in milliseconds of interval " +
+				"per percent of output buffer pool usage above the setpoint.");
+
+	public static final ConfigOption<Double> INTEGRAL_GAIN =
+		ConfigOptions.key("pre-aggregate.controller.ki")
+			.doubleType()
+			.defaultValue(0.1)
+			.withDescription("The integral gain of the pre-aggregate controller, in milliseconds of interval " +
+				"per percent of output buffer pool usage above the setpoint and per second.");
+
+	public static final ConfigOption<Double> DERIVATIVE_GAIN =
+		ConfigOptions.key("pre-aggregate.controller.kd")
+			.doubleType()
+			.defaultValue(0.0)
+			.withDescription("The derivative gain of the pre-aggregate controller, in milliseconds of interval " +
+				"per percent of output buffer pool usage change per second. The default 0 disables the " +
+				"derivative term.");
+
+	public static final ConfigOption<Duration> AIMD_ADDITIVE_STEP =
+		ConfigOptions.key("pre-aggregate.controller.aimd.additive-step")
+			.durationType()
+			.defaultValue(Duration.ofMillis(100))
+			.withDescription("The step by which the 'aimd' policy decreases the interval of a pre-aggregate " +
+				"subtask whose output buffer pool usage is below the setpoint.");
+
+	public static final ConfigOption<Double> AIMD_MULTIPLICATIVE_FACTOR =
+		ConfigOptions.key("pre-aggregate.controller.aimd.multiplicative-factor")
+			.doubleType()
+			.defaultValue(2.0)
+			.withDescription("The factor, greater than 1, by which the 'aimd' policy multiplies the interval of a " +
+				"pre-aggregate subtask whose output buffer pool usage is above the setpoint.");
+
+	public static final ConfigOption<Duration> MIN_INTERVAL =
+		ConfigOptions.key("pre-aggregate.controller.min-interval")
+			.durationType()
+			.defaultValue(Duration.ofMillis(50))
+			.withDescription("The minimum interval that the pre-aggregate controller assigns to a pre-aggregate " +
+				"subtask. It cannot be lower than 50 ms.");
+
+	public static final ConfigOption<Duration> MAX_INTERVAL =
+		ConfigOptions.key("pre-aggregate.controller.max-interval")
+			.durationType()
+			.defaultValue(Duration.ofSeconds(10))
+			.withDescription("The maximum interval that the pre-aggregate controller assigns to a pre-aggregate " +
+				"subtask.");
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.configuration;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+import java.time.Duration;
+
+/**
+ * {@link ConfigOption}s for the pre-aggregate operator and its bundle.
+ */
+@PublicEvolving
+public class PreAggregateOptions {
+
+	public static final ConfigOption<Boolean> AUTO_COMBINE_ENABLED =
+		ConfigOptions.key("pre-aggregate.auto-combine.enabled")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Whether the stream graph generator inserts an adaptive pre-aggregate operator " +
+				"before the shuffle of every keyed reduce, including the sum, min and max aggregations. The " +
+				"pre-aggregation is chained to the upstream operator and uses the reduce function itself, so " +
+				"the function has to be associative. Reduces with a rich function, in batch execution mode, " +
+				"on a key group partition that has other consumers or downstream of a timestamp and watermark " +
+				"assigner, a source with a watermark strategy or ingestion time are left untouched.");
+
+	public static final ConfigOption<Duration> AUTO_COMBINE_INTERVAL =
+		ConfigOptions.key("pre-aggregate.auto-combine.interval")
+			.durationType()
+			.defaultValue(Duration.ofMillis(500))
+			.withDescription("The initial interval of the pre-aggregate operators inserted by " +
+				"'pre-aggregate.auto-combine.enabled'. The interval is adapted by the controller afterwards.");
+
+	public static final ConfigOption<Boolean> HEAVY_HITTERS_ENABLED =
+		ConfigOptions.key("pre-aggregate.heavy-hitters.enabled")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Whether the pre-aggregate operator buffers only the keys that are estimated to " +
+				"be heavy hitters and forwards the elements of the other keys immediately. The frequencies of " +
+				"the keys are estimated with a Space-Saving sketch of 'pre-aggregate.heavy-hitters.capacity' " +
+				"counters that is reset whenever the bundle is flushed, so the bundle scales with the number of " +
+				"heavy hitters instead of the number of distinct keys. It does not apply to the event-time mode " +
+				"and to primitive-specialized functions.");
+
+	public static final ConfigOption<Integer> HEAVY_HITTERS_CAPACITY =
+		ConfigOptions.key("pre-aggregate.heavy-hitters.capacity")
+			.intType()
+			.defaultValue(1024)
+			.withDescription("The number of keys whose frequency the pre-aggregate operator tracks when " +
+				"'pre-aggregate.heavy-hitters.enabled' is set. A key that makes more than 1 / capacity of the " +
+				"elements of an interval is always detected as a heavy hitter. A key is never taken for a heavy " +
+				"hitter before it occurred 'pre-aggregate.heavy-hitters.min-frequency' times, however many " +
+				"distinct keys the interval has.");
+
+	public static final ConfigOption<Integer> HEAVY_HITTERS_MIN_FREQUENCY =
+		ConfigOptions.key("pre-aggregate.heavy-hitters.min-frequency")
+			.intType()
+			.defaultValue(3)
+			.withDescription("The guaranteed number of occurrences of a key within an interval of the " +
+				"pre-aggregation from which on the key is buffered when 'pre-aggregate.heavy-hitters.enabled' " +
+				"is set. It must be greater than 1.");
+
+	public static final ConfigOption<Boolean> BYPASS_ENABLED =
+		ConfigOptions.key("pre-aggregate.bypass.enabled")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Whether the pre-aggregate operator forwards its elements without buffering them " +
+				"while its bundle does not reduce the data, i.e. while the number of emitted partials divided by " +
+				"the number of buffered elements stays at or above 'pre-aggregate.bypass.reduction-ratio' for " +
+				"three consecutive flushes. The bundle is used again after 'pre-aggregate.bypass.probe-interval' " +
+				"to probe the reduction ratio. The controller does not adapt the interval of a bypassed subtask. " +
+				"It does not apply to the event-time mode and to primitive-specialized functions.");
+
+	public static final ConfigOption<Double> BYPASS_REDUCTION_RATIO =
+		ConfigOptions.key("pre-aggregate.bypass.reduction-ratio")
+			.doubleType()
+			.defaultValue(0.9)
+			.withDescription("The ratio of emitted partials to buffered elements of a flush from which on the " +
+				"bundle does not pay off when 'pre-aggregate.bypass.enabled' is set. It must be in (0, 1].");
+
+	public static final ConfigOption<Duration> BYPASS_PROBE_INTERVAL =
+		ConfigOptions.key("pre-aggregate.bypass.probe-interval")
+			.durationType()
+			.defaultValue(Duration.ofSeconds(10))
+			.withDescription("The time after which a bypassed pre-aggregate operator buffers its elements " +
+				"again to probe whether the bundle reduces the data.");
+
+	public static final ConfigOption<Boolean> BUNDLE_CHANNEL_GROUPING_ENABLED =
+		ConfigOptions.key("pre-aggregate.bundle.channel-grouping.enabled")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Whether the pre-aggregate operator groups the partials of a flush by the " +
+				"downstream channel that their key group is assigned to, and emits them channel by channel " +
+				"instead of in the order of its bundle. The records of a channel are then written one after " +
+				"the other into the same network buffer. The partials are copied to be grouped. It applies on " +
+				"processing time when the operator is the last one of its chain and its only output is " +
+				"partitioned by key.");
+
+	public static final ConfigOption<Boolean> BUNDLE_FLUSH_ON_CHECKPOINT =
+		ConfigOptions.key("pre-aggregate.bundle.flush-on-checkpoint")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Whether the pre-aggregate operator flushes its bundle before it forwards a " +
+				"checkpoint barrier. By default, the bundle is written to the operator state and restored on " +
+				"recovery, which avoids a burst of partial results downstream at every checkpoint. The bundle is " +
+				"always flushed if the types of its keys and values are unknown.");
+
+	public static final ConfigOption<Integer> BUNDLE_FLUSH_SLICE_SIZE =
+		ConfigOptions.key("pre-aggregate.bundle.flush-slice-size")
+			.intType()
+			.defaultValue(0)
+			.withDescription("The maximum number of keys that the pre-aggregate operator emits at once when it " +
+				"flushes its bundle. The flushed bundle is swapped for an empty one and drained in slices that " +
+				"are interleaved with the processing of the input, so a large bundle neither blocks the task " +
+				"thread nor fills the output buffers in one burst. A flush that is still draining completes " +
+				"before the next flush and before a checkpoint barrier. 0 emits the whole bundle at once. It " +
+				"applies to the heap bundle on processing time only.");
+
+	public static final ConfigOption<Boolean> BUNDLE_MANAGED_MEMORY_ENABLED =
+		ConfigOptions.key("pre-aggregate.bundle.managed-memory.enabled")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Whether the pre-aggregate operator stores its bundle as serialized keys and " +
+				"values in managed memory instead of a heap hash map. The bundle is flushed early when the " +
+				"managed memory is exhausted. This requires serializers for the key and the value of the " +
+				"pre-aggregate function. Primitive-specialized functions keep their bundle on the heap.");
+
+	public static final ConfigOption<MemorySize> BUNDLE_MANAGED_MEMORY_SIZE =
+		ConfigOptions.key("pre-aggregate.bundle.managed-memory.size")
+			.memoryType()
+			.defaultValue(MemorySize.parse("32mb"))
+			.withDescription("The managed memory that a pre-aggregate operator requests for its bundle when " +
+				"'pre-aggregate.bundle.managed-memory.enabled' is set. It is used as the operator's weight " +
+				"when the managed memory of a slot is shared among operators.");
+
+	public static final ConfigOption<Boolean> TASK_MANAGER_COMBINE_ENABLED =
+		ConfigOptions.key("pre-aggregate.task-manager-combine.enabled")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Whether the co-located subtasks of a pre-aggregate operator in a TaskManager " +
+				"merge the partials of their flushes into a bundle that they share, so that a hot key is emitted once per " +
+				"TaskManager and interval instead of once per subtask. The subtask that contributes last in an " +
+				"interval, or the first one to flush a full interval after the oldest contribution, emits the " +
+				"shared bundle. The partials of a subtask are only merged with and emitted by the subtasks that " +
+				"have passed the same checkpoint barriers, so the guarantees of the pre-aggregation hold on " +
+				"recovery. It requires a pre-aggregate function that implements PreAggregateValueMerger and " +
+				"applies on processing time only.");
+}
@@ -0,0 +1,45 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+import org.apache.flink.util.Preconditions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An additive-increase/multiplicative-decrease {@link PreAggregateControllerPolicy} on the rate of partials that a
+ * subtask emits, which is the inverse of its interval. A subtask above the setpoint backs off fast by multiplying its
+ * interval, a subtask below the setpoint probes for a lower latency by decreasing its interval by a constant step.
+ * It needs no tuning of gains, but keeps oscillating around the setpoint.
+ */
+public class PreAggregateAimdPolicy implements PreAggregateControllerPolicy {
+
+	private final double setpoint;
+	private final long additiveStepMs;
+	private final double multiplicativeFactor;
+
+	public PreAggregateAimdPolicy(Configuration configuration) {
+		this.setpoint = configuration.get(PreAggregateControllerOptions.SETPOINT);
+		this.additiveStepMs = configuration.get(PreAggregateControllerOptions.AIMD_ADDITIVE_STEP).toMillis();
+		this.multiplicativeFactor = configuration.get(PreAggregateControllerOptions.AIMD_MULTIPLICATIVE_FACTOR);
+		Preconditions.checkArgument(this.additiveStepMs > 0,
+			"The additive step of the pre-aggregate controller must be positive.");
+		Preconditions.checkArgument(this.multiplicativeFactor > 1,
+			"The multiplicative factor of the pre-aggregate controller must be greater than 1.");
+	}
+
+	@Override
+	public Map<Integer, Long> computeNextIntervalsMs(Map<Integer, PreAggregateSignalsState> signals) {
+		Map<Integer, Long> intervalsMsNew = new HashMap<>();
+		for (Map.Entry<Integer, PreAggregateSignalsState> entry : signals.entrySet()) {
+			PreAggregateSignalsState state = entry.getValue();
+			if (state.getOutPoolUsageMean() > setpoint) {
+				intervalsMsNew.put(entry.getKey(), (long) Math.ceil(state.getIntervalMs() * multiplicativeFactor));
+			} else if (state.getOutPoolUsageMean() < setpoint) {
+				intervalsMsNew.put(entry.getKey(), state.getIntervalMs() - additiveStepMs);
+			}
+		}
+		return intervalsMsNew;
+	}
+}
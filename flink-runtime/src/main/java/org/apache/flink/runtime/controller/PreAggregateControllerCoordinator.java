@@ -0,0 +1,163 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.operators.coordination.OperatorCoordinator;
+import org.apache.flink.runtime.operators.coordination.OperatorEvent;
+import org.apache.flink.runtime.operators.coordination.TaskNotRunningException;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OperatorCoordinator} of the PreAggregate operator. It receives the {@link PreAggregateSignalsEvent} of every
+ * pre-aggregate subtask, runs the {@link PreAggregateControllerService} periodically and sends to each subtask its
+ * own new interval as a {@link PreAggregateIntervalEvent}.
+ *
+ * <p>All the controller state is accessed only by the single coordinator thread. Events that arrive after the
+ * coordinator is closed are dropped.
+ */
+public class PreAggregateControllerCoordinator implements OperatorCoordinator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PreAggregateControllerCoordinator.class);
+
+	private final OperatorCoordinator.Context context;
+	private final boolean enableController;
+	private final PreAggregateControllerService controllerService;
+
+	private ScheduledExecutorService executorService;
+	private volatile boolean closed;
+
+	public PreAggregateControllerCoordinator(
+		OperatorCoordinator.Context context,
+		boolean enableController,
+		Configuration configuration) {
+		this.context = context;
+		this.enableController = enableController;
+		this.controllerService = new PreAggregateControllerService(
+			configuration, PreAggregateTraceWriter.create(configuration, context.getOperatorId().toHexString()));
+	}
+
+	@Override
+	public void start() throws Exception {
+		this.executorService = Executors.newSingleThreadScheduledExecutor(
+			new ExecutorThreadFactory("pre-aggregate-controller-coordinator-" + context.getOperatorId()));
+		if (enableController) {
+			long periodMs = controllerService.getControllerPeriodMs();
+			this.executorService.scheduleAtFixedRate(
+				this::runController, periodMs, periodMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		closed = true;
+		if (executorService != null) {
+			executorService.shutdownNow();
+			executorService.awaitTermination(controllerService.getControllerPeriodMs(), TimeUnit.MILLISECONDS);
+		}
+		controllerService.close();
+	}
+
+	@Override
+	public void handleEventFromOperator(int subtask, OperatorEvent event) throws Exception {
+		Preconditions.checkArgument(
+			event instanceof PreAggregateSignalsEvent, "Operator event must be a PreAggregateSignalsEvent");
+		runInCoordinatorThread(() -> controllerService.addSignals((PreAggregateSignalsEvent) event));
+	}
+
+	@Override
+	public void subtaskFailed(int subtask, @Nullable Throwable reason) {
+		runInCoordinatorThread(() -> controllerService.removeSignals(subtask));
+	}
+
+	@Override
+	public void checkpointCoordinator(long checkpointId, CompletableFuture<byte[]> resultFuture) {
+		// the signals are re-published by the subtasks, there is nothing to checkpoint
+		resultFuture.complete(new byte[0]);
+	}
+
+	@Override
+	public void checkpointComplete(long checkpointId) {
+	}
+
+	@Override
+	public void resetToCheckpoint(byte[] checkpointData) {
+	}
+
+	private void runInCoordinatorThread(Runnable action) {
+		if (closed) {
+			LOG.debug("Pre-aggregate controller coordinator is closed, dropping the event.");
+			return;
+		}
+		try {
+			executorService.execute(action);
+		} catch (RejectedExecutionException e) {
+			// closed concurrently
+			LOG.debug("Pre-aggregate controller coordinator is closed, dropping the event.");
+		}
+	}
+
+	private void runController() {
+		try {
+			if (!controllerService.hasSignals()) {
+				return;
+			}
+			Map<Integer, Long> newIntervalsMs = controllerService.computeNextProcTimeIntervalsMs();
+			for (Map.Entry<Integer, Long> entry : newIntervalsMs.entrySet()) {
+				sendInterval(entry.getKey(), entry.getValue());
+			}
+		} catch (Throwable t) {
+			// never let the scheduled controller die because of one bad round
+			LOG.warn("Failed to compute the next interval of the pre-aggregate operator.", t);
+		}
+	}
+
+	private void sendInterval(int subtask, long intervalMs) {
+		try {
+			context.sendEvent(new PreAggregateIntervalEvent(intervalMs), subtask);
+		} catch (TaskNotRunningException e) {
+			LOG.debug("Pre-aggregate subtask {} is not running, skipping the new interval.", subtask);
+		}
+	}
+
+	/**
+	 * Provider for {@link PreAggregateControllerCoordinator}.
+	 */
+	public static class Provider implements OperatorCoordinator.Provider {
+
+		private static final long serialVersionUID = 1L;
+
+		private final OperatorID operatorId;
+		private final boolean enableController;
+		/** the {@link org.apache.flink.configuration.PreAggregateControllerOptions} of the job */
+		private final Configuration configuration;
+
+		public Provider(OperatorID operatorId, boolean enableController, Configuration configuration) {
+			this.operatorId = operatorId;
+			this.enableController = enableController;
+			this.configuration = configuration;
+		}
+
+		@Override
+		public OperatorID getOperatorId() {
+			return operatorId;
+		}
+
+		@Override
+		public OperatorCoordinator create(Context context) {
+			return new PreAggregateControllerCoordinator(context, enableController, configuration);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+
+import java.util.Map;
+
+/**
+ * The policy of the {@link PreAggregateControllerService} that computes the next interval of the pre-aggregate
+ * subtasks from their signals. It is selected with {@link PreAggregateControllerOptions#POLICY}. A custom policy is a
+ * public class with a public constructor that takes the {@link Configuration} of the controller.
+ *
+ * <p>The service only passes the subtasks that published new signals, do not bypass their bundle and are out of the
+ * hysteresis band. It bounds the returned intervals by the min/max interval, the backpressure and bottleneck guards
+ * and the latency objective, so a policy only decides in which direction and how far each subtask moves. A policy is
+ * only called by the single coordinator thread.
+ */
+public interface PreAggregateControllerPolicy {
+
+	/**
+	 * @param signals the signals of the controlled subtasks by subtask index
+	 *
+	 * @return the next interval of the controlled subtasks by subtask index, a subtask that is not in the map keeps
+	 * its interval
+	 */
+	Map<Integer, Long> computeNextIntervalsMs(Map<Integer, PreAggregateSignalsState> signals);
+
+	/**
+	 * Tells the policy the interval that the service applied to a subtask after it bounded the proposed interval, so
+	 * a policy with state does not keep integrating an error that the bounds prevent it from correcting.
+	 *
+	 * @param subtaskIndex a subtask whose interval was proposed by the policy in this round
+	 * @param intervalMs the interval of the subtask after the bounds
+	 */
+	default void intervalApplied(int subtaskIndex, long intervalMs) {
+	}
+
+	/**
+	 * Forgets the state of a subtask, e.g. after it failed.
+	 */
+	default void removeSubtask(int subtaskIndex) {
+	}
+
+	/**
+	 * Creates the policy of {@link PreAggregateControllerOptions#POLICY}. A custom policy class is loaded with the
+	 * context class loader, which is the user code class loader while the coordinator is created.
+	 */
+	static PreAggregateControllerPolicy create(Configuration configuration) {
+		String policy = configuration.get(PreAggregateControllerOptions.POLICY);
+		switch (policy) {
+			case "pi":
+				return new PreAggregatePIPolicy(configuration);
+			case "threshold":
+				return new PreAggregateThresholdPolicy(configuration);
+			case "aimd":
+				return new PreAggregateAimdPolicy(configuration);
+			default:
+				try {
+					return Class.forName(policy, true, Thread.currentThread().getContextClassLoader())
+						.asSubclass(PreAggregateControllerPolicy.class)
+						.getConstructor(Configuration.class)
+						.newInstance(configuration);
+				} catch (ReflectiveOperationException | ClassCastException e) {
+					throw new IllegalConfigurationException(
+						"Could not create the pre-aggregate controller policy '" + policy + "'.", e);
+				}
+		}
+	}
+}
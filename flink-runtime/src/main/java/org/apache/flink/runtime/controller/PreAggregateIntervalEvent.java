@@ -0,0 +1,27 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.runtime.operators.coordination.OperatorEvent;
+
+/**
+ * An operator event sent by the {@link PreAggregateControllerCoordinator} to a pre-aggregate subtask
+ * with the new processing time interval used to emit its bundle.
+ */
+public class PreAggregateIntervalEvent implements OperatorEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long intervalMs;
+
+	public PreAggregateIntervalEvent(long intervalMs) {
+		this.intervalMs = intervalMs;
+	}
+
+	public long getIntervalMs() {
+		return intervalMs;
+	}
+
+	@Override
+	public String toString() {
+		return "PreAggregateIntervalEvent{intervalMs=" + intervalMs + '}';
+	}
+}
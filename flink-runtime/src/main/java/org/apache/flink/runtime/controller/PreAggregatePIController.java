@@ -0,0 +1,97 @@
+package org.apache.flink.runtime.controller;
+
+/**
+ * A proportional-integral(-derivative) controller of the interval of one pre-aggregate subtask. The controlled
+ * variable is the output buffer pool usage (percent) of the subtask and the output is its interval in milliseconds.
+ *
+ * <p>The error is the output pool usage above the setpoint, so a backpressured subtask gets a longer interval. The
+ * controller starts from the interval of the subtask when it is first seen. The integral term is not accumulated
+ * while the output is saturated at the min/max interval in the direction of the error (anti-windup). The same holds
+ * for the bounds of the {@link PreAggregateControllerService}, which it learns from {@link #applied(long)}.
+ */
+public class PreAggregatePIController {
+
+	private final double setpoint;
+	private final double kp;
+	private final double ki;
+	private final double kd;
+	private final long minIntervalMs;
+	private final long maxIntervalMs;
+
+	private boolean initialized;
+	/** the interval of the subtask when the controller started */
+	private double biasMs;
+	private double integral;
+	private double previousError;
+	/** the integral before the last update and the output of the last update */
+	private double previousIntegral;
+	private long lastOutputMs;
+
+	public PreAggregatePIController(
+		double setpoint,
+		double kp,
+		double ki,
+		double kd,
+		long minIntervalMs,
+		long maxIntervalMs) {
+		this.setpoint = setpoint;
+		this.kp = kp;
+		this.ki = ki;
+		this.kd = kd;
+		this.minIntervalMs = minIntervalMs;
+		this.maxIntervalMs = maxIntervalMs;
+		this.initialized = false;
+	}
+
+	/**
+	 * @param outPoolUsage the measured output buffer pool usage of the subtask in percent
+	 * @param currentIntervalMs the interval currently used by the subtask
+	 * @param elapsedSec the time elapsed since the previous update
+	 *
+	 * @return the next interval of the subtask, between the min and max interval
+	 */
+	public long update(double outPoolUsage, long currentIntervalMs, double elapsedSec) {
+		double error = outPoolUsage - setpoint;
+		if (!initialized) {
+			biasMs = currentIntervalMs;
+			previousError = error;
+			initialized = true;
+		}
+		double derivative = elapsedSec > 0 ? (error - previousError) / elapsedSec : 0.0;
+		previousIntegral = integral;
+		double nextIntegral = integral + error * elapsedSec;
+		double output = biasMs + kp * error + ki * nextIntegral + kd * derivative;
+
+		// anti-windup: only integrate if the output is not saturated in the direction of the error
+		boolean saturatedHigh = output > maxIntervalMs && error > 0;
+		boolean saturatedLow = output < minIntervalMs && error < 0;
+		if (!saturatedHigh && !saturatedLow) {
+			integral = nextIntegral;
+		} else {
+			output = biasMs + kp * error + ki * integral + kd * derivative;
+		}
+		previousError = error;
+
+		lastOutputMs = Math.max(minIntervalMs, Math.min(maxIntervalMs, Math.round(output)));
+		return lastOutputMs;
+	}
+
+	/**
+	 * Takes back the integration of the last update if the interval applied to the subtask was bounded below the
+	 * output for a positive error or above the output for a negative error, e.g. by the latency objective or the
+	 * backpressure guards of the service. Otherwise the integral would wind up while the bound holds and the interval
+	 * would overshoot once the bound is lifted.
+	 *
+	 * @param appliedIntervalMs the interval applied to the subtask after the last update
+	 */
+	public void applied(long appliedIntervalMs) {
+		if ((appliedIntervalMs < lastOutputMs && previousError > 0)
+			|| (appliedIntervalMs > lastOutputMs && previousError < 0)) {
+			integral = previousIntegral;
+		}
+	}
+
+	double getIntegral() {
+		return integral;
+	}
+}
@@ -0,0 +1,63 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The default {@link PreAggregateControllerPolicy}: every subtask has its own {@link PreAggregatePIController}, so a
+ * skewed subtask pays the extra latency alone.
+ */
+public class PreAggregatePIPolicy implements PreAggregateControllerPolicy {
+
+	private final double setpoint;
+	private final double kp;
+	private final double ki;
+	private final double kd;
+	private final long minIntervalMs;
+	private final long maxIntervalMs;
+	private final double controllerPeriodSec;
+	// The PI controller of each pre-agg physical operator using the subtaskIndex as the key
+	private final Map<Integer, PreAggregatePIController> piControllers;
+
+	public PreAggregatePIPolicy(Configuration configuration) {
+		this.setpoint = configuration.get(PreAggregateControllerOptions.SETPOINT);
+		this.kp = configuration.get(PreAggregateControllerOptions.PROPORTIONAL_GAIN);
+		this.ki = configuration.get(PreAggregateControllerOptions.INTEGRAL_GAIN);
+		this.kd = configuration.get(PreAggregateControllerOptions.DERIVATIVE_GAIN);
+		this.minIntervalMs = configuration.get(PreAggregateControllerOptions.MIN_INTERVAL).toMillis();
+		this.maxIntervalMs = configuration.get(PreAggregateControllerOptions.MAX_INTERVAL).toMillis();
+		this.controllerPeriodSec = configuration.get(PreAggregateControllerOptions.PERIOD).toMillis() / 1000.0;
+		this.piControllers = new HashMap<>();
+	}
+
+	@Override
+	public Map<Integer, Long> computeNextIntervalsMs(Map<Integer, PreAggregateSignalsState> signals) {
+		Map<Integer, Long> intervalsMsNew = new HashMap<>();
+		for (Map.Entry<Integer, PreAggregateSignalsState> entry : signals.entrySet()) {
+			PreAggregateSignalsState state = entry.getValue();
+			PreAggregatePIController piController = this.piControllers.computeIfAbsent(
+				entry.getKey(),
+				index -> new PreAggregatePIController(setpoint, kp, ki, kd, minIntervalMs, maxIntervalMs));
+			intervalsMsNew.put(
+				entry.getKey(),
+				piController.update(state.getOutPoolUsageMean(), state.getIntervalMs(), controllerPeriodSec));
+		}
+		return intervalsMsNew;
+	}
+
+	@Override
+	public void intervalApplied(int subtaskIndex, long intervalMs) {
+		PreAggregatePIController piController = this.piControllers.get(subtaskIndex);
+		if (piController != null) {
+			piController.applied(intervalMs);
+		}
+	}
+
+	@Override
+	public void removeSubtask(int subtaskIndex) {
+		this.piControllers.remove(subtaskIndex);
+	}
+}
@@ -0,0 +1,190 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.runtime.operators.coordination.OperatorEvent;
+
+/**
+ * An operator event sent by each pre-aggregate subtask to the {@link PreAggregateControllerCoordinator}
+ * carrying the signals collected since the last publication.
+ */
+public class PreAggregateSignalsEvent implements OperatorEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int subtaskIndex;
+	// Network buffer usage
+	private final long outPoolUsageMin;
+	private final long outPoolUsageMax;
+	private final double outPoolUsageMean;
+	private final double outPoolUsage05;
+	private final double outPoolUsage075;
+	private final double outPoolUsage095;
+	private final double outPoolUsage099;
+	private final double outPoolUsageStdDev;
+	// Throughput
+	private final double numRecordsInPerSecond;
+	private final double numRecordsOutPerSecond;
+	// interval in milliseconds
+	private final long intervalMs;
+	// bypass of the bundle and its last reduction ratio (emitted / buffered records), -1 if unknown
+	private final boolean bypassed;
+	private final double reductionRatio;
+	// input buffer usage of the task and time per second it is idle, waiting for input or blocked on output buffers
+	private final double inPoolUsageMean;
+	private final double idleTimeMsPerSecond;
+	// latency quantile of the latency markers up to the subtask and max time a record waited in the bundle, -1 if unknown
+	private final long upstreamLatencyMs;
+	private final long bufferingDelayMs;
+
+	public PreAggregateSignalsEvent(
+		int subtaskIndex,
+		long outPoolUsageMin,
+		long outPoolUsageMax,
+		double outPoolUsageMean,
+		double outPoolUsage05,
+		double outPoolUsage075,
+		double outPoolUsage095,
+		double outPoolUsage099,
+		double outPoolUsageStdDev,
+		double numRecordsInPerSecond,
+		double numRecordsOutPerSecond,
+		long intervalMs) {
+		this(subtaskIndex, outPoolUsageMin, outPoolUsageMax, outPoolUsageMean, outPoolUsage05, outPoolUsage075,
+			outPoolUsage095, outPoolUsage099, outPoolUsageStdDev, numRecordsInPerSecond, numRecordsOutPerSecond,
+			intervalMs, false, -1.0, -1.0, -1.0, -1, -1);
+	}
+
+	public PreAggregateSignalsEvent(
+		int subtaskIndex,
+		long outPoolUsageMin,
+		long outPoolUsageMax,
+		double outPoolUsageMean,
+		double outPoolUsage05,
+		double outPoolUsage075,
+		double outPoolUsage095,
+		double outPoolUsage099,
+		double outPoolUsageStdDev,
+		double numRecordsInPerSecond,
+		double numRecordsOutPerSecond,
+		long intervalMs,
+		boolean bypassed,
+		double reductionRatio,
+		double inPoolUsageMean,
+		double idleTimeMsPerSecond,
+		long upstreamLatencyMs,
+		long bufferingDelayMs) {
+		this.subtaskIndex = subtaskIndex;
+		this.outPoolUsageMin = outPoolUsageMin;
+		this.outPoolUsageMax = outPoolUsageMax;
+		this.outPoolUsageMean = outPoolUsageMean;
+		this.outPoolUsage05 = outPoolUsage05;
+		this.outPoolUsage075 = outPoolUsage075;
+		this.outPoolUsage095 = outPoolUsage095;
+		this.outPoolUsage099 = outPoolUsage099;
+		this.outPoolUsageStdDev = outPoolUsageStdDev;
+		this.numRecordsInPerSecond = numRecordsInPerSecond;
+		this.numRecordsOutPerSecond = numRecordsOutPerSecond;
+		this.intervalMs = intervalMs;
+		this.bypassed = bypassed;
+		this.reductionRatio = reductionRatio;
+		this.inPoolUsageMean = inPoolUsageMean;
+		this.idleTimeMsPerSecond = idleTimeMsPerSecond;
+		this.upstreamLatencyMs = upstreamLatencyMs;
+		this.bufferingDelayMs = bufferingDelayMs;
+	}
+
+	public int getSubtaskIndex() {
+		return subtaskIndex;
+	}
+
+	public long getOutPoolUsageMin() {
+		return outPoolUsageMin;
+	}
+
+	public long getOutPoolUsageMax() {
+		return outPoolUsageMax;
+	}
+
+	public double getOutPoolUsageMean() {
+		return outPoolUsageMean;
+	}
+
+	public double getOutPoolUsage05() {
+		return outPoolUsage05;
+	}
+
+	public double getOutPoolUsage075() {
+		return outPoolUsage075;
+	}
+
+	public double getOutPoolUsage095() {
+		return outPoolUsage095;
+	}
+
+	public double getOutPoolUsage099() {
+		return outPoolUsage099;
+	}
+
+	public double getOutPoolUsageStdDev() {
+		return outPoolUsageStdDev;
+	}
+
+	public double getNumRecordsInPerSecond() {
+		return numRecordsInPerSecond;
+	}
+
+	public double getNumRecordsOutPerSecond() {
+		return numRecordsOutPerSecond;
+	}
+
+	public long getIntervalMs() {
+		return intervalMs;
+	}
+
+	public boolean isBypassed() {
+		return bypassed;
+	}
+
+	public double getReductionRatio() {
+		return reductionRatio;
+	}
+
+	public double getInPoolUsageMean() {
+		return inPoolUsageMean;
+	}
+
+	public double getIdleTimeMsPerSecond() {
+		return idleTimeMsPerSecond;
+	}
+
+	public long getUpstreamLatencyMs() {
+		return upstreamLatencyMs;
+	}
+
+	public long getBufferingDelayMs() {
+		return bufferingDelayMs;
+	}
+
+	@Override
+	public String toString() {
+		return "PreAggregateSignalsEvent{" +
+			"subtaskIndex=" + subtaskIndex +
+			", outPoolUsageMin=" + outPoolUsageMin +
+			", outPoolUsageMax=" + outPoolUsageMax +
+			", outPoolUsageMean=" + outPoolUsageMean +
+			", outPoolUsage05=" + outPoolUsage05 +
+			", outPoolUsage075=" + outPoolUsage075 +
+			", outPoolUsage095=" + outPoolUsage095 +
+			", outPoolUsage099=" + outPoolUsage099 +
+			", outPoolUsageStdDev=" + outPoolUsageStdDev +
+			", numRecordsInPerSecond=" + numRecordsInPerSecond +
+			", numRecordsOutPerSecond=" + numRecordsOutPerSecond +
+			", intervalMs=" + intervalMs +
+			", bypassed=" + bypassed +
+			", reductionRatio=" + reductionRatio +
+			", inPoolUsageMean=" + inPoolUsageMean +
+			", idleTimeMsPerSecond=" + idleTimeMsPerSecond +
+			", upstreamLatencyMs=" + upstreamLatencyMs +
+			", bufferingDelayMs=" + bufferingDelayMs +
+			'}';
+	}
+}
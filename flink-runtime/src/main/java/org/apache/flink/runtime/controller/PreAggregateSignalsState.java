@@ -17,147 +17,97 @@ public class PreAggregateSignalsState {
 	private final double[] numRecordsOutPerSecond;
 	// interval in milliseconds
 	private final long[] intervalMs;
-
-	public PreAggregateSignalsState(
-		String subtaskIndex,
-		String outPoolUsageMin,
-		String outPoolUsageMax,
-		String outPoolUsageMean,
-		String outPoolUsage05,
-		String outPoolUsage075,
-		String outPoolUsage095,
-		String outPoolUsage099,
-		String outPoolUsageStdDev,
-		String numRecordsInPerSecond,
-		String numRecordsOutPerSecond,
-		String intervalMs) {
-
-		this.subtaskIndex = Integer.parseInt(subtaskIndex);
+	// bypass of the bundle and its reduction ratio
+	private boolean bypassed;
+	private final double[] reductionRatio;
+	// input buffer usage and idle time of the task
+	private final double[] inPoolUsageMean;
+	private final double[] idleTimeMsPerSecond;
+	// latency up to the subtask and time the records waited in the bundle
+	private final long[] upstreamLatencyMs;
+	private final long[] bufferingDelayMs;
+	// signals received since the controller read them for the last time
+	private boolean fresh;
+
+	public PreAggregateSignalsState(PreAggregateSignalsEvent signals) {
+		this.subtaskIndex = signals.getSubtaskIndex();
 		// Network buffer usage
-		this.outPoolUsageMin = new long[]{Long.parseLong(outPoolUsageMin), -1, -1};
-		this.outPoolUsageMax = new long[]{Long.parseLong(outPoolUsageMax), -1, -1};
-		this.outPoolUsageMean = new double[]{Double.parseDouble(outPoolUsageMean), -1.0, -1.0};
-		this.outPoolUsage05 = new double[]{Double.parseDouble(outPoolUsage05), -1.0, -1.0};
-		this.outPoolUsage075 = new double[]{Double.parseDouble(outPoolUsage075), -1.0, -1.0};
-		this.outPoolUsage095 = new double[]{Double.parseDouble(outPoolUsage095), -1.0, -1.0};
-		this.outPoolUsage099 = new double[]{Double.parseDouble(outPoolUsage099), -1.0, -1.0};
-		this.outPoolUsageStdDev = new double[]{Double.parseDouble(outPoolUsageStdDev), -1.0, -1.0};
+		this.outPoolUsageMin = new long[]{signals.getOutPoolUsageMin(), -1, -1};
+		this.outPoolUsageMax = new long[]{signals.getOutPoolUsageMax(), -1, -1};
+		this.outPoolUsageMean = new double[]{signals.getOutPoolUsageMean(), -1.0, -1.0};
+		this.outPoolUsage05 = new double[]{signals.getOutPoolUsage05(), -1.0, -1.0};
+		this.outPoolUsage075 = new double[]{signals.getOutPoolUsage075(), -1.0, -1.0};
+		this.outPoolUsage095 = new double[]{signals.getOutPoolUsage095(), -1.0, -1.0};
+		this.outPoolUsage099 = new double[]{signals.getOutPoolUsage099(), -1.0, -1.0};
+		this.outPoolUsageStdDev = new double[]{signals.getOutPoolUsageStdDev(), -1.0, -1.0};
 		// Throughput
-		this.numRecordsInPerSecond = new double[]{Double.parseDouble(numRecordsInPerSecond), -1.0, -1.0};
-		this.numRecordsOutPerSecond = new double[]{Double.parseDouble(numRecordsOutPerSecond), -1.0, -1.0};
+		this.numRecordsInPerSecond = new double[]{signals.getNumRecordsInPerSecond(), -1.0, -1.0};
+		this.numRecordsOutPerSecond = new double[]{signals.getNumRecordsOutPerSecond(), -1.0, -1.0};
 		// Pre-agg intervalMs
-		this.intervalMs = new long[]{Long.parseLong(intervalMs), -1, -1};
-	}
-
-	public static void main(String[] args) {
-		PreAggregateSignalsState p = new PreAggregateSignalsState("0", "1", "1", "1",
-			"1", "1", "1", "1", "1",
-			"1", "1", "1");
-		p.update("0", "1", "1", "1",
-			"1", "1", "1", "1", "1",
-			"1", "1", "1");
-		System.out.println(
-			"subtask[" + p.getSubtaskIndex() + "] OutPoolUsageMin[" + p.getOutPoolUsageMin() +
-				"] OutPoolUsageMean[" + p.getOutPoolUsageMean() + "]");
-
-		p.update("0", "1", "1", "1",
-			"1", "1", "1", "1", "1",
-			"1", "1", "1");
-		p.update("0", "1", "1", "1",
-			"1", "1", "1", "1", "1",
-			"1", "1", "1");
-		System.out.println(
-			"subtask[" + p.getSubtaskIndex() + "] OutPoolUsageMin[" + p.getOutPoolUsageMin() +
-				"] OutPoolUsageMean[" + p.getOutPoolUsageMean() + "]");
-	}
-
-	public void update(
-		String subtaskIndex,
-		String outPoolUsageMin,
-		String outPoolUsageMax,
-		String outPoolUsageMean,
-		String outPoolUsage05,
-		String outPoolUsage075,
-		String outPoolUsage095,
-		String outPoolUsage099,
-		String outPoolUsageStdDev,
-		String numRecordsInPerSecond,
-		String numRecordsOutPerSecond,
-		String intervalMs) {
-		if (this.subtaskIndex != Integer.parseInt(subtaskIndex)) {
+		this.intervalMs = new long[]{signals.getIntervalMs(), -1, -1};
+		// Bypass
+		this.bypassed = signals.isBypassed();
+		this.reductionRatio = new double[]{signals.getReductionRatio(), -1.0, -1.0};
+		// Input buffer usage and idle time
+		this.inPoolUsageMean = new double[]{signals.getInPoolUsageMean(), -1.0, -1.0};
+		this.idleTimeMsPerSecond = new double[]{signals.getIdleTimeMsPerSecond(), -1.0, -1.0};
+		// Latency
+		this.upstreamLatencyMs = new long[]{signals.getUpstreamLatencyMs(), -1, -1};
+		this.bufferingDelayMs = new long[]{signals.getBufferingDelayMs(), -1, -1};
+		this.fresh = true;
+	}
+
+	public void update(PreAggregateSignalsEvent signals) {
+		if (this.subtaskIndex != signals.getSubtaskIndex()) {
 			System.out.println(
-				"[PreAggregateSignalsState] ERROR: current subtaskIndex[" + subtaskIndex
+				"[PreAggregateSignalsState] ERROR: current subtaskIndex[" + signals.getSubtaskIndex()
 					+ "] is not equal to the state subtaskIndex[" + this.subtaskIndex + "]");
 			return;
 		}
 		// Network buffer usage
-		long outPoolUsageMin01 = this.outPoolUsageMin[0];
-		long outPoolUsageMin02 = this.outPoolUsageMin[1];
-		this.outPoolUsageMin[0] = Long.parseLong(outPoolUsageMin);
-		this.outPoolUsageMin[1] = outPoolUsageMin01;
-		this.outPoolUsageMin[2] = outPoolUsageMin02;
-
-		long outPoolUsageMax01 = this.outPoolUsageMax[0];
-		long outPoolUsageMax02 = this.outPoolUsageMax[1];
-		this.outPoolUsageMax[0] = Long.parseLong(outPoolUsageMax);
-		this.outPoolUsageMax[1] = outPoolUsageMax01;
-		this.outPoolUsageMax[2] = outPoolUsageMax02;
-
-		double outPoolUsageMean01 = this.outPoolUsageMean[0];
-		double outPoolUsageMean02 = this.outPoolUsageMean[1];
-		this.outPoolUsageMean[0] = Double.parseDouble(outPoolUsageMean);
-		this.outPoolUsageMean[1] = outPoolUsageMean01;
-		this.outPoolUsageMean[2] = outPoolUsageMean02;
-
-		double outPoolUsage0501 = this.outPoolUsage05[0];
-		double outPoolUsage0502 = this.outPoolUsage05[1];
-		this.outPoolUsage05[0] = Double.parseDouble(outPoolUsage05);
-		this.outPoolUsage05[1] = outPoolUsage0501;
-		this.outPoolUsage05[2] = outPoolUsage0502;
-
-		double outPoolUsage07501 = this.outPoolUsage075[0];
-		double outPoolUsage07502 = this.outPoolUsage075[1];
-		this.outPoolUsage075[0] = Double.parseDouble(outPoolUsage075);
-		this.outPoolUsage075[1] = outPoolUsage07501;
-		this.outPoolUsage075[2] = outPoolUsage07502;
-
-		double outPoolUsage09501 = this.outPoolUsage095[0];
-		double outPoolUsage09502 = this.outPoolUsage095[1];
-		this.outPoolUsage095[0] = Double.parseDouble(outPoolUsage095);
-		this.outPoolUsage095[1] = outPoolUsage09501;
-		this.outPoolUsage095[2] = outPoolUsage09502;
-
-		double outPoolUsage09901 = this.outPoolUsage099[0];
-		double outPoolUsage09902 = this.outPoolUsage099[1];
-		this.outPoolUsage099[0] = Double.parseDouble(outPoolUsage099);
-		this.outPoolUsage099[1] = outPoolUsage09901;
-		this.outPoolUsage099[2] = outPoolUsage09902;
-
-		double outPoolUsageStdDev01 = this.outPoolUsageStdDev[0];
-		double outPoolUsageStdDev02 = this.outPoolUsageStdDev[1];
-		this.outPoolUsageStdDev[0] = Double.parseDouble(outPoolUsageStdDev);
-		this.outPoolUsageStdDev[1] = outPoolUsageStdDev01;
-		this.outPoolUsageStdDev[2] = outPoolUsageStdDev02;
-
+		shift(this.outPoolUsageMin, signals.getOutPoolUsageMin());
+		shift(this.outPoolUsageMax, signals.getOutPoolUsageMax());
+		shift(this.outPoolUsageMean, signals.getOutPoolUsageMean());
+		shift(this.outPoolUsage05, signals.getOutPoolUsage05());
+		shift(this.outPoolUsage075, signals.getOutPoolUsage075());
+		shift(this.outPoolUsage095, signals.getOutPoolUsage095());
+		shift(this.outPoolUsage099, signals.getOutPoolUsage099());
+		shift(this.outPoolUsageStdDev, signals.getOutPoolUsageStdDev());
 		// Throughput
-		double numRecordsInPerSecond01 = this.numRecordsInPerSecond[0];
-		double numRecordsInPerSecond02 = this.numRecordsInPerSecond[1];
-		this.numRecordsInPerSecond[0] = Double.parseDouble(numRecordsInPerSecond);
-		this.numRecordsInPerSecond[1] = numRecordsInPerSecond01;
-		this.numRecordsInPerSecond[2] = numRecordsInPerSecond02;
-
-		double numRecordsOutPerSecond01 = this.numRecordsOutPerSecond[0];
-		double numRecordsOutPerSecond02 = this.numRecordsOutPerSecond[1];
-		this.numRecordsOutPerSecond[0] = Double.parseDouble(numRecordsOutPerSecond);
-		this.numRecordsOutPerSecond[1] = numRecordsOutPerSecond01;
-		this.numRecordsOutPerSecond[2] = numRecordsOutPerSecond02;
-
+		shift(this.numRecordsInPerSecond, signals.getNumRecordsInPerSecond());
+		shift(this.numRecordsOutPerSecond, signals.getNumRecordsOutPerSecond());
 		// Pre-agg interval milliseconds
-		long intervalMs01 = this.intervalMs[0];
-		long intervalMs02 = this.intervalMs[1];
-		this.intervalMs[0] = Long.parseLong(intervalMs);
-		this.intervalMs[1] = intervalMs01;
-		this.intervalMs[2] = intervalMs02;
+		shift(this.intervalMs, signals.getIntervalMs());
+		// Bypass
+		this.bypassed = signals.isBypassed();
+		shift(this.reductionRatio, signals.getReductionRatio());
+		// Input buffer usage and idle time
+		shift(this.inPoolUsageMean, signals.getInPoolUsageMean());
+		shift(this.idleTimeMsPerSecond, signals.getIdleTimeMsPerSecond());
+		// Latency
+		shift(this.upstreamLatencyMs, signals.getUpstreamLatencyMs());
+		shift(this.bufferingDelayMs, signals.getBufferingDelayMs());
+		this.fresh = true;
+	}
+
+	/**
+	 * @return true only once after every new signals received from the subtask.
+	 */
+	public boolean consumeFreshSignals() {
+		boolean wasFresh = this.fresh;
+		this.fresh = false;
+		return wasFresh;
+	}
+
+	/** Keeps the last three samples of a signal, the most recent one at position 0. */
+	private void shift(long[] values, long newValue) {
+		System.arraycopy(values, 0, values, 1, values.length - 1);
+		values[0] = newValue;
+	}
+
+	private void shift(double[] values, double newValue) {
+		System.arraycopy(values, 0, values, 1, values.length - 1);
+		values[0] = newValue;
 	}
 
 	public int getSubtaskIndex() {
@@ -168,6 +118,50 @@ public class PreAggregateSignalsState {
 		return intervalMs[0];
 	}
 
+	/**
+	 * @return true if the subtask forwards its records without buffering them.
+	 */
+	public boolean isBypassed() {
+		return bypassed;
+	}
+
+	public double getReductionRatio() {
+		return reductionRatio[0];
+	}
+
+	public double getInPoolUsageMean() {
+		return inPoolUsageMean[0];
+	}
+
+	public double getInPoolUsageMeanAvg() {
+		return average(inPoolUsageMean);
+	}
+
+	public double getIdleTimeMsPerSecond() {
+		return idleTimeMsPerSecond[0];
+	}
+
+	/**
+	 * @return the latency quantile of the latency markers up to the subtask, or -1 if unknown.
+	 */
+	public long getUpstreamLatencyMs() {
+		return upstreamLatencyMs[0];
+	}
+
+	public long getBufferingDelayMs() {
+		return bufferingDelayMs[0];
+	}
+
+	/**
+	 * @return the busy time of the task in milliseconds per second, or -1 if unknown.
+	 */
+	public double getBusyTimeMsPerSecond() {
+		if (idleTimeMsPerSecond[0] < 0) {
+			return -1.0;
+		}
+		return Math.max(0.0, 1000.0 - idleTimeMsPerSecond[0]);
+	}
+
 	public long getOutPoolUsageMin() {
 		return outPoolUsageMin[0];
 	}
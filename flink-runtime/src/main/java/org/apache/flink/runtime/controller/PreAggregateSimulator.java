@@ -0,0 +1,377 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.api.java.utils.ParameterTool;
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+import org.apache.flink.util.Preconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Replays a {@link PreAggregateTrace} against the {@link PreAggregateControllerPolicy}s offline and deterministically.
+ * The trace only provides the input rate and the initial interval of every subtask, the simulator closes the loop
+ * with a model of the combiners and of the shared downstream operator:
+ *
+ * <ul>
+ *     <li>a subtask with the input rate r and the interval I emits one partial per distinct key of its r * I
+ *     records, which are uniformly distributed over a number of keys;</li>
+ *     <li>the downstream operator consumes a fixed number of records per second from a queue of a fixed capacity, the
+ *     output buffer pool usage of every subtask is the usage of the queue;</li>
+ *     <li>a full queue backpressures the subtasks, which then only consume the share of their input that the
+ *     downstream operator can take;</li>
+ *     <li>the latency of a record is half of the interval plus the time it waits in the queue.</li>
+ * </ul>
+ *
+ * <p>The controller runs every {@link PreAggregateControllerOptions#PERIOD} on the signals of the last period. The
+ * convergence time is the time of the last round that changed an interval by more than the tolerance, or -1 if the
+ * last round still did.
+ *
+ * <p>Usage: {@code PreAggregateSimulator --trace <file> [--simulator.policies pi;aimd] [--<option> <value>]}, where the
+ * options are the {@link PreAggregateControllerOptions} and the options of the model in this class.
+ */
+public class PreAggregateSimulator {
+
+	public static final ConfigOption<List<String>> POLICIES =
+		ConfigOptions.key("simulator.policies")
+			.stringType()
+			.asList()
+			.defaultValues("pi", "threshold", "aimd")
+			.withDescription("The policies to compare.");
+
+	public static final ConfigOption<Integer> KEYS =
+		ConfigOptions.key("simulator.keys")
+			.intType()
+			.defaultValue(1000)
+			.withDescription("The number of keys over which the records of every subtask are uniformly distributed.");
+
+	public static final ConfigOption<Double> DOWNSTREAM_CAPACITY =
+		ConfigOptions.key("simulator.downstream-capacity")
+			.doubleType()
+			.defaultValue(10000.0)
+			.withDescription("The number of records per second that the downstream operator consumes.");
+
+	public static final ConfigOption<Long> QUEUE_CAPACITY =
+		ConfigOptions.key("simulator.queue-capacity")
+			.longType()
+			.defaultValue(10000L)
+			.withDescription("The number of records that the buffers in front of the downstream operator hold.");
+
+	public static final ConfigOption<Duration> STEP =
+		ConfigOptions.key("simulator.step")
+			.durationType()
+			.defaultValue(Duration.ofMillis(100))
+			.withDescription("The time step of the simulation.");
+
+	public static final ConfigOption<Double> CONVERGENCE_TOLERANCE =
+		ConfigOptions.key("simulator.convergence-tolerance")
+			.doubleType()
+			.defaultValue(0.1)
+			.withDescription("The relative change of an interval below which the controller has converged.");
+
+	private final Configuration configuration;
+	private final int keys;
+	private final double downstreamCapacity;
+	private final long queueCapacity;
+	private final long stepMs;
+	private final long periodMs;
+	private final double convergenceTolerance;
+
+	public PreAggregateSimulator(Configuration configuration) {
+		this.configuration = configuration;
+		this.keys = configuration.get(KEYS);
+		this.downstreamCapacity = configuration.get(DOWNSTREAM_CAPACITY);
+		this.queueCapacity = configuration.get(QUEUE_CAPACITY);
+		this.stepMs = configuration.get(STEP).toMillis();
+		this.periodMs = configuration.get(PreAggregateControllerOptions.PERIOD).toMillis();
+		this.convergenceTolerance = configuration.get(CONVERGENCE_TOLERANCE);
+		Preconditions.checkArgument(keys > 0, "The number of keys must be positive.");
+		Preconditions.checkArgument(downstreamCapacity > 0, "The downstream capacity must be positive.");
+		Preconditions.checkArgument(queueCapacity > 0, "The queue capacity must be positive.");
+		Preconditions.checkArgument(stepMs > 0 && stepMs <= periodMs,
+			"The step must be positive and not greater than the period of the controller.");
+	}
+
+	public List<Report> simulate(PreAggregateTrace trace) {
+		List<Report> reports = new ArrayList<>();
+		for (String policy : configuration.get(POLICIES)) {
+			reports.add(simulate(trace, policy));
+		}
+		return reports;
+	}
+
+	public Report simulate(PreAggregateTrace trace, String policy) {
+		Preconditions.checkArgument(!trace.getSignals().isEmpty(), "The trace has no signals.");
+		Configuration controllerConfiguration = new Configuration(configuration);
+		controllerConfiguration.set(PreAggregateControllerOptions.POLICY, policy);
+		controllerConfiguration.removeConfig(PreAggregateControllerOptions.TRACE_DIRECTORY);
+		PreAggregateControllerService controllerService = new PreAggregateControllerService(controllerConfiguration);
+
+		List<PreAggregateTrace.Signals> signals = trace.getSignals();
+		long startMs = signals.get(0).getTimeMs();
+		long endMs = signals.get(signals.size() - 1).getTimeMs();
+		Map<Integer, Subtask> subtasks = new TreeMap<>();
+		for (PreAggregateTrace.Signals s : signals) {
+			subtasks.computeIfAbsent(s.getSignals().getSubtaskIndex(), index -> new Subtask(s.getSignals()));
+		}
+
+		int nextSignals = 0;
+		double queue = 0;
+		double outPoolUsageTotal = 0;
+		double processedTotal = 0;
+		double latencyTotal = 0;
+		List<Double> latencies = new ArrayList<>();
+		long nextRoundMs = startMs + periodMs;
+		long lastChangeMs = 0;
+		boolean changedInLastRound = false;
+		int rounds = 0;
+		int steps = 0;
+		for (long timeMs = startMs; timeMs < endMs; timeMs += stepMs) {
+			// the input rates of the trace are constant until the next signals of the subtask
+			while (nextSignals < signals.size() && signals.get(nextSignals).getTimeMs() <= timeMs) {
+				PreAggregateSignalsEvent event = signals.get(nextSignals++).getSignals();
+				subtasks.get(event.getSubtaskIndex()).inputRate = event.getNumRecordsInPerSecond();
+			}
+			double stepSec = stepMs / 1000.0;
+			double partialsRate = 0;
+			for (Subtask subtask : subtasks.values()) {
+				partialsRate += subtask.partialsRate(keys);
+			}
+			double throttle = queue >= queueCapacity && partialsRate > downstreamCapacity
+				? downstreamCapacity / partialsRate
+				: 1.0;
+			queue = Math.max(0, Math.min(queueCapacity, queue + (partialsRate * throttle - downstreamCapacity) * stepSec));
+			double outPoolUsage = 100.0 * queue / queueCapacity;
+			double queueDelayMs = 1000.0 * queue / downstreamCapacity;
+			for (Subtask subtask : subtasks.values()) {
+				double processed = subtask.inputRate * throttle * stepSec;
+				subtask.sample(outPoolUsage, processed, subtask.partialsRate(keys) * throttle * stepSec);
+				double latencyMs = subtask.intervalMs / 2.0 + queueDelayMs;
+				latencies.add(latencyMs);
+				latencyTotal += latencyMs * processed;
+				processedTotal += processed;
+			}
+			outPoolUsageTotal += outPoolUsage;
+			steps++;
+
+			if (timeMs + stepMs >= nextRoundMs) {
+				for (Map.Entry<Integer, Subtask> entry : subtasks.entrySet()) {
+					controllerService.addSignals(entry.getValue().publish(entry.getKey(), periodMs));
+				}
+				changedInLastRound = false;
+				for (Map.Entry<Integer, Long> entry : controllerService.computeNextProcTimeIntervalsMs().entrySet()) {
+					Subtask subtask = subtasks.get(entry.getKey());
+					if (Math.abs(entry.getValue() - subtask.intervalMs) > convergenceTolerance * subtask.intervalMs) {
+						lastChangeMs = timeMs + stepMs - startMs;
+						changedInLastRound = true;
+					}
+					subtask.intervalMs = entry.getValue();
+				}
+				rounds++;
+				nextRoundMs += periodMs;
+			}
+		}
+		controllerService.close();
+
+		Collections.sort(latencies);
+		Map<Integer, Long> intervalsMs = new TreeMap<>();
+		for (Map.Entry<Integer, Subtask> entry : subtasks.entrySet()) {
+			intervalsMs.put(entry.getKey(), entry.getValue().intervalMs);
+		}
+		double durationSec = Math.max(1, endMs - startMs) / 1000.0;
+		return new Report(
+			policy,
+			endMs - startMs,
+			rounds,
+			changedInLastRound ? -1 : lastChangeMs,
+			processedTotal > 0 ? latencyTotal / processedTotal : 0.0,
+			latencies.isEmpty() ? 0.0 : latencies.get((int) Math.ceil(0.99 * latencies.size()) - 1),
+			processedTotal / durationSec,
+			steps > 0 ? outPoolUsageTotal / steps : 0.0,
+			intervalsMs);
+	}
+
+	public static void main(String[] args) throws IOException {
+		ParameterTool parameters = ParameterTool.fromArgs(args);
+		PreAggregateTrace trace = PreAggregateTrace.read(new File(parameters.getRequired("trace")));
+		PreAggregateSimulator simulator = new PreAggregateSimulator(parameters.getConfiguration());
+		List<Report> reports = simulator.simulate(trace);
+		System.out.println("[PreAggregateSimulator] " + trace.getSubtasks().size() + " subtasks, "
+			+ trace.getSignals().size() + " signals");
+		for (Report report : reports) {
+			System.out.println("[PreAggregateSimulator] " + report);
+		}
+	}
+
+	/**
+	 * The combiner of one subtask in the model and its signals since the last round.
+	 */
+	private static class Subtask {
+		private double inputRate;
+		private long intervalMs;
+		private final List<Double> outPoolUsages;
+		private double processed;
+		private double emitted;
+
+		Subtask(PreAggregateSignalsEvent signals) {
+			this.inputRate = signals.getNumRecordsInPerSecond();
+			this.intervalMs = signals.getIntervalMs();
+			this.outPoolUsages = new ArrayList<>();
+		}
+
+		double partialsRate(int keys) {
+			double records = inputRate * intervalMs / 1000.0;
+			double distinctKeys = keys * -Math.expm1(-records / keys);
+			return distinctKeys * 1000.0 / intervalMs;
+		}
+
+		void sample(double outPoolUsage, double processed, double emitted) {
+			this.outPoolUsages.add(outPoolUsage);
+			this.processed += processed;
+			this.emitted += emitted;
+		}
+
+		PreAggregateSignalsEvent publish(int subtaskIndex, long periodMs) {
+			Collections.sort(outPoolUsages);
+			double mean = 0;
+			for (double usage : outPoolUsages) {
+				mean += usage;
+			}
+			mean = mean / outPoolUsages.size();
+			double variance = 0;
+			for (double usage : outPoolUsages) {
+				variance += (usage - mean) * (usage - mean);
+			}
+			double periodSec = periodMs / 1000.0;
+			PreAggregateSignalsEvent signals = new PreAggregateSignalsEvent(
+				subtaskIndex,
+				Math.round(outPoolUsages.get(0)),
+				Math.round(outPoolUsages.get(outPoolUsages.size() - 1)),
+				mean,
+				quantile(0.5),
+				quantile(0.75),
+				quantile(0.95),
+				quantile(0.99),
+				Math.sqrt(variance / outPoolUsages.size()),
+				processed / periodSec,
+				emitted / periodSec,
+				intervalMs,
+				false,
+				processed > 0 ? emitted / processed : -1.0,
+				-1.0,
+				-1.0,
+				-1,
+				-1);
+			outPoolUsages.clear();
+			processed = 0;
+			emitted = 0;
+			return signals;
+		}
+
+		private double quantile(double quantile) {
+			return outPoolUsages.get((int) Math.ceil(quantile * outPoolUsages.size()) - 1);
+		}
+	}
+
+	/**
+	 * The result of the replay of a trace against one policy.
+	 */
+	public static class Report {
+		private final String policy;
+		private final long durationMs;
+		private final int rounds;
+		private final long convergenceTimeMs;
+		private final double latencyMeanMs;
+		private final double latency99Ms;
+		private final double throughput;
+		private final double outPoolUsageMean;
+		private final Map<Integer, Long> intervalsMs;
+
+		public Report(
+			String policy,
+			long durationMs,
+			int rounds,
+			long convergenceTimeMs,
+			double latencyMeanMs,
+			double latency99Ms,
+			double throughput,
+			double outPoolUsageMean,
+			Map<Integer, Long> intervalsMs) {
+			this.policy = policy;
+			this.durationMs = durationMs;
+			this.rounds = rounds;
+			this.convergenceTimeMs = convergenceTimeMs;
+			this.latencyMeanMs = latencyMeanMs;
+			this.latency99Ms = latency99Ms;
+			this.throughput = throughput;
+			this.outPoolUsageMean = outPoolUsageMean;
+			this.intervalsMs = intervalsMs;
+		}
+
+		public String getPolicy() {
+			return policy;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		public int getRounds() {
+			return rounds;
+		}
+
+		/**
+		 * @return the time of the last round that changed an interval more than the tolerance, or -1 if the
+		 * controller did not converge
+		 */
+		public long getConvergenceTimeMs() {
+			return convergenceTimeMs;
+		}
+
+		/**
+		 * @return the mean latency of the records, weighted by the records
+		 */
+		public double getLatencyMeanMs() {
+			return latencyMeanMs;
+		}
+
+		public double getLatency99Ms() {
+			return latency99Ms;
+		}
+
+		/**
+		 * @return the input records per second that the subtasks processed
+		 */
+		public double getThroughput() {
+			return throughput;
+		}
+
+		public double getOutPoolUsageMean() {
+			return outPoolUsageMean;
+		}
+
+		/**
+		 * @return the interval of every subtask at the end of the trace
+		 */
+		public Map<Integer, Long> getIntervalsMs() {
+			return intervalsMs;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+				"policy[%s] duration[%d ms] rounds[%d] convergence[%d ms] latency[mean %.1f ms, 99%% %.1f ms] "
+					+ "throughput[%.1f rec/s] outPoolUsage[%.1f] intervals%s",
+				policy, durationMs, rounds, convergenceTimeMs, latencyMeanMs, latency99Ms, throughput,
+				outPoolUsageMean, intervalsMs);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.configuration.Configuration;
+
+import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The original {@link PreAggregateControllerPolicy} of AdCom: all subtasks get the same interval, which steps by 100
+ * or 200 ms when the average output buffer pool usage of the subtasks leaves a reference band, or when one of them is
+ * overloaded. It ignores the setpoint and the gains of the controller.
+ */
+public class PreAggregateThresholdPolicy implements PreAggregateControllerPolicy {
+
+	private final DecimalFormat df = new DecimalFormat("#.###");
+	private final Reference reference;
+	// global states
+	private double numRecordsInPerSecondMax;
+	private double numRecordsOutPerSecondMax;
+	private int monitorCount;
+	private boolean inputRecPerSecFlag;
+
+	public PreAggregateThresholdPolicy(Configuration configuration) {
+		this.monitorCount = 0;
+		this.inputRecPerSecFlag = false;
+		this.numRecordsOutPerSecondMax = 0.0;
+		// 1 - define the reference for the output buffers: this.reference
+		this.reference = new Reference(40, 65, 30, 85);
+	}
+
+	@Override
+	public Map<Integer, Long> computeNextIntervalsMs(Map<Integer, PreAggregateSignalsState> signals) {
+		// @formatter:off
+		Map<Integer, Long> intervalsMsNew = new HashMap<>();
+		this.inputRecPerSecFlag = false;
+
+		// 2 - collect the signals and compute the average
+		PreAggregateGlobalState preAggregateGlobalState = computeAverageOfSignals(signals);
+		// 3 - check if at least one of the output buffers is 100%. This might be a skew workload.
+		if (preAggregateGlobalState.isOverloaded()) {
+			preAggregateGlobalState.incrementIntervalMsNew(200);
+			preAggregateGlobalState.setValidate(true);
+		}
+		// 4 - check if the average output buffers are out of the reference. Then, compute the correction.
+		else if (preAggregateGlobalState.getOutPoolUsageAvg() < reference.getMin() || preAggregateGlobalState.getOutPoolUsageAvg() > reference.getMax()) {
+			// 4.1 - BACKPRESSURE: increment latency
+			if (preAggregateGlobalState.getOutPoolUsageAvg() > reference.getMax()) {
+				if (preAggregateGlobalState.getOutPoolUsageAvg() >= reference.getMaxHigh()) {
+					preAggregateGlobalState.incrementIntervalMsNew(200);
+				} else {
+					preAggregateGlobalState.incrementIntervalMsNew(100);
+				}
+				preAggregateGlobalState.setValidate(true);
+			}
+			// 4.2 - TOO LOW PRESSURE: decrement latency
+			else if (preAggregateGlobalState.getOutPoolUsageAvg() < reference.getMin()) {
+				if (preAggregateGlobalState.getOutPoolUsageAvg() <= reference.getMinLow()) {
+					preAggregateGlobalState.decrementIntervalMsNew(200);
+				} else {
+					preAggregateGlobalState.decrementIntervalMsNew(100);
+				}
+				preAggregateGlobalState.setValidate(true);
+			}
+			// 4.3 - should not fall here
+			else { System.out.println("should not fall here"); }
+		}
+		// 5 - check if the average output buffers are within the reference. Then compute a small correction.
+		else {
+			System.out.println("[PreAggregateThresholdPolicy.controller] within the reference.");
+		}
+		// 6 - the same new intervalMs for all subtasks
+		if (preAggregateGlobalState.isValidate() && preAggregateGlobalState.getIntervalMsNew() != null) {
+			for (Integer subtaskIndex : signals.keySet()) {
+				intervalsMsNew.put(subtaskIndex, preAggregateGlobalState.getIntervalMsNew());
+			}
+		}
+		this.monitorCount++;
+		System.out.println("[PreAggregateThresholdPolicy.controller] Next global preAgg intervalMs: " + preAggregateGlobalState.getIntervalMsNew());
+		return intervalsMsNew;
+		// @formatter:on
+	}
+
+	private PreAggregateGlobalState computeAverageOfSignals(Map<Integer, PreAggregateSignalsState> signals) {
+		PreAggregateGlobalState preAggregateGlobalState = new PreAggregateGlobalState();
+		double outPoolUsageMeanTotal = 0;
+		for (PreAggregateSignalsState preAggregateState : signals.values()) {
+			// get the current intervalMs and set on the global state
+			preAggregateGlobalState.setIntervalMsCurrent(preAggregateState.getIntervalMs());
+			// collect the output poll mean usage for each subtask
+			double outPoolUsageMean = preAggregateState.getOutPoolUsageMean();
+			outPoolUsageMeanTotal = outPoolUsageMeanTotal + outPoolUsageMean;
+			double outPoolUsage75Perc = preAggregateState.getOutPoolUsage075();
+			// check if this subtask is overloaded
+			if (outPoolUsageMean >= 100.0 || outPoolUsage75Perc >= 100.0)
+				preAggregateGlobalState.setOverloaded(true);
+			// update max throughput only if the pre-agg is in BACKPRESSURE
+			if (outPoolUsageMean >= reference.getMax()) {
+				updateGlobalCapacity(
+					preAggregateState.getNumRecordsInPerSecond(),
+					preAggregateState.getNumRecordsOutPerSecond());
+			}
+		}
+		System.out.println("[PreAggregateThresholdPolicy.controller] capacity IN[max:"
+			+ df.format(this.numRecordsInPerSecondMax) + "]|OUT[max:" + df.format(this.numRecordsOutPerSecondMax) + "]");
+		// update the out poll usage average global (for all subtasks)
+		preAggregateGlobalState.setOutPoolUsageAvg(outPoolUsageMeanTotal / signals.size());
+		return preAggregateGlobalState;
+	}
+
+	private void updateGlobalCapacity(double numRecordsInPerSecond, double numRecordsOutPerSecond) {
+		if (this.monitorCount >= 3) {
+			// update Input throughput
+			if (numRecordsInPerSecond > this.numRecordsInPerSecondMax) {
+				this.numRecordsInPerSecondMax = numRecordsInPerSecond;
+				this.inputRecPerSecFlag = true;
+				this.monitorCount = 0;
+			}
+			// update Output throughput. Only update output if the input was not updated because it could be a spike or
+			// a high data rate fluctuation on the channel
+			if (!this.inputRecPerSecFlag
+				&& numRecordsOutPerSecond > this.numRecordsOutPerSecondMax) {
+				this.numRecordsOutPerSecondMax = numRecordsOutPerSecond;
+			}
+		}
+	}
+
+	private static class Reference {
+		private final Integer min;
+		private final Integer max;
+		private final Integer minLow;
+		private final Integer maxHigh;
+
+		public Reference(Integer min, Integer max, Integer minLow, Integer maxHigh) {
+			this.min = min;
+			this.max = max;
+			this.minLow = minLow;
+			this.maxHigh = maxHigh;
+		}
+
+		public Integer getMin() {
+			return min;
+		}
+
+		public Integer getMax() {
+			return max;
+		}
+
+		public Integer getMinLow() {
+			return minLow;
+		}
+
+		public Integer getMaxHigh() {
+			return maxHigh;
+		}
+	}
+}
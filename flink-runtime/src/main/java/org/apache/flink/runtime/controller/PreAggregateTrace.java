@@ -0,0 +1,149 @@
+package org.apache.flink.runtime.controller;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * A trace of the pre-aggregate controller, written by the {@link PreAggregateTraceWriter}. Every line is a comma
+ * separated record: the signals of a subtask ({@code S,timeMs,subtaskIndex,<the fields of the
+ * PreAggregateSignalsEvent>}) or the new interval of a subtask ({@code I,timeMs,subtaskIndex,intervalMs}).
+ */
+public class PreAggregateTrace {
+
+	static final String HEADER = "# pre-aggregate controller trace v1";
+	static final String SIGNALS = "S";
+	static final String INTERVAL = "I";
+
+	private final List<Signals> signals;
+	private final List<Interval> intervals;
+
+	public PreAggregateTrace(List<Signals> signals, List<Interval> intervals) {
+		this.signals = signals;
+		this.intervals = intervals;
+	}
+
+	public static PreAggregateTrace read(File file) throws IOException {
+		List<Signals> signals = new ArrayList<>();
+		List<Interval> intervals = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split(",");
+				try {
+					if (SIGNALS.equals(fields[0]) && fields.length == 20) {
+						signals.add(new Signals(Long.parseLong(fields[1]), new PreAggregateSignalsEvent(
+							Integer.parseInt(fields[2]),
+							Long.parseLong(fields[3]),
+							Long.parseLong(fields[4]),
+							Double.parseDouble(fields[5]),
+							Double.parseDouble(fields[6]),
+							Double.parseDouble(fields[7]),
+							Double.parseDouble(fields[8]),
+							Double.parseDouble(fields[9]),
+							Double.parseDouble(fields[10]),
+							Double.parseDouble(fields[11]),
+							Double.parseDouble(fields[12]),
+							Long.parseLong(fields[13]),
+							Boolean.parseBoolean(fields[14]),
+							Double.parseDouble(fields[15]),
+							Double.parseDouble(fields[16]),
+							Double.parseDouble(fields[17]),
+							Long.parseLong(fields[18]),
+							Long.parseLong(fields[19]))));
+					} else if (INTERVAL.equals(fields[0]) && fields.length == 4) {
+						intervals.add(new Interval(
+							Long.parseLong(fields[1]), Integer.parseInt(fields[2]), Long.parseLong(fields[3])));
+					} else {
+						throw new IOException("Unknown record in line " + lineNumber + " of the trace " + file + ".");
+					}
+				} catch (NumberFormatException e) {
+					throw new IOException("Malformed record in line " + lineNumber + " of the trace " + file + ".", e);
+				}
+			}
+		}
+		return new PreAggregateTrace(signals, intervals);
+	}
+
+	/**
+	 * @return the signals of all subtasks in the order in which the controller received them
+	 */
+	public List<Signals> getSignals() {
+		return Collections.unmodifiableList(signals);
+	}
+
+	/**
+	 * @return the new intervals in the order in which the controller decided them
+	 */
+	public List<Interval> getIntervals() {
+		return Collections.unmodifiableList(intervals);
+	}
+
+	public SortedSet<Integer> getSubtasks() {
+		SortedSet<Integer> subtasks = new TreeSet<>();
+		for (Signals s : signals) {
+			subtasks.add(s.getSignals().getSubtaskIndex());
+		}
+		return subtasks;
+	}
+
+	/**
+	 * The signals of a subtask received at a time.
+	 */
+	public static class Signals {
+		private final long timeMs;
+		private final PreAggregateSignalsEvent signals;
+
+		public Signals(long timeMs, PreAggregateSignalsEvent signals) {
+			this.timeMs = timeMs;
+			this.signals = signals;
+		}
+
+		public long getTimeMs() {
+			return timeMs;
+		}
+
+		public PreAggregateSignalsEvent getSignals() {
+			return signals;
+		}
+	}
+
+	/**
+	 * The new interval of a subtask decided at a time.
+	 */
+	public static class Interval {
+		private final long timeMs;
+		private final int subtaskIndex;
+		private final long intervalMs;
+
+		public Interval(long timeMs, int subtaskIndex, long intervalMs) {
+			this.timeMs = timeMs;
+			this.subtaskIndex = subtaskIndex;
+			this.intervalMs = intervalMs;
+		}
+
+		public long getTimeMs() {
+			return timeMs;
+		}
+
+		public int getSubtaskIndex() {
+			return subtaskIndex;
+		}
+
+		public long getIntervalMs() {
+			return intervalMs;
+		}
+	}
+}
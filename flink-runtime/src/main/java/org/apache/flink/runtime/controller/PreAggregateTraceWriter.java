@@ -0,0 +1,113 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Records the signals that the {@link PreAggregateControllerService} receives and the intervals that it decides to
+ * a {@link PreAggregateTrace} file. A failure to write disables the trace but never the controller.
+ */
+public class PreAggregateTraceWriter implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PreAggregateTraceWriter.class);
+
+	private final File file;
+	@Nullable
+	private Writer writer;
+
+	public PreAggregateTraceWriter(File file) throws IOException {
+		this.file = file;
+		this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+		this.writer.write(PreAggregateTrace.HEADER);
+		this.writer.write('\n');
+	}
+
+	/**
+	 * @return the writer of the trace of a pre-aggregate operator in {@link PreAggregateControllerOptions#TRACE_DIRECTORY},
+	 * or null if tracing is disabled or the trace file cannot be created
+	 */
+	@Nullable
+	public static PreAggregateTraceWriter create(Configuration configuration, String operatorId) {
+		String directory = configuration.get(PreAggregateControllerOptions.TRACE_DIRECTORY);
+		if (directory == null) {
+			return null;
+		}
+		File file = new File(directory, "pre-aggregate-" + operatorId + ".trace");
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			return new PreAggregateTraceWriter(file);
+		} catch (IOException e) {
+			LOG.warn("Could not create the trace {} of the pre-aggregate controller.", file, e);
+			return null;
+		}
+	}
+
+	public void writeSignals(long timeMs, PreAggregateSignalsEvent signals) {
+		write(PreAggregateTrace.SIGNALS + "," + timeMs + "," + signals.getSubtaskIndex() + "," +
+			signals.getOutPoolUsageMin() + "," + signals.getOutPoolUsageMax() + "," +
+			signals.getOutPoolUsageMean() + "," + signals.getOutPoolUsage05() + "," +
+			signals.getOutPoolUsage075() + "," + signals.getOutPoolUsage095() + "," +
+			signals.getOutPoolUsage099() + "," + signals.getOutPoolUsageStdDev() + "," +
+			signals.getNumRecordsInPerSecond() + "," + signals.getNumRecordsOutPerSecond() + "," +
+			signals.getIntervalMs() + "," + signals.isBypassed() + "," + signals.getReductionRatio() + "," +
+			signals.getInPoolUsageMean() + "," + signals.getIdleTimeMsPerSecond() + "," +
+			signals.getUpstreamLatencyMs() + "," + signals.getBufferingDelayMs());
+	}
+
+	public void writeInterval(long timeMs, int subtaskIndex, long intervalMs) {
+		write(PreAggregateTrace.INTERVAL + "," + timeMs + "," + subtaskIndex + "," + intervalMs);
+	}
+
+	/**
+	 * Flushes the records of a round, so the trace of a job that is killed is complete up to its last round.
+	 */
+	public void flush() {
+		if (writer != null) {
+			try {
+				writer.flush();
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		if (writer != null) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				LOG.warn("Could not close the trace {} of the pre-aggregate controller.", file, e);
+			}
+			writer = null;
+		}
+	}
+
+	private void write(String line) {
+		if (writer != null) {
+			try {
+				writer.write(line);
+				writer.write('\n');
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	private void fail(IOException e) {
+		LOG.warn("Could not write the trace {} of the pre-aggregate controller, disabling the trace.", file, e);
+		close();
+	}
+}
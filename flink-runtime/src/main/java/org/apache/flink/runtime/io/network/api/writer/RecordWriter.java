@@ -94,7 +94,10 @@ public abstract class RecordWriter<T extends IOReadableWritable> implements Avai
 		}
 	}
 
-	protected void emit(T record, int targetSubpartition) throws IOException {
+	/**
+	 * This is used to send regular records to a subpartition that the caller has already selected.
+	 */
+	public void emit(T record, int targetSubpartition) throws IOException {
 		checkErroneous();
 
 		targetPartition.emitRecord(serializeRecord(serializer, record), targetSubpartition);
@@ -0,0 +1,33 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.operators.coordination.MockOperatorCoordinatorContext;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PreAggregateControllerCoordinator}.
+ */
+public class PreAggregateControllerCoordinatorTest extends TestLogger {
+
+	@Test
+	public void testEventsAfterCloseAreDropped() throws Exception {
+		PreAggregateControllerCoordinator coordinator = new PreAggregateControllerCoordinator(
+			new MockOperatorCoordinatorContext(new OperatorID(), 2), true, new Configuration());
+		coordinator.start();
+		coordinator.handleEventFromOperator(0, signals(0));
+		coordinator.close();
+
+		// must not throw a RejectedExecutionException into the JobMaster
+		coordinator.handleEventFromOperator(1, signals(1));
+		coordinator.subtaskFailed(0, null);
+	}
+
+	private static PreAggregateSignalsEvent signals(int subtaskIndex) {
+		return new PreAggregateSignalsEvent(
+			subtaskIndex, 50, 50, 50.0, 50.0, 50.0, 50.0, 50.0, 0.0, 1000.0, 1000.0, 100,
+			false, 0.5, 10.0, 500.0, -1, -1);
+	}
+}
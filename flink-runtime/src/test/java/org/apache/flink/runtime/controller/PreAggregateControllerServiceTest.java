@@ -1,31 +1,313 @@
 package org.apache.flink.runtime.controller;
 
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
 import org.apache.flink.util.TestLogger;
 
 import org.junit.Test;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class PreAggregateControllerServiceTest extends TestLogger {
 
 	@Test
-	public void testPreAggControllerExtractIp() throws Exception {
+	public void testPreAggControllerIncreasesIntervalWhenOverloaded() {
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService(policy("threshold"));
+		assertFalse(preAggregateControllerService.hasSignals());
+
+		preAggregateControllerService.addSignals(signals(0, 100.0, 500));
+		preAggregateControllerService.addSignals(signals(1, 50.0, 500));
+		assertTrue(preAggregateControllerService.hasSignals());
+
+		Map<Integer, Long> intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertEquals(Long.valueOf(700), intervalsMs.get(0));
+		assertEquals(Long.valueOf(700), intervalsMs.get(1));
+	}
+
+	@Test
+	public void testPreAggControllerDecreasesIntervalWithoutPressure() {
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService(policy("threshold"));
+
+		preAggregateControllerService.addSignals(signals(0, 10.0, 500));
+		assertEquals(Long.valueOf(300), preAggregateControllerService.computeNextProcTimeIntervalsMs().get(0));
+
+		// the most recent signals of a subtask replace the previous ones
+		preAggregateControllerService.addSignals(signals(0, 10.0, 100));
+		assertEquals(
+			Long.valueOf(PreAggregateControllerService.MIN_INTERVAL_MS),
+			preAggregateControllerService.computeNextProcTimeIntervalsMs().get(0));
+	}
+
+	@Test
+	public void testPreAggControllerKeepsIntervalWithinReference() {
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService(policy("threshold"));
+
+		preAggregateControllerService.addSignals(signals(0, 50.0, 500));
+		assertTrue(preAggregateControllerService.computeNextProcTimeIntervalsMs().isEmpty());
+
+		preAggregateControllerService.removeSignals(0);
+		assertFalse(preAggregateControllerService.hasSignals());
+	}
+
+	@Test
+	public void testPreAggControllerIntervalsPerSubtask() {
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService();
+
+		// only the skewed subtask increases its interval, the idle one decreases it
+		preAggregateControllerService.addSignals(signals(0, 100.0, 500));
+		preAggregateControllerService.addSignals(signals(1, 50.0, 500));
+		preAggregateControllerService.addSignals(signals(2, 0.0, 500));
+		Map<Integer, Long> intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertEquals(2, intervalsMs.size());
+		assertEquals(Long.valueOf(1600), intervalsMs.get(0));
+		assertEquals(Long.valueOf(PreAggregateControllerService.MIN_INTERVAL_MS), intervalsMs.get(2));
+
+		// no new signals were published since the last round
+		assertTrue(preAggregateControllerService.computeNextProcTimeIntervalsMs().isEmpty());
+	}
+
+	@Test
+	public void testPreAggControllerKeepsIntervalOfBypassedSubtask() {
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService();
+
+		preAggregateControllerService.addSignals(signals(0, 100.0, 500));
+		preAggregateControllerService.addSignals(bypassedSignals(1, 100.0, 500));
+		Map<Integer, Long> intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertEquals(1, intervalsMs.size());
+		assertEquals(Long.valueOf(1600), intervalsMs.get(0));
+	}
+
+	@Test
+	public void testPreAggControllerLocatesBottleneck() {
 		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService();
 
-		String ip0 = preAggregateControllerService.extractIP(
-			"akka.tcp://flink@192.168.56.1:6123/user/rpc/jobmanager_2");
-		assertEquals("192.168.56.1", ip0);
+		// a bundle without reduction does not increase its interval, a saturated subtask does not decrease it
+		preAggregateControllerService.addSignals(signals(0, 100.0, 500, false, 1.0, 10.0, 500.0));
+		preAggregateControllerService.addSignals(signals(1, 0.0, 500, false, 0.5, 90.0, 50.0));
+		preAggregateControllerService.addSignals(signals(2, 0.0, 500));
+		Map<Integer, Long> intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertEquals(1, intervalsMs.size());
+		assertEquals(Long.valueOf(PreAggregateControllerService.MIN_INTERVAL_MS), intervalsMs.get(2));
+	}
+
+	@Test
+	public void testPreAggControllerDoesNotDecreaseIntervalsUnderGlobalBackpressure() {
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService();
+
+		preAggregateControllerService.addSignals(signals(0, 100.0, 500));
+		preAggregateControllerService.addSignals(signals(1, 90.0, 300));
+		preAggregateControllerService.addSignals(signals(2, 20.0, 500));
+		Map<Integer, Long> intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertEquals(2, intervalsMs.size());
+		assertEquals(Long.valueOf(1600), intervalsMs.get(0));
+		assertEquals(Long.valueOf(1180), intervalsMs.get(1));
+		assertNull(intervalsMs.get(2));
+	}
+
+	@Test
+	public void testPreAggControllerConfiguration() {
+		Configuration configuration = new Configuration();
+		configuration.set(PreAggregateControllerOptions.PERIOD, Duration.ofSeconds(1));
+		configuration.set(PreAggregateControllerOptions.SETPOINT, 60.0);
+		configuration.set(PreAggregateControllerOptions.INTEGRAL_GAIN, 0.0);
+		configuration.set(PreAggregateControllerOptions.MAX_INTERVAL, Duration.ofMillis(700));
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService(configuration);
+		assertEquals(1000, preAggregateControllerService.getControllerPeriodMs());
+
+		preAggregateControllerService.addSignals(signals(0, 80.0, 500));
+		preAggregateControllerService.addSignals(signals(1, 100.0, 500));
+		Map<Integer, Long> intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertEquals(Long.valueOf(700), intervalsMs.get(0));
+		assertEquals(Long.valueOf(700), intervalsMs.get(1));
+	}
+
+	@Test
+	public void testPreAggControllerHysteresis() {
+		Configuration configuration = new Configuration();
+		configuration.set(PreAggregateControllerOptions.HYSTERESIS, 10.0);
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService(configuration);
+
+		// only the subtask outside of the band around the setpoint changes its interval
+		preAggregateControllerService.addSignals(signals(0, 58.0, 500));
+		preAggregateControllerService.addSignals(signals(1, 42.0, 500));
+		preAggregateControllerService.addSignals(signals(2, 61.0, 500));
+		Map<Integer, Long> intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertEquals(1, intervalsMs.size());
+		assertTrue(intervalsMs.get(2) > 500);
+	}
+
+	@Test
+	public void testPreAggControllerRespectsLatencySlo() {
+		Configuration configuration = new Configuration();
+		configuration.set(PreAggregateControllerOptions.LATENCY_SLO, Duration.ofMillis(800));
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService(configuration);
+
+		// the backpressured subtask keeps its interval at the objective minus its upstream latency
+		preAggregateControllerService.addSignals(latencySignals(0, 100.0, 500, 300));
+		// the subtask that violates the objective decreases its interval even under backpressure
+		preAggregateControllerService.addSignals(latencySignals(1, 100.0, 700, 400));
+		// without latency markers the objective is unknown
+		preAggregateControllerService.addSignals(signals(2, 100.0, 500));
+		Map<Integer, Long> intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertNull(intervalsMs.get(0));
+		assertEquals(Long.valueOf(400), intervalsMs.get(1));
+		assertEquals(Long.valueOf(1600), intervalsMs.get(2));
+	}
+
+	@Test
+	public void testPreAggControllerLatencySloDoesNotWindUp() {
+		Configuration configuration = new Configuration();
+		configuration.set(PreAggregateControllerOptions.LATENCY_SLO, Duration.ofMillis(800));
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService(configuration);
+
+		// the objective holds the backpressured subtask at its interval for several rounds
+		for (int i = 0; i < 4; i++) {
+			preAggregateControllerService.addSignals(latencySignals(0, 100.0, 500, 300));
+			assertNull(preAggregateControllerService.computeNextProcTimeIntervalsMs().get(0));
+		}
+
+		// the objective is lifted, the PI controller continues from the applied interval without overshooting
+		preAggregateControllerService.addSignals(signals(0, 50.0, 500));
+		assertNull(preAggregateControllerService.computeNextProcTimeIntervalsMs().get(0));
+		preAggregateControllerService.addSignals(signals(0, 60.0, 500));
+		// 500 + 10 * 10 + 0.1 * (10 * 120)
+		assertEquals(Long.valueOf(720), preAggregateControllerService.computeNextProcTimeIntervalsMs().get(0));
+	}
+
+	@Test
+	public void testPreAggControllerAimdPolicy() {
+		PreAggregateControllerService preAggregateControllerService = new PreAggregateControllerService(policy("aimd"));
+
+		// the backpressured subtask backs off multiplicatively, the idle one waits for the shared downstream
+		preAggregateControllerService.addSignals(signals(0, 100.0, 500));
+		preAggregateControllerService.addSignals(signals(1, 10.0, 500));
+		Map<Integer, Long> intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertEquals(Long.valueOf(1000), intervalsMs.get(0));
+		assertNull(intervalsMs.get(1));
+
+		preAggregateControllerService.addSignals(signals(0, 10.0, 1000));
+		preAggregateControllerService.addSignals(signals(1, 10.0, 500));
+		// without backpressure both probe down additively
+		intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertEquals(Long.valueOf(900), intervalsMs.get(0));
+		assertEquals(Long.valueOf(400), intervalsMs.get(1));
+	}
+
+	@Test
+	public void testPreAggControllerCustomPolicy() {
+		PreAggregateControllerService preAggregateControllerService =
+			new PreAggregateControllerService(policy(MaxIntervalPolicy.class.getName()));
+
+		// the guards and the latency objective still bound the intervals of a custom policy
+		preAggregateControllerService.addSignals(signals(0, 100.0, 500));
+		preAggregateControllerService.addSignals(signals(1, 100.0, 500, false, 1.0, 10.0, 500.0));
+		Map<Integer, Long> intervalsMs = preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		assertEquals(1, intervalsMs.size());
+		assertEquals(
+			Long.valueOf(PreAggregateControllerOptions.MAX_INTERVAL.defaultValue().toMillis()),
+			intervalsMs.get(0));
+	}
+
+	@Test(expected = IllegalConfigurationException.class)
+	public void testPreAggControllerRejectsUnknownPolicy() {
+		new PreAggregateControllerService(policy("unknown"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPreAggControllerRejectsMinIntervalBelowLimit() {
+		Configuration configuration = new Configuration();
+		configuration.set(PreAggregateControllerOptions.MIN_INTERVAL, Duration.ofMillis(10));
+		new PreAggregateControllerService(configuration);
+	}
+
+	private static Configuration policy(String policy) {
+		Configuration configuration = new Configuration();
+		configuration.set(PreAggregateControllerOptions.POLICY, policy);
+		return configuration;
+	}
+
+	private static PreAggregateSignalsEvent signals(int subtaskIndex, double outPoolUsageMean, long intervalMs) {
+		return signals(subtaskIndex, outPoolUsageMean, intervalMs, false, 0.5, 10.0, 500.0);
+	}
+
+	private static PreAggregateSignalsEvent bypassedSignals(int subtaskIndex, double outPoolUsageMean, long intervalMs) {
+		return signals(subtaskIndex, outPoolUsageMean, intervalMs, true, 1.0, 10.0, 500.0);
+	}
+
+	private static PreAggregateSignalsEvent latencySignals(
+		int subtaskIndex,
+		double outPoolUsageMean,
+		long intervalMs,
+		long upstreamLatencyMs) {
+		return signals(subtaskIndex, outPoolUsageMean, intervalMs, false, 0.5, 10.0, 500.0, upstreamLatencyMs);
+	}
+
+	private static PreAggregateSignalsEvent signals(
+		int subtaskIndex,
+		double outPoolUsageMean,
+		long intervalMs,
+		boolean bypassed,
+		double reductionRatio,
+		double inPoolUsageMean,
+		double idleTimeMsPerSecond) {
+		return signals(
+			subtaskIndex, outPoolUsageMean, intervalMs, bypassed, reductionRatio, inPoolUsageMean, idleTimeMsPerSecond, -1);
+	}
+
+	private static PreAggregateSignalsEvent signals(
+		int subtaskIndex,
+		double outPoolUsageMean,
+		long intervalMs,
+		boolean bypassed,
+		double reductionRatio,
+		double inPoolUsageMean,
+		double idleTimeMsPerSecond,
+		long upstreamLatencyMs) {
+		long outPoolUsage = (long) outPoolUsageMean;
+		return new PreAggregateSignalsEvent(
+			subtaskIndex,
+			outPoolUsage,
+			outPoolUsage,
+			outPoolUsageMean,
+			outPoolUsageMean,
+			outPoolUsageMean,
+			outPoolUsageMean,
+			outPoolUsageMean,
+			0.0,
+			1000.0,
+			100.0,
+			intervalMs,
+			bypassed,
+			reductionRatio,
+			inPoolUsageMean,
+			idleTimeMsPerSecond,
+			upstreamLatencyMs,
+			-1);
+	}
 
-		String ip1 = preAggregateControllerService.extractIP(
-			"akka.tcp://flink@127.0.0.1:6123/user/rpc/jobmanager_2");
-		assertEquals("127.0.0.1", ip1);
+	/**
+	 * A custom policy that always asks for an interval above the max interval.
+	 */
+	public static class MaxIntervalPolicy implements PreAggregateControllerPolicy {
 
-		String ip2 = preAggregateControllerService.extractIP(
-			"akka.tcp://flink@localhost:6123/user/rpc/jobmanager_2");
-		assertEquals("127.0.0.1", ip2);
+		public MaxIntervalPolicy(Configuration configuration) {
+		}
 
-		String ip3 = preAggregateControllerService.extractIP(
-			"akka.tcp://flink@flink:6123/user/rpc/jobmanager_2");
-		assertEquals("127.0.0.1", ip3);
+		@Override
+		public Map<Integer, Long> computeNextIntervalsMs(Map<Integer, PreAggregateSignalsState> signals) {
+			Map<Integer, Long> intervalsMs = new HashMap<>();
+			for (Integer subtaskIndex : signals.keySet()) {
+				intervalsMs.put(subtaskIndex, Long.MAX_VALUE);
+			}
+			return intervalsMs;
+		}
 	}
 }
@@ -0,0 +1,60 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PreAggregatePIControllerTest extends TestLogger {
+
+	@Test
+	public void testProportionalAndIntegralTerms() {
+		PreAggregatePIController piController = new PreAggregatePIController(50.0, 10.0, 0.1, 0.0, 50, 10000);
+
+		// 500 + 10 * 10 + 0.1 * (10 * 10)
+		assertEquals(610, piController.update(60.0, 500, 10.0));
+		// the integral keeps growing while the error persists
+		assertEquals(620, piController.update(60.0, 610, 10.0));
+		// no error, only the integral term remains
+		assertEquals(520, piController.update(50.0, 620, 10.0));
+	}
+
+	@Test
+	public void testAntiWindup() {
+		PreAggregatePIController piController = new PreAggregatePIController(50.0, 10.0, 0.1, 0.0, 50, 1000);
+
+		assertEquals(1000, piController.update(100.0, 500, 120.0));
+		assertEquals(1000, piController.update(100.0, 1000, 120.0));
+		// the integral did not wind up while saturated, so the controller reacts immediately
+		assertEquals(0.0, piController.getIntegral(), 0.0);
+		assertEquals(280, piController.update(40.0, 1000, 120.0));
+	}
+
+	@Test
+	public void testAntiWindupOfAppliedInterval() {
+		PreAggregatePIController piController = new PreAggregatePIController(50.0, 10.0, 0.1, 0.0, 50, 10000);
+
+		// the service holds the interval at 500 below the output, e.g. for the latency objective
+		for (int i = 0; i < 4; i++) {
+			assertEquals(1600, piController.update(100.0, 500, 120.0));
+			piController.applied(500);
+		}
+		assertEquals(0.0, piController.getIntegral(), 0.0);
+		// once the bound is lifted the interval does not overshoot
+		assertEquals(500, piController.update(50.0, 500, 120.0));
+		// the output applied as it is keeps the integral
+		assertEquals(720, piController.update(60.0, 500, 120.0));
+		piController.applied(720);
+		assertEquals(1200.0, piController.getIntegral(), 0.0);
+	}
+
+	@Test
+	public void testDerivativeTerm() {
+		PreAggregatePIController piController = new PreAggregatePIController(50.0, 0.0, 0.0, 100.0, 50, 10000);
+
+		assertEquals(500, piController.update(60.0, 500, 1.0));
+		// 500 + 100 * (20 - 10) / 1
+		assertEquals(1500, piController.update(70.0, 500, 1.0));
+	}
+}
@@ -0,0 +1,118 @@
+package org.apache.flink.runtime.controller;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PreAggregateSimulatorTest extends TestLogger {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testTraceRecordsSignalsAndIntervals() throws IOException {
+		Configuration configuration = new Configuration();
+		configuration.set(PreAggregateControllerOptions.TRACE_DIRECTORY, temporaryFolder.getRoot().getPath());
+		PreAggregateTraceWriter traceWriter = PreAggregateTraceWriter.create(configuration, "operator");
+		PreAggregateControllerService preAggregateControllerService =
+			new PreAggregateControllerService(configuration, traceWriter);
+
+		preAggregateControllerService.addSignals(signals(0, 100.0, 10000.0, 500));
+		preAggregateControllerService.addSignals(signals(1, 100.0, 5000.0, 500));
+		preAggregateControllerService.computeNextProcTimeIntervalsMs();
+		preAggregateControllerService.close();
+
+		PreAggregateTrace trace = PreAggregateTrace.read(new File(temporaryFolder.getRoot(), "pre-aggregate-operator.trace"));
+		assertEquals(2, trace.getSignals().size());
+		assertEquals(1, trace.getSignals().get(1).getSignals().getSubtaskIndex());
+		assertEquals(5000.0, trace.getSignals().get(1).getSignals().getNumRecordsInPerSecond(), 0.0);
+		assertEquals(500, trace.getSignals().get(1).getSignals().getIntervalMs());
+		assertEquals(2, trace.getIntervals().size());
+		assertEquals(1600, trace.getIntervals().get(0).getIntervalMs());
+	}
+
+	@Test(expected = IOException.class)
+	public void testTraceRejectsMalformedRecords() throws IOException {
+		File file = temporaryFolder.newFile();
+		Files.write(file.toPath(), Collections.singletonList("I,0,0"), StandardCharsets.UTF_8);
+		PreAggregateTrace.read(file);
+	}
+
+	@Test
+	public void testSimulatorIsDeterministic() {
+		PreAggregateSimulator simulator = new PreAggregateSimulator(configuration());
+		PreAggregateTrace trace = trace(10000.0, 100, 600);
+		List<PreAggregateSimulator.Report> reports = simulator.simulate(trace);
+		assertEquals(3, reports.size());
+		assertEquals(reports.toString(), simulator.simulate(trace).toString());
+	}
+
+	@Test
+	public void testPoliciesRelieveBackpressure() {
+		PreAggregateTrace trace = trace(10000.0, 100, 600);
+		// the static interval of the initial trace cannot be changed by any policy
+		Configuration staticConfiguration = configuration();
+		staticConfiguration.set(PreAggregateControllerOptions.MAX_INTERVAL, Duration.ofMillis(100));
+		staticConfiguration.set(PreAggregateControllerOptions.MIN_INTERVAL, Duration.ofMillis(100));
+		PreAggregateSimulator.Report staticReport = new PreAggregateSimulator(staticConfiguration).simulate(trace, "pi");
+		assertEquals(0, staticReport.getConvergenceTimeMs());
+
+		for (PreAggregateSimulator.Report report : new PreAggregateSimulator(configuration()).simulate(trace)) {
+			assertTrue(report.toString(), report.getThroughput() > staticReport.getThroughput());
+		}
+	}
+
+	@Test
+	public void testPoliciesConvergeToMinIntervalWithoutPressure() {
+		PreAggregateTrace trace = trace(1000.0, 500, 600);
+		for (PreAggregateSimulator.Report report : new PreAggregateSimulator(configuration()).simulate(trace)) {
+			assertTrue(report.toString(), report.getConvergenceTimeMs() >= 0);
+			assertEquals(report.toString(), Long.valueOf(PreAggregateControllerService.MIN_INTERVAL_MS), report.getIntervalsMs().get(0));
+			assertEquals(report.toString(), 2000.0, report.getThroughput(), 1.0);
+		}
+	}
+
+	private static Configuration configuration() {
+		Configuration configuration = new Configuration();
+		configuration.set(PreAggregateControllerOptions.PERIOD, Duration.ofSeconds(5));
+		return configuration;
+	}
+
+	private static PreAggregateTrace trace(double inputRate, long intervalMs, int durationSec) {
+		List<PreAggregateTrace.Signals> signals = new ArrayList<>();
+		for (long timeMs = 0; timeMs <= durationSec * 1000L; timeMs += 5000) {
+			for (int subtaskIndex = 0; subtaskIndex < 2; subtaskIndex++) {
+				signals.add(new PreAggregateTrace.Signals(timeMs, signals(subtaskIndex, 0.0, inputRate, intervalMs)));
+			}
+		}
+		return new PreAggregateTrace(signals, new ArrayList<>());
+	}
+
+	private static PreAggregateSignalsEvent signals(
+		int subtaskIndex,
+		double outPoolUsageMean,
+		double numRecordsInPerSecond,
+		long intervalMs) {
+		long outPoolUsage = (long) outPoolUsageMean;
+		return new PreAggregateSignalsEvent(
+			subtaskIndex, outPoolUsage, outPoolUsage, outPoolUsageMean, outPoolUsageMean, outPoolUsageMean,
+			outPoolUsageMean, outPoolUsageMean, 0.0, numRecordsInPerSecond, numRecordsInPerSecond, intervalMs,
+			false, 0.5, 10.0, 500.0, -1, -1);
+	}
+}
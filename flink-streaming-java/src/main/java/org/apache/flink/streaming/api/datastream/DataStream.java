@@ -25,6 +25,7 @@ import org.apache.flink.api.common.eventtime.TimestampAssigner;
 import org.apache.flink.api.common.eventtime.WatermarkGenerator;
 import org.apache.flink.api.common.eventtime.WatermarkOutput;
 import org.apache.flink.api.common.eventtime.WatermarkStrategy;
+import org.apache.flink.api.common.functions.AggregateFunction;
 import org.apache.flink.api.common.functions.FilterFunction;
 import org.apache.flink.api.common.functions.FlatMapFunction;
 import org.apache.flink.api.common.functions.MapFunction;
@@ -41,6 +42,7 @@ import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.typeinfo.BasicArrayTypeInfo;
 import org.apache.flink.api.common.typeinfo.PrimitiveArrayTypeInfo;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.CompositeType;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.dag.Transformation;
 import org.apache.flink.api.java.Utils;
@@ -49,10 +51,14 @@ import org.apache.flink.api.java.io.CsvOutputFormat;
 import org.apache.flink.api.java.io.TextOutputFormat;
 import org.apache.flink.api.java.tuple.Tuple;
 import org.apache.flink.api.java.typeutils.InputTypeConfigurable;
+import org.apache.flink.api.java.typeutils.MissingTypeInfo;
 import org.apache.flink.api.java.typeutils.TypeExtractor;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PreAggregateOptions;
 import org.apache.flink.core.execution.JobClient;
 import org.apache.flink.core.fs.FileSystem.WriteMode;
 import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.memory.ManagedMemoryUseCase;
 import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
 import org.apache.flink.streaming.api.functions.AssignerWithPeriodicWatermarks;
@@ -64,6 +70,8 @@ import org.apache.flink.streaming.api.functions.sink.SinkFunction;
 import org.apache.flink.streaming.api.functions.sink.SocketClientSink;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperatorFactory;
+import org.apache.flink.streaming.api.operators.PreAggregateOperatorFactory;
+import org.apache.flink.streaming.api.operators.PreAggregateProcTimeStreamAbstractOperator;
 import org.apache.flink.streaming.api.operators.PreAggregateProcTimeStreamOperator;
 import org.apache.flink.streaming.api.operators.ProcessOperator;
 import org.apache.flink.streaming.api.operators.SimpleOperatorFactory;
@@ -72,6 +80,7 @@ import org.apache.flink.streaming.api.operators.StreamFlatMap;
 import org.apache.flink.streaming.api.operators.StreamMap;
 import org.apache.flink.streaming.api.operators.StreamOperatorFactory;
 import org.apache.flink.streaming.api.operators.StreamSink;
+import org.apache.flink.streaming.api.operators.bundle.trigger.BundleTrigger;
 import org.apache.flink.streaming.api.operators.collect.ClientAndIterator;
 import org.apache.flink.streaming.api.operators.collect.CollectResultIterator;
 import org.apache.flink.streaming.api.operators.collect.CollectSinkOperator;
@@ -109,6 +118,8 @@ import org.apache.flink.util.CloseableIterator;
 import org.apache.flink.util.OutputTag;
 import org.apache.flink.util.Preconditions;
 
+import javax.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -1401,7 +1412,9 @@ public class DataStream<T> {
 	 * Combine and AdCom
 	 */
 	private <R> SingleOutputStreamOperator<R> combine(PreAggregateFunction<?, ?, T, R> preAggregateFunction,
-													 long intervalMs, boolean enableController) {
+													 long intervalMs, boolean enableController,
+													 @Nullable BundleTrigger<T> bundleTrigger,
+													 @Nullable Time paneSize) {
 		// get the output type for the pre-aggregation function
 		TypeInformation<R> outType = TypeExtractor.getPreAggregateReturnTypes(
 			clean(preAggregateFunction),
@@ -1412,27 +1425,136 @@ public class DataStream<T> {
 		KeySelector<R, T> keySelector = KeySelectorUtil.getSelectorForFirstKey(outType, getExecutionConfig());
 
 		// create the stream pre-aggregate operator
-		PreAggregateProcTimeStreamOperator operator = new PreAggregateProcTimeStreamOperator(preAggregateFunction, keySelector, intervalMs, enableController);
+		PreAggregateProcTimeStreamOperator operator = new PreAggregateProcTimeStreamOperator(preAggregateFunction, keySelector, intervalMs, enableController, bundleTrigger);
+
+		// the serializers of the bundle are needed to checkpoint it or to keep it in managed memory,
+		// the panes of the event-time mode are kept in heap
+		boolean managedMemoryBundle = paneSize == null &&
+			getExecutionEnvironment().getConfiguration().get(PreAggregateOptions.BUNDLE_MANAGED_MEMORY_ENABLED);
+		TypeInformation<?> keyType = ((CompositeType<R>) outType).getTypeAt(0);
+		TypeInformation<?> valueType = TypeExtractor.getPreAggregateValueType(
+			preAggregateFunction, getType(), Utils.getCallLocationName(), !managedMemoryBundle);
+		if (!(valueType instanceof MissingTypeInfo)) {
+			operator.setBundleSerializers(
+				keyType.createSerializer(getExecutionConfig()),
+				valueType.createSerializer(getExecutionConfig()));
+		}
+		if (paneSize != null) {
+			operator.setEventTimePaneSize(paneSize.toMilliseconds());
+		}
+		return transformPreAggregate(operator, outType, enableController, managedMemoryBundle);
+	}
 
-		// create the factory operator for the stream pre-aggregate operator
-		SimpleOperatorFactory operatorFactory = SimpleOperatorFactory.of(operator);
+	/**
+	 * Adds the given pre-aggregate operator with its controller coordinator to the stream.
+	 */
+	<R> SingleOutputStreamOperator<R> transformPreAggregate(
+			PreAggregateProcTimeStreamAbstractOperator<?, ?, T, R> operator,
+			TypeInformation<R> outType,
+			boolean enableController,
+			boolean managedMemoryBundle) {
+		Configuration configuration = getExecutionEnvironment().getConfiguration();
+		operator.setManagedMemoryBundle(managedMemoryBundle);
+		operator.configure(configuration);
+
+		// create the factory operator for the stream pre-aggregate operator and its controller coordinator
+		PreAggregateOperatorFactory<R> operatorFactory = new PreAggregateOperatorFactory<>(
+			operator, enableController, configuration);
 
 		// call transform method to create the new operator and chain it with any DataStream
-		return doTransform("PreAggregate", outType, operatorFactory);
+		SingleOutputStreamOperator<R> result = doTransform("PreAggregate", outType, operatorFactory);
+		if (managedMemoryBundle) {
+			// the weight of the operator is its requested memory in KiBytes, as for the table operators
+			long memoryKibiBytes = configuration.get(PreAggregateOptions.BUNDLE_MANAGED_MEMORY_SIZE).getKibiBytes();
+			result.getTransformation().declareManagedMemoryUseCaseAtOperatorScope(
+				ManagedMemoryUseCase.BATCH_OP, (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryKibiBytes)));
+		}
+		return result;
 	}
 
 	public <R> SingleOutputStreamOperator<R> combine(PreAggregateFunction<?, ?, T, R> preAggregateFunction,
 													  long intervalMs) {
-		return combine(preAggregateFunction, intervalMs, false);
+		return combine(preAggregateFunction, intervalMs, false, null, null);
+	}
+
+	/**
+	 * Combines the stream every {@code intervalMs} milliseconds, or earlier whenever the given
+	 * {@link BundleTrigger} fires, e.g. to bound the number of keys or the memory of the bundle.
+	 */
+	public <R> SingleOutputStreamOperator<R> combine(PreAggregateFunction<?, ?, T, R> preAggregateFunction,
+													  long intervalMs, BundleTrigger<T> bundleTrigger) {
+		return combine(preAggregateFunction, intervalMs, false, Preconditions.checkNotNull(bundleTrigger, "bundleTrigger must not be null"), null);
 	}
 
 	public <R> SingleOutputStreamOperator<R> adCombine(PreAggregateFunction<?, ?, T, R> preAggregateFunction) {
-		return combine(preAggregateFunction, 500, true);
+		return combine(preAggregateFunction, 500, true, null, null);
 	}
 
 	public <R> SingleOutputStreamOperator<R> adCombine(PreAggregateFunction<?, ?, T, R> preAggregateFunction,
 													   long intervalMs) {
-		return combine(preAggregateFunction, intervalMs, true);
+		return combine(preAggregateFunction, intervalMs, true, null, null);
+	}
+
+	/**
+	 * Combines the stream with the interval adapted by the controller, or earlier whenever the
+	 * given {@link BundleTrigger} fires, e.g. to bound the number of keys or the memory of the bundle.
+	 */
+	public <R> SingleOutputStreamOperator<R> adCombine(PreAggregateFunction<?, ?, T, R> preAggregateFunction,
+													   long intervalMs, BundleTrigger<T> bundleTrigger) {
+		return combine(preAggregateFunction, intervalMs, true, Preconditions.checkNotNull(bundleTrigger, "bundleTrigger must not be null"), null);
+	}
+
+	/**
+	 * Aggregates the elements of each key with the given {@link AggregateFunction} and emits the
+	 * updated result of a key for every element, as {@code keyBy(keySelector)} followed by a
+	 * rolling aggregation. The elements are added to accumulators of the function before the
+	 * shuffle every {@code intervalMs} milliseconds. The accumulators are shipped with their own
+	 * serializer and merged after the shuffle with {@link AggregateFunction#merge(Object, Object)},
+	 * which therefore has to be implemented.
+	 *
+	 * @param keySelector The key selector of the aggregation.
+	 * @param function The aggregation function, which cannot be a {@link org.apache.flink.api.common.functions.RichFunction}.
+	 * @param intervalMs The interval of the pre-aggregation in milliseconds.
+	 * @param <K> The type of the key.
+	 * @param <ACC> The type of the accumulator.
+	 * @param <R> The type of the aggregated result.
+	 */
+	public <K, ACC, R> SingleOutputStreamOperator<R> combine(KeySelector<T, K> keySelector,
+															 AggregateFunction<T, ACC, R> function,
+															 long intervalMs) {
+		return keyBy(keySelector).combineAggregate(function, intervalMs, false);
+	}
+
+	/**
+	 * Aggregates the elements of each key as {@link #combine(KeySelector, AggregateFunction, long)}
+	 * with the interval of the pre-aggregation adapted by the controller.
+	 */
+	public <K, ACC, R> SingleOutputStreamOperator<R> adCombine(KeySelector<T, K> keySelector,
+															   AggregateFunction<T, ACC, R> function,
+															   long intervalMs) {
+		return keyBy(keySelector).combineAggregate(function, intervalMs, true);
+	}
+
+	/**
+	 * Combines the stream on event time. The elements are pre-aggregated per tumbling pane of the
+	 * given size and the partials of a pane are emitted, with the max timestamp of the pane, before
+	 * the watermark that closes it. The size and slide of the downstream event-time windows must be
+	 * multiples of the pane size. Watermarks are forwarded once they advanced at least
+	 * {@code intervalMs} milliseconds since the last forwarded watermark, or at the latest after
+	 * {@code intervalMs} milliseconds of processing time.
+	 */
+	public <R> SingleOutputStreamOperator<R> combineByEventTime(PreAggregateFunction<?, ?, T, R> preAggregateFunction,
+																Time paneSize, long intervalMs) {
+		return combine(preAggregateFunction, intervalMs, false, null, Preconditions.checkNotNull(paneSize, "paneSize must not be null"));
+	}
+
+	/**
+	 * Combines the stream on event time as {@link #combineByEventTime(PreAggregateFunction, Time, long)}
+	 * with the minimum advance between two forwarded watermarks adapted by the controller.
+	 */
+	public <R> SingleOutputStreamOperator<R> adCombineByEventTime(PreAggregateFunction<?, ?, T, R> preAggregateFunction,
+																  Time paneSize, long intervalMs) {
+		return combine(preAggregateFunction, intervalMs, true, null, Preconditions.checkNotNull(paneSize, "paneSize must not be null"));
 	}
 
 }
@@ -21,25 +21,38 @@ import org.apache.flink.annotation.Internal;
 import org.apache.flink.annotation.Public;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.api.common.InvalidProgramException;
+import org.apache.flink.api.common.functions.AggregateFunction;
 import org.apache.flink.api.common.functions.FlatMapFunction;
+import org.apache.flink.api.common.functions.PreAggregateFunction;
 import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.functions.RichFunction;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeinfo.BasicArrayTypeInfo;
 import org.apache.flink.api.common.typeinfo.PrimitiveArrayTypeInfo;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.dag.Transformation;
 import org.apache.flink.api.java.Utils;
 import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.api.java.typeutils.EnumTypeInfo;
 import org.apache.flink.api.java.typeutils.ObjectArrayTypeInfo;
 import org.apache.flink.api.java.typeutils.PojoTypeInfo;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
 import org.apache.flink.api.java.typeutils.TupleTypeInfoBase;
 import org.apache.flink.api.java.typeutils.TypeExtractor;
+import org.apache.flink.configuration.PreAggregateOptions;
 import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
 import org.apache.flink.streaming.api.functions.ProcessFunction;
+import org.apache.flink.streaming.api.functions.aggregation.AccumulatingPreAggregateFunction;
+import org.apache.flink.streaming.api.functions.aggregation.AccumulatorKeySelector;
+import org.apache.flink.streaming.api.functions.aggregation.AccumulatorMergingReduceFunction;
+import org.apache.flink.streaming.api.functions.aggregation.AccumulatorResultFunction;
 import org.apache.flink.streaming.api.functions.aggregation.AggregationFunction;
 import org.apache.flink.streaming.api.functions.aggregation.ComparableAggregator;
+import org.apache.flink.streaming.api.functions.aggregation.ReducingPreAggregateFunction;
 import org.apache.flink.streaming.api.functions.aggregation.SumAggregator;
 import org.apache.flink.streaming.api.functions.co.ProcessJoinFunction;
 import org.apache.flink.streaming.api.functions.query.QueryableAppendingStateOperator;
@@ -48,7 +61,9 @@ import org.apache.flink.streaming.api.functions.sink.SinkFunction;
 import org.apache.flink.streaming.api.graph.StreamGraphGenerator;
 import org.apache.flink.streaming.api.operators.KeyedProcessOperator;
 import org.apache.flink.streaming.api.operators.LegacyKeyedProcessOperator;
+import org.apache.flink.streaming.api.operators.PreAggregateProcTimeStreamOperator;
 import org.apache.flink.streaming.api.operators.StreamGroupedReduce;
+import org.apache.flink.streaming.api.operators.StreamMap;
 import org.apache.flink.streaming.api.operators.StreamOperatorFactory;
 import org.apache.flink.streaming.api.operators.co.IntervalJoinOperator;
 import org.apache.flink.streaming.api.transformations.OneInputTransformation;
@@ -738,6 +753,150 @@ public class KeyedStream<T, KEY> extends DataStream<T> {
 				clean(reducer), getType().createSerializer(getExecutionConfig())));
 	}
 
+	/**
+	 * Applies a reduce transformation on the grouped data stream as {@link #reduce(ReduceFunction)}
+	 * and pre-aggregates the elements of each key with the same {@link ReduceFunction} before the
+	 * shuffle. The interval of the pre-aggregation starts at 500 milliseconds and is adapted by the
+	 * controller. The reducer sees the partially reduced elements, so it has to be associative,
+	 * and it cannot be a {@link RichFunction} because the pre-aggregation does not open it.
+	 *
+	 * @param reducer
+	 *            The {@link ReduceFunction} that will be called for every
+	 *            element of the input values with the same key.
+	 * @return The transformed DataStream.
+	 */
+	@PublicEvolving
+	public SingleOutputStreamOperator<T> adaptiveReduce(ReduceFunction<T> reducer) {
+		return adaptiveReduce(reducer, 500);
+	}
+
+	/**
+	 * Applies a reduce transformation on the grouped data stream as {@link #adaptiveReduce(ReduceFunction)}
+	 * with the given initial interval of the pre-aggregation.
+	 *
+	 * @param reducer
+	 *            The {@link ReduceFunction} that will be called for every
+	 *            element of the input values with the same key.
+	 * @param intervalMs
+	 *            The initial interval of the pre-aggregation in milliseconds.
+	 * @return The transformed DataStream.
+	 */
+	@PublicEvolving
+	public SingleOutputStreamOperator<T> adaptiveReduce(ReduceFunction<T> reducer, long intervalMs) {
+		checkNotNull(reducer, "reducer");
+		if (reducer instanceof RichFunction) {
+			throw new UnsupportedOperationException("ReduceFunction of adaptiveReduce can not be a RichFunction.");
+		}
+		reducer = clean(reducer);
+
+		// the object reuse mode is read when the stream is built, like the serializers of the operators
+		TypeSerializer<T> serializer = getExecutionConfig().isObjectReuseEnabled()
+			? getType().createSerializer(getExecutionConfig())
+			: null;
+		DataStream<T> partials = preAggregate(
+			new ReducingPreAggregateFunction<>(reducer, serializer), getType(), getType(), intervalMs, true);
+		return new KeyedStream<>(partials, keySelector, keyType).reduce(reducer);
+	}
+
+	/**
+	 * Applies the given {@link AggregateFunction} on the grouped data stream and emits the updated
+	 * result of a key for every received element. The elements of each key are added to an
+	 * accumulator before the shuffle and the accumulators are merged after the shuffle, so the
+	 * function has to implement {@link AggregateFunction#merge(Object, Object)}. The interval of
+	 * the pre-aggregation starts at 500 milliseconds and is adapted by the controller. The
+	 * function cannot be a {@link RichFunction} because the pre-aggregation does not open it.
+	 *
+	 * @param function The aggregation function.
+	 * @return The data stream that is the result of applying the aggregation function.
+	 *
+	 * @param <ACC> The type of the AggregateFunction's accumulator
+	 * @param <R> The type of the elements in the resulting stream, equal to the
+	 *            AggregateFunction's result type
+	 */
+	@PublicEvolving
+	public <ACC, R> SingleOutputStreamOperator<R> adaptiveAggregate(AggregateFunction<T, ACC, R> function) {
+		return adaptiveAggregate(function, 500);
+	}
+
+	/**
+	 * Applies the given {@link AggregateFunction} on the grouped data stream as
+	 * {@link #adaptiveAggregate(AggregateFunction)} with the given initial interval of the
+	 * pre-aggregation.
+	 *
+	 * @param function The aggregation function.
+	 * @param intervalMs The initial interval of the pre-aggregation in milliseconds.
+	 * @return The data stream that is the result of applying the aggregation function.
+	 *
+	 * @param <ACC> The type of the AggregateFunction's accumulator
+	 * @param <R> The type of the elements in the resulting stream, equal to the
+	 *            AggregateFunction's result type
+	 */
+	@PublicEvolving
+	public <ACC, R> SingleOutputStreamOperator<R> adaptiveAggregate(AggregateFunction<T, ACC, R> function, long intervalMs) {
+		return combineAggregate(function, intervalMs, true);
+	}
+
+	/**
+	 * Applies the given {@link AggregateFunction} with a pre-aggregation before the shuffle that
+	 * emits the accumulators of the function, see {@link #adaptiveAggregate(AggregateFunction, long)}
+	 * and {@link DataStream#combine(KeySelector, AggregateFunction, long)}.
+	 */
+	<ACC, R> SingleOutputStreamOperator<R> combineAggregate(
+			AggregateFunction<T, ACC, R> function,
+			long intervalMs,
+			boolean enableController) {
+		checkNotNull(function, "function");
+		if (function instanceof RichFunction) {
+			throw new UnsupportedOperationException("The AggregateFunction of a combine can not be a RichFunction.");
+		}
+		function = clean(function);
+
+		TypeInformation<ACC> accumulatorType = TypeExtractor.getAggregateFunctionAccumulatorType(
+			function, getType(), null, false);
+		TypeInformation<R> resultType = TypeExtractor.getAggregateFunctionReturnType(
+			function, getType(), null, false);
+
+		// the partials are shipped with the serializer of the accumulator and merged after the shuffle
+		TupleTypeInfo<Tuple2<KEY, ACC>> partialType = new TupleTypeInfo<>(keyType, accumulatorType);
+		DataStream<Tuple2<KEY, ACC>> partials = preAggregate(
+			new AccumulatingPreAggregateFunction<>(function, keySelector),
+			partialType,
+			partialType,
+			intervalMs,
+			enableController);
+		return new KeyedStream<>(partials, new AccumulatorKeySelector<KEY, ACC>(), keyType)
+			.reduce(new AccumulatorMergingReduceFunction<>(function))
+			.transform("Keyed Aggregate", resultType, new StreamMap<>(new AccumulatorResultFunction<>(function)));
+	}
+
+	/**
+	 * Pre-aggregates the elements of the stream before it is partitioned by key, with the key
+	 * selector of this stream.
+	 */
+	@SuppressWarnings("unchecked")
+	private <V, R> DataStream<R> preAggregate(
+			PreAggregateFunction<KEY, V, T, R> preAggregateFunction,
+			TypeInformation<V> valueType,
+			TypeInformation<R> outType,
+			long intervalMs,
+			boolean enableController) {
+		// the combiner runs on the input of the partitioning
+		if (!(getTransformation() instanceof PartitionTransformation)) {
+			throw new UnsupportedOperationException("Cannot pre-aggregate the elements of a stream that is not partitioned by key.");
+		}
+		DataStream<T> unkeyedInput = new DataStream<>(
+			getExecutionEnvironment(), (Transformation<T>) getTransformation().getInputs().get(0));
+
+		PreAggregateProcTimeStreamOperator<KEY, V, T, R> operator = new PreAggregateProcTimeStreamOperator<>(
+			preAggregateFunction, keySelector, intervalMs, enableController);
+		operator.setBundleSerializers(
+			keyType.createSerializer(getExecutionConfig()),
+			valueType.createSerializer(getExecutionConfig()));
+		boolean managedMemoryBundle =
+			getExecutionEnvironment().getConfiguration().get(PreAggregateOptions.BUNDLE_MANAGED_MEMORY_ENABLED);
+		return unkeyedInput.transformPreAggregate(operator, outType, enableController, managedMemoryBundle);
+	}
+
 	/**
 	 * Applies an aggregation that gives a rolling sum of the data stream at the
 	 * given position grouped by the given key. An independent aggregate is kept
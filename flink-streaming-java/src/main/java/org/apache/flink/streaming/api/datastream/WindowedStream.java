@@ -26,8 +26,14 @@ import org.apache.flink.api.common.functions.AggregateFunction;
 import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.functions.RichFunction;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.dag.Transformation;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
 import org.apache.flink.api.java.typeutils.TypeExtractor;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.aggregation.AccumulatingPreAggregateFunction;
+import org.apache.flink.streaming.api.functions.aggregation.AccumulatorKeySelector;
+import org.apache.flink.streaming.api.functions.aggregation.AccumulatorMergingAggregateFunction;
 import org.apache.flink.streaming.api.functions.aggregation.AggregationFunction;
 import org.apache.flink.streaming.api.functions.aggregation.ComparableAggregator;
 import org.apache.flink.streaming.api.functions.aggregation.SumAggregator;
@@ -35,9 +41,15 @@ import org.apache.flink.streaming.api.functions.windowing.PassThroughWindowFunct
 import org.apache.flink.streaming.api.functions.windowing.ProcessWindowFunction;
 import org.apache.flink.streaming.api.functions.windowing.WindowFunction;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.api.operators.PreAggregateProcTimeStreamOperator;
+import org.apache.flink.streaming.api.transformations.PartitionTransformation;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
+import org.apache.flink.streaming.api.windowing.assigners.TumblingEventTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.WindowAssigner;
+import org.apache.flink.streaming.api.windowing.assigners.WindowStagger;
 import org.apache.flink.streaming.api.windowing.evictors.Evictor;
 import org.apache.flink.streaming.api.windowing.time.Time;
+import org.apache.flink.streaming.api.windowing.triggers.EventTimeTrigger;
 import org.apache.flink.streaming.api.windowing.triggers.Trigger;
 import org.apache.flink.streaming.api.windowing.windows.Window;
 import org.apache.flink.streaming.runtime.operators.windowing.WindowOperatorBuilder;
@@ -853,6 +865,119 @@ public class WindowedStream<T, K, W extends Window> {
 		return reduce(aggregator);
 	}
 
+	// ------------------------------------------------------------------------
+	//  Pre-aggregation
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Applies the given aggregation function to each window as {@link #aggregate(AggregateFunction)},
+	 * but pre-aggregates the elements before they are shuffled by key. The combiner keeps one
+	 * accumulator per key and pane. The panes are the windows of a tumbling window assigner, or
+	 * the greatest common divisor of the size and the slide of a sliding window assigner. The
+	 * partial accumulators of a pane are emitted before the watermark that closes it and are merged
+	 * into the window state with {@link AggregateFunction#merge(Object, Object)}, which therefore
+	 * has to be implemented.
+	 *
+	 * <p>Only tumbling and sliding event-time windows with their default trigger, without an
+	 * evictor and without a side output for late data can be combined. The combiner forwards a
+	 * watermark once it advanced at least {@code intervalMs} milliseconds since the last one, or at
+	 * the latest after {@code intervalMs} milliseconds of processing time.
+	 *
+	 * @param function The aggregation function.
+	 * @param intervalMs The minimum advance of the watermarks forwarded by the combiner.
+	 * @return The data stream that is the result of applying the aggregation function to the window.
+	 *
+	 * @param <ACC> The type of the AggregateFunction's accumulator
+	 * @param <R> The type of the elements in the resulting stream, equal to the
+	 *            AggregateFunction's result type
+	 */
+	@PublicEvolving
+	public <ACC, R> SingleOutputStreamOperator<R> combine(AggregateFunction<T, ACC, R> function, long intervalMs) {
+		return combine(function, intervalMs, false);
+	}
+
+	/**
+	 * Applies the given aggregation function to each window and pre-aggregates the elements before
+	 * the shuffle as {@link #combine(AggregateFunction, long)}, with the minimum advance of the
+	 * watermarks forwarded by the combiner adapted by the controller.
+	 */
+	@PublicEvolving
+	public <ACC, R> SingleOutputStreamOperator<R> adCombine(AggregateFunction<T, ACC, R> function, long intervalMs) {
+		return combine(function, intervalMs, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <ACC, R> SingleOutputStreamOperator<R> combine(
+		AggregateFunction<T, ACC, R> function,
+		long intervalMs,
+		boolean enableController) {
+
+		checkNotNull(function, "function");
+
+		if (function instanceof RichFunction) {
+			throw new UnsupportedOperationException("This aggregation function cannot be a RichFunction.");
+		}
+		if (builder.getEvictor() != null) {
+			throw new UnsupportedOperationException("Cannot combine the elements of windows with an Evictor.");
+		}
+		if (builder.getLateDataOutputTag() != null) {
+			throw new UnsupportedOperationException("Cannot combine the elements of windows with a side output for late data.");
+		}
+		if (!(builder.getTrigger() instanceof EventTimeTrigger)) {
+			throw new UnsupportedOperationException("Cannot combine the elements of windows with a custom trigger.");
+		}
+
+		final WindowAssigner<? super T, W> windowAssigner = builder.getWindowAssigner();
+		final long paneSize;
+		final long paneOffset;
+		if (windowAssigner instanceof TumblingEventTimeWindows) {
+			TumblingEventTimeWindows tumblingWindows = (TumblingEventTimeWindows) windowAssigner;
+			if (tumblingWindows.getWindowStagger() != WindowStagger.ALIGNED) {
+				throw new UnsupportedOperationException("Cannot combine the elements of staggered windows.");
+			}
+			paneSize = tumblingWindows.getSize();
+			paneOffset = tumblingWindows.getOffset();
+		} else if (windowAssigner instanceof SlidingEventTimeWindows) {
+			SlidingEventTimeWindows slidingWindows = (SlidingEventTimeWindows) windowAssigner;
+			paneSize = greatestCommonDivisor(slidingWindows.getSize(), slidingWindows.getSlide());
+			paneOffset = slidingWindows.getOffset();
+		} else {
+			throw new UnsupportedOperationException("Only tumbling and sliding event-time windows can be combined, not " +
+				windowAssigner.getClass().getSimpleName() + ".");
+		}
+
+		final Transformation<T> keyedTransformation = input.getTransformation();
+		if (!(keyedTransformation instanceof PartitionTransformation)) {
+			throw new UnsupportedOperationException("Cannot combine the elements of a stream that is not partitioned by key.");
+		}
+		final DataStream<T> unkeyedInput = new DataStream<>(
+			input.getExecutionEnvironment(),
+			(Transformation<T>) keyedTransformation.getInputs().get(0));
+
+		TypeInformation<ACC> accumulatorType = TypeExtractor.getAggregateFunctionAccumulatorType(
+			function, input.getType(), null, false);
+
+		TypeInformation<R> resultType = TypeExtractor.getAggregateFunctionReturnType(
+			function, input.getType(), null, false);
+
+		// pre-aggregate per key and pane before the shuffle
+		PreAggregateProcTimeStreamOperator<K, Tuple2<K, ACC>, T, Tuple2<K, ACC>> operator = new PreAggregateProcTimeStreamOperator<>(
+			new AccumulatingPreAggregateFunction<>(function, input.getKeySelector()), input.getKeySelector(), intervalMs, enableController);
+		operator.setEventTimePanes(paneSize, paneOffset);
+		DataStream<Tuple2<K, ACC>> partials = unkeyedInput.transformPreAggregate(
+			operator, new TupleTypeInfo<>(input.getKeyType(), accumulatorType), enableController, false);
+
+		// the partials are assigned to the same windows as the elements of their pane
+		return new KeyedStream<>(partials, new AccumulatorKeySelector<K, ACC>(), input.getKeyType())
+			.window((WindowAssigner<? super Tuple2<K, ACC>, W>) windowAssigner)
+			.allowedLateness(Time.milliseconds(builder.getAllowedLateness()))
+			.aggregate(new AccumulatorMergingAggregateFunction<>(function), accumulatorType, resultType);
+	}
+
+	private static long greatestCommonDivisor(long a, long b) {
+		return b == 0 ? a : greatestCommonDivisor(b, a % b);
+	}
+
 	public StreamExecutionEnvironment getExecutionEnvironment() {
 		return input.getExecutionEnvironment();
 	}
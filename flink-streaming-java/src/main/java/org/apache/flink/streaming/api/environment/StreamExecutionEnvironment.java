@@ -236,7 +236,8 @@ public class StreamExecutionEnvironment {
 		this.configure(this.configuration, this.userClassloader);
 	}
 
-	protected Configuration getConfiguration() {
+	@Internal
+	public Configuration getConfiguration() {
 		return this.configuration;
 	}
 
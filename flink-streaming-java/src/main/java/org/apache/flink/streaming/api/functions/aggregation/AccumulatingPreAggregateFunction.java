@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.functions.aggregation;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.common.functions.PreAggregateFunction;
+import org.apache.flink.api.common.functions.PreAggregateValueMerger;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.util.Collector;
+
+import javax.annotation.Nullable;
+
+import java.util.Map;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link PreAggregateFunction} that adds the elements of a key to an accumulator of the given
+ * {@link AggregateFunction} and emits the partial accumulators together with their key. The
+ * partials are merged downstream with {@link AggregateFunction#merge(Object, Object)}, e.g. by an
+ * {@link AccumulatorMergingAggregateFunction}.
+ *
+ * <p>The bundle keeps the emitted partials themselves, so the key is extracted once per key and
+ * bundle and the partials are emitted without wrapping them again. The partials of co-located
+ * subtasks are merged with {@link AggregateFunction#merge(Object, Object)} as well.
+ *
+ * @param <K> The type of the key.
+ * @param <IN> The type of the input elements.
+ * @param <ACC> The type of the accumulator.
+ */
+@Internal
+public class AccumulatingPreAggregateFunction<K, IN, ACC> extends PreAggregateFunction<K, Tuple2<K, ACC>, IN, Tuple2<K, ACC>>
+	implements PreAggregateValueMerger<Tuple2<K, ACC>> {
+	private static final long serialVersionUID = 1L;
+
+	private final AggregateFunction<IN, ACC, ?> aggregateFunction;
+
+	private final KeySelector<IN, K> keySelector;
+
+	public AccumulatingPreAggregateFunction(AggregateFunction<IN, ACC, ?> aggregateFunction, KeySelector<IN, K> keySelector) {
+		this.aggregateFunction = checkNotNull(aggregateFunction);
+		this.keySelector = checkNotNull(keySelector);
+	}
+
+	@Override
+	public Tuple2<K, ACC> addInput(@Nullable Tuple2<K, ACC> value, IN input) throws Exception {
+		if (value == null) {
+			return Tuple2.of(keySelector.getKey(input), aggregateFunction.add(input, aggregateFunction.createAccumulator()));
+		}
+		value.f1 = aggregateFunction.add(input, value.f1);
+		return value;
+	}
+
+	@Override
+	public Tuple2<K, ACC> merge(Tuple2<K, ACC> value, Tuple2<K, ACC> other) {
+		value.f1 = aggregateFunction.merge(value.f1, other.f1);
+		return value;
+	}
+
+	@Override
+	public void collect(Map<K, Tuple2<K, ACC>> buffer, Collector<Tuple2<K, ACC>> out) {
+		for (Tuple2<K, ACC> partial : buffer.values()) {
+			out.collect(partial);
+		}
+	}
+
+	@Override
+	public boolean reusesOutput() {
+		return false;
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.functions.aggregation;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+
+/**
+ * Selects the key of the partial accumulators emitted by an {@link AccumulatingPreAggregateFunction}.
+ *
+ * @param <K> The type of the key.
+ * @param <ACC> The type of the accumulator.
+ */
+@Internal
+public class AccumulatorKeySelector<K, ACC> implements KeySelector<Tuple2<K, ACC>, K> {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public K getKey(Tuple2<K, ACC> partial) {
+		return partial.f0;
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.functions.aggregation;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.java.tuple.Tuple2;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link ReduceFunction} over the partial accumulators emitted by an
+ * {@link AccumulatingPreAggregateFunction}. The accumulators of a key are merged with
+ * {@link AggregateFunction#merge(Object, Object)} of the given function, which therefore has to
+ * be implemented.
+ *
+ * @param <K> The type of the key of the partials.
+ * @param <ACC> The type of the accumulator.
+ */
+@Internal
+public class AccumulatorMergingReduceFunction<K, ACC> implements ReduceFunction<Tuple2<K, ACC>> {
+	private static final long serialVersionUID = 1L;
+
+	private final AggregateFunction<?, ACC, ?> aggregateFunction;
+
+	public AccumulatorMergingReduceFunction(AggregateFunction<?, ACC, ?> aggregateFunction) {
+		this.aggregateFunction = checkNotNull(aggregateFunction);
+	}
+
+	@Override
+	public Tuple2<K, ACC> reduce(Tuple2<K, ACC> accumulated, Tuple2<K, ACC> partial) {
+		accumulated.f1 = aggregateFunction.merge(accumulated.f1, partial.f1);
+		return accumulated;
+	}
+}
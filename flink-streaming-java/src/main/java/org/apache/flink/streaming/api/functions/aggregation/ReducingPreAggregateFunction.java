@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.functions.aggregation;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.PreAggregateFunction;
+import org.apache.flink.api.common.functions.PreAggregateValueMerger;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.util.Collector;
+
+import javax.annotation.Nullable;
+
+import java.util.Map;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link PreAggregateFunction} that reduces the elements of a key with the given
+ * {@link ReduceFunction} and emits the partially reduced elements. Since the reduced elements
+ * have the type of the input, they are reduced downstream, and with the ones of co-located
+ * subtasks, by the same function.
+ *
+ * <p>The first element of a key is kept in the bundle as the reduced element, which the
+ * {@link ReduceFunction} may modify in place. With object reuse a chained upstream operator may
+ * overwrite the element after it was emitted, so the function is given the serializer of the
+ * elements to keep a copy of the first element instead.
+ *
+ * @param <K> The type of the key.
+ * @param <T> The type of the elements.
+ */
+@Internal
+public class ReducingPreAggregateFunction<K, T> extends PreAggregateFunction<K, T, T, T>
+	implements PreAggregateValueMerger<T> {
+	private static final long serialVersionUID = 1L;
+
+	private final ReduceFunction<T> reduceFunction;
+	/** Copies the first element of a key, null if the elements are not reused. */
+	@Nullable
+	private final TypeSerializer<T> serializer;
+
+	public ReducingPreAggregateFunction(ReduceFunction<T> reduceFunction) {
+		this(reduceFunction, null);
+	}
+
+	/**
+	 * @param serializer copies the first element of a key, null if object reuse is disabled
+	 */
+	public ReducingPreAggregateFunction(ReduceFunction<T> reduceFunction, @Nullable TypeSerializer<T> serializer) {
+		this.reduceFunction = checkNotNull(reduceFunction);
+		this.serializer = serializer;
+	}
+
+	@Override
+	public T addInput(@Nullable T value, T input) throws Exception {
+		if (value == null) {
+			return serializer == null ? input : serializer.copy(input);
+		}
+		return reduceFunction.reduce(value, input);
+	}
+
+	@Override
+	public T merge(T value, T other) throws Exception {
+		return reduceFunction.reduce(value, other);
+	}
+
+	@Override
+	public void collect(Map<K, T> buffer, Collector<T> out) {
+		for (T value : buffer.values()) {
+			out.collect(value);
+		}
+	}
+
+	@Override
+	public boolean reusesOutput() {
+		return false;
+	}
+}
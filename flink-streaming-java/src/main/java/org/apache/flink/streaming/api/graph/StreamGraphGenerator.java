@@ -22,18 +22,31 @@ import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.RuntimeExecutionMode;
 import org.apache.flink.api.common.cache.DistributedCache;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.functions.RichFunction;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.connector.source.Boundedness;
 import org.apache.flink.api.dag.Transformation;
+import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.ExecutionOptions;
+import org.apache.flink.configuration.PreAggregateOptions;
 import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.core.memory.ManagedMemoryUseCase;
 import org.apache.flink.runtime.jobgraph.SavepointRestoreSettings;
 import org.apache.flink.runtime.jobgraph.ScheduleMode;
 import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.StateBackend;
 import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.environment.CheckpointConfig;
+import org.apache.flink.streaming.api.functions.aggregation.ReducingPreAggregateFunction;
+import org.apache.flink.streaming.api.operators.ChainingStrategy;
+import org.apache.flink.streaming.api.operators.PreAggregateOperatorFactory;
+import org.apache.flink.streaming.api.operators.PreAggregateProcTimeStreamOperator;
+import org.apache.flink.streaming.api.operators.SimpleOperatorFactory;
+import org.apache.flink.streaming.api.operators.StreamGroupedReduce;
+import org.apache.flink.streaming.api.operators.StreamOperatorFactory;
 import org.apache.flink.streaming.api.operators.sorted.state.BatchExecutionInternalTimeServiceManager;
 import org.apache.flink.streaming.api.operators.sorted.state.BatchExecutionStateBackend;
 import org.apache.flink.streaming.api.transformations.CoFeedbackTransformation;
@@ -50,6 +63,8 @@ import org.apache.flink.streaming.api.transformations.SourceTransformation;
 import org.apache.flink.streaming.api.transformations.TwoInputTransformation;
 import org.apache.flink.streaming.api.transformations.UnionTransformation;
 import org.apache.flink.streaming.api.transformations.WithBoundedness;
+import org.apache.flink.streaming.runtime.operators.TimestampsAndWatermarksOperator;
+import org.apache.flink.streaming.runtime.partitioner.KeyGroupStreamPartitioner;
 import org.apache.flink.streaming.runtime.translators.LegacySinkTransformationTranslator;
 import org.apache.flink.streaming.runtime.translators.LegacySourceTransformationTranslator;
 import org.apache.flink.streaming.runtime.translators.MultiInputTransformationTranslator;
@@ -69,8 +84,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -175,6 +192,10 @@ public class StreamGraphGenerator {
 	// we have loops, i.e. feedback edges.
 	private Map<Transformation<?>, Collection<Integer>> alreadyTransformed;
 
+	// The partitions by key that get a pre-aggregation inserted before the shuffle, with the
+	// keyed reduce that consumes them, see PreAggregateOptions#AUTO_COMBINE_ENABLED.
+	private Map<Transformation<?>, OneInputTransformation<?, ?>> combinedPartitions;
+
 	public StreamGraphGenerator(
 			final List<Transformation<?>> transformations,
 			final ExecutionConfig executionConfig,
@@ -243,6 +264,9 @@ public class StreamGraphGenerator {
 		configureStreamGraph(streamGraph);
 
 		alreadyTransformed = new HashMap<>();
+		combinedPartitions = !shouldExecuteInBatchMode && configuration.get(PreAggregateOptions.AUTO_COMBINE_ENABLED)
+			? findCombinablePartitions()
+			: Collections.emptyMap();
 
 		for (Transformation<?> transformation: transformations) {
 			transform(transformation);
@@ -252,6 +276,7 @@ public class StreamGraphGenerator {
 
 		alreadyTransformed.clear();
 		alreadyTransformed = null;
+		combinedPartitions = null;
 		streamGraph = null;
 
 		return builtStreamGraph;
@@ -363,7 +388,10 @@ public class StreamGraphGenerator {
 				(TransformationTranslator<?, Transformation<?>>) translatorMap.get(transform.getClass());
 
 		Collection<Integer> transformedIds;
-		if (translator != null) {
+		if (combinedPartitions.containsKey(transform)) {
+			transformedIds = transformCombinedPartition(
+				(PartitionTransformation<?>) transform, combinedPartitions.get(transform));
+		} else if (translator != null) {
 			transformedIds = translate(translator, transform);
 		} else {
 			transformedIds = legacyTransform(transform);
@@ -422,6 +450,156 @@ public class StreamGraphGenerator {
 		return transformedIds;
 	}
 
+	/**
+	 * Finds the partitions by key whose only consumer is a keyed reduce that can be pre-aggregated
+	 * with its own {@link ReduceFunction} before the shuffle. This covers the sum, min and max
+	 * aggregations of a {@code KeyedStream}, whose aggregators are reduce functions as well. Event-time
+	 * pipelines are not pre-aggregated, see {@link #isEventTime(Transformation)}.
+	 */
+	private Map<Transformation<?>, OneInputTransformation<?, ?>> findCombinablePartitions() {
+		final Map<Transformation<?>, Integer> numConsumers = new HashMap<>();
+		final List<OneInputTransformation<?, ?>> reduces = new ArrayList<>();
+		final Set<Transformation<?>> visited = new HashSet<>();
+		for (Transformation<?> transformation : transformations) {
+			for (Transformation<?> predecessor : transformation.getTransitivePredecessors()) {
+				if (!visited.add(predecessor)) {
+					continue;
+				}
+				final List<Transformation<?>> inputs = new ArrayList<>(predecessor.getInputs());
+				if (predecessor instanceof FeedbackTransformation) {
+					inputs.addAll(((FeedbackTransformation<?>) predecessor).getFeedbackEdges());
+				} else if (predecessor instanceof CoFeedbackTransformation) {
+					inputs.addAll(((CoFeedbackTransformation<?>) predecessor).getFeedbackEdges());
+				}
+				for (Transformation<?> input : inputs) {
+					numConsumers.merge(input, 1, Integer::sum);
+				}
+				if (isCombinableReduce(predecessor)) {
+					reduces.add((OneInputTransformation<?, ?>) predecessor);
+				}
+			}
+		}
+
+		final Map<Transformation<?>, OneInputTransformation<?, ?>> partitions = new HashMap<>();
+		for (OneInputTransformation<?, ?> reduce : reduces) {
+			final Transformation<?> partition = reduce.getInputs().get(0);
+			if (numConsumers.get(partition) == 1) {
+				partitions.put(partition, reduce);
+			}
+		}
+		return partitions;
+	}
+
+	private boolean isCombinableReduce(Transformation<?> transformation) {
+		if (!(transformation instanceof OneInputTransformation)) {
+			return false;
+		}
+		final OneInputTransformation<?, ?> reduce = (OneInputTransformation<?, ?>) transformation;
+		if (!(reduce.getOperatorFactory() instanceof SimpleOperatorFactory) ||
+				!(reduce.getOperator() instanceof StreamGroupedReduce) ||
+				((StreamGroupedReduce<?>) reduce.getOperator()).getUserFunction() instanceof RichFunction) {
+			return false;
+		}
+		if (reduce.getUid() == null && !executionConfig.hasAutoGeneratedUIDsEnabled()) {
+			// the inserted pre-aggregation could not get a UID
+			return false;
+		}
+
+		final Transformation<?> partition = reduce.getInputs().get(0);
+		if (!(partition instanceof PartitionTransformation) ||
+				!(((PartitionTransformation<?>) partition).getPartitioner() instanceof KeyGroupStreamPartitioner)) {
+			return false;
+		}
+		// do not pre-aggregate twice, e.g. after KeyedStream#adaptiveReduce
+		final Transformation<?> upstream = partition.getInputs().get(0);
+		if (upstream instanceof OneInputTransformation &&
+				((OneInputTransformation<?, ?>) upstream).getOperatorFactory() instanceof PreAggregateOperatorFactory) {
+			return false;
+		}
+		// the partials are emitted on processing time, without the timestamps of their elements and
+		// behind the watermarks that the elements preceded
+		return !isEventTime(upstream);
+	}
+
+	/**
+	 * Whether the elements of the given transformation may carry timestamps and watermarks, i.e. the
+	 * time characteristic is ingestion time or a predecessor assigns timestamps and watermarks, or is
+	 * a source with a {@code WatermarkStrategy}. Watermarks that a legacy source function emits
+	 * itself are not detected.
+	 */
+	private boolean isEventTime(Transformation<?> transformation) {
+		if (timeCharacteristic == TimeCharacteristic.IngestionTime) {
+			return true;
+		}
+		for (Transformation<?> predecessor : transformation.getTransitivePredecessors()) {
+			if (predecessor instanceof SourceTransformation) {
+				return true;
+			}
+			if (predecessor instanceof OneInputTransformation) {
+				final StreamOperatorFactory<?> factory = ((OneInputTransformation<?, ?>) predecessor).getOperatorFactory();
+				if (factory instanceof SimpleOperatorFactory &&
+						((SimpleOperatorFactory<?>) factory).getOperator() instanceof TimestampsAndWatermarksOperator) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Transforms a partition by key as a pre-aggregation with the reduce function of its consumer,
+	 * chained to the input of the partition, followed by the same partitioning.
+	 */
+	@SuppressWarnings("unchecked")
+	private <K, T> Collection<Integer> transformCombinedPartition(
+			PartitionTransformation<?> partitionTransformation,
+			OneInputTransformation<?, ?> reduceTransformation) {
+		final PartitionTransformation<T> partition = (PartitionTransformation<T>) partitionTransformation;
+		final OneInputTransformation<T, T> reduce = (OneInputTransformation<T, T>) reduceTransformation;
+		final Transformation<T> input = (Transformation<T>) partition.getInputs().get(0);
+		final ReduceFunction<T> reducer = ((StreamGroupedReduce<T>) reduce.getOperator()).getUserFunction();
+		final KeySelector<T, K> keySelector = (KeySelector<T, K>) reduce.getStateKeySelector();
+		final TypeInformation<K> keyType = (TypeInformation<K>) reduce.getStateKeyType();
+
+		final PreAggregateProcTimeStreamOperator<K, T, T, T> operator = new PreAggregateProcTimeStreamOperator<>(
+			new ReducingPreAggregateFunction<>(
+				reducer,
+				executionConfig.isObjectReuseEnabled() ? input.getOutputType().createSerializer(executionConfig) : null),
+			keySelector,
+			configuration.get(PreAggregateOptions.AUTO_COMBINE_INTERVAL).toMillis(),
+			true);
+		final boolean managedMemoryBundle = configuration.get(PreAggregateOptions.BUNDLE_MANAGED_MEMORY_ENABLED);
+		operator.setBundleSerializers(
+			keyType.createSerializer(executionConfig),
+			input.getOutputType().createSerializer(executionConfig));
+		operator.setManagedMemoryBundle(managedMemoryBundle);
+		operator.configure(configuration);
+
+		final OneInputTransformation<T, T> combiner = new OneInputTransformation<>(
+			input,
+			"PreAggregate",
+			new PreAggregateOperatorFactory<>(operator, true, configuration),
+			input.getOutputType(),
+			input.getParallelism());
+		combiner.setChainingStrategy(ChainingStrategy.ALWAYS);
+		if (input.getMaxParallelism() > 0) {
+			combiner.setMaxParallelism(input.getMaxParallelism());
+		}
+		if (reduce.getUid() != null) {
+			combiner.setUid(reduce.getUid() + "-pre-aggregate");
+		}
+		if (managedMemoryBundle) {
+			final long memoryKibiBytes =
+				configuration.get(PreAggregateOptions.BUNDLE_MANAGED_MEMORY_SIZE).getKibiBytes();
+			combiner.declareManagedMemoryUseCaseAtOperatorScope(
+				ManagedMemoryUseCase.BATCH_OP, (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryKibiBytes)));
+		}
+		LOG.debug("Inserting {} before the shuffle of {}", combiner, reduce);
+
+		return transform(new PartitionTransformation<>(
+			combiner, partition.getPartitioner(), partition.getShuffleMode()));
+	}
+
 	/**
 	 * Transforms a {@code FeedbackTransformation}.
 	 *
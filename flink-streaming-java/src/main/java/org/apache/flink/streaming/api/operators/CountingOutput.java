@@ -36,6 +36,13 @@ public class CountingOutput<OUT> implements Output<StreamRecord<OUT>> {
 		this.numRecordsOut = counter;
 	}
 
+	/**
+	 * Returns the wrapped output.
+	 */
+	public Output<StreamRecord<OUT>> getOutput() {
+		return output;
+	}
+
 	@Override
 	public void emitWatermark(Watermark mark) {
 		output.emitWatermark(mark);
@@ -0,0 +1,102 @@
+package org.apache.flink.streaming.api.operators;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Exponentially weighted mean and standard deviation of a signal of the {@link PreAggregateProcTimeSignalsMonitor},
+ * used instead of a reservoir histogram when the controller has to react within seconds. The min, max and quantiles
+ * are the ones of the samples since the last {@link #resetWindow()}, i.e. of a publication interval.
+ */
+public class PreAggregateEwmaStatistics implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Weight of the newest sample, in (0, 1]. */
+	private final double alpha;
+	private boolean empty;
+	private double mean;
+	private double variance;
+	private long min;
+	private long max;
+	/** The samples since the last reset of the window. */
+	private long[] window = new long[16];
+	private int windowSize;
+
+	public PreAggregateEwmaStatistics(double alpha) {
+		checkArgument(alpha > 0 && alpha <= 1, "The weight of the newest sample must be in (0, 1].");
+		this.alpha = alpha;
+		this.empty = true;
+		resetWindow();
+	}
+
+	public void update(long value) {
+		if (empty) {
+			mean = value;
+			variance = 0;
+			empty = false;
+		} else {
+			double diff = value - mean;
+			double increment = alpha * diff;
+			mean = mean + increment;
+			variance = (1 - alpha) * (variance + diff * increment);
+		}
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+		if (windowSize == window.length) {
+			window = Arrays.copyOf(window, windowSize * 2);
+		}
+		window[windowSize++] = value;
+	}
+
+	/**
+	 * Starts a new window of the min, max and quantiles. The mean and standard deviation are kept.
+	 */
+	public void resetWindow() {
+		this.min = Long.MAX_VALUE;
+		this.max = Long.MIN_VALUE;
+		this.windowSize = 0;
+	}
+
+	public double getMean() {
+		return empty ? 0.0 : mean;
+	}
+
+	public double getStdDev() {
+		return Math.sqrt(variance);
+	}
+
+	public long getMin() {
+		return min == Long.MAX_VALUE ? 0 : min;
+	}
+
+	public long getMax() {
+		return max == Long.MIN_VALUE ? 0 : max;
+	}
+
+	/**
+	 * Returns the given quantile of the samples since the last reset of the window, interpolated between the two
+	 * closest samples as the reservoir histograms do, or 0 if there is no sample.
+	 */
+	public double getQuantile(double quantile) {
+		checkArgument(quantile >= 0 && quantile <= 1, "The quantile must be in [0, 1].");
+		if (windowSize == 0) {
+			return 0.0;
+		}
+		long[] sorted = Arrays.copyOf(window, windowSize);
+		Arrays.sort(sorted);
+		double position = quantile * (windowSize + 1);
+		int index = (int) position;
+		if (index < 1) {
+			return sorted[0];
+		}
+		if (index >= windowSize) {
+			return sorted[windowSize - 1];
+		}
+		double lower = sorted[index - 1];
+		double upper = sorted[index];
+		return lower + (position - Math.floor(position)) * (upper - lower);
+	}
+}
@@ -0,0 +1,16 @@
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.runtime.controller.PreAggregateControllerCoordinator;
+import org.apache.flink.runtime.controller.PreAggregateIntervalEvent;
+import org.apache.flink.runtime.operators.coordination.OperatorEventGateway;
+import org.apache.flink.runtime.operators.coordination.OperatorEventHandler;
+
+/**
+ * An operator whose pre-aggregation interval is adapted by the {@link PreAggregateControllerCoordinator}.
+ * It receives the {@link PreAggregateIntervalEvent}s of the coordinator and publishes its signals
+ * through the given {@link OperatorEventGateway}, see {@link PreAggregateOperatorFactory}.
+ */
+public interface PreAggregateIntervalHandler extends OperatorEventHandler {
+
+	void setOperatorEventGateway(OperatorEventGateway operatorEventGateway);
+}
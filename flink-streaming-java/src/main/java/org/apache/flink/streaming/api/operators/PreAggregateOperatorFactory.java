@@ -0,0 +1,73 @@
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.runtime.controller.PreAggregateControllerCoordinator;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.operators.coordination.OperatorCoordinator;
+import org.apache.flink.runtime.operators.coordination.OperatorEventDispatcher;
+
+/**
+ * The Factory class for {@link PreAggregateProcTimeStreamAbstractOperator} and the other
+ * {@link PreAggregateIntervalHandler}s. It connects the operator to the
+ * {@link PreAggregateControllerCoordinator} which adapts the pre-aggregation interval.
+ */
+public class PreAggregateOperatorFactory<OUT> extends SimpleOperatorFactory<OUT> implements CoordinatedOperatorFactory<OUT> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final PreAggregateIntervalHandler intervalHandler;
+	private final boolean enableController;
+	private final Configuration controllerConfiguration;
+
+	public <O extends StreamOperator<OUT> & PreAggregateIntervalHandler> PreAggregateOperatorFactory(
+			O operator,
+			boolean enableController) {
+		this(operator, enableController, new Configuration());
+	}
+
+	public <O extends StreamOperator<OUT> & PreAggregateIntervalHandler> PreAggregateOperatorFactory(
+			O operator,
+			boolean enableController,
+			ReadableConfig configuration) {
+		super(operator);
+		this.intervalHandler = operator;
+		this.enableController = enableController;
+		this.controllerConfiguration = new Configuration();
+		setIfPresent(configuration, PreAggregateControllerOptions.PERIOD);
+		setIfPresent(configuration, PreAggregateControllerOptions.SETPOINT);
+		setIfPresent(configuration, PreAggregateControllerOptions.PROPORTIONAL_GAIN);
+		setIfPresent(configuration, PreAggregateControllerOptions.INTEGRAL_GAIN);
+		setIfPresent(configuration, PreAggregateControllerOptions.DERIVATIVE_GAIN);
+		setIfPresent(configuration, PreAggregateControllerOptions.MIN_INTERVAL);
+		setIfPresent(configuration, PreAggregateControllerOptions.MAX_INTERVAL);
+		setIfPresent(configuration, PreAggregateControllerOptions.HYSTERESIS);
+		setIfPresent(configuration, PreAggregateControllerOptions.LATENCY_SLO);
+		setIfPresent(configuration, PreAggregateControllerOptions.POLICY);
+		setIfPresent(configuration, PreAggregateControllerOptions.AIMD_ADDITIVE_STEP);
+		setIfPresent(configuration, PreAggregateControllerOptions.AIMD_MULTIPLICATIVE_FACTOR);
+		setIfPresent(configuration, PreAggregateControllerOptions.TRACE_DIRECTORY);
+	}
+
+	private <T> void setIfPresent(ReadableConfig configuration, ConfigOption<T> option) {
+		configuration.getOptional(option).ifPresent(value -> controllerConfiguration.set(option, value));
+	}
+
+	@Override
+	public <T extends StreamOperator<OUT>> T createStreamOperator(StreamOperatorParameters<OUT> parameters) {
+		final OperatorID operatorId = parameters.getStreamConfig().getOperatorID();
+		final OperatorEventDispatcher eventDispatcher = parameters.getOperatorEventDispatcher();
+
+		intervalHandler.setOperatorEventGateway(eventDispatcher.getOperatorEventGateway(operatorId));
+		eventDispatcher.registerEventHandler(operatorId, intervalHandler);
+
+		return super.createStreamOperator(parameters);
+	}
+
+	@Override
+	public OperatorCoordinator.Provider getCoordinatorProvider(String operatorName, OperatorID operatorID) {
+		return new PreAggregateControllerCoordinator.Provider(operatorID, enableController, controllerConfiguration);
+	}
+}
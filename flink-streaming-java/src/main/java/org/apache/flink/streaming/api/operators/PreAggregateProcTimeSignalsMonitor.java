@@ -1,87 +1,224 @@
 package org.apache.flink.streaming.api.operators;
 
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+import org.apache.flink.dropwizard.metrics.DropwizardHistogramWrapper;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
 import org.apache.flink.metrics.Histogram;
-
-import org.apache.flink.shaded.guava18.com.google.common.base.Strings;
-
+import org.apache.flink.metrics.HistogramStatistics;
+import org.apache.flink.metrics.Meter;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.controller.PreAggregateSignalsEvent;
+import org.apache.flink.runtime.metrics.DescriptiveStatisticsHistogram;
+import org.apache.flink.runtime.metrics.groups.OperatorMetricGroup;
+import org.apache.flink.runtime.metrics.groups.TaskMetricGroup;
+import org.apache.flink.runtime.operators.coordination.OperatorEventGateway;
 import org.apache.flink.streaming.util.functions.PreAggIntervalMsGauge;
 
-import org.fusesource.hawtbuf.AsciiBuffer;
-import org.fusesource.hawtbuf.Buffer;
-import org.fusesource.hawtbuf.UTF8Buffer;
-import org.fusesource.mqtt.client.Future;
-import org.fusesource.mqtt.client.FutureConnection;
-import org.fusesource.mqtt.client.MQTT;
-import org.fusesource.mqtt.client.QoS;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+
+import javax.annotation.Nullable;
 
 import java.io.Serializable;
-import java.text.DecimalFormat;
-import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
 
 /**
- * This class listen to signals on the pre-agg operators and send them to the controller in the JobManager.
+ * This class collects signals on the pre-agg operators and sends them to the controller coordinator in the JobManager
+ * through the {@link OperatorEventGateway} of the operator.
+ *
+ * <p>The metrics of the task are looked up once when the monitor is created, so sampling them is cheap enough to run
+ * on the task thread every second or faster. The buffer usages are summarized by reservoir histograms, or by
+ * {@link PreAggregateEwmaStatistics} if a weight of the newest sample is configured, whose mean follows a rate change
+ * within a few samples and whose quantiles cover the samples since the last publication.
  */
-public class PreAggregateProcTimeSignalsMonitor extends Thread implements Serializable {
+public class PreAggregateProcTimeSignalsMonitor implements Serializable {
 
-	private final DecimalFormat df = new DecimalFormat("#.###");
-	/** topi on the JobManager controller */
-	private final String TOPIC_PRE_AGG_STATE = "topic-pre-aggregate-state";
-	/** Histogram metrics to monitor network buffer */
+	private static final long serialVersionUID = 1L;
+	/** Metrics to monitor the PreAggregate operator. */
+	private static final String PRE_AGGREGATE_OUT_POOL_USAGE_HISTOGRAM = "pre-aggregate-outPoolUsage-histogram";
+	private static final String PRE_AGGREGATE_IN_POOL_USAGE_HISTOGRAM = "pre-aggregate-inPoolUsage-histogram";
+	private static final String PRE_AGGREGATE_PARAMETER = "pre-aggregate-parameter";
+	private static final String PRE_AGGREGATE_UPSTREAM_LATENCY_HISTOGRAM = "pre-aggregate-upstream-latency-histogram";
+	private static final String PRE_AGGREGATE_LATENCY_SLO_VIOLATIONS = "pre-aggregate-latency-slo-violations";
+	/** Number of latency markers the latency quantile is computed on. */
+	private static final int LATENCY_WINDOW_SIZE = 128;
+	// DANGER: the reservoirWindow time (seconds) has to be at least 2 times greater than
+	// the PreAggregateProcTimeSignalsMonitor frequency to read signals,
+	// otherwise the histogram gets empty.
+	private static final int RESERVOIR_WINDOW_SEC = 120;
+
+	/** Histogram metrics to monitor network buffer. */
 	private final Histogram outPoolUsageHistogram;
-	/** Gauge metrics to monitor latency parameter */
+	private final Histogram inPoolUsageHistogram;
+	/** Exponentially weighted statistics of the network buffers, null to publish the histograms. */
+	@Nullable
+	private final PreAggregateEwmaStatistics outPoolUsageEwma;
+	@Nullable
+	private final PreAggregateEwmaStatistics inPoolUsageEwma;
+	/** Latency of the latency markers up to the operator and the flushes that violated the latency objective. */
+	private final Histogram upstreamLatencyHistogram;
+	private final Counter latencySloViolations;
+	/** Gauge metrics to monitor latency parameter. */
 	private final PreAggIntervalMsGauge preAggIntervalMsGauge;
-	private final long publishSignalsFrequencySec;
 	private final int subtaskId;
 	private final boolean enableController;
-	private final String topic;
-	private final String host;
-	private final int port;
+	/** Frequency to collect signals from the pre-agg operator. */
+	private final long samplingIntervalMs;
 	// DANGER: this time has to be lower than the controller time on the runtime package [PreAggregateControllerService]
-	private final long PUBLISH_SIGNALS_FREQ_SEC = 30 * 1000;
-	// frequency to collect signals from the pre-agg operator
-	private final long TIMEOUT_TO_COLLECT_SIGNALS = 30 * 1000;
-	/** time elapse to the next monitoring collect of signals */
-	private long timeStart;
+	private final long publishIntervalMs;
+	/** Metrics of the task, looked up once, null if the task does not register them. */
+	@Nullable
+	private transient Gauge<Float> outPoolUsageGauge;
+	@Nullable
+	private transient Gauge<Float> inPoolUsageGauge;
+	@Nullable
+	private transient Meter idleTimeMsPerSecondMeter;
+	@Nullable
+	private transient Meter numRecordsInPerSecondMeter;
+	@Nullable
+	private transient Meter numRecordsOutPerSecondMeter;
+	/** Time of the next sample of the signals. */
+	private long nextSampleTime;
+	/** Time of the next publication of signals. */
+	private long nextPublishTime;
 	private long intervalMs;
-	/** throughput of the operator */
+	/** Throughput of the operator. */
 	private double numRecordsOutPerSecond;
-	// TODO: use Akka RPC instead of MQTT
 	private double numRecordsInPerSecond;
-	/** MQTT broker is used to send signals of each pre-agg operator to the JobManager controller */
-	private MQTT mqtt;
-	private FutureConnection connection;
-	private boolean running = false;
+	/** Time per second the task is idle, waiting for input or blocked on output buffers. */
+	private double idleTimeMsPerSecond;
+	/** Elements buffered and partials emitted by the flushes since the last publication. */
+	private long numBufferedElements;
+	private long numEmittedPartials;
+	/** Whether the bundle is bypassed. */
+	private boolean bypassed;
+	/** The latency objective, 0 if disabled, and the quantile of the latency markers that has to respect it. */
+	private long latencySloMs;
+	private double latencySloQuantile = PreAggregateControllerOptions.LATENCY_SLO_QUANTILE.defaultValue();
+	/** Max time an element waited in the bundle since the last publication, -1 if nothing was flushed. */
+	private long maxBufferingDelayMs = -1;
 
 	public PreAggregateProcTimeSignalsMonitor(
 		long intervalMs,
 		Histogram outPoolUsageHistogram,
+		Histogram inPoolUsageHistogram,
+		Histogram upstreamLatencyHistogram,
+		Counter latencySloViolations,
 		PreAggIntervalMsGauge preAggIntervalMsGauge,
-		String jobManagerAddress,
 		int subtaskId,
-		boolean enableController) {
+		boolean enableController,
+		long samplingIntervalMs,
+		long publishIntervalMs,
+		double ewmaAlpha) {
+		checkArgument(samplingIntervalMs > 0, "The sampling interval of the signals must be positive.");
+		checkArgument(publishIntervalMs >= samplingIntervalMs,
+			"The publish interval of the signals cannot be lower than the sampling interval.");
 
 		this.intervalMs = intervalMs;
 		this.outPoolUsageHistogram = outPoolUsageHistogram;
+		this.inPoolUsageHistogram = inPoolUsageHistogram;
+		this.outPoolUsageEwma = ewmaAlpha > 0 ? new PreAggregateEwmaStatistics(ewmaAlpha) : null;
+		this.inPoolUsageEwma = ewmaAlpha > 0 ? new PreAggregateEwmaStatistics(ewmaAlpha) : null;
+		this.upstreamLatencyHistogram = upstreamLatencyHistogram;
+		this.latencySloViolations = latencySloViolations;
 		this.preAggIntervalMsGauge = preAggIntervalMsGauge;
-		this.running = true;
-		this.publishSignalsFrequencySec = PUBLISH_SIGNALS_FREQ_SEC;
 		this.subtaskId = subtaskId;
 		this.enableController = enableController;
+		this.samplingIntervalMs = samplingIntervalMs;
+		this.publishIntervalMs = publishIntervalMs;
 
-		this.topic = TOPIC_PRE_AGG_STATE;
-		this.host = (Strings.isNullOrEmpty(jobManagerAddress) || jobManagerAddress.equalsIgnoreCase(
-			"localhost")) ? "127.0.0.1" : jobManagerAddress;
-		this.port = 1883;
-
-		this.timeStart = System.currentTimeMillis();
+		this.nextSampleTime = Long.MIN_VALUE;
+		this.nextPublishTime = Long.MIN_VALUE;
 
 		this.disclaimer();
 	}
 
+	/**
+	 * Creates a monitor that samples and publishes the signals every 30 seconds with reservoir histograms.
+	 */
+	public static PreAggregateProcTimeSignalsMonitor create(
+		MetricGroup operatorMetricGroup,
+		long intervalMs,
+		int subtaskId,
+		boolean enableController) {
+		return create(
+			operatorMetricGroup,
+			intervalMs,
+			subtaskId,
+			enableController,
+			PreAggregateControllerOptions.SIGNALS_SAMPLING_INTERVAL.defaultValue().toMillis(),
+			PreAggregateControllerOptions.SIGNALS_PUBLISH_INTERVAL.defaultValue().toMillis(),
+			PreAggregateControllerOptions.SIGNALS_EWMA_ALPHA.defaultValue());
+	}
+
+	/**
+	 * Creates a monitor with its histograms and gauge registered on the metric group of the operator and binds the
+	 * metrics of its task.
+	 *
+	 * @param ewmaAlpha the weight of the newest sample of the exponentially weighted statistics, 0 to publish the
+	 *                  reservoir histograms instead
+	 */
+	public static PreAggregateProcTimeSignalsMonitor create(
+		MetricGroup operatorMetricGroup,
+		long intervalMs,
+		int subtaskId,
+		boolean enableController,
+		long samplingIntervalMs,
+		long publishIntervalMs,
+		double ewmaAlpha) {
+
+		com.codahale.metrics.Histogram dropwizardOutPoolBufferHistogram = new com.codahale.metrics.Histogram(
+			new SlidingTimeWindowArrayReservoir(RESERVOIR_WINDOW_SEC, TimeUnit.SECONDS));
+		Histogram outPoolUsageHistogram = operatorMetricGroup.histogram(
+			PRE_AGGREGATE_OUT_POOL_USAGE_HISTOGRAM,
+			new DropwizardHistogramWrapper(dropwizardOutPoolBufferHistogram));
+		com.codahale.metrics.Histogram dropwizardInPoolBufferHistogram = new com.codahale.metrics.Histogram(
+			new SlidingTimeWindowArrayReservoir(RESERVOIR_WINDOW_SEC, TimeUnit.SECONDS));
+		Histogram inPoolUsageHistogram = operatorMetricGroup.histogram(
+			PRE_AGGREGATE_IN_POOL_USAGE_HISTOGRAM,
+			new DropwizardHistogramWrapper(dropwizardInPoolBufferHistogram));
+		Histogram upstreamLatencyHistogram = operatorMetricGroup.histogram(
+			PRE_AGGREGATE_UPSTREAM_LATENCY_HISTOGRAM, new DescriptiveStatisticsHistogram(LATENCY_WINDOW_SIZE));
+		Counter latencySloViolations = operatorMetricGroup.counter(PRE_AGGREGATE_LATENCY_SLO_VIOLATIONS);
+		PreAggIntervalMsGauge preAggIntervalMsGauge = operatorMetricGroup.gauge(
+			PRE_AGGREGATE_PARAMETER, new PreAggIntervalMsGauge());
+
+		PreAggregateProcTimeSignalsMonitor monitor = new PreAggregateProcTimeSignalsMonitor(
+			intervalMs,
+			outPoolUsageHistogram,
+			inPoolUsageHistogram,
+			upstreamLatencyHistogram,
+			latencySloViolations,
+			preAggIntervalMsGauge,
+			subtaskId,
+			enableController,
+			samplingIntervalMs,
+			publishIntervalMs,
+			ewmaAlpha);
+		if (operatorMetricGroup instanceof OperatorMetricGroup) {
+			monitor.bindTaskMetrics(((OperatorMetricGroup) operatorMetricGroup).parent());
+		}
+		return monitor;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void bindTaskMetrics(TaskMetricGroup taskMetricGroup) {
+		MetricGroup buffersGroup = taskMetricGroup.getGroup("buffers");
+		if (buffersGroup != null) {
+			this.outPoolUsageGauge = (Gauge<Float>) buffersGroup.getMetric("outPoolUsage");
+			this.inPoolUsageGauge = (Gauge<Float>) buffersGroup.getMetric("inPoolUsage");
+		}
+		this.idleTimeMsPerSecondMeter = taskMetricGroup.getIOMetricGroup().getIdleTimeMsPerSecond();
+		this.numRecordsInPerSecondMeter = (Meter) taskMetricGroup.getMetric("numRecordsInPerSecond");
+		this.numRecordsOutPerSecondMeter = (Meter) taskMetricGroup.getMetric("numRecordsOutPerSecond");
+	}
+
 	private void disclaimer() {
-		System.out.println("[PreAggregateProcTimeSignalsMonitor] started at [" + this.host
-			+ "] for subtask [" + this.subtaskId
-			+ "]. It collects and publishes signals to the pre-agg controller using an MQTT broker.");
+		System.out.println("[PreAggregateProcTimeSignalsMonitor] started for subtask [" + this.subtaskId
+			+ "]. It samples signals every " + this.samplingIntervalMs + " ms and publishes them every "
+			+ this.publishIntervalMs + " ms to the pre-agg controller coordinator.");
 		if (!this.enableController) {
 			System.out.println(
 				"[PreAggregateProcTimeSignalsMonitor] Controller is not enable then the monitor doesn't have to send signals.");
@@ -89,95 +226,174 @@ public class PreAggregateProcTimeSignalsMonitor extends Thread implements Serial
 		System.out.println();
 	}
 
-	private void connect() throws Exception {
-		mqtt = new MQTT();
-		mqtt.setHost(host, port);
-
-		connection = mqtt.futureConnection();
-		connection.connect().await();
+	public long getSamplingIntervalMs() {
+		return samplingIntervalMs;
 	}
 
-	private void disconnect() throws Exception {
-		connection.disconnect().await();
-	}
+	/**
+	 * Publish AdCom signals every publish interval to the controller coordinator.
+	 */
+	public void publishSignals(OperatorEventGateway operatorEventGateway, long currentTime) {
+		// Update parameters to Prometheus+Grafana
+		this.preAggIntervalMsGauge.updateValue(this.intervalMs);
 
-	@Override
-	public void run() {
-		try {
-			if (mqtt == null) this.connect();
-			while (running) {
-				// Publish AdCom signals every #publishSignalsFrequencySec (30 seconds) to the Global PI Controller
-				Thread.sleep(publishSignalsFrequencySec);
-				String preAggSignals = this.updateSignals();
-				this.publish(preAggSignals);
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
+		if (!this.enableController || operatorEventGateway == null) {
+			return;
+		}
+		if (this.nextPublishTime == Long.MIN_VALUE) {
+			this.nextPublishTime = currentTime + this.publishIntervalMs;
+		} else if (currentTime >= this.nextPublishTime) {
+			this.nextPublishTime = currentTime + this.publishIntervalMs;
+			operatorEventGateway.sendEventToCoordinator(this.updateSignals());
 		}
 	}
 
-	private void publish(String message) throws Exception {
-		final LinkedList<Future<Void>> queue = new LinkedList<Future<Void>>();
-		UTF8Buffer topicUTF8 = new UTF8Buffer(topic);
-		Buffer msg = new AsciiBuffer(message);
-
-		// Send the publish without waiting for it to complete. This allows us to send multiple message without blocking.
-		queue.add(connection.publish(topicUTF8, msg, QoS.AT_LEAST_ONCE, false));
-
-		while (!queue.isEmpty()) {
-			queue.removeFirst().await();
+	private PreAggregateSignalsEvent updateSignals() {
+		double reductionRatio = this.numBufferedElements == 0
+			? -1.0
+			: (double) this.numEmittedPartials / this.numBufferedElements;
+		long bufferingDelayMs = this.maxBufferingDelayMs;
+		this.numBufferedElements = 0;
+		this.numEmittedPartials = 0;
+		this.maxBufferingDelayMs = -1;
+		if (this.outPoolUsageEwma != null) {
+			PreAggregateSignalsEvent signals = new PreAggregateSignalsEvent(
+				subtaskId,
+				this.outPoolUsageEwma.getMin(),
+				this.outPoolUsageEwma.getMax(),
+				this.outPoolUsageEwma.getMean(),
+				this.outPoolUsageEwma.getQuantile(0.5),
+				this.outPoolUsageEwma.getQuantile(0.75),
+				this.outPoolUsageEwma.getQuantile(0.95),
+				this.outPoolUsageEwma.getQuantile(0.99),
+				this.outPoolUsageEwma.getStdDev(),
+				this.numRecordsInPerSecond,
+				this.numRecordsOutPerSecond,
+				this.intervalMs,
+				this.bypassed,
+				reductionRatio,
+				this.inPoolUsageEwma.getMean(),
+				this.idleTimeMsPerSecond,
+				getUpstreamLatencyMs(),
+				bufferingDelayMs);
+			this.outPoolUsageEwma.resetWindow();
+			this.inPoolUsageEwma.resetWindow();
+			return signals;
 		}
+		HistogramStatistics outPoolUsage = this.outPoolUsageHistogram.getStatistics();
+		return new PreAggregateSignalsEvent(
+			subtaskId,
+			outPoolUsage.getMin(),
+			outPoolUsage.getMax(),
+			outPoolUsage.getMean(),
+			outPoolUsage.getQuantile(0.5),
+			outPoolUsage.getQuantile(0.75),
+			outPoolUsage.getQuantile(0.95),
+			outPoolUsage.getQuantile(0.99),
+			outPoolUsage.getStdDev(),
+			this.numRecordsInPerSecond,
+			this.numRecordsOutPerSecond,
+			this.intervalMs,
+			this.bypassed,
+			reductionRatio,
+			this.inPoolUsageHistogram.getStatistics().getMean(),
+			this.idleTimeMsPerSecond,
+			getUpstreamLatencyMs(),
+			bufferingDelayMs);
 	}
 
-	private String updateSignals() {
-		long outPoolUsageMin = this.outPoolUsageHistogram.getStatistics().getMin();
-		long outPoolUsageMax = this.outPoolUsageHistogram.getStatistics().getMax();
-		double outPoolUsageMean = this.outPoolUsageHistogram.getStatistics().getMean();
-		double outPoolUsage05 = this.outPoolUsageHistogram.getStatistics().getQuantile(0.5);
-		double outPoolUsage075 = this.outPoolUsageHistogram.getStatistics().getQuantile(0.75);
-		double outPoolUsage095 = this.outPoolUsageHistogram.getStatistics().getQuantile(0.95);
-		double outPoolUsage099 = this.outPoolUsageHistogram.getStatistics().getQuantile(0.99);
-		double outPoolUsageStdDev = this.outPoolUsageHistogram.getStatistics().getStdDev();
-
-		String msg = subtaskId + "|" + outPoolUsageMin + "|" + outPoolUsageMax + "|" +
-			outPoolUsageMean + "|" + outPoolUsage05 + "|" + outPoolUsage075 + "|" + outPoolUsage095
-			+ "|" + outPoolUsage099 + "|" + outPoolUsageStdDev + "|" +
-			df.format(this.numRecordsInPerSecond) + "|" +
-			df.format(this.numRecordsOutPerSecond) + "|" +
-			this.intervalMs;
+	public void setIntervalMs(long intervalMs) {
+		this.intervalMs = intervalMs;
+	}
 
-		// Update parameters to Prometheus+Grafana
-		this.preAggIntervalMsGauge.updateValue(this.intervalMs);
+	public Histogram getOutPoolUsageHistogram() {
+		return outPoolUsageHistogram;
+	}
 
-		return msg;
+	public void setBypassed(boolean bypassed) {
+		this.bypassed = bypassed;
 	}
 
-	public void setIntervalMs(long intervalMs) {
-		this.intervalMs = intervalMs;
+	/**
+	 * Sets the latency objective of the records up to the output of the operator, 0 to disable it.
+	 */
+	public void setLatencySlo(long latencySloMs, double latencySloQuantile) {
+		checkArgument(latencySloMs >= 0, "The latency objective cannot be negative.");
+		checkArgument(latencySloQuantile > 0 && latencySloQuantile <= 1, "The quantile must be in (0, 1].");
+		this.latencySloMs = latencySloMs;
+		this.latencySloQuantile = latencySloQuantile;
 	}
 
-	public void cancel() {
-		this.running = false;
+	/**
+	 * Records the latency of a latency marker from its source up to the operator.
+	 */
+	public void addLatencyMarker(long latencyMs) {
+		this.upstreamLatencyHistogram.update(Math.max(0, latencyMs));
 	}
 
-	public Histogram getOutPoolUsageHistogram() {
-		return outPoolUsageHistogram;
+	/**
+	 * @return the latency quantile of the latency markers up to the operator, -1 if no marker was received.
+	 */
+	public long getUpstreamLatencyMs() {
+		if (this.upstreamLatencyHistogram.getCount() == 0) {
+			return -1;
+		}
+		return (long) this.upstreamLatencyHistogram.getStatistics().getQuantile(this.latencySloQuantile);
 	}
 
-	public void setNumRecordsOutPerSecond(double numRecordsOutPerSecond) {
-		this.numRecordsOutPerSecond = numRecordsOutPerSecond;
+	public long getLatencySloViolations() {
+		return this.latencySloViolations.getCount();
 	}
 
-	public void setNumRecordsInPerSecond(double numRecordsInPerSecond) {
-		this.numRecordsInPerSecond = numRecordsInPerSecond;
+	/**
+	 * Counts a flush of the bundle for the reduction ratio of the next signals and checks the latency objective
+	 * against the time the oldest element waited in the bundle.
+	 */
+	public void addFlush(long numBufferedElements, long numEmittedPartials, long bufferingDelayMs) {
+		this.numBufferedElements += numBufferedElements;
+		this.numEmittedPartials += numEmittedPartials;
+		this.maxBufferingDelayMs = Math.max(this.maxBufferingDelayMs, bufferingDelayMs);
+		if (this.latencySloMs > 0 && Math.max(0, getUpstreamLatencyMs()) + bufferingDelayMs > this.latencySloMs) {
+			this.latencySloViolations.inc();
+		}
 	}
 
-	public boolean collectNextSignals() {
-		// Collect AdCom signals to the Reservoir Histogram every 30 seconds
-		if (System.currentTimeMillis() >= this.timeStart + this.TIMEOUT_TO_COLLECT_SIGNALS) {
-			this.timeStart = System.currentTimeMillis();
-			return true;
+	/**
+	 * Reads the outPoolUsage, the inPoolUsage, the idle time and the throughput of the task into the signals, at most
+	 * every sampling interval. It only reads the metrics bound when the monitor was created.
+	 */
+	public void sampleSignals(long currentTime) {
+		if (currentTime < this.nextSampleTime) {
+			return;
+		}
+		this.nextSampleTime = currentTime + this.samplingIntervalMs;
+
+		// update outPoolUsage metrics to Prometheus+Grafana
+		Float outPoolUsage = this.outPoolUsageGauge == null ? null : this.outPoolUsageGauge.getValue();
+		if (outPoolUsage != null) {
+			long outPoolUsagePercent = (long) (outPoolUsage * 100);
+			this.outPoolUsageHistogram.update(outPoolUsagePercent);
+			if (this.outPoolUsageEwma != null) {
+				this.outPoolUsageEwma.update(outPoolUsagePercent);
+			}
+		}
+		Float inPoolUsage = this.inPoolUsageGauge == null ? null : this.inPoolUsageGauge.getValue();
+		if (inPoolUsage != null) {
+			long inPoolUsagePercent = (long) (inPoolUsage * 100);
+			this.inPoolUsageHistogram.update(inPoolUsagePercent);
+			if (this.inPoolUsageEwma != null) {
+				this.inPoolUsageEwma.update(inPoolUsagePercent);
+			}
+		}
+		if (this.idleTimeMsPerSecondMeter != null) {
+			this.idleTimeMsPerSecond = this.idleTimeMsPerSecondMeter.getRate();
+		}
+		// update records_per_second metrics to Prometheus+Grafana
+		if (this.numRecordsOutPerSecondMeter != null) {
+			this.numRecordsOutPerSecond = this.numRecordsOutPerSecondMeter.getRate();
+		}
+		if (this.numRecordsInPerSecondMeter != null) {
+			this.numRecordsInPerSecond = this.numRecordsInPerSecondMeter.getRate();
 		}
-		return false;
 	}
 }
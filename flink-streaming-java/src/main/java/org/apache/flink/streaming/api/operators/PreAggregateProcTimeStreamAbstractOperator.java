@@ -1,62 +1,203 @@
 package org.apache.flink.streaming.api.operators;
 
-import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
-
+import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.functions.PreAggregateFunction;
+import org.apache.flink.api.common.functions.PreAggregateValueMerger;
 import org.apache.flink.api.common.functions.util.FunctionUtils;
-import org.apache.flink.configuration.JobManagerOptions;
-import org.apache.flink.dropwizard.metrics.DropwizardHistogramWrapper;
-import org.apache.flink.metrics.Gauge;
-import org.apache.flink.metrics.Histogram;
-import org.apache.flink.metrics.MeterView;
-import org.apache.flink.metrics.MetricGroup;
-import org.apache.flink.runtime.metrics.groups.OperatorMetricGroup;
-import org.apache.flink.runtime.metrics.groups.TaskMetricGroup;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.runtime.TupleSerializer;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+import org.apache.flink.configuration.PreAggregateOptions;
+import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.ManagedMemoryUseCase;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.runtime.controller.PreAggregateIntervalEvent;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
+import org.apache.flink.runtime.memory.MemoryManager;
+import org.apache.flink.runtime.operators.coordination.OperatorEvent;
+import org.apache.flink.runtime.operators.coordination.OperatorEventGateway;
+import org.apache.flink.runtime.state.StateInitializationContext;
+import org.apache.flink.runtime.state.StateSnapshotContext;
+import org.apache.flink.streaming.api.graph.StreamEdge;
+import org.apache.flink.streaming.api.operators.bundle.BinaryBundleMap;
+import org.apache.flink.streaming.api.operators.bundle.BundleBypass;
+import org.apache.flink.streaming.api.operators.bundle.ChannelGroupingCollector;
+import org.apache.flink.streaming.api.operators.bundle.HeavyHitterSketch;
+import org.apache.flink.streaming.api.operators.bundle.PrimitiveBundle;
+import org.apache.flink.streaming.api.operators.bundle.SharedBundle;
+import org.apache.flink.streaming.api.operators.bundle.trigger.BundleTrigger;
+import org.apache.flink.streaming.api.operators.bundle.trigger.BundleTriggerCallback;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
+import org.apache.flink.streaming.runtime.io.RecordWriterOutput;
+import org.apache.flink.streaming.runtime.partitioner.ConfigurableStreamPartitioner;
+import org.apache.flink.streaming.runtime.partitioner.KeyGroupStreamPartitioner;
+import org.apache.flink.streaming.runtime.partitioner.StreamPartitioner;
+import org.apache.flink.streaming.runtime.streamrecord.LatencyMarker;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback;
-import org.apache.flink.streaming.util.functions.PreAggIntervalMsGauge;
 import org.apache.flink.util.Collector;
 
+import javax.annotation.Nullable;
+
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.TreeMap;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
 
 public abstract class PreAggregateProcTimeStreamAbstractOperator<K, V, IN, OUT>
 	extends AbstractStreamOperator<OUT>
-	implements OneInputStreamOperator<IN, OUT>, ProcessingTimeCallback {
+	implements OneInputStreamOperator<IN, OUT>, ProcessingTimeCallback, PreAggregateIntervalHandler, BundleTriggerCallback {
 
 	// @formatter:off
 	private static final SimpleDateFormat sdf = new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss");
 	private static final long serialVersionUID = 1L;
-	/** metrics to monitor the PreAggregate operator */
-	private final String PRE_AGGREGATE_OUT_POOL_USAGE_HISTOGRAM = "pre-aggregate-outPoolUsage-histogram";
-	private final String PRE_AGGREGATE_PARAMETER = "pre-aggregate-parameter";
+	/** Not allow to have intervals less than 50 milliseconds */
+	private final long MIN_INTERVAL_MS = 50;
+	/** Estimated heap overhead of a bundle entry besides its payload: map node, table slot and object headers */
+	private static final long BUNDLE_ENTRY_OVERHEAD_BYTES = 64;
+	private static final String BUNDLE_STATE_NAME = "pre-aggregate-bundle";
+	/** Serialize one out of this many input records to estimate the size of the bundle entries */
+	private static final long SIZE_SAMPLE_INTERVAL = 1000;
 	/** The function used to process when receiving element. */
 	private final PreAggregateFunction<K, V, IN, OUT> function;
 	/** controller properties, processing time to trigger the preAggregate function*/
 	private final long initialIntervalMs;
 	private final boolean enableController;
-	private PreAggregateProcTimeListener preAggregateProcTimeListener;
+	/** Optional trigger to flush the bundle before the processing time fires, e.g. to bound its size */
+	@Nullable
+	private final BundleTrigger<IN> bundleTrigger;
+	/** Serializers of the bundle keys and values, required to checkpoint the bundle or to keep it in managed memory */
+	@Nullable
+	private TypeSerializer<K> bundleKeySerializer;
+	@Nullable
+	private TypeSerializer<V> bundleValueSerializer;
+	private boolean managedMemoryBundle;
+	/** Flush the bundle before the checkpoint barrier instead of writing it to the operator state */
+	private boolean flushOnCheckpoint;
+	/** Occurrences per interval for a key to be buffered, 0 to buffer all keys */
+	private int heavyHitterMinFrequency;
+	private int heavyHitterCapacity = PreAggregateOptions.HEAVY_HITTERS_CAPACITY.defaultValue();
+	/** Reduction ratio from which the bundle is bypassed and the probe interval, the ratio is 0 to never bypass */
+	private double bypassReductionRatio;
+	private long bypassProbeIntervalMs;
+	/** The maximum number of keys emitted at once when the bundle is flushed, 0 to emit the whole bundle */
+	private int flushSliceSize;
+	/** Emit the partials of a flush grouped by their downstream channel */
+	private boolean channelGrouping;
+	/** Merge the partials of a flush with the ones of the co-located subtasks before emitting them */
+	private boolean taskManagerCombining;
+	/** The latency objective of the records up to the output of the operator, 0 if disabled, and its quantile */
+	private long latencySloMs;
+	private double latencySloQuantile = PreAggregateControllerOptions.LATENCY_SLO_QUANTILE.defaultValue();
+	/** Sampling and publish interval of the controller signals and weight of the newest sample, 0 for histograms */
+	private long signalsSamplingIntervalMs = PreAggregateControllerOptions.SIGNALS_SAMPLING_INTERVAL.defaultValue().toMillis();
+	private long signalsPublishIntervalMs = PreAggregateControllerOptions.SIGNALS_PUBLISH_INTERVAL.defaultValue().toMillis();
+	private double signalsEwmaAlpha = PreAggregateControllerOptions.SIGNALS_EWMA_ALPHA.defaultValue();
+	/** Size and offset of the event-time panes, the size is 0 to pre-aggregate on processing time */
+	private long paneSizeMs;
+	private long paneOffsetMs;
+	/**
+	 * current processing time to trigger the preAggregate function, updated by the controller coordinator.
+	 * In event-time mode it is the minimum event-time advance between two forwarded watermarks.
+	 */
+	private transient long intervalMs;
+	/** the last watermark forwarded in event-time mode */
 	private transient long currentWatermark;
+	/** The newest watermark held back in event-time mode, released at the latest by the interval timer. */
+	private transient long pendingWatermark;
 	/** The map in heap to store elements. */
 	private transient Map<K, V> bundle;
+	/** The bundles of the event-time panes by the max timestamp of the pane, used instead of the bundle. */
+	private transient TreeMap<Long, Map<K, V>> paneBundles;
+	/** The same map as the bundle if it is kept in managed memory, otherwise null. */
+	private transient BinaryBundleMap<K, V> binaryBundle;
+	/** The bundle of primitive-specialized functions, used instead of the map bundle if not null. */
+	private transient PrimitiveBundle<IN, OUT> primitiveBundle;
+	/** The frequencies of the keys not in the map bundle, null if all keys are buffered. */
+	private transient HeavyHitterSketch heavyHitters;
+	/** Decides whether the map bundle is bypassed, null if it is always used. */
+	private transient BundleBypass bundleBypass;
+	/** The executor of the mails that drain a flushed bundle in slices, null if the whole bundle is flushed at once */
+	private transient MailboxExecutor mailboxExecutor;
+	/** The flushed map bundle that is drained in slices and the iterator over its remaining entries, or null */
+	private transient Map<K, V> flushingBundle;
+	private transient Iterator<Map.Entry<K, V>> flushingEntries;
+	/** The flushed primitive bundle that is drained in slices and the position of its next entry, or null */
+	private transient PrimitiveBundle<IN, OUT> flushingPrimitiveBundle;
+	private transient int flushingPosition;
+	/** The drained bundles, reused as the next empty bundle */
+	private transient Map<K, V> spareBundle;
+	private transient PrimitiveBundle<IN, OUT> sparePrimitiveBundle;
+	/** The entries of one slice of the flushing map bundle, passed to the function */
+	private transient Map<K, V> sliceBundle;
+	/** Whether a mail that drains the next slice is in the mailbox */
+	private transient boolean sliceMailPending;
+	/** Groups the partials of a flush by their downstream channel, null to emit them in the order of the bundle */
+	private transient ChannelGroupingCollector<OUT> channelGroupingCollector;
+	/** Emits the grouped partials to their channel of the record writer, null to emit them to the collector */
+	private transient ChannelGroupingCollector.ChannelOutput<OUT> channelOutput;
+	/** The bundle shared with the co-located subtasks, null if the partials of a flush are emitted by this subtask */
+	private transient SharedBundle<K, V> sharedBundle;
+	/** The boxed entries of the primitive bundle, contributed to the shared bundle */
+	private transient Map<K, V> contributionBundle;
+	/** The id of the last checkpoint whose barrier this subtask has passed, the epoch of its contributions */
+	private transient long checkpointEpoch = -1;
+	/** The number of elements added to the map or primitive bundle since the last flush */
+	private transient long numBufferedElements;
+	/** The processing time the oldest element of the map or primitive bundle was buffered at */
+	private transient long bufferStartTime;
+	/** The operator state with the entries of the bundle at the last checkpoint */
+	private transient ListState<Tuple2<K, V>> bundleState;
+	/** The entries restored from the operator state, added to the bundle when the operator opens */
+	private transient List<Tuple2<K, V>> restoredEntries;
 	/** Output for stream records. */
-	private transient Collector<OUT> collector;
+	private transient TimestampedCollector<OUT> collector;
 	/** The PreAggregate monitor to send signals to the PI controller on the JobManager */
 	private PreAggregateProcTimeSignalsMonitor preAggregateMonitor;
+	/** The gateway to send signals to the controller coordinator on the JobManager */
+	private transient OperatorEventGateway operatorEventGateway;
+	/** Context exposing the bundle to the bundle trigger */
+	private transient BundleTrigger.Context bundleTriggerContext;
+	/** Serializer and buffer used to sample the size of the input records */
+	private transient TypeSerializer<IN> inputSerializer;
+	private transient DataOutputSerializer sizeSampleBuffer;
+	private transient long numSampledRecords;
+	private transient long numSampledBytes;
+	private transient long numRecordsSinceLastSample;
 	// @formatter:on
 
 	public PreAggregateProcTimeStreamAbstractOperator(
 		PreAggregateFunction<K, V, IN, OUT> function,
 		long intervalMs,
 		boolean enableController) {
+		this(function, intervalMs, enableController, null);
+	}
+
+	public PreAggregateProcTimeStreamAbstractOperator(
+		PreAggregateFunction<K, V, IN, OUT> function,
+		long intervalMs,
+		boolean enableController,
+		@Nullable BundleTrigger<IN> bundleTrigger) {
 		this.function = checkNotNull(function, "function is null");
 		this.initialIntervalMs = intervalMs;
 		this.enableController = enableController;
+		this.bundleTrigger = bundleTrigger;
 	}
 
 	@Override
@@ -64,67 +205,676 @@ public abstract class PreAggregateProcTimeStreamAbstractOperator<K, V, IN, OUT>
 		super.open();
 
 		this.collector = new TimestampedCollector<>(output);
-		this.bundle = new HashMap<>();
-
-		currentWatermark = 0;
-
-		// Find the JobManager address
-		String jobManagerAddress = getRuntimeContext()
-			.getTaskManagerRuntimeInfo()
-			.getConfiguration()
-			.getValue(JobManagerOptions.ADDRESS);
-
-		this.preAggregateProcTimeListener = new PreAggregateProcTimeListener(
-			jobManagerAddress,
+		if (isEventTime()) {
+			checkState(!managedMemoryBundle, "The managed memory bundle is not supported in event-time mode.");
+			this.paneBundles = new TreeMap<>();
+		} else {
+			this.primitiveBundle = PrimitiveBundle.of(function);
+			if (primitiveBundle != null) {
+				logPrimitiveBundleConflicts();
+			}
+			this.bundle = primitiveBundle == null ? createBundle() : new HashMap<>();
+			if (primitiveBundle == null && heavyHitterMinFrequency > 0) {
+				this.heavyHitters = new HeavyHitterSketch(heavyHitterMinFrequency, heavyHitterCapacity);
+			}
+			if (primitiveBundle == null && bypassReductionRatio > 0) {
+				this.bundleBypass = new BundleBypass(bypassReductionRatio, bypassProbeIntervalMs);
+			}
+			if (channelGrouping) {
+				this.channelGroupingCollector = createChannelGroupingCollector();
+				if (this.channelGroupingCollector != null) {
+					this.channelOutput = createChannelOutput();
+				}
+			}
+			if (flushSliceSize > 0 && binaryBundle == null) {
+				// only executes mails, it never yields, which would not be allowed in a chain of a legacy source
+				this.mailboxExecutor = getContainingTask().getMailboxExecutorFactory().createExecutor(config.getChainIndex());
+			}
+			if (taskManagerCombining) {
+				this.sharedBundle = joinSharedBundle();
+			}
+		}
+		// initiate the Controller-monitor with the histogram metrics for each pre-aggregate operator instance
+		this.preAggregateMonitor = PreAggregateProcTimeSignalsMonitor.create(
+			getRuntimeContext().getMetricGroup(),
 			initialIntervalMs,
 			getRuntimeContext().getIndexOfThisSubtask(),
-			this.enableController);
+			this.enableController,
+			this.signalsSamplingIntervalMs,
+			this.signalsPublishIntervalMs,
+			this.signalsEwmaAlpha);
+		this.preAggregateMonitor.setLatencySlo(this.latencySloMs, this.latencySloQuantile);
+		if (this.restoredEntries != null) {
+			restoreBundle(this.restoredEntries);
+			this.restoredEntries = null;
+		}
+
+		currentWatermark = Long.MIN_VALUE;
+		pendingWatermark = Long.MIN_VALUE;
+		intervalMs = initialIntervalMs;
+
+		if (bundleTrigger != null) {
+			this.inputSerializer = config.getTypeSerializerIn1(getUserCodeClassloader());
+			this.sizeSampleBuffer = new DataOutputSerializer(64);
+			this.numSampledRecords = 0;
+			this.numSampledBytes = 0;
+			this.numRecordsSinceLastSample = SIZE_SAMPLE_INTERVAL;
+			this.bundleTriggerContext = new BundleTriggerContext();
+			bundleTrigger.registerCallback(this);
+			LOG.info("PreAggregate operator uses {}", bundleTrigger.explain());
+		}
 
 		long now = getProcessingTimeService().getCurrentProcessingTime();
-		getProcessingTimeService().registerTimer(
-			now + preAggregateProcTimeListener.getIntervalMs(), this);
-
-		// Metrics to send to the controller
-		// DANGER: the reservoirWindow time (seconds) has to be at least 2 times greater than
-		// the PreAggregateProcTimeSignalsMonitor frequency to read signals,
-		// otherwise the histogram gets empty.
-		int reservoirWindow = 120;
-		com.codahale.metrics.Histogram dropwizardOutPoolBufferHistogram = new com.codahale.metrics.Histogram(
-			new SlidingTimeWindowArrayReservoir(reservoirWindow, TimeUnit.SECONDS));
-		Histogram outPoolUsageHistogram = getRuntimeContext().getMetricGroup().histogram(
-			PRE_AGGREGATE_OUT_POOL_USAGE_HISTOGRAM,
-			new DropwizardHistogramWrapper(dropwizardOutPoolBufferHistogram));
-		PreAggIntervalMsGauge preAggIntervalMsGauge = getRuntimeContext()
-			.getMetricGroup()
-			.gauge(PRE_AGGREGATE_PARAMETER, new PreAggIntervalMsGauge());
+		getProcessingTimeService().registerTimer(now + intervalMs, this);
+		getProcessingTimeService().registerTimer(now + signalsSamplingIntervalMs, this::onSamplingTime);
+	}
 
-		// initiate the Controller-monitor with the histogram metrics for each pre-aggregate operator instance
-		this.preAggregateMonitor = new PreAggregateProcTimeSignalsMonitor(
-			initialIntervalMs,
-			outPoolUsageHistogram,
-			preAggIntervalMsGauge,
-			jobManagerAddress,
-			getRuntimeContext().getIndexOfThisSubtask(),
-			this.enableController);
+	/**
+	 * Sets the serializers of the bundle keys and values. Without them the bundle cannot be
+	 * written to the operator state and is always flushed before the checkpoint barrier.
+	 */
+	public void setBundleSerializers(TypeSerializer<K> keySerializer, TypeSerializer<V> valueSerializer) {
+		this.bundleKeySerializer = checkNotNull(keySerializer, "keySerializer is null");
+		this.bundleValueSerializer = checkNotNull(valueSerializer, "valueSerializer is null");
+	}
+
+	/**
+	 * Keeps the bundle as serialized keys and values in the managed memory of the operator
+	 * instead of a heap hash map. The bundle is flushed early when the managed memory is exhausted.
+	 * Requires the serializers of the bundle, see {@link #setBundleSerializers(TypeSerializer, TypeSerializer)}.
+	 * The primitive bundle of a primitive-specialized function stays on the heap.
+	 */
+	public void setManagedMemoryBundle(boolean managedMemoryBundle) {
+		this.managedMemoryBundle = managedMemoryBundle;
+	}
+
+	/**
+	 * Flushes the bundle in {@link #prepareSnapshotPreBarrier(long)} instead of writing it to the
+	 * operator state in {@link #snapshotState(StateSnapshotContext)}.
+	 */
+	public void setFlushOnCheckpoint(boolean flushOnCheckpoint) {
+		this.flushOnCheckpoint = flushOnCheckpoint;
+	}
+
+	/**
+	 * Buffers only the keys that occurred at least {@code minFrequency} times in the current
+	 * interval and forwards the elements of the other keys immediately, so that the bundle holds
+	 * the heavy hitters instead of all distinct keys. The keys are counted with a
+	 * {@link HeavyHitterSketch} that is reset whenever the bundle is flushed. A value of 0 buffers
+	 * all keys. It applies to the map bundle on processing time only.
+	 */
+	public void setHeavyHitterMinFrequency(int minFrequency) {
+		checkArgument(minFrequency == 0 || minFrequency > 1,
+			"The minimum frequency of a heavy hitter must be 0 or greater than 1.");
+		this.heavyHitterMinFrequency = minFrequency;
+	}
+
+	/**
+	 * Sets the number of keys whose frequency is tracked by the {@link HeavyHitterSketch}. A key
+	 * that makes more than 1 / capacity of the elements of an interval is always buffered.
+	 */
+	public void setHeavyHitterCapacity(int capacity) {
+		checkArgument(capacity > 0, "The capacity of the heavy hitter sketch must be positive.");
+		this.heavyHitterCapacity = capacity;
+	}
+
+	/**
+	 * Forwards the elements without buffering them while the bundle does not reduce the data, i.e.
+	 * the number of emitted partials divided by the number of buffered elements stays at or above
+	 * {@code reductionRatio}. The bundle is used again after {@code probeIntervalMs} to probe whether
+	 * it pays off again, see {@link BundleBypass}. A ratio of 0 never bypasses the bundle. It applies
+	 * to the map bundle on processing time only.
+	 */
+	public void setBypass(double reductionRatio, long probeIntervalMs) {
+		checkArgument(reductionRatio >= 0 && reductionRatio <= 1, "The reduction ratio must be in [0, 1].");
+		checkArgument(probeIntervalMs > 0, "The probe interval must be positive.");
+		this.bypassReductionRatio = reductionRatio;
+		this.bypassProbeIntervalMs = probeIntervalMs;
+	}
+
+	/**
+	 * Emits at most {@code sliceSize} keys at once when the bundle is flushed on the interval or by
+	 * the bundle trigger. The flushed bundle is swapped for an empty one, which keeps collecting the
+	 * elements while the flushed one is drained by one slice per mail of the {@link MailboxExecutor},
+	 * interleaved with the input. A value of 0 emits the whole bundle at once. It applies to the map
+	 * and the primitive bundles on processing time, but not to the managed memory bundle.
+	 */
+	public void setFlushSliceSize(int sliceSize) {
+		checkArgument(sliceSize >= 0, "The flush slice size cannot be negative.");
+		this.flushSliceSize = sliceSize;
+	}
+
+	/**
+	 * Emits the partials of a flush grouped by the downstream channel that their key group is
+	 * assigned to, see {@link ChannelGroupingCollector}. It applies on processing time when the
+	 * operator is the last one of its chain and its only output is partitioned by key groups.
+	 */
+	public void setChannelGrouping(boolean channelGrouping) {
+		this.channelGrouping = channelGrouping;
+	}
+
+	/**
+	 * Merges the partials of a flush on the interval or by the bundle trigger into a bundle that the
+	 * co-located subtasks of the operator share in the TaskManager, see {@link SharedBundle}. The
+	 * shared bundle is emitted by one of them, so that a key is emitted once per TaskManager and
+	 * interval. The partials of a subtask are only emitted by the subtasks that have passed the same
+	 * checkpoint barriers, and before the next one, so the guarantees of the pre-aggregation hold on
+	 * recovery. It applies on processing time to functions that implement
+	 * {@link PreAggregateValueMerger}.
+	 */
+	public void setTaskManagerCombining(boolean taskManagerCombining) {
+		this.taskManagerCombining = taskManagerCombining;
+	}
+
+	/**
+	 * Samples the signals of the controller on a timer of its own every {@code samplingIntervalMs}
+	 * and publishes them every {@code publishIntervalMs}. A positive {@code ewmaAlpha} publishes
+	 * exponentially weighted statistics of the buffer usages instead of reservoir histograms, see
+	 * {@link PreAggregateProcTimeSignalsMonitor}.
+	 */
+	public void setSignalsSampling(long samplingIntervalMs, long publishIntervalMs, double ewmaAlpha) {
+		checkArgument(samplingIntervalMs > 0, "The sampling interval of the signals must be positive.");
+		checkArgument(publishIntervalMs >= samplingIntervalMs,
+			"The publish interval of the signals cannot be lower than the sampling interval.");
+		checkArgument(ewmaAlpha >= 0 && ewmaAlpha <= 1, "The weight of the newest sample must be in [0, 1].");
+		this.signalsSamplingIntervalMs = samplingIntervalMs;
+		this.signalsPublishIntervalMs = publishIntervalMs;
+		this.signalsEwmaAlpha = ewmaAlpha;
+	}
+
+	/**
+	 * Counts the flushes whose oldest element, together with the {@code quantile} of the latency
+	 * markers up to the operator, exceeded {@code latencySloMs}. The controller caps the interval
+	 * with the same objective. A value of 0 disables the objective.
+	 */
+	public void setLatencySlo(long latencySloMs, double quantile) {
+		checkArgument(latencySloMs >= 0, "The latency objective cannot be negative.");
+		checkArgument(quantile > 0 && quantile <= 1, "The quantile must be in (0, 1].");
+		this.latencySloMs = latencySloMs;
+		this.latencySloQuantile = quantile;
+	}
+
+	/**
+	 * Applies the {@link PreAggregateOptions} of the bundle and the {@link PreAggregateControllerOptions}
+	 * of the signals that do not depend on the types of the pre-aggregate function.
+	 */
+	public void configure(ReadableConfig configuration) {
+		setFlushOnCheckpoint(configuration.get(PreAggregateOptions.BUNDLE_FLUSH_ON_CHECKPOINT));
+		setHeavyHitterMinFrequency(configuration.get(PreAggregateOptions.HEAVY_HITTERS_ENABLED)
+			? configuration.get(PreAggregateOptions.HEAVY_HITTERS_MIN_FREQUENCY)
+			: 0);
+		setHeavyHitterCapacity(configuration.get(PreAggregateOptions.HEAVY_HITTERS_CAPACITY));
+		setBypass(configuration.get(PreAggregateOptions.BYPASS_ENABLED)
+				? configuration.get(PreAggregateOptions.BYPASS_REDUCTION_RATIO)
+				: 0,
+			configuration.get(PreAggregateOptions.BYPASS_PROBE_INTERVAL).toMillis());
+		setFlushSliceSize(configuration.get(PreAggregateOptions.BUNDLE_FLUSH_SLICE_SIZE));
+		setChannelGrouping(configuration.get(PreAggregateOptions.BUNDLE_CHANNEL_GROUPING_ENABLED));
+		setTaskManagerCombining(configuration.get(PreAggregateOptions.TASK_MANAGER_COMBINE_ENABLED));
+		setSignalsSampling(
+			configuration.get(PreAggregateControllerOptions.SIGNALS_SAMPLING_INTERVAL).toMillis(),
+			configuration.get(PreAggregateControllerOptions.SIGNALS_PUBLISH_INTERVAL).toMillis(),
+			configuration.get(PreAggregateControllerOptions.SIGNALS_EWMA_ALPHA));
+		setLatencySlo(
+			configuration.get(PreAggregateControllerOptions.LATENCY_SLO).toMillis(),
+			configuration.get(PreAggregateControllerOptions.LATENCY_SLO_QUANTILE));
+	}
+
+	/**
+	 * Pre-aggregates on event time instead of processing time. Every element is added to the bundle
+	 * of its tumbling pane of the given size, aligned to the epoch like the
+	 * {@link org.apache.flink.streaming.api.windowing.assigners.TumblingEventTimeWindows}. The partials
+	 * of a pane are emitted with the max timestamp of the pane before the watermark that closes it, so
+	 * a downstream event-time window whose size and slide are multiples of the pane size receives
+	 * them in the same windows as the raw elements and never as late data.
+	 *
+	 * <p>The interval is then the minimum event-time advance between two forwarded watermarks,
+	 * smaller watermarks are held back. The newest held watermark is forwarded at the latest after
+	 * the interval in processing time, so an idle input does not keep the downstream windows open.
+	 * A larger interval lets the panes collect more elements at the cost of delaying the downstream
+	 * windows. The bundle is always flushed before the checkpoint barrier in this mode.
+	 */
+	public void setEventTimePaneSize(long paneSizeMs) {
+		setEventTimePanes(paneSizeMs, 0);
+	}
+
+	/**
+	 * Pre-aggregates on event time with panes shifted by the given offset, as the windows of a
+	 * {@link org.apache.flink.streaming.api.windowing.assigners.TumblingEventTimeWindows} with an
+	 * offset. See {@link #setEventTimePaneSize(long)}.
+	 */
+	public void setEventTimePanes(long paneSizeMs, long paneOffsetMs) {
+		checkArgument(paneSizeMs > 0, "The pane size must be positive.");
+		this.paneSizeMs = paneSizeMs;
+		this.paneOffsetMs = paneOffsetMs % paneSizeMs;
+	}
+
+	private boolean isEventTime() {
+		return paneSizeMs > 0;
+	}
+
+	/**
+	 * Creates the collector that groups the partials by their output channel, or returns null if the
+	 * output of the operator is not a single edge partitioned by key groups.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	private ChannelGroupingCollector<OUT> createChannelGroupingCollector() {
+		final ClassLoader userCodeClassloader = getUserCodeClassloader();
+		final List<StreamEdge> outputs = config.getNonChainedOutputs(userCodeClassloader);
+		final ResultPartitionWriter[] writers = getContainingTask().getEnvironment().getAllWriters();
+		// the writer is the one of this operator if it is the only writer of the task
+		if (!config.getChainedOutputs(userCodeClassloader).isEmpty() || outputs.size() != 1 || writers.length != 1 ||
+			!(outputs.get(0).getPartitioner() instanceof KeyGroupStreamPartitioner)) {
+			LOG.info("PreAggregate operator does not group its partials by channel, its output is not a single " +
+				"edge partitioned by key groups.");
+			return null;
+		}
+		// selects the channels of the record writer, which configures its partitioner with the downstream max parallelism
+		final StreamPartitioner<OUT> partitioner = (StreamPartitioner<OUT>) outputs.get(0).getPartitioner().copy();
+		final int numKeyGroups = writers[0].getNumTargetKeyGroups();
+		if (partitioner instanceof ConfigurableStreamPartitioner && numKeyGroups > 0) {
+			((ConfigurableStreamPartitioner) partitioner).configure(numKeyGroups);
+		}
+		return new ChannelGroupingCollector<>(
+			partitioner,
+			writers[0].getNumberOfSubpartitions(),
+			function.reusesOutput() ? config.<OUT>getTypeSerializerOut(userCodeClassloader) : null);
+	}
+
+	/**
+	 * Creates the output that emits the grouped partials to the channel they were grouped by, or
+	 * returns null if the output of the operator is not the record writer, e.g. in tests.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	private ChannelGroupingCollector.ChannelOutput<OUT> createChannelOutput() {
+		final Output<StreamRecord<OUT>> wrappedOutput =
+			output instanceof CountingOutput ? ((CountingOutput<OUT>) output).getOutput() : output;
+		if (!(wrappedOutput instanceof RecordWriterOutput)) {
+			return null;
+		}
+		final RecordWriterOutput<OUT> recordWriterOutput = (RecordWriterOutput<OUT>) wrappedOutput;
+		final Counter numRecordsOut = metrics.getIOMetricGroup().getNumRecordsOutCounter();
+		// the partials of a flush on processing time have no timestamp
+		final StreamRecord<OUT> reuse = new StreamRecord<>(null);
+		return (record, channel) -> {
+			numRecordsOut.inc();
+			recordWriterOutput.collect(reuse.replace(record), channel);
+		};
+	}
+
+	/**
+	 * Joins the bundle shared by the subtasks of this operator in the TaskManager, or returns null if
+	 * the function cannot merge its values.
+	 */
+	@Nullable
+	private SharedBundle<K, V> joinSharedBundle() {
+		if (!(function instanceof PreAggregateValueMerger)) {
+			LOG.warn("PreAggregate operator does not share its bundle in the TaskManager, its function {} does " +
+				"not implement {}.", function.getClass().getName(), PreAggregateValueMerger.class.getSimpleName());
+			return null;
+		}
+		if (this.primitiveBundle != null) {
+			this.contributionBundle = new HashMap<>();
+		}
+		return SharedBundle.join(getContainingTask().getEnvironment().getJobID() + "-" + getOperatorID(), this);
+	}
+
+	private void leaveSharedBundle() {
+		if (this.sharedBundle != null) {
+			this.sharedBundle.leave(this);
+			this.sharedBundle = null;
+		}
+	}
+
+	/**
+	 * Logs the configuration that the primitive bundle of a primitive-specialized function does not apply.
+	 */
+	private void logPrimitiveBundleConflicts() {
+		final String functionName = function.getClass().getName();
+		if (managedMemoryBundle) {
+			LOG.warn("PreAggregate operator keeps the primitive bundle of its function {} on the heap, the managed " +
+				"memory bundle only applies to functions that are not primitive-specialized.", functionName);
+		}
+		if (heavyHitterMinFrequency > 0 || bypassReductionRatio > 0) {
+			LOG.warn("PreAggregate operator buffers every key in the primitive bundle of its function {}, the heavy " +
+				"hitters and the bypass only apply to functions that are not primitive-specialized.", functionName);
+		}
+		LOG.info("PreAggregate operator buffers the keys that its primitive-specialized function {} extracts, its " +
+			"key selector is not used and has to select the same keys.", functionName);
+	}
+
+	private boolean hasBundleSerializers() {
+		return bundleKeySerializer != null && bundleValueSerializer != null;
+	}
 
-		// start the monitor of pre-agg signals
-		this.preAggregateMonitor.start();
-		// start the preAgg listener to receive new time processing parameter to the pre-agg
-		this.preAggregateProcTimeListener.start();
+	private Map<K, V> createBundle() throws Exception {
+		if (!managedMemoryBundle) {
+			return new HashMap<>();
+		}
+		checkState(hasBundleSerializers(), "The managed memory bundle requires the serializers of the bundle.");
+		final Environment environment = getContainingTask().getEnvironment();
+		final MemoryManager memoryManager = environment.getMemoryManager();
+		final long memorySize = memoryManager.computeMemorySize(
+			config.getManagedMemoryFractionOperatorUseCaseOfSlot(
+				ManagedMemoryUseCase.BATCH_OP,
+				environment.getTaskManagerInfo().getConfiguration(),
+				environment.getUserCodeClassLoader().asClassLoader()));
+		final int numPages = (int) (memorySize / memoryManager.getPageSize());
+		if (numPages < 2) {
+			LOG.warn("The PreAggregate operator got {} bytes of managed memory, which is not enough for its " +
+				"bundle. Falling back to a heap bundle.", memorySize);
+			return new HashMap<>();
+		}
+		List<MemorySegment> segments = memoryManager.allocatePages(this, numPages);
+		this.binaryBundle = new BinaryBundleMap<>(
+			segments, bundleKeySerializer.duplicate(), bundleValueSerializer.duplicate());
+		return this.binaryBundle;
+	}
+
+	private void releaseBundleMemory() {
+		if (this.binaryBundle != null) {
+			getContainingTask().getEnvironment().getMemoryManager().releaseAll(this);
+			this.binaryBundle = null;
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void initializeState(StateInitializationContext context) throws Exception {
+		super.initializeState(context);
+		if (!hasBundleSerializers() || isEventTime()) {
+			return;
+		}
+		TupleSerializer<Tuple2<K, V>> entrySerializer = new TupleSerializer<>(
+			(Class<Tuple2<K, V>>) (Class<?>) Tuple2.class,
+			new TypeSerializer<?>[]{bundleKeySerializer, bundleValueSerializer});
+		this.bundleState = context
+			.getOperatorStateStore()
+			.getListState(new ListStateDescriptor<>(BUNDLE_STATE_NAME, entrySerializer));
+
+		if (context.isRestored()) {
+			this.restoredEntries = new ArrayList<>();
+			for (Tuple2<K, V> entry : this.bundleState.get()) {
+				this.restoredEntries.add(entry);
+			}
+			LOG.info("PreAggregate operator restored {} bundle entries.", this.restoredEntries.size());
+		}
+	}
+
+	@Override
+	public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+		super.prepareSnapshotPreBarrier(checkpointId);
+		// the partials of a flush that is still draining belong before the barrier
+		finishSlicedFlush();
+		if (this.sharedBundle != null) {
+			// the contributions of the subtasks in the epoch of this one belong before its barrier
+			emitSharedPartials(this.sharedBundle.take(this.checkpointEpoch));
+			finishSlicedFlush();
+			this.checkpointEpoch = checkpointId;
+		}
+		if (this.flushOnCheckpoint || this.bundleState == null) {
+			this.collect();
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void snapshotState(StateSnapshotContext context) throws Exception {
+		super.snapshotState(context);
+		if (this.bundleState == null) {
+			return;
+		}
+		List<Tuple2<K, V>> entries = new ArrayList<>(bundleSize());
+		if (this.primitiveBundle != null) {
+			this.primitiveBundle.forEach((key, value) -> entries.add(Tuple2.of((K) key, (V) value)));
+		} else {
+			for (Map.Entry<K, V> entry : this.bundle.entrySet()) {
+				entries.add(Tuple2.of(entry.getKey(), entry.getValue()));
+			}
+		}
+		this.bundleState.update(entries);
+	}
+
+	/**
+	 * Adds the restored entries to the bundle. After rescaling, the entries of several subtasks
+	 * may contain the same key. Partials cannot be merged, so the bundle is flushed before such a
+	 * key is added again, and the downstream aggregation merges both partials.
+	 */
+	private void restoreBundle(List<Tuple2<K, V>> entries) throws Exception {
+		for (Tuple2<K, V> entry : entries) {
+			if (!restoreEntry(entry.f0, entry.f1)) {
+				this.collect();
+				if (!restoreEntry(entry.f0, entry.f1)) {
+					throw new IOException("Could not restore the bundle entry of the key " + entry.f0);
+				}
+			}
+			countBufferedElement();
+		}
+	}
+
+	private boolean restoreEntry(K key, V value) throws Exception {
+		if (this.primitiveBundle != null) {
+			return this.primitiveBundle.tryPut(key, value);
+		}
+		if (this.bundle.containsKey(key)) {
+			return false;
+		}
+		if (this.binaryBundle != null) {
+			return this.binaryBundle.tryPut(key, value);
+		}
+		this.bundle.put(key, value);
+		return true;
+	}
+
+	private int bundleSize() {
+		if (this.paneBundles != null) {
+			int size = 0;
+			for (Map<K, V> paneBundle : this.paneBundles.values()) {
+				size += paneBundle.size();
+			}
+			return size;
+		}
+		return this.primitiveBundle != null ? this.primitiveBundle.size() : this.bundle.size();
+	}
+
+	@Override
+	public void setOperatorEventGateway(OperatorEventGateway operatorEventGateway) {
+		this.operatorEventGateway = operatorEventGateway;
+	}
+
+	/**
+	 * Receives the new processing time interval from the controller coordinator on the JobManager.
+	 */
+	@Override
+	public void handleOperatorEvent(OperatorEvent evt) {
+		if (!(evt instanceof PreAggregateIntervalEvent)) {
+			throw new IllegalStateException("Received unexpected operator event " + evt);
+		}
+		long newIntervalMs = ((PreAggregateIntervalEvent) evt).getIntervalMs();
+		if (newIntervalMs >= MIN_INTERVAL_MS) {
+			this.intervalMs = newIntervalMs;
+		} else {
+			this.intervalMs = MIN_INTERVAL_MS;
+			LOG.warn("Interval less than {} milliseconds are set to {} milliseconds. "
+				+ "It is likely that the pre-agg is in a good shape.", MIN_INTERVAL_MS, MIN_INTERVAL_MS);
+		}
+		this.preAggregateMonitor.setIntervalMs(this.intervalMs);
+	}
+
+	@VisibleForTesting
+	long getIntervalMs() {
+		return intervalMs;
+	}
+
+	/**
+	 * Records the latency of the marker up to this operator for the latency objective and forwards it.
+	 * The marker is not buffered, the time the records wait in the bundle is measured on every flush.
+	 */
+	@Override
+	public void processLatencyMarker(LatencyMarker latencyMarker) throws Exception {
+		this.preAggregateMonitor.addLatencyMarker(
+			getProcessingTimeService().getCurrentProcessingTime() - latencyMarker.getMarkedTime());
+		super.processLatencyMarker(latencyMarker);
+	}
+
+	@VisibleForTesting
+	long getLatencySloViolations() {
+		return preAggregateMonitor.getLatencySloViolations();
+	}
+
+	@VisibleForTesting
+	boolean isBypassing() {
+		return bundleBypass != null && bundleBypass.isBypassing();
 	}
 
 	@Override
 	public void processElement(StreamRecord<IN> element) throws Exception {
-		// get the key and value for the map bundle
 		final IN input = element.getValue();
+		if (this.paneBundles != null) {
+			addToPaneBundle(element);
+		} else if (this.primitiveBundle != null) {
+			// primitive keys and values, the function extracts the key
+			this.primitiveBundle.addInput(input);
+			countBufferedElement();
+		} else if (this.bundleBypass != null && this.bundleBypass.isBypassing()) {
+			// the bundle does not reduce the data, forward the element without buffering it
+			this.function.collect(Collections.singletonMap(getKey(input), this.function.addInput(null, input)), collector);
+			return;
+		} else {
+			addToMapBundle(input);
+		}
+
+		if (this.bundleTrigger != null) {
+			sampleRecordSize(input);
+			this.bundleTrigger.onElement(input, this.bundleTriggerContext);
+		}
+	}
+
+	private void addToMapBundle(IN input) throws Exception {
+		// get the key and value for the map bundle
 		final K bundleKey = getKey(input);
 		final V bundleValue = this.bundle.get(bundleKey);
+		if (bundleValue == null && this.heavyHitters != null && !this.heavyHitters.addAndTest(bundleKey)) {
+			// a cold key is forwarded without buffering it
+			this.function.collect(Collections.singletonMap(bundleKey, this.function.addInput(null, input)), collector);
+			return;
+		}
 
+		countBufferedElement();
 		// get a new value after adding this element to bundle
 		final V newBundleValue = this.function.addInput(bundleValue, input);
 
 		// update to map bundle
-		this.bundle.put(bundleKey, newBundleValue);
+		if (this.binaryBundle == null) {
+			this.bundle.put(bundleKey, newBundleValue);
+		} else if (!this.binaryBundle.tryPut(bundleKey, newBundleValue)) {
+			// the managed memory is exhausted, flush the bundle and start a new one with this element
+			this.collect();
+			if (!this.binaryBundle.tryPut(bundleKey, this.function.addInput(null, input))) {
+				throw new IOException("The managed memory of the PreAggregate operator cannot hold a single record.");
+			}
+		}
+	}
+
+	private void addToPaneBundle(StreamRecord<IN> element) throws Exception {
+		if (!element.hasTimestamp()) {
+			throw new RuntimeException("Record has Long.MIN_VALUE timestamp (= no timestamp marker). " +
+				"Is the time characteristic set to 'ProcessingTime', or did you forget to call " +
+				"'DataStream.assignTimestampsAndWatermarks(...)'?");
+		}
+		final IN input = element.getValue();
+		final long paneMaxTimestamp =
+			TimeWindow.getWindowStartWithOffset(element.getTimestamp(), paneOffsetMs, paneSizeMs) + paneSizeMs - 1;
+		final K bundleKey = getKey(input);
+
+		if (paneMaxTimestamp <= currentWatermark) {
+			// the pane is already closed downstream, emit the element on its own as the raw element would be
+			this.collector.setAbsoluteTimestamp(paneMaxTimestamp);
+			this.function.collect(Collections.singletonMap(bundleKey, this.function.addInput(null, input)), collector);
+			this.collector.eraseTimestamp();
+			return;
+		}
+
+		Map<K, V> paneBundle = this.paneBundles.computeIfAbsent(paneMaxTimestamp, pane -> new HashMap<>());
+		paneBundle.put(bundleKey, this.function.addInput(paneBundle.get(bundleKey), input));
+	}
+
+	/**
+	 * Flushes the panes closed by the watermark before forwarding it. In event-time mode a
+	 * watermark is held back until it advanced at least by the interval since the last forwarded one,
+	 * or until the next interval timer fires.
+	 */
+	@Override
+	public void processWatermark(Watermark mark) throws Exception {
+		if (this.paneBundles == null) {
+			super.processWatermark(mark);
+			return;
+		}
+		final long watermark = mark.getTimestamp();
+		if (watermark != Long.MAX_VALUE && currentWatermark != Long.MIN_VALUE && watermark < currentWatermark + intervalMs) {
+			pendingWatermark = Math.max(pendingWatermark, watermark);
+			return;
+		}
+		forwardWatermark(mark);
+	}
+
+	private void forwardWatermark(Watermark mark) throws Exception {
+		collectPanes(mark.getTimestamp());
+		currentWatermark = mark.getTimestamp();
+		pendingWatermark = Long.MIN_VALUE;
+		super.processWatermark(mark);
+	}
+
+	/**
+	 * Emits the partials of all panes whose max timestamp is not after the given timestamp.
+	 */
+	private void collectPanes(long maxTimestamp) throws Exception {
+		Iterator<Map.Entry<Long, Map<K, V>>> panes = this.paneBundles.headMap(maxTimestamp, true).entrySet().iterator();
+		while (panes.hasNext()) {
+			Map.Entry<Long, Map<K, V>> pane = panes.next();
+			this.collector.setAbsoluteTimestamp(pane.getKey());
+			this.function.collect(pane.getValue(), collector);
+			panes.remove();
+		}
+		this.collector.eraseTimestamp();
+	}
+
+	/**
+	 * Flushes the bundle when the bundle trigger fires.
+	 */
+	@Override
+	public void finishBundle() throws Exception {
+		this.flush();
+	}
+
+	/**
+	 * Serializes one out of {@link #SIZE_SAMPLE_INTERVAL} input records to keep an average
+	 * record size, which is used to estimate the size of the bundle. The primitive bundle is not
+	 * sampled, it knows the size of its arrays.
+	 */
+	private void sampleRecordSize(IN input) throws Exception {
+		if (this.inputSerializer == null || this.primitiveBundle != null || ++this.numRecordsSinceLastSample < SIZE_SAMPLE_INTERVAL) {
+			return;
+		}
+		this.numRecordsSinceLastSample = 0;
+		this.sizeSampleBuffer.clear();
+		this.inputSerializer.serialize(input, this.sizeSampleBuffer);
+		this.numSampledBytes += this.sizeSampleBuffer.length();
+		this.numSampledRecords++;
+	}
+
+	@VisibleForTesting
+	long getEstimatedBundleBytes() {
+		if (this.primitiveBundle != null) {
+			return this.primitiveBundle.isEmpty() ? 0 : this.primitiveBundle.getMemoryBytes();
+		}
+		if (this.binaryBundle != null) {
+			return this.binaryBundle.getUsedBytes();
+		}
+		long averageRecordBytes = numSampledRecords == 0 ? 0 : numSampledBytes / numSampledRecords;
+		return bundleSize() * (averageRecordBytes + BUNDLE_ENTRY_OVERHEAD_BYTES);
 	}
 
 	/**
@@ -135,60 +885,285 @@ public abstract class PreAggregateProcTimeStreamAbstractOperator<K, V, IN, OUT>
 	@Override
 	public void onProcessingTime(long timestamp) throws Exception {
 		long currentProcessingTime = getProcessingTimeService().getCurrentProcessingTime();
-		this.collect();
+		if (!isEventTime()) {
+			this.flush();
+		} else if (this.pendingWatermark > this.currentWatermark) {
+			// the input may be idle, release the watermark that was held back
+			forwardWatermark(new Watermark(this.pendingWatermark));
+		}
+		if (this.bundleBypass != null) {
+			this.bundleBypass.probe(currentProcessingTime);
+			this.preAggregateMonitor.setBypassed(this.bundleBypass.isBypassing());
+		}
 		// getProcessingTimeService().registerTimer(currentProcessingTime + intervalMs, this);
 		// System.out.println(PreAggregateProcTimeStreamAbstractOperator.class.getSimpleName() + ".onProcessingTime: " + sdf.format(new Timestamp(System.currentTimeMillis())));
-		getProcessingTimeService().registerTimer(
-			currentProcessingTime + preAggregateProcTimeListener.getIntervalMs(), this);
-//		System.out.println("[PreAggregateProcTimeStreamAbstractOperator] intervalMs: " + preAggregateProcTimeListener.getIntervalMs() + " - " +
+		getProcessingTimeService().registerTimer(currentProcessingTime + intervalMs, this);
+//		System.out.println("[PreAggregateProcTimeStreamAbstractOperator] intervalMs: " + intervalMs + " - " +
 //			PreAggregateProcTimeStreamAbstractOperator.class.getSimpleName() + ".onProcessingTime: "
 //			+ sdf.format(new Timestamp(System.currentTimeMillis())));
+	}
 
-		CompletableFuture.runAsync(() -> {
-			// Collect AdCom signals to the Reservoir Histogram every 30 seconds
-			if (this.preAggregateMonitor.collectNextSignals()) {
-				// update IntervalMs to Prometheus+Grafana
-				this.preAggregateMonitor.setIntervalMs(preAggregateProcTimeListener.getIntervalMs());
-				// update outPoolUsage metrics to Prometheus+Grafana
-				float outPoolUsage = 0.0f;
-				OperatorMetricGroup operatorMetricGroup = (OperatorMetricGroup) this.getMetricGroup();
-				TaskMetricGroup taskMetricGroup = operatorMetricGroup.parent();
-				MetricGroup metricGroup = taskMetricGroup.getGroup("buffers");
-				Gauge<Float> gaugeOutPoolUsage = (Gauge<Float>) metricGroup.getMetric("outPoolUsage");
-				if (gaugeOutPoolUsage != null && gaugeOutPoolUsage.getValue() != null) {
-					outPoolUsage = gaugeOutPoolUsage.getValue().floatValue();
-					this.preAggregateMonitor
-						.getOutPoolUsageHistogram()
-						.update((long) (outPoolUsage * 100));
-				}
-				// update records_per_second metrics to Prometheus+Grafana
-				MeterView meterNumRecordsOutPerSecond = (MeterView) taskMetricGroup.getMetric(
-					"numRecordsOutPerSecond");
-				MeterView meterNumRecordsInPerSecond = (MeterView) taskMetricGroup.getMetric(
-					"numRecordsInPerSecond");
-				if (meterNumRecordsOutPerSecond != null) {
-					this.preAggregateMonitor.setNumRecordsOutPerSecond(meterNumRecordsOutPerSecond.getRate());
-				}
-				if (meterNumRecordsInPerSecond != null) {
-					this.preAggregateMonitor.setNumRecordsInPerSecond(meterNumRecordsInPerSecond.getRate());
-				}
+	/**
+	 * Samples the AdCom signals and publishes them to the controller coordinator when they are due.
+	 */
+	private void onSamplingTime(long timestamp) {
+		long currentProcessingTime = getProcessingTimeService().getCurrentProcessingTime();
+		this.preAggregateMonitor.sampleSignals(currentProcessingTime);
+		this.preAggregateMonitor.publishSignals(this.operatorEventGateway, currentProcessingTime);
+		getProcessingTimeService().registerTimer(currentProcessingTime + signalsSamplingIntervalMs, this::onSamplingTime);
+	}
+
+	private void countBufferedElement() {
+		if (this.numBufferedElements++ == 0) {
+			this.bufferStartTime = getProcessingTimeService().getCurrentProcessingTime();
+		}
+	}
+
+	private long bufferingDelayMs() {
+		if (this.numBufferedElements == 0) {
+			return 0;
+		}
+		return getProcessingTimeService().getCurrentProcessingTime() - this.bufferStartTime;
+	}
+
+	/**
+	 * Flushes the bundle on the interval or by the bundle trigger, in slices if a flush slice size
+	 * is set, see {@link #setFlushSliceSize(int)}.
+	 */
+	private void flush() throws Exception {
+		if (this.sharedBundle != null) {
+			flushToSharedBundle();
+			return;
+		}
+		if (this.mailboxExecutor == null) {
+			this.collect();
+			return;
+		}
+		// a flush that is still draining is emitted before the partials of this one
+		finishSlicedFlush();
+		if (this.primitiveBundle != null) {
+			if (!this.primitiveBundle.isEmpty()) {
+				this.preAggregateMonitor.addFlush(this.numBufferedElements, this.primitiveBundle.size(), bufferingDelayMs());
+				this.flushingPrimitiveBundle = this.primitiveBundle;
+				this.flushingPosition = 0;
+				this.primitiveBundle = this.sparePrimitiveBundle != null ? this.sparePrimitiveBundle : PrimitiveBundle.of(function);
+				this.sparePrimitiveBundle = null;
+			}
+		} else if (!this.bundle.isEmpty()) {
+			onMapBundleFlush();
+			this.flushingBundle = this.bundle;
+			this.flushingEntries = this.bundle.entrySet().iterator();
+			this.bundle = this.spareBundle != null ? this.spareBundle : new HashMap<>();
+			this.spareBundle = null;
+		}
+		resetBundle();
+		collectSlice();
+		scheduleNextSlice();
+	}
+
+	/**
+	 * Merges the bundle into the shared bundle and emits the shared bundle if this subtask is the
+	 * one to emit it, in slices if a flush slice size is set.
+	 */
+	@SuppressWarnings("unchecked")
+	private void flushToSharedBundle() throws Exception {
+		finishSlicedFlush();
+		final Map<K, V> partials;
+		if (this.primitiveBundle != null) {
+			if (!this.primitiveBundle.isEmpty()) {
+				this.preAggregateMonitor.addFlush(this.numBufferedElements, this.primitiveBundle.size(), bufferingDelayMs());
+			}
+			this.primitiveBundle.forEach((key, value) -> this.contributionBundle.put((K) key, (V) value));
+			this.primitiveBundle.clear();
+			partials = this.contributionBundle;
+		} else {
+			if (!this.bundle.isEmpty()) {
+				onMapBundleFlush();
+			}
+			partials = this.bundle;
+		}
+		final Map<K, V> sharedPartials = this.sharedBundle.contribute(
+			this,
+			this.checkpointEpoch,
+			partials,
+			(PreAggregateValueMerger<V>) function,
+			getProcessingTimeService().getCurrentProcessingTime(),
+			this.intervalMs);
+		partials.clear();
+		resetBundle();
+		if (sharedPartials != null) {
+			emitSharedPartials(sharedPartials);
+		}
+	}
+
+	/**
+	 * Emits the partials taken from the shared bundle, in slices if a flush slice size is set.
+	 */
+	private void emitSharedPartials(Map<K, V> sharedPartials) throws Exception {
+		if (sharedPartials.isEmpty()) {
+			return;
+		}
+		if (this.mailboxExecutor == null) {
+			this.function.collect(sharedPartials, flushCollector());
+			emitChannelGroups();
+			return;
+		}
+		this.flushingBundle = sharedPartials;
+		this.flushingEntries = sharedPartials.entrySet().iterator();
+		collectSlice();
+		scheduleNextSlice();
+	}
+
+	/**
+	 * Emits the next slice of the flushing bundle and enqueues the mail of the slice after it. The
+	 * mailbox runs the mails of a batch before the next input, and a mail enqueued during a batch
+	 * joins the next batch, so every slice is followed by the processing of input.
+	 */
+	private void collectNextSlice() throws Exception {
+		this.sliceMailPending = false;
+		collectSlice();
+		scheduleNextSlice();
+	}
+
+	private void scheduleNextSlice() {
+		if (isFlushingSlices() && !this.sliceMailPending) {
+			this.sliceMailPending = true;
+			this.mailboxExecutor.execute(this::collectNextSlice, "PreAggregate flush slice");
+		}
+	}
+
+	private boolean isFlushingSlices() {
+		return this.flushingPrimitiveBundle != null || this.flushingBundle != null;
+	}
+
+	/**
+	 * Emits at most {@link #flushSliceSize} entries of the flushing bundle. The drained bundle is
+	 * kept as the next empty bundle.
+	 */
+	private void collectSlice() throws Exception {
+		if (this.flushingPrimitiveBundle != null) {
+			this.flushingPosition = this.flushingPrimitiveBundle.collect(this.flushingPosition, this.flushSliceSize, flushCollector());
+			emitChannelGroups();
+			if (this.flushingPosition == this.flushingPrimitiveBundle.size()) {
+				this.flushingPrimitiveBundle.clear();
+				this.sparePrimitiveBundle = this.flushingPrimitiveBundle;
+				this.flushingPrimitiveBundle = null;
+			}
+		} else if (this.flushingBundle != null) {
+			if (this.sliceBundle == null) {
+				this.sliceBundle = new HashMap<>();
+			}
+			for (int i = 0; i < this.flushSliceSize && this.flushingEntries.hasNext(); i++) {
+				Map.Entry<K, V> entry = this.flushingEntries.next();
+				this.sliceBundle.put(entry.getKey(), entry.getValue());
+			}
+			this.function.collect(this.sliceBundle, flushCollector());
+			emitChannelGroups();
+			this.sliceBundle.clear();
+			if (!this.flushingEntries.hasNext()) {
+				this.flushingBundle.clear();
+				this.spareBundle = this.flushingBundle;
+				this.flushingBundle = null;
+				this.flushingEntries = null;
 			}
-		});
+		}
+	}
 
+	/**
+	 * Emits the remaining slices of the flushing bundle at once.
+	 */
+	private void finishSlicedFlush() throws Exception {
+		while (isFlushingSlices()) {
+			collectSlice();
+		}
 	}
 
+	/**
+	 * Flushes the whole bundle at once, after the remaining slices of a previous flush.
+	 */
 	private void collect() throws Exception {
-		if (!this.bundle.isEmpty()) {
-			this.function.collect(bundle, collector);
+		finishSlicedFlush();
+		if (this.paneBundles != null) {
+			// the panes are not closed yet, downstream windows merge the partials
+			collectPanes(Long.MAX_VALUE);
+		} else if (this.primitiveBundle != null) {
+			this.preAggregateMonitor.addFlush(this.numBufferedElements, this.primitiveBundle.size(), bufferingDelayMs());
+			this.primitiveBundle.collect(flushCollector());
+			emitChannelGroups();
+		} else if (!this.bundle.isEmpty()) {
+			onMapBundleFlush();
+			this.function.collect(bundle, flushCollector());
+			emitChannelGroups();
 			this.bundle.clear();
 		}
+		resetBundle();
+	}
+
+	/**
+	 * Returns the collector of the partials of a flush, which groups them by channel if enabled.
+	 */
+	private Collector<OUT> flushCollector() {
+		return this.channelGroupingCollector != null ? this.channelGroupingCollector : collector;
+	}
+
+	private void emitChannelGroups() {
+		if (this.channelOutput != null) {
+			this.channelGroupingCollector.emit(this.channelOutput);
+		} else if (this.channelGroupingCollector != null) {
+			this.channelGroupingCollector.emit(collector);
+		}
+	}
+
+	private void onMapBundleFlush() {
+		this.preAggregateMonitor.addFlush(this.numBufferedElements, this.bundle.size(), bufferingDelayMs());
+		if (this.bundleBypass != null) {
+			this.bundleBypass.onFlush(this.numBufferedElements, this.bundle.size(),
+				getProcessingTimeService().getCurrentProcessingTime());
+		}
+	}
+
+	private void resetBundle() {
+		this.numBufferedElements = 0;
+		if (this.heavyHitters != null) {
+			this.heavyHitters.reset();
+		}
+		if (this.bundleTrigger != null) {
+			this.bundleTrigger.reset();
+		}
+	}
+
+	/**
+	 * Exposes the current bundle to the {@link BundleTrigger}.
+	 */
+	private class BundleTriggerContext implements BundleTrigger.Context {
+
+		@Override
+		public long getNumberOfKeys() {
+			return bundleSize();
+		}
+
+		@Override
+		public long getEstimatedBytes() {
+			return getEstimatedBundleBytes();
+		}
+
+		@Override
+		public long getCurrentProcessingTime() {
+			return getProcessingTimeService().getCurrentProcessingTime();
+		}
 	}
 
 	@Override
 	public void close() throws Exception {
 		try {
 			this.collect();
+			if (this.sharedBundle != null) {
+				// the other subtasks in the epoch of this one may have finished already, it emits their contributions
+				emitSharedPartials(this.sharedBundle.take(this.checkpointEpoch));
+				finishSlicedFlush();
+			}
 		} finally {
+			leaveSharedBundle();
 			Exception exception = null;
 
 			try {
@@ -204,9 +1179,21 @@ public abstract class PreAggregateProcTimeStreamAbstractOperator<K, V, IN, OUT>
 				exception = e;
 			}
 
+			releaseBundleMemory();
+
 			if (exception != null) {
 				LOG.warn("Errors occurred while closing the BundleOperator.", exception);
 			}
 		}
 	}
+
+	@Override
+	public void dispose() throws Exception {
+		try {
+			super.dispose();
+		} finally {
+			leaveSharedBundle();
+			releaseBundleMemory();
+		}
+	}
 }
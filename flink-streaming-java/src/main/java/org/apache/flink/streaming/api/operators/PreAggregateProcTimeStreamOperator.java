@@ -2,6 +2,9 @@ package org.apache.flink.streaming.api.operators;
 
 import org.apache.flink.api.common.functions.PreAggregateFunction;
 import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.api.operators.bundle.trigger.BundleTrigger;
+
+import javax.annotation.Nullable;
 
 public class PreAggregateProcTimeStreamOperator<K, V, IN, OUT> extends PreAggregateProcTimeStreamAbstractOperator<K, V, IN, OUT> {
 
@@ -17,7 +20,16 @@ public class PreAggregateProcTimeStreamOperator<K, V, IN, OUT> extends PreAggreg
 		KeySelector<IN, K> keySelector,
 		long intervalMs,
 		boolean enableController) {
-		super(function, intervalMs, enableController);
+		this(function, keySelector, intervalMs, enableController, null);
+	}
+
+	public PreAggregateProcTimeStreamOperator(
+		PreAggregateFunction<K, V, IN, OUT> function,
+		KeySelector<IN, K> keySelector,
+		long intervalMs,
+		boolean enableController,
+		@Nullable BundleTrigger<IN> bundleTrigger) {
+		super(function, intervalMs, enableController, bundleTrigger);
 		this.keySelector = keySelector;
 	}
 
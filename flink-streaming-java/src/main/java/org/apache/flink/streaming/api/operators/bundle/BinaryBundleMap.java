@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.util.MathUtils;
+import org.apache.flink.util.Preconditions;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A hash map that stores the bundle of the PreAggregate operator as serialized keys and values
+ * in {@link MemorySegment MemorySegments}, similar to the {@code BytesHashMap} of the table
+ * runtime. It avoids keeping millions of small boxed objects on the heap until the bundle is
+ * flushed, and its memory is reused after every {@link #clear()}.
+ *
+ * <p>The given segments are split into a bucket area and a record area. The bucket area is an
+ * open addressing table with linear probing, where each bucket holds the hash code of the key
+ * and a pointer to its record. Records are appended to the record area as
+ * {@code [bucket index, key length, value length, key bytes, value bytes]} and never span two
+ * segments. A value whose serialized length changes is appended as a new record and the old
+ * record is left as garbage until the map is cleared.
+ *
+ * <p>The map never grows: {@link #tryPut(Object, Object)} returns false when either area is
+ * full, and the owner is expected to flush and {@link #clear()} the map. Only
+ * {@link #get(Object)}, {@link #containsKey(Object)}, {@link #tryPut(Object, Object)},
+ * {@link #size()}, {@link #clear()} and iterating over the entries are supported, which is all
+ * that the operator and the {@link org.apache.flink.api.common.functions.PreAggregateFunction}
+ * need. Iterating returns deserialized copies, so changing them does not change the map.
+ *
+ * @param <K> The type of the keys in the map.
+ * @param <V> The type of the values in the map.
+ */
+@Internal
+public class BinaryBundleMap<K, V> extends AbstractMap<K, V> {
+
+	/** Each bucket holds an int hash code and an int pointer to the record, 0 means empty. */
+	private static final int BUCKET_SIZE = 8;
+	/** Each record starts with its int bucket index, int key length and int value length. */
+	private static final int RECORD_HEADER_SIZE = 12;
+	/** Marks the end of the records in a segment that has space left. */
+	private static final int END_OF_SEGMENT = -1;
+	private static final double LOAD_FACTOR = 0.5;
+
+	private final TypeSerializer<K> keySerializer;
+	private final TypeSerializer<V> valueSerializer;
+
+	private final MemorySegment[] bucketSegments;
+	private final MemorySegment[] recordSegments;
+	private final int segmentSize;
+	private final int segmentSizeBits;
+	private final int bucketsPerSegmentBits;
+	private final int bucketsPerSegmentMask;
+	private final int bucketMask;
+	private final int maxKeys;
+	private final int recordAreaSize;
+
+	private final DataOutputSerializer keyBuffer = new DataOutputSerializer(64);
+	private final DataOutputSerializer valueBuffer = new DataOutputSerializer(64);
+	private final DataInputDeserializer inputView = new DataInputDeserializer();
+	private byte[] readBuffer = new byte[64];
+
+	private int numKeys;
+	/** The position in the record area where the next record is appended. */
+	private int appendPosition;
+
+	/** The result of the last lookup, reused by {@link #tryPut(Object, Object)} for the same key. */
+	private Object lastKey;
+	private int lastHashCode;
+	private int lastBucket;
+	private int lastRecord;
+
+	public BinaryBundleMap(
+			List<MemorySegment> segments,
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<V> valueSerializer) {
+		Preconditions.checkArgument(segments.size() >= 2, "At least two memory segments are required.");
+		this.keySerializer = Preconditions.checkNotNull(keySerializer);
+		this.valueSerializer = Preconditions.checkNotNull(valueSerializer);
+		this.segmentSize = segments.get(0).size();
+		this.segmentSizeBits = MathUtils.log2strict(segmentSize);
+
+		// a quarter of the memory, rounded down to a power of two, holds the buckets
+		int numBucketSegments = Integer.highestOneBit(Math.max(1, segments.size() / 4));
+		// pointers into the record area are ints
+		int numRecordSegments = Math.min(
+			segments.size() - numBucketSegments, (Integer.MAX_VALUE - 1) / segmentSize);
+		this.bucketSegments = segments.subList(0, numBucketSegments).toArray(new MemorySegment[0]);
+		this.recordSegments = segments
+			.subList(numBucketSegments, numBucketSegments + numRecordSegments)
+			.toArray(new MemorySegment[0]);
+
+		this.bucketsPerSegmentBits = MathUtils.log2strict(segmentSize / BUCKET_SIZE);
+		this.bucketsPerSegmentMask = (1 << bucketsPerSegmentBits) - 1;
+		int numBuckets = numBucketSegments << bucketsPerSegmentBits;
+		this.bucketMask = numBuckets - 1;
+		this.maxKeys = (int) (numBuckets * LOAD_FACTOR);
+		this.recordAreaSize = numRecordSegments * segmentSize;
+
+		for (MemorySegment segment : bucketSegments) {
+			for (int i = 0; i < segmentSize; i += BUCKET_SIZE) {
+				segment.putLong(i, 0L);
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return numKeys;
+	}
+
+	/**
+	 * Returns the number of bytes of the record area that are in use, including outdated records.
+	 */
+	public long getUsedBytes() {
+		return appendPosition;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		try {
+			lookup((K) key);
+			return lastRecord < 0 ? null : readValue(lastRecord);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not look up the key " + key, e);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean containsKey(Object key) {
+		try {
+			lookup((K) key);
+			return lastRecord >= 0;
+		} catch (IOException e) {
+			throw new RuntimeException("Could not look up the key " + key, e);
+		}
+	}
+
+	/**
+	 * Puts the given value for the given key. If the key is the same instance that was given to
+	 * the last call of {@link #get(Object)}, the result of that lookup is reused.
+	 *
+	 * @return false if the map has no space left for the key or the value, in which case the
+	 *     map is not changed.
+	 */
+	public boolean tryPut(K key, V value) throws IOException {
+		if (key != lastKey) {
+			lookup(key);
+		}
+		valueBuffer.clear();
+		valueSerializer.serialize(value, valueBuffer);
+		int valueLength = valueBuffer.length();
+
+		if (lastRecord >= 0) {
+			MemorySegment segment = recordSegments[lastRecord >>> segmentSizeBits];
+			int offset = lastRecord & (segmentSize - 1);
+			if (segment.getInt(offset + 8) == valueLength) {
+				// overwrite the value in place
+				int keyLength = segment.getInt(offset + 4);
+				segment.put(offset + RECORD_HEADER_SIZE + keyLength, valueBuffer.getSharedBuffer(), 0, valueLength);
+				return true;
+			}
+		} else if (numKeys >= maxKeys) {
+			return false;
+		}
+
+		int record = append(lastBucket, valueLength);
+		if (record < 0) {
+			return false;
+		}
+		MemorySegment bucketSegment = bucketSegments[lastBucket >>> bucketsPerSegmentBits];
+		int bucketOffset = (lastBucket & bucketsPerSegmentMask) * BUCKET_SIZE;
+		bucketSegment.putInt(bucketOffset, lastHashCode);
+		bucketSegment.putInt(bucketOffset + 4, record + 1);
+		if (lastRecord < 0) {
+			numKeys++;
+		}
+		lastRecord = record;
+		return true;
+	}
+
+	/**
+	 * Removes all entries but keeps the memory to be reused.
+	 */
+	@Override
+	public void clear() {
+		int position = 0;
+		while ((position = nextRecord(position)) < appendPosition) {
+			MemorySegment segment = recordSegments[position >>> segmentSizeBits];
+			int offset = position & (segmentSize - 1);
+			int bucket = segment.getInt(offset);
+			bucketSegments[bucket >>> bucketsPerSegmentBits]
+				.putLong((bucket & bucketsPerSegmentMask) * BUCKET_SIZE, 0L);
+			position += RECORD_HEADER_SIZE + segment.getInt(offset + 4) + segment.getInt(offset + 8);
+		}
+		numKeys = 0;
+		appendPosition = 0;
+		lastKey = null;
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return new AbstractSet<Entry<K, V>>() {
+			@Override
+			public Iterator<Entry<K, V>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return numKeys;
+			}
+		};
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Looks up the given key and remembers its hash code, its bucket and its record, which is
+	 * -1 if the key is not in the map. In that case the bucket is the empty bucket for the key.
+	 */
+	private void lookup(K key) throws IOException {
+		keyBuffer.clear();
+		keySerializer.serialize(key, keyBuffer);
+		byte[] keyBytes = keyBuffer.getSharedBuffer();
+		int keyLength = keyBuffer.length();
+
+		int hashCode = 1;
+		for (int i = 0; i < keyLength; i++) {
+			hashCode = 31 * hashCode + keyBytes[i];
+		}
+		hashCode = MathUtils.murmurHash(hashCode);
+
+		int bucket = hashCode & bucketMask;
+		while (true) {
+			MemorySegment bucketSegment = bucketSegments[bucket >>> bucketsPerSegmentBits];
+			int bucketOffset = (bucket & bucketsPerSegmentMask) * BUCKET_SIZE;
+			int pointer = bucketSegment.getInt(bucketOffset + 4);
+			if (pointer == 0) {
+				lastRecord = -1;
+				break;
+			}
+			if (bucketSegment.getInt(bucketOffset) == hashCode && keyEquals(pointer - 1, keyBytes, keyLength)) {
+				lastRecord = pointer - 1;
+				break;
+			}
+			bucket = (bucket + 1) & bucketMask;
+		}
+		lastKey = key;
+		lastHashCode = hashCode;
+		lastBucket = bucket;
+	}
+
+	private boolean keyEquals(int record, byte[] keyBytes, int keyLength) {
+		MemorySegment segment = recordSegments[record >>> segmentSizeBits];
+		int offset = record & (segmentSize - 1);
+		if (segment.getInt(offset + 4) != keyLength) {
+			return false;
+		}
+		offset += RECORD_HEADER_SIZE;
+		for (int i = 0; i < keyLength; i++) {
+			if (segment.get(offset + i) != keyBytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Appends the serialized key and value as a new record of the given bucket.
+	 *
+	 * @return the position of the record, or -1 if the record area is full.
+	 */
+	private int append(int bucket, int valueLength) throws IOException {
+		int keyLength = keyBuffer.length();
+		int recordSize = RECORD_HEADER_SIZE + keyLength + valueLength;
+		if (recordSize > segmentSize) {
+			throw new IOException("The record of size " + recordSize + " bytes does not fit into a " +
+				"memory segment of " + segmentSize + " bytes.");
+		}
+		int offset = appendPosition & (segmentSize - 1);
+		if (offset + recordSize > segmentSize) {
+			// records never span two segments
+			if (offset + RECORD_HEADER_SIZE <= segmentSize) {
+				recordSegments[appendPosition >>> segmentSizeBits].putInt(offset, END_OF_SEGMENT);
+			}
+			appendPosition += segmentSize - offset;
+			offset = 0;
+		}
+		if (appendPosition + recordSize > recordAreaSize) {
+			return -1;
+		}
+		int record = appendPosition;
+		MemorySegment segment = recordSegments[record >>> segmentSizeBits];
+		segment.putInt(offset, bucket);
+		segment.putInt(offset + 4, keyLength);
+		segment.putInt(offset + 8, valueLength);
+		segment.put(offset + RECORD_HEADER_SIZE, keyBuffer.getSharedBuffer(), 0, keyLength);
+		segment.put(offset + RECORD_HEADER_SIZE + keyLength, valueBuffer.getSharedBuffer(), 0, valueLength);
+		appendPosition += recordSize;
+		return record;
+	}
+
+	/**
+	 * Returns the position of the first record at or after the given position.
+	 */
+	private int nextRecord(int position) {
+		if (position >= appendPosition) {
+			return appendPosition;
+		}
+		int offset = position & (segmentSize - 1);
+		if (offset + RECORD_HEADER_SIZE > segmentSize
+			|| recordSegments[position >>> segmentSizeBits].getInt(offset) == END_OF_SEGMENT) {
+			return Math.min(position + segmentSize - offset, appendPosition);
+		}
+		return position;
+	}
+
+	private boolean isLive(int record) {
+		MemorySegment segment = recordSegments[record >>> segmentSizeBits];
+		int bucket = segment.getInt(record & (segmentSize - 1));
+		return bucketSegments[bucket >>> bucketsPerSegmentBits]
+			.getInt((bucket & bucketsPerSegmentMask) * BUCKET_SIZE + 4) == record + 1;
+	}
+
+	private K readKey(int record) throws IOException {
+		MemorySegment segment = recordSegments[record >>> segmentSizeBits];
+		int offset = record & (segmentSize - 1);
+		return read(segment, offset + RECORD_HEADER_SIZE, segment.getInt(offset + 4), keySerializer);
+	}
+
+	private V readValue(int record) throws IOException {
+		MemorySegment segment = recordSegments[record >>> segmentSizeBits];
+		int offset = record & (segmentSize - 1);
+		int keyLength = segment.getInt(offset + 4);
+		return read(segment, offset + RECORD_HEADER_SIZE + keyLength, segment.getInt(offset + 8), valueSerializer);
+	}
+
+	private <T> T read(MemorySegment segment, int offset, int length, TypeSerializer<T> serializer) throws IOException {
+		if (readBuffer.length < length) {
+			readBuffer = new byte[Math.max(length, readBuffer.length * 2)];
+		}
+		segment.get(offset, readBuffer, 0, length);
+		inputView.setBuffer(readBuffer, 0, length);
+		return serializer.deserialize(inputView);
+	}
+
+	/**
+	 * Iterates over the live records of the record area in insertion order.
+	 */
+	private class EntryIterator implements Iterator<Entry<K, V>> {
+
+		private int position = advance(0);
+
+		private int advance(int from) {
+			int next = nextRecord(from);
+			while (next < appendPosition && !isLive(next)) {
+				MemorySegment segment = recordSegments[next >>> segmentSizeBits];
+				int offset = next & (segmentSize - 1);
+				next = nextRecord(next + RECORD_HEADER_SIZE + segment.getInt(offset + 4) + segment.getInt(offset + 8));
+			}
+			return next;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return position < appendPosition;
+		}
+
+		@Override
+		public Entry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int record = position;
+			MemorySegment segment = recordSegments[record >>> segmentSizeBits];
+			int offset = record & (segmentSize - 1);
+			position = advance(record + RECORD_HEADER_SIZE + segment.getInt(offset + 4) + segment.getInt(offset + 8));
+			try {
+				return new SimpleImmutableEntry<>(readKey(record), readValue(record));
+			} catch (IOException e) {
+				throw new RuntimeException("Could not read the record at position " + record, e);
+			}
+		}
+	}
+}
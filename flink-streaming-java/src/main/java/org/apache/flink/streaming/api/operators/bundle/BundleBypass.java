@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.annotation.Internal;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Decides whether a pre-aggregate operator forwards its elements without buffering them, because
+ * the bundle does not reduce the data. The reduction ratio of a flush is the number of elements
+ * emitted divided by the number of elements buffered. Once it stayed at or above the threshold for
+ * {@link #NUM_FLUSHES_TO_BYPASS} consecutive flushes the bundle is bypassed. After the probe
+ * interval the bundle is used again, and a single flush without reduction bypasses it again.
+ */
+@Internal
+public final class BundleBypass {
+
+	/** Consecutive flushes without reduction before the bundle is bypassed. */
+	public static final int NUM_FLUSHES_TO_BYPASS = 3;
+
+	private final double reductionRatioThreshold;
+	private final long probeIntervalMs;
+
+	private int numFlushesWithoutReduction;
+	private boolean bypassing;
+	private long probeTime;
+
+	public BundleBypass(double reductionRatioThreshold, long probeIntervalMs) {
+		checkArgument(reductionRatioThreshold > 0 && reductionRatioThreshold <= 1,
+			"The reduction ratio threshold must be in (0, 1].");
+		checkArgument(probeIntervalMs > 0, "The probe interval must be positive.");
+		this.reductionRatioThreshold = reductionRatioThreshold;
+		this.probeIntervalMs = probeIntervalMs;
+	}
+
+	/**
+	 * Records a flush of the bundle at the given processing time.
+	 */
+	public void onFlush(long numBufferedElements, long numEmittedElements, long currentProcessingTime) {
+		if (numBufferedElements == 0) {
+			return;
+		}
+		double reductionRatio = (double) numEmittedElements / numBufferedElements;
+		if (reductionRatio < reductionRatioThreshold) {
+			numFlushesWithoutReduction = 0;
+		} else if (++numFlushesWithoutReduction >= NUM_FLUSHES_TO_BYPASS) {
+			bypassing = true;
+			probeTime = currentProcessingTime + probeIntervalMs;
+		}
+	}
+
+	/**
+	 * Uses the bundle again for a probe if the bypass lasted for the probe interval.
+	 */
+	public void probe(long currentProcessingTime) {
+		if (bypassing && currentProcessingTime >= probeTime) {
+			bypassing = false;
+			numFlushesWithoutReduction = NUM_FLUSHES_TO_BYPASS - 1;
+		}
+	}
+
+	public boolean isBypassing() {
+		return bypassing;
+	}
+}
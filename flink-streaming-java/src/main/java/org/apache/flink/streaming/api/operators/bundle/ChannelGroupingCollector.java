@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.plugable.SerializationDelegate;
+import org.apache.flink.streaming.runtime.partitioner.StreamPartitioner;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.util.Collector;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Groups the partials of a flush by the output channel that the downstream partitioner selects
+ * for them, so they can be emitted channel by channel. Consecutive records of the same channel
+ * are serialized into the same network buffer instead of touching the buffer of every channel in
+ * rotation. The partials are copied if the pre-aggregate function may reuse its output record.
+ *
+ * <p>The partitioner has to select the channel from the record alone, like the
+ * {@link org.apache.flink.streaming.runtime.partitioner.KeyGroupStreamPartitioner}. The partials are
+ * emitted together with the channel they were grouped by, so the record writer can emit them to
+ * that channel without selecting it again.
+ *
+ * @param <T> Type of the partials.
+ */
+@Internal
+public final class ChannelGroupingCollector<T> implements Collector<T> {
+
+	private final StreamPartitioner<T> partitioner;
+	/** Copies the partials, null if the function does not reuse its output record. */
+	@Nullable
+	private final TypeSerializer<T> serializer;
+	private final StreamRecord<T> reuse = new StreamRecord<>(null);
+	private final SerializationDelegate<StreamRecord<T>> delegate = new SerializationDelegate<>(null);
+	private final List<List<T>> channels;
+
+	/**
+	 * @param serializer copies the partials, null if the function does not reuse its output record
+	 */
+	public ChannelGroupingCollector(
+			StreamPartitioner<T> partitioner,
+			int numberOfChannels,
+			@Nullable TypeSerializer<T> serializer) {
+		checkArgument(numberOfChannels > 0, "The number of channels must be positive.");
+		this.partitioner = partitioner.copy();
+		this.partitioner.setup(numberOfChannels);
+		this.serializer = serializer;
+		this.delegate.setInstance(reuse);
+		this.channels = new ArrayList<>(numberOfChannels);
+		for (int i = 0; i < numberOfChannels; i++) {
+			this.channels.add(new ArrayList<>());
+		}
+	}
+
+	@Override
+	public void collect(T record) {
+		reuse.replace(record);
+		channels.get(partitioner.selectChannel(delegate)).add(serializer == null ? record : serializer.copy(record));
+	}
+
+	/**
+	 * Emits the collected partials to the given collector, channel by channel, and clears them.
+	 */
+	public void emit(Collector<T> out) {
+		for (List<T> channel : channels) {
+			for (T record : channel) {
+				out.collect(record);
+			}
+			channel.clear();
+		}
+	}
+
+	/**
+	 * Emits the collected partials with the channel they were grouped by to the given output,
+	 * channel by channel, and clears them.
+	 */
+	public void emit(ChannelOutput<T> out) {
+		for (int i = 0; i < channels.size(); i++) {
+			final List<T> channel = channels.get(i);
+			for (T record : channel) {
+				out.collect(record, i);
+			}
+			channel.clear();
+		}
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Output of the partials together with their channel.
+	 *
+	 * @param <T> Type of the partials.
+	 */
+	@FunctionalInterface
+	public interface ChannelOutput<T> {
+
+		void collect(T record, int channel);
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.annotation.Internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Tells the heavy hitters of a bundle, which are worth buffering, from the cold keys with the
+ * Space-Saving algorithm of Metwally et al. It tracks at most {@code capacity} keys. When a new
+ * key arrives and all counters are taken, the key replaces the key with the smallest count and
+ * inherits that count as the error of its estimate.
+ *
+ * <p>A key is a heavy hitter once its guaranteed count, i.e. its count minus the inherited error,
+ * reaches the minimum frequency. The guaranteed count never over-estimates, so a cold key is never
+ * taken for a heavy hitter, however many distinct keys arrive in an interval. A key that makes
+ * more than 1 / capacity of the elements of an interval is never replaced and is detected.
+ *
+ * <p>The memory of the sketch is fixed and allocated once. It is cleared, not reallocated, when
+ * it is reset.
+ */
+@Internal
+public final class HeavyHitterSketch {
+
+	/** The guaranteed number of occurrences of a heavy hitter since the last reset. */
+	private final int minFrequency;
+	private final int capacity;
+
+	/** The counter of each tracked key. */
+	private final Map<Object, Integer> counters;
+	private final Integer[] counterIds;
+	private final Object[] keys;
+	private final long[] counts;
+	private final long[] errors;
+	/** A min-heap of the counters by their count and the position of each counter in the heap. */
+	private final int[] heap;
+	private final int[] heapPositions;
+	private int size;
+
+	public HeavyHitterSketch(int minFrequency, int capacity) {
+		checkArgument(minFrequency > 1, "The minimum frequency of a heavy hitter must be greater than 1.");
+		checkArgument(capacity > 0, "The capacity of the heavy hitter sketch must be positive.");
+		this.minFrequency = minFrequency;
+		this.capacity = capacity;
+		this.counters = new HashMap<>(capacity * 4 / 3 + 1);
+		this.counterIds = new Integer[capacity];
+		for (int i = 0; i < capacity; i++) {
+			counterIds[i] = i;
+		}
+		this.keys = new Object[capacity];
+		this.counts = new long[capacity];
+		this.errors = new long[capacity];
+		this.heap = new int[capacity];
+		this.heapPositions = new int[capacity];
+	}
+
+	/**
+	 * Counts an occurrence of the given key and returns whether it is a heavy hitter.
+	 */
+	public boolean addAndTest(Object key) {
+		final Integer counter = counters.get(key);
+		final int id;
+		if (counter != null) {
+			id = counter;
+			counts[id]++;
+			siftDown(heapPositions[id]);
+		} else if (size < capacity) {
+			id = size++;
+			keys[id] = key;
+			counts[id] = 1;
+			errors[id] = 0;
+			heap[id] = id;
+			heapPositions[id] = id;
+			counters.put(key, counterIds[id]);
+			siftUp(id);
+		} else {
+			// the key replaces the key with the smallest count
+			id = heap[0];
+			counters.remove(keys[id]);
+			keys[id] = key;
+			errors[id] = counts[id];
+			counts[id]++;
+			counters.put(key, counterIds[id]);
+			siftDown(0);
+		}
+		return counts[id] - errors[id] >= minFrequency;
+	}
+
+	/**
+	 * Forgets all occurrences, e.g. when the bundle is flushed.
+	 */
+	public void reset() {
+		counters.clear();
+		Arrays.fill(keys, 0, size, null);
+		size = 0;
+	}
+
+	private void siftUp(int position) {
+		final int id = heap[position];
+		while (position > 0) {
+			final int parent = (position - 1) / 2;
+			if (counts[heap[parent]] <= counts[id]) {
+				break;
+			}
+			moveTo(heap[parent], position);
+			position = parent;
+		}
+		moveTo(id, position);
+	}
+
+	private void siftDown(int position) {
+		final int id = heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+				child++;
+			}
+			if (counts[id] <= counts[heap[child]]) {
+				break;
+			}
+			moveTo(heap[child], position);
+			position = child;
+		}
+		moveTo(id, position);
+	}
+
+	private void moveTo(int id, int position) {
+		heap[position] = id;
+		heapPositions[id] = position;
+	}
+}
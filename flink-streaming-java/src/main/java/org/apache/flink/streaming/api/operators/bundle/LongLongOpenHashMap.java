@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.util.MathUtils;
+
+/**
+ * An open addressing hash map with primitive long keys and long values, used as the bundle of
+ * the primitive-specialized pre-aggregate functions. Other primitive keys and values are widened
+ * or stored as their raw long bits by the caller.
+ *
+ * <p>Slots are probed linearly. The occupied slots are also kept in insertion order, so that
+ * iterating and clearing the map only visit the keys in the bundle, and the arrays are kept at
+ * their peak size across bundles. Besides growing, no method allocates memory.
+ */
+@Internal
+public final class LongLongOpenHashMap {
+
+	private static final double LOAD_FACTOR = 0.5;
+
+	private long[] keys;
+	private long[] values;
+	private boolean[] occupied;
+	/** The occupied slots in insertion order, the first {@link #size} are valid. */
+	private int[] slots;
+	private int mask;
+	private int size;
+	private int resizeThreshold;
+
+	public LongLongOpenHashMap(int expectedSize) {
+		allocate(MathUtils.roundUpToPowerOfTwo(Math.max(16, (int) (expectedSize / LOAD_FACTOR))));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the slot of the given key, inserting the key with the given value if it is absent.
+	 */
+	public int findOrInsert(long key, long initialValue) {
+		int slot = find(key);
+		if (slot >= 0) {
+			return slot;
+		}
+		if (size >= resizeThreshold) {
+			grow();
+		}
+		slot = -(find(key) + 1);
+		keys[slot] = key;
+		values[slot] = initialValue;
+		occupied[slot] = true;
+		slots[size++] = slot;
+		return slot;
+	}
+
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Returns the slot of the given key, or {@code -(insertion slot + 1)} if it is absent.
+	 */
+	private int find(long key) {
+		int slot = MathUtils.murmurHash(Long.hashCode(key)) & mask;
+		while (occupied[slot]) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -(slot + 1);
+	}
+
+	/**
+	 * Returns the slot of the i-th key in insertion order.
+	 */
+	public int slotAt(int i) {
+		return slots[i];
+	}
+
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	public long valueAt(int slot) {
+		return values[slot];
+	}
+
+	public void setValueAt(int slot, long value) {
+		values[slot] = value;
+	}
+
+	/**
+	 * Removes all entries but keeps the arrays to be reused.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			occupied[slots[i]] = false;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of bytes of the arrays of this map.
+	 */
+	public long getMemoryBytes() {
+		return keys.length * 21L;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new long[capacity];
+		occupied = new boolean[capacity];
+		slots = new int[capacity];
+		mask = capacity - 1;
+		resizeThreshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		int[] oldSlots = slots;
+		int oldSize = size;
+		allocate(keys.length * 2);
+		size = 0;
+		for (int i = 0; i < oldSize; i++) {
+			int oldSlot = oldSlots[i];
+			int slot = -(find(oldKeys[oldSlot]) + 1);
+			keys[slot] = oldKeys[oldSlot];
+			values[slot] = oldValues[oldSlot];
+			occupied[slot] = true;
+			slots[size++] = slot;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.IntLongPreAggregateFunction;
+import org.apache.flink.api.common.functions.LongDoublePreAggregateFunction;
+import org.apache.flink.api.common.functions.LongLongPreAggregateFunction;
+import org.apache.flink.api.common.functions.PreAggregateFunction;
+import org.apache.flink.util.Collector;
+
+import javax.annotation.Nullable;
+
+import java.util.function.BiConsumer;
+
+/**
+ * The bundle of a primitive-specialized {@link PreAggregateFunction}. It keeps the keys and
+ * values in a {@link LongLongOpenHashMap}, so that adding an element does not allocate memory.
+ *
+ * @param <IN> Type of the input elements.
+ * @param <OUT> Type of the output elements.
+ */
+@Internal
+public abstract class PrimitiveBundle<IN, OUT> {
+
+	private static final int INITIAL_SIZE = 1024;
+
+	protected final LongLongOpenHashMap map = new LongLongOpenHashMap(INITIAL_SIZE);
+
+	/**
+	 * Returns the bundle for the given function, or null if the function is not specialized.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public static <IN, OUT> PrimitiveBundle<IN, OUT> of(PreAggregateFunction<?, ?, IN, OUT> function) {
+		if (function instanceof LongLongPreAggregateFunction) {
+			return new LongLongBundle<>((LongLongPreAggregateFunction<IN, OUT>) function);
+		} else if (function instanceof IntLongPreAggregateFunction) {
+			return new IntLongBundle<>((IntLongPreAggregateFunction<IN, OUT>) function);
+		} else if (function instanceof LongDoublePreAggregateFunction) {
+			return new LongDoubleBundle<>((LongDoublePreAggregateFunction<IN, OUT>) function);
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the given input to the bundle.
+	 */
+	public abstract void addInput(IN input) throws Exception;
+
+	/**
+	 * Transforms all entries of the bundle to output elements and clears the bundle.
+	 */
+	public void collect(Collector<OUT> out) throws Exception {
+		for (int i = 0; i < map.size(); i++) {
+			collect(map.slotAt(i), out);
+		}
+		map.clear();
+	}
+
+	/**
+	 * Transforms at most {@code maxEntries} entries of the bundle, starting at the given position
+	 * in insertion order, to output elements without clearing the bundle.
+	 *
+	 * @return the position of the next entry, which is the size of the bundle after the last entry.
+	 */
+	public int collect(int position, int maxEntries, Collector<OUT> out) throws Exception {
+		int end = (int) Math.min(map.size(), (long) position + maxEntries);
+		for (int i = position; i < end; i++) {
+			collect(map.slotAt(i), out);
+		}
+		return end;
+	}
+
+	protected abstract void collect(int slot, Collector<OUT> out) throws Exception;
+
+	/**
+	 * Passes the boxed key and value of every entry of the bundle to the given consumer.
+	 */
+	public void forEach(BiConsumer<Object, Object> consumer) {
+		for (int i = 0; i < map.size(); i++) {
+			int slot = map.slotAt(i);
+			consumer.accept(boxedKeyAt(slot), boxedValueAt(slot));
+		}
+	}
+
+	/**
+	 * Puts the given boxed key and value into the bundle, e.g. when restoring it.
+	 *
+	 * @return false if the key is already in the bundle, in which case the bundle is not changed.
+	 */
+	public boolean tryPut(Object key, Object value) {
+		long primitiveKey = ((Number) key).longValue();
+		if (map.containsKey(primitiveKey)) {
+			return false;
+		}
+		map.findOrInsert(primitiveKey, unboxValue(value));
+		return true;
+	}
+
+	protected Object boxedKeyAt(int slot) {
+		return map.keyAt(slot);
+	}
+
+	protected Object boxedValueAt(int slot) {
+		return map.valueAt(slot);
+	}
+
+	protected long unboxValue(Object value) {
+		return (Long) value;
+	}
+
+	public int size() {
+		return map.size();
+	}
+
+	public void clear() {
+		map.clear();
+	}
+
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	public long getMemoryBytes() {
+		return map.getMemoryBytes();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static final class LongLongBundle<IN, OUT> extends PrimitiveBundle<IN, OUT> {
+
+		private final LongLongPreAggregateFunction<IN, OUT> function;
+
+		LongLongBundle(LongLongPreAggregateFunction<IN, OUT> function) {
+			this.function = function;
+		}
+
+		@Override
+		public void addInput(IN input) throws Exception {
+			int slot = map.findOrInsert(function.getKey(input), function.initialValue());
+			map.setValueAt(slot, function.add(map.valueAt(slot), input));
+		}
+
+		@Override
+		protected void collect(int slot, Collector<OUT> out) throws Exception {
+			function.collect(map.keyAt(slot), map.valueAt(slot), out);
+		}
+	}
+
+	private static final class IntLongBundle<IN, OUT> extends PrimitiveBundle<IN, OUT> {
+
+		private final IntLongPreAggregateFunction<IN, OUT> function;
+
+		IntLongBundle(IntLongPreAggregateFunction<IN, OUT> function) {
+			this.function = function;
+		}
+
+		@Override
+		public void addInput(IN input) throws Exception {
+			int slot = map.findOrInsert(function.getKey(input), function.initialValue());
+			map.setValueAt(slot, function.add(map.valueAt(slot), input));
+		}
+
+		@Override
+		protected void collect(int slot, Collector<OUT> out) throws Exception {
+			function.collect((int) map.keyAt(slot), map.valueAt(slot), out);
+		}
+
+		@Override
+		protected Object boxedKeyAt(int slot) {
+			return (int) map.keyAt(slot);
+		}
+	}
+
+	private static final class LongDoubleBundle<IN, OUT> extends PrimitiveBundle<IN, OUT> {
+
+		private final LongDoublePreAggregateFunction<IN, OUT> function;
+
+		LongDoubleBundle(LongDoublePreAggregateFunction<IN, OUT> function) {
+			this.function = function;
+		}
+
+		@Override
+		public void addInput(IN input) throws Exception {
+			int slot = map.findOrInsert(
+				function.getKey(input), Double.doubleToRawLongBits(function.initialValue()));
+			double value = Double.longBitsToDouble(map.valueAt(slot));
+			map.setValueAt(slot, Double.doubleToRawLongBits(function.add(value, input)));
+		}
+
+		@Override
+		protected void collect(int slot, Collector<OUT> out) throws Exception {
+			function.collect(map.keyAt(slot), Double.longBitsToDouble(map.valueAt(slot)), out);
+		}
+
+		@Override
+		protected Object boxedValueAt(int slot) {
+			return Double.longBitsToDouble(map.valueAt(slot));
+		}
+
+		@Override
+		protected long unboxValue(Object value) {
+			return Double.doubleToRawLongBits((Double) value);
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.functions.PreAggregateValueMerger;
+
+import javax.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * The bundle that the co-located subtasks of a pre-aggregate operator share in a TaskManager. The
+ * subtasks merge the partials of their flushes into it instead of emitting them, so that a key is
+ * emitted once per TaskManager and interval instead of once per subtask. Since the partials are
+ * partitioned by key downstream, any subtask may emit the partials of any key.
+ *
+ * <p>Each contribution belongs to the checkpoint epoch of its member, i.e. the last checkpoint whose
+ * barrier the member has passed, and is only emitted by a member in the same epoch. A contribution
+ * therefore precedes the next barrier of its member downstream as well, and the members take the
+ * contributions of their epoch before their barrier, see {@link #take(long)}. Members in different
+ * epochs, e.g. while a barrier passes the subtasks one after another, do not merge their partials.
+ *
+ * <p>The contributions of an epoch are emitted by the member that contributes last since their
+ * previous emission, or by the first member that contributes a full interval after the oldest
+ * contribution, so that a slow or idle member does not hold back the partials of the others.
+ *
+ * <p>The bundles are registered in the JVM of the TaskManager by an identifier of the job and the
+ * operator, and removed when their last member leaves.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+@Internal
+public final class SharedBundle<K, V> {
+
+	/** The shared bundles by their identifier, guarded by itself. */
+	private static final Map<String, SharedBundle<?, ?>> BUNDLES = new HashMap<>();
+
+	private final String id;
+
+	/** The members that have joined the bundle and not left it yet. */
+	private final Set<Object> members = new HashSet<>();
+
+	/** The contributions that have not been emitted yet by their checkpoint epoch. */
+	private final Map<Long, Contributions<K, V>> contributions = new HashMap<>();
+
+	private SharedBundle(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * Adds the given member to the shared bundle of the given identifier, which is created if it
+	 * does not exist yet.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> SharedBundle<K, V> join(String id, Object member) {
+		checkNotNull(member, "member is null");
+		synchronized (BUNDLES) {
+			SharedBundle<K, V> bundle = (SharedBundle<K, V>) BUNDLES.computeIfAbsent(id, SharedBundle::new);
+			synchronized (bundle) {
+				checkState(bundle.members.add(member), "The member has already joined the shared bundle %s.", id);
+			}
+			return bundle;
+		}
+	}
+
+	/**
+	 * Removes the given member from the shared bundle. The bundle is discarded when its last member
+	 * leaves, the remaining contributions of a member are expected to be taken before, see
+	 * {@link #take(long)}.
+	 */
+	public void leave(Object member) {
+		synchronized (BUNDLES) {
+			synchronized (this) {
+				members.remove(member);
+				for (Contributions<K, V> epochContributions : contributions.values()) {
+					epochContributions.contributors.remove(member);
+				}
+				if (members.isEmpty()) {
+					BUNDLES.remove(id, this);
+					contributions.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merges the given partials of a member into the contributions of its checkpoint epoch. The map
+	 * is not modified, but its values then belong to the shared bundle and must not be used by the
+	 * member anymore.
+	 *
+	 * @param checkpointEpoch the id of the last checkpoint whose barrier the member has passed
+	 * @param merger the merger of the member, which merges the values of the member into the ones of
+	 *     the shared bundle
+	 * @param now the current processing time of the member
+	 * @param maxDelayMs the time after the oldest contribution from which the contributions are
+	 *     emitted even if not all members have contributed
+	 * @return the entries to emit by the member before its next barrier, which then belong to it, or
+	 *     null if they are emitted by another member
+	 */
+	@Nullable
+	public synchronized Map<K, V> contribute(
+		Object member,
+		long checkpointEpoch,
+		Map<K, V> partials,
+		PreAggregateValueMerger<V> merger,
+		long now,
+		long maxDelayMs) throws Exception {
+		checkState(members.contains(member), "The member has not joined the shared bundle %s.", id);
+		Contributions<K, V> epochContributions = contributions.computeIfAbsent(checkpointEpoch, epoch -> new Contributions<>());
+		for (Map.Entry<K, V> partial : partials.entrySet()) {
+			V value = epochContributions.entries.get(partial.getKey());
+			epochContributions.entries.put(
+				partial.getKey(), value == null ? partial.getValue() : merger.merge(value, partial.getValue()));
+		}
+		if (!partials.isEmpty() && epochContributions.firstContributionTime < 0) {
+			epochContributions.firstContributionTime = now;
+		}
+		epochContributions.contributors.add(member);
+		if (epochContributions.contributors.containsAll(members)
+			|| (epochContributions.firstContributionTime >= 0 && now - epochContributions.firstContributionTime >= maxDelayMs)) {
+			return take(checkpointEpoch);
+		}
+		return null;
+	}
+
+	/**
+	 * Takes the contributions of the given checkpoint epoch, e.g. to emit them before the checkpoint
+	 * barrier of a member in this epoch or when it closes.
+	 *
+	 * @return the entries to emit, which then belong to the caller
+	 */
+	public synchronized Map<K, V> take(long checkpointEpoch) {
+		Contributions<K, V> epochContributions = contributions.remove(checkpointEpoch);
+		return epochContributions == null ? new HashMap<>() : epochContributions.entries;
+	}
+
+	public synchronized int getNumberOfMembers() {
+		return members.size();
+	}
+
+	@VisibleForTesting
+	static boolean isRegistered(String id) {
+		synchronized (BUNDLES) {
+			return BUNDLES.containsKey(id);
+		}
+	}
+
+	/**
+	 * The merged partials of the members in one checkpoint epoch.
+	 */
+	private static final class Contributions<K, V> {
+
+		private final Map<K, V> entries = new HashMap<>();
+
+		/** The members that have contributed since the last emission. */
+		private final Set<Object> contributors = new HashSet<>();
+
+		/** The processing time of the oldest contribution since the last emission, or -1. */
+		private long firstContributionTime = -1;
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle.trigger;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+/**
+ * A {@link BundleTrigger} that fires once all of the given triggers fired since the bundle was
+ * last flushed, e.g. to flush the bundle only when it holds enough keys and is old enough.
+ */
+@PublicEvolving
+public class AllBundleTrigger<T> extends CompositeBundleTrigger<T> {
+
+	private static final long serialVersionUID = 1L;
+
+	@SafeVarargs
+	public AllBundleTrigger(BundleTrigger<T>... triggers) {
+		super(triggers);
+	}
+
+	@Override
+	boolean shouldFinish(boolean[] fired) {
+		for (boolean f : fired) {
+			if (!f) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	String name() {
+		return "AllBundleTrigger";
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle.trigger;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+/**
+ * A {@link BundleTrigger} that fires as soon as any of the given triggers fires, e.g. to flush
+ * the bundle when it holds too many keys or when it is estimated too large.
+ */
+@PublicEvolving
+public class AnyBundleTrigger<T> extends CompositeBundleTrigger<T> {
+
+	private static final long serialVersionUID = 1L;
+
+	@SafeVarargs
+	public AnyBundleTrigger(BundleTrigger<T>... triggers) {
+		super(triggers);
+	}
+
+	@Override
+	boolean shouldFinish(boolean[] fired) {
+		for (boolean f : fired) {
+			if (f) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	String name() {
+		return "AnyBundleTrigger";
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle.trigger;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+import java.io.Serializable;
+
+/**
+ * A {@link BundleTrigger} determines when the bundle of a PreAggregate operator should be
+ * flushed downstream before its processing-time timer fires, and triggers the callback which
+ * registered previously. This mirrors the bundle triggers of the table runtime, but every
+ * element is evaluated against a {@link Context} that describes the current bundle, so that
+ * triggers can bound the bundle by its number of keys, its estimated size or its age.
+ *
+ * @param <T> The input element type.
+ */
+@PublicEvolving
+public interface BundleTrigger<T> extends Serializable {
+
+	/**
+	 * Register a callback which will be called once this trigger decides to finish this bundle.
+	 */
+	void registerCallback(BundleTriggerCallback callback);
+
+	/**
+	 * Called for every element after it was added to the bundle. If the trigger decides to
+	 * flush the bundle, {@link BundleTriggerCallback#finishBundle()} should be invoked.
+	 *
+	 * @param element The element that arrived.
+	 * @param ctx The context describing the bundle that contains the element.
+	 */
+	void onElement(final T element, final Context ctx) throws Exception;
+
+	/**
+	 * Reset the trigger to its initiate status. Called whenever the bundle was flushed,
+	 * either by this trigger or by the processing-time timer of the operator.
+	 */
+	void reset();
+
+	String explain();
+
+	/**
+	 * A context object that gives access to the state of the bundle of the operator.
+	 */
+	interface Context {
+
+		/**
+		 * Returns the number of distinct keys in the bundle.
+		 */
+		long getNumberOfKeys();
+
+		/**
+		 * Returns the estimated size in bytes of the bundle.
+		 */
+		long getEstimatedBytes();
+
+		/**
+		 * Returns the current processing time of the operator.
+		 */
+		long getCurrentProcessingTime();
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle.trigger;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.util.Preconditions;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Base class for {@link BundleTrigger BundleTriggers} that combine several triggers. The
+ * combined triggers do not flush the bundle themselves, instead this trigger records which of
+ * them fired since the last reset and decides whether the bundle must be flushed.
+ */
+@Internal
+abstract class CompositeBundleTrigger<T> implements BundleTrigger<T> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final BundleTrigger<T>[] triggers;
+	private transient BundleTriggerCallback callback;
+	private transient boolean[] fired;
+
+	@SafeVarargs
+	CompositeBundleTrigger(BundleTrigger<T>... triggers) {
+		Preconditions.checkArgument(triggers != null && triggers.length > 0, "triggers must not be empty");
+		for (BundleTrigger<T> trigger : triggers) {
+			Preconditions.checkNotNull(trigger, "trigger is null");
+		}
+		this.triggers = triggers;
+	}
+
+	/**
+	 * Decides whether the bundle must be flushed given which of the combined triggers fired.
+	 */
+	abstract boolean shouldFinish(boolean[] fired);
+
+	abstract String name();
+
+	@Override
+	public void registerCallback(BundleTriggerCallback callback) {
+		this.callback = Preconditions.checkNotNull(callback, "callback is null");
+		this.fired = new boolean[triggers.length];
+		for (int i = 0; i < triggers.length; i++) {
+			final int index = i;
+			triggers[i].registerCallback(() -> fired[index] = true);
+		}
+	}
+
+	@Override
+	public void onElement(T element, Context ctx) throws Exception {
+		for (BundleTrigger<T> trigger : triggers) {
+			trigger.onElement(element, ctx);
+		}
+		if (shouldFinish(fired)) {
+			callback.finishBundle();
+		}
+	}
+
+	@Override
+	public void reset() {
+		Arrays.fill(fired, false);
+		for (BundleTrigger<T> trigger : triggers) {
+			trigger.reset();
+		}
+	}
+
+	@Override
+	public String explain() {
+		return Arrays.stream(triggers)
+			.map(BundleTrigger::explain)
+			.collect(Collectors.joining(", ", name() + "(", ")"));
+	}
+}
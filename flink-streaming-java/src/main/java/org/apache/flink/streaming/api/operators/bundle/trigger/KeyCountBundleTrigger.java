@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle.trigger;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.util.Preconditions;
+
+/**
+ * A {@link BundleTrigger} that fires once the number of distinct keys in the bundle reaches the
+ * given threshold.
+ */
+@PublicEvolving
+public class KeyCountBundleTrigger<T> implements BundleTrigger<T> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long maxKeys;
+	private transient BundleTriggerCallback callback;
+
+	public KeyCountBundleTrigger(long maxKeys) {
+		Preconditions.checkArgument(maxKeys > 0, "maxKeys must be greater than 0");
+		this.maxKeys = maxKeys;
+	}
+
+	@Override
+	public void registerCallback(BundleTriggerCallback callback) {
+		this.callback = Preconditions.checkNotNull(callback, "callback is null");
+	}
+
+	@Override
+	public void onElement(T element, Context ctx) throws Exception {
+		if (ctx.getNumberOfKeys() >= maxKeys) {
+			callback.finishBundle();
+		}
+	}
+
+	@Override
+	public void reset() {
+	}
+
+	@Override
+	public String explain() {
+		return "KeyCountBundleTrigger with " + maxKeys + " keys";
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle.trigger;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.util.Preconditions;
+
+/**
+ * A {@link BundleTrigger} that fires once the first element of the bundle is older than the
+ * given delay. The age is measured in the processing time of the operator when elements arrive,
+ * so in contrast to the processing-time timer of the operator it is mostly useful in
+ * combination with other triggers, see {@link AllBundleTrigger}.
+ */
+@PublicEvolving
+public class TimeBundleTrigger<T> implements BundleTrigger<T> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long maxDelayMs;
+	private transient BundleTriggerCallback callback;
+	private transient long bundleStartTime;
+	private transient boolean started;
+
+	public TimeBundleTrigger(long maxDelayMs) {
+		Preconditions.checkArgument(maxDelayMs >= 0, "maxDelayMs must not be negative");
+		this.maxDelayMs = maxDelayMs;
+	}
+
+	@Override
+	public void registerCallback(BundleTriggerCallback callback) {
+		this.callback = Preconditions.checkNotNull(callback, "callback is null");
+		reset();
+	}
+
+	@Override
+	public void onElement(T element, Context ctx) throws Exception {
+		long now = ctx.getCurrentProcessingTime();
+		if (!started) {
+			bundleStartTime = now;
+			started = true;
+		}
+		if (now - bundleStartTime >= maxDelayMs) {
+			callback.finishBundle();
+		}
+	}
+
+	@Override
+	public void reset() {
+		started = false;
+	}
+
+	@Override
+	public String explain() {
+		return "TimeBundleTrigger with " + maxDelayMs + " ms";
+	}
+}
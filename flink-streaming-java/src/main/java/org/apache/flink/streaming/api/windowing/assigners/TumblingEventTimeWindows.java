@@ -80,6 +80,18 @@ public class TumblingEventTimeWindows extends WindowAssigner<Object, TimeWindow>
 		}
 	}
 
+	public long getSize() {
+		return size;
+	}
+
+	public long getOffset() {
+		return globalOffset;
+	}
+
+	public WindowStagger getWindowStagger() {
+		return windowStagger;
+	}
+
 	@Override
 	public Trigger<Object, TimeWindow> getDefaultTrigger(StreamExecutionEnvironment env) {
 		return EventTimeTrigger.create();
@@ -96,6 +96,25 @@ public class RecordWriterOutput<OUT> implements WatermarkGaugeExposingOutput<Str
 		}
 	}
 
+	/**
+	 * Emits the record to the given channel, without selecting its channel again.
+	 */
+	public void collect(StreamRecord<OUT> record, int targetChannel) {
+		if (this.outputTag != null) {
+			// we are not responsible for emitting to the main output.
+			return;
+		}
+
+		serializationDelegate.setInstance(record);
+
+		try {
+			recordWriter.emit(serializationDelegate, targetChannel);
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
 	private <X> void pushToRecordWriter(StreamRecord<X> record) {
 		serializationDelegate.setInstance(record);
 
@@ -304,6 +304,24 @@ public class WindowOperatorBuilder<T, K, W extends Window> {
 			")";
 	}
 
+	public WindowAssigner<? super T, W> getWindowAssigner() {
+		return windowAssigner;
+	}
+
+	public Trigger<? super T, ? super W> getTrigger() {
+		return trigger;
+	}
+
+	@Nullable
+	public Evictor<? super T, ? super W> getEvictor() {
+		return evictor;
+	}
+
+	@Nullable
+	public OutputTag<T> getLateDataOutputTag() {
+		return lateDataOutputTag;
+	}
+
 	@VisibleForTesting
 	public long getAllowedLateness() {
 		return allowedLateness;
@@ -62,10 +62,13 @@ import org.apache.flink.streaming.api.functions.sink.SinkFunction;
 import org.apache.flink.streaming.api.functions.windowing.AllWindowFunction;
 import org.apache.flink.streaming.api.graph.StreamEdge;
 import org.apache.flink.streaming.api.graph.StreamGraph;
+import org.apache.flink.streaming.api.graph.StreamNode;
 import org.apache.flink.streaming.api.operators.AbstractUdfStreamOperator;
 import org.apache.flink.streaming.api.operators.KeyedProcessOperator;
 import org.apache.flink.streaming.api.operators.LegacyKeyedProcessOperator;
+import org.apache.flink.streaming.api.operators.PreAggregateOperatorFactory;
 import org.apache.flink.streaming.api.operators.ProcessOperator;
+import org.apache.flink.streaming.api.operators.StreamGroupedReduce;
 import org.apache.flink.streaming.api.operators.StreamOperator;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.api.windowing.assigners.GlobalWindows;
@@ -802,6 +805,93 @@ public class DataStreamTest extends TestLogger {
 		assertTrue(getOperatorForDataStream(processed) instanceof KeyedProcessOperator);
 	}
 
+	/**
+	 * Verify that a {@link KeyedStream#adaptiveReduce(ReduceFunction)} call is translated to a
+	 * pre-aggregation before the shuffle and a keyed reduce after it.
+	 */
+	@Test
+	public void testKeyedStreamAdaptiveReduceTranslation() {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+		DataStreamSource<Long> src = env.generateSequence(0, 0);
+
+		ReduceFunction<Long> reducer = new ReduceFunction<Long>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Long reduce(Long value1, Long value2) {
+				return value1 + value2;
+			}
+		};
+
+		DataStream<Long> reduced = src
+				.keyBy(new IdentityKeySelector<Long>())
+				.adaptiveReduce(reducer, 100);
+
+		reduced.addSink(new DiscardingSink<Long>());
+
+		StreamGraph streamGraph = getStreamGraph(env);
+		StreamNode reduceNode = streamGraph.getStreamNode(reduced.getId());
+		assertTrue(reduceNode.getOperator() instanceof StreamGroupedReduce);
+		assertEquals(reducer, getFunctionForDataStream(reduced));
+
+		StreamEdge shuffle = reduceNode.getInEdges().get(0);
+		assertTrue(shuffle.getPartitioner() instanceof KeyGroupStreamPartitioner);
+		StreamNode preAggregateNode = streamGraph.getStreamNode(shuffle.getSourceId());
+		assertTrue(preAggregateNode.getOperatorFactory() instanceof PreAggregateOperatorFactory);
+		assertEquals(src.getId(), preAggregateNode.getInEdges().get(0).getSourceId());
+		assertTrue(preAggregateNode.getInEdges().get(0).getPartitioner() instanceof ForwardPartitioner);
+	}
+
+	/**
+	 * Verify that a {@link KeyedStream#adaptiveAggregate(AggregateFunction)} call is translated to
+	 * a pre-aggregation before the shuffle and the merge of the accumulators after it.
+	 */
+	@Test
+	public void testKeyedStreamAdaptiveAggregateTranslation() {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+		DataStreamSource<Long> src = env.generateSequence(0, 0);
+
+		DataStream<String> aggregated = src
+				.keyBy(new IdentityKeySelector<Long>())
+				.adaptiveAggregate(new AggregateFunction<Long, Long, String>() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					public Long createAccumulator() {
+						return 0L;
+					}
+
+					@Override
+					public Long add(Long value, Long accumulator) {
+						return value + accumulator;
+					}
+
+					@Override
+					public String getResult(Long accumulator) {
+						return String.valueOf(accumulator);
+					}
+
+					@Override
+					public Long merge(Long a, Long b) {
+						return a + b;
+					}
+				});
+
+		aggregated.addSink(new DiscardingSink<String>());
+
+		assertEquals(BasicTypeInfo.STRING_TYPE_INFO, aggregated.getType());
+
+		StreamGraph streamGraph = getStreamGraph(env);
+		StreamNode resultNode = streamGraph.getStreamNode(aggregated.getId());
+		StreamNode reduceNode = streamGraph.getStreamNode(resultNode.getInEdges().get(0).getSourceId());
+		assertTrue(reduceNode.getOperator() instanceof StreamGroupedReduce);
+
+		StreamEdge shuffle = reduceNode.getInEdges().get(0);
+		assertTrue(shuffle.getPartitioner() instanceof KeyGroupStreamPartitioner);
+		StreamNode preAggregateNode = streamGraph.getStreamNode(shuffle.getSourceId());
+		assertTrue(preAggregateNode.getOperatorFactory() instanceof PreAggregateOperatorFactory);
+	}
+
 	/**
 	 * Verify that a {@link DataStream#process(ProcessFunction)} call is correctly translated to an operator.
 	 */
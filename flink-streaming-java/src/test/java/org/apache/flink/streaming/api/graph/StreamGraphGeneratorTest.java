@@ -19,16 +19,21 @@
 package org.apache.flink.streaming.api.graph;
 
 import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.eventtime.WatermarkStrategy;
 import org.apache.flink.api.common.operators.ResourceSpec;
 import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.dag.Transformation;
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PreAggregateOptions;
 import org.apache.flink.core.memory.ManagedMemoryUseCase;
 import org.apache.flink.runtime.jobgraph.SavepointRestoreSettings;
+import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.datastream.ConnectedStreams;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.datastream.IterativeStream;
+import org.apache.flink.streaming.api.datastream.KeyedStream;
 import org.apache.flink.streaming.api.datastream.SingleOutputStreamOperator;
 import org.apache.flink.streaming.api.environment.CheckpointConfig;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
@@ -40,6 +45,7 @@ import org.apache.flink.streaming.api.operators.ChainingStrategy;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.api.operators.OutputTypeConfigurable;
+import org.apache.flink.streaming.api.operators.PreAggregateOperatorFactory;
 import org.apache.flink.streaming.api.operators.StreamOperator;
 import org.apache.flink.streaming.api.operators.StreamOperatorFactory;
 import org.apache.flink.streaming.api.operators.StreamOperatorParameters;
@@ -48,7 +54,9 @@ import org.apache.flink.streaming.api.operators.TwoInputStreamOperator;
 import org.apache.flink.streaming.api.transformations.MultipleInputTransformation;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.partitioner.BroadcastPartitioner;
+import org.apache.flink.streaming.runtime.partitioner.ForwardPartitioner;
 import org.apache.flink.streaming.runtime.partitioner.GlobalPartitioner;
+import org.apache.flink.streaming.runtime.partitioner.KeyGroupStreamPartitioner;
 import org.apache.flink.streaming.runtime.partitioner.RebalancePartitioner;
 import org.apache.flink.streaming.runtime.partitioner.ShufflePartitioner;
 import org.apache.flink.streaming.runtime.partitioner.StreamPartitioner;
@@ -70,6 +78,7 @@ import java.util.List;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -498,6 +507,94 @@ public class StreamGraphGeneratorTest extends TestLogger {
 		}
 	}
 
+	/**
+	 * Tests that a pre-aggregation is inserted before the shuffle of a keyed aggregation when
+	 * {@link PreAggregateOptions#AUTO_COMBINE_ENABLED} is set.
+	 */
+	@Test
+	public void testAutoCombineKeyedAggregation() {
+		final Configuration configuration = new Configuration();
+		configuration.set(PreAggregateOptions.AUTO_COMBINE_ENABLED, true);
+		final StreamExecutionEnvironment env = new StreamExecutionEnvironment(configuration);
+		final DataStream<Tuple2<Integer, Integer>> source = env.fromElements(Tuple2.of(1, 1), Tuple2.of(1, 2));
+		final DataStream<Tuple2<Integer, Integer>> sum = source.keyBy(value -> value.f0).sum(1);
+		sum.addSink(new DiscardingSink<>());
+
+		final StreamGraph streamGraph = env.getStreamGraph();
+		final StreamEdge shuffle = streamGraph.getStreamNode(sum.getId()).getInEdges().get(0);
+		assertTrue(shuffle.getPartitioner() instanceof KeyGroupStreamPartitioner);
+
+		final StreamNode preAggregateNode = streamGraph.getStreamNode(shuffle.getSourceId());
+		assertTrue(preAggregateNode.getOperatorFactory() instanceof PreAggregateOperatorFactory);
+		final StreamEdge forward = preAggregateNode.getInEdges().get(0);
+		assertEquals(source.getId(), forward.getSourceId());
+		assertTrue(forward.getPartitioner() instanceof ForwardPartitioner);
+		assertEquals(source.getParallelism(), preAggregateNode.getParallelism());
+		assertEquals(ChainingStrategy.ALWAYS, preAggregateNode.getOperatorFactory().getChainingStrategy());
+		assertTrue(StreamingJobGraphGenerator.isChainable(forward, streamGraph));
+	}
+
+	/**
+	 * Tests that no pre-aggregation is inserted in event-time pipelines, whose timestamps and
+	 * watermarks it would not preserve.
+	 */
+	@Test
+	public void testAutoCombineSkipsEventTime() {
+		final Configuration configuration = new Configuration();
+		configuration.set(PreAggregateOptions.AUTO_COMBINE_ENABLED, true);
+
+		final StreamExecutionEnvironment env = new StreamExecutionEnvironment(configuration);
+		env.fromElements(Tuple2.of(1, 1), Tuple2.of(1, 2))
+			.assignTimestampsAndWatermarks(WatermarkStrategy.<Tuple2<Integer, Integer>>forMonotonousTimestamps()
+				.withTimestampAssigner((value, timestamp) -> value.f1))
+			.keyBy(value -> value.f0)
+			.sum(1)
+			.addSink(new DiscardingSink<>());
+		for (StreamNode streamNode : env.getStreamGraph().getStreamNodes()) {
+			assertFalse(streamNode.getOperatorFactory() instanceof PreAggregateOperatorFactory);
+		}
+
+		final StreamExecutionEnvironment ingestionTimeEnv = new StreamExecutionEnvironment(configuration);
+		ingestionTimeEnv.setStreamTimeCharacteristic(TimeCharacteristic.IngestionTime);
+		ingestionTimeEnv.fromElements(Tuple2.of(1, 1), Tuple2.of(1, 2))
+			.keyBy(value -> value.f0)
+			.sum(1)
+			.addSink(new DiscardingSink<>());
+		for (StreamNode streamNode : ingestionTimeEnv.getStreamGraph().getStreamNodes()) {
+			assertFalse(streamNode.getOperatorFactory() instanceof PreAggregateOperatorFactory);
+		}
+	}
+
+	/**
+	 * Tests that no pre-aggregation is inserted if the option is not set or the partition by key
+	 * has other consumers besides the keyed reduce.
+	 */
+	@Test
+	public void testAutoCombineSkipsSharedPartition() {
+		final StreamExecutionEnvironment defaultEnv = StreamExecutionEnvironment.getExecutionEnvironment();
+		final DataStream<Tuple2<Integer, Integer>> defaultSum = defaultEnv
+			.fromElements(Tuple2.of(1, 1), Tuple2.of(1, 2))
+			.keyBy(value -> value.f0)
+			.sum(1);
+		defaultSum.addSink(new DiscardingSink<>());
+		for (StreamNode streamNode : defaultEnv.getStreamGraph().getStreamNodes()) {
+			assertFalse(streamNode.getOperatorFactory() instanceof PreAggregateOperatorFactory);
+		}
+
+		final Configuration configuration = new Configuration();
+		configuration.set(PreAggregateOptions.AUTO_COMBINE_ENABLED, true);
+		final StreamExecutionEnvironment env = new StreamExecutionEnvironment(configuration);
+		final KeyedStream<Tuple2<Integer, Integer>, Integer> keyed = env
+			.fromElements(Tuple2.of(1, 1), Tuple2.of(1, 2))
+			.keyBy(value -> value.f0);
+		keyed.sum(1).addSink(new DiscardingSink<>());
+		keyed.max(1).addSink(new DiscardingSink<>());
+
+		for (StreamNode streamNode : env.getStreamGraph().getStreamNodes()) {
+			assertFalse(streamNode.getOperatorFactory() instanceof PreAggregateOperatorFactory);
+		}
+	}
+
 	static class OutputTypeConfigurableOperationWithTwoInputs
 			extends AbstractStreamOperator<Integer>
 			implements TwoInputStreamOperator<Integer, Integer, Integer>, OutputTypeConfigurable<Integer> {
@@ -0,0 +1,67 @@
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link PreAggregateEwmaStatistics}.
+ */
+public class PreAggregateEwmaStatisticsTest extends TestLogger {
+
+	@Test
+	public void testFollowsStepWithinFewSamples() {
+		PreAggregateEwmaStatistics statistics = new PreAggregateEwmaStatistics(0.5);
+		assertEquals(0.0, statistics.getMean(), 0.0);
+
+		statistics.update(0);
+		assertEquals(0.0, statistics.getMean(), 0.0);
+		assertEquals(0.0, statistics.getStdDev(), 0.0);
+
+		// a step from 0 to 100 halves the distance with every sample
+		statistics.update(100);
+		assertEquals(50.0, statistics.getMean(), 0.0);
+		statistics.update(100);
+		assertEquals(75.0, statistics.getMean(), 0.0);
+		statistics.update(100);
+		assertEquals(87.5, statistics.getMean(), 0.0);
+		assertEquals(0, statistics.getMin());
+		assertEquals(100, statistics.getMax());
+
+		// the min and max only cover the samples since the last reset
+		statistics.resetWindow();
+		statistics.update(80);
+		assertEquals(80, statistics.getMin());
+		assertEquals(80, statistics.getMax());
+	}
+
+	@Test
+	public void testQuantilesOfWindow() {
+		PreAggregateEwmaStatistics statistics = new PreAggregateEwmaStatistics(0.5);
+		assertEquals(0.0, statistics.getQuantile(0.5), 0.0);
+
+		statistics.update(40);
+		statistics.update(10);
+		statistics.update(30);
+		statistics.update(20);
+		assertEquals(10.0, statistics.getQuantile(0.1), 0.0);
+		assertEquals(25.0, statistics.getQuantile(0.5), 0.0);
+		assertEquals(37.5, statistics.getQuantile(0.75), 0.0);
+		assertEquals(40.0, statistics.getQuantile(0.99), 0.0);
+
+		// the quantiles only cover the samples since the last reset, unlike the mean
+		statistics.resetWindow();
+		assertEquals(0.0, statistics.getQuantile(0.5), 0.0);
+		statistics.update(80);
+		assertEquals(80.0, statistics.getQuantile(0.5), 0.0);
+		assertEquals(80.0, statistics.getQuantile(0.99), 0.0);
+		assertEquals(51.875, statistics.getMean(), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsZeroWeight() {
+		new PreAggregateEwmaStatistics(0.0);
+	}
+}
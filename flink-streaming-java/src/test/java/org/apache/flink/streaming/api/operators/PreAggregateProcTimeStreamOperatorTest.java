@@ -1,10 +1,48 @@
 package org.apache.flink.streaming.api.operators;
 
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.common.functions.LongLongPreAggregateFunction;
 import org.apache.flink.api.common.functions.PreAggregateFunction;
+import org.apache.flink.api.common.functions.PreAggregateValueMerger;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.typeinfo.TypeHint;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
 import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.ManagedMemoryUseCase;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.controller.PreAggregateIntervalEvent;
+import org.apache.flink.runtime.io.network.partition.MockResultPartitionWriter;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.memory.MemoryManager;
+import org.apache.flink.runtime.operators.testutils.MockEnvironment;
+import org.apache.flink.runtime.operators.testutils.MockEnvironmentBuilder;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.streaming.api.functions.aggregation.AccumulatingPreAggregateFunction;
+import org.apache.flink.streaming.api.functions.aggregation.AccumulatorMergingReduceFunction;
+import org.apache.flink.streaming.api.functions.aggregation.AccumulatorResultFunction;
+import org.apache.flink.streaming.api.functions.aggregation.ReducingPreAggregateFunction;
+import org.apache.flink.streaming.api.graph.StreamEdge;
+import org.apache.flink.streaming.api.graph.StreamNode;
+import org.apache.flink.streaming.api.operators.bundle.BundleBypass;
+import org.apache.flink.streaming.api.operators.bundle.trigger.AnyBundleTrigger;
+import org.apache.flink.streaming.api.operators.bundle.trigger.KeyCountBundleTrigger;
+import org.apache.flink.streaming.api.operators.bundle.trigger.MemoryBundleTrigger;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.partitioner.KeyGroupStreamPartitioner;
+import org.apache.flink.streaming.runtime.streamrecord.LatencyMarker;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.tasks.OneInputStreamTask;
+import org.apache.flink.streaming.runtime.tasks.mailbox.Mail;
+import org.apache.flink.streaming.runtime.tasks.mailbox.TaskMailbox;
+import org.apache.flink.streaming.util.AbstractStreamOperatorTestHarness;
 import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.TestHarnessUtil;
 import org.apache.flink.util.Collector;
 
 import org.junit.Test;
@@ -12,10 +50,17 @@ import org.junit.Test;
 import javax.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
 
 public class PreAggregateProcTimeStreamOperatorTest {
 	@Test
@@ -62,6 +107,858 @@ public class PreAggregateProcTimeStreamOperatorTest {
 		}
 	}
 
+	@Test
+	public void testIntervalFromControllerCoordinator() throws Exception {
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new WordCountPreAggregateFunction(), keySelector, 1000, true);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		assertEquals(1000, operator.getIntervalMs());
+
+		operator.handleOperatorEvent(new PreAggregateIntervalEvent(800));
+		assertEquals(800, operator.getIntervalMs());
+
+		// intervals lower than the minimum are not allowed
+		operator.handleOperatorEvent(new PreAggregateIntervalEvent(10));
+		assertEquals(50, operator.getIntervalMs());
+		op.close();
+	}
+
+	@Test
+	public void testFlushOnBundleTrigger() throws Exception {
+		WordCountPreAggregateFunction preAggFunction = new WordCountPreAggregateFunction();
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(preAggFunction, keySelector, 1000, false,
+				new AnyBundleTrigger<>(new KeyCountBundleTrigger<>(2), new MemoryBundleTrigger<>(1024 * 1024)));
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(
+				operator,
+				TypeInformation.of(new TypeHint<Tuple2<String, Integer>>() {}).createSerializer(new ExecutionConfig()));
+
+		op.open();
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		assertEquals(0, preAggFunction.getFinishCount());
+		assertTrue(operator.getEstimatedBundleBytes() > 0);
+
+		// the second key fills the bundle before the processing time fires
+		op.processElement(new StreamRecord<>(new Tuple2<>("k2", 1)));
+		assertEquals(1, preAggFunction.getFinishCount());
+		assertEquals(2, preAggFunction.getOutputs().size());
+		assertEquals(0, operator.getEstimatedBundleBytes());
+
+		// the processing time still flushes bundles that are not full
+		op.processElement(new StreamRecord<>(new Tuple2<>("k3", 1)));
+		op.setProcessingTime(1000);
+		assertEquals(2, preAggFunction.getFinishCount());
+		assertEquals(1, preAggFunction.getOutputs().size());
+		op.close();
+	}
+
+	@Test
+	public void testManagedMemoryBundle() throws Exception {
+		WordCountPreAggregateFunction preAggFunction = new WordCountPreAggregateFunction();
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(preAggFunction, keySelector, 1000, false);
+		operator.setBundleSerializers(StringSerializer.INSTANCE, IntSerializer.INSTANCE);
+		operator.setManagedMemoryBundle(true);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+		op.getStreamConfig().setManagedMemoryFractionOperatorOfUseCase(ManagedMemoryUseCase.BATCH_OP, 1.0);
+
+		op.open();
+		MemoryManager memoryManager = op.getEnvironment().getMemoryManager();
+		// the bundle takes the managed memory of the operator
+		assertTrue(memoryManager.availableMemory() < memoryManager.getMemorySize());
+
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 2)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k2", 1)));
+		assertTrue(operator.getEstimatedBundleBytes() > 0);
+
+		op.setProcessingTime(1000);
+		assertEquals(1, preAggFunction.getFinishCount());
+		assertTrue(preAggFunction.getOutputs().contains(Tuple2.of("k1", 3)));
+		assertTrue(preAggFunction.getOutputs().contains(Tuple2.of("k2", 1)));
+		assertEquals(0, operator.getEstimatedBundleBytes());
+		op.close();
+		assertTrue(memoryManager.verifyEmpty());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testPrimitiveBundle() throws Exception {
+		KeySelector<Tuple2<Long, Long>, Long> keySelector = (KeySelector<Tuple2<Long, Long>, Long>) value -> value.f0;
+
+		PreAggregateProcTimeStreamOperator<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new SumPreAggregateFunction(), keySelector, 1000, false);
+
+		OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		op.processElement(new StreamRecord<>(Tuple2.of(1L, 1L)));
+		op.processElement(new StreamRecord<>(Tuple2.of(2L, 5L)));
+		op.processElement(new StreamRecord<>(Tuple2.of(1L, 2L)));
+		assertTrue(op.getOutput().isEmpty());
+
+		op.setProcessingTime(1000);
+		List<Tuple2<Long, Long>> outputs = new ArrayList<>();
+		for (Object record : op.getOutput()) {
+			// copy the reused output record
+			outputs.add(((StreamRecord<Tuple2<Long, Long>>) record).getValue().copy());
+		}
+		assertEquals(2, outputs.size());
+		assertTrue(outputs.contains(Tuple2.of(1L, 3L)));
+		assertTrue(outputs.contains(Tuple2.of(2L, 5L)));
+		op.close();
+	}
+
+	@Test
+	public void testSnapshotAndRestoreBundle() throws Exception {
+		WordCountPreAggregateFunction preAggFunction = new WordCountPreAggregateFunction();
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			createHarnessWithBundleSerializers(preAggFunction, false);
+
+		op.open();
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 2)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k2", 1)));
+
+		// the bundle is written to the operator state instead of being flushed
+		op.prepareSnapshotPreBarrier(0);
+		OperatorSubtaskState snapshot = op.snapshot(0, 0);
+		assertEquals(0, preAggFunction.getFinishCount());
+		op.close();
+
+		WordCountPreAggregateFunction restoredPreAggFunction = new WordCountPreAggregateFunction();
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> restoredOp =
+			createHarnessWithBundleSerializers(restoredPreAggFunction, false);
+		restoredOp.initializeState(snapshot);
+		restoredOp.open();
+		restoredOp.processElement(new StreamRecord<>(new Tuple2<>("k2", 1)));
+
+		restoredOp.setProcessingTime(1000);
+		assertEquals(1, restoredPreAggFunction.getFinishCount());
+		assertEquals(2, restoredPreAggFunction.getOutputs().size());
+		assertTrue(restoredPreAggFunction.getOutputs().contains(Tuple2.of("k1", 3)));
+		assertTrue(restoredPreAggFunction.getOutputs().contains(Tuple2.of("k2", 2)));
+		restoredOp.close();
+	}
+
+	@Test
+	public void testRestoreBundleWithSameKeyFromSeveralSubtasks() throws Exception {
+		OperatorSubtaskState[] snapshots = new OperatorSubtaskState[2];
+		for (int i = 0; i < snapshots.length; i++) {
+			OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+				createHarnessWithBundleSerializers(new WordCountPreAggregateFunction(), false);
+			op.open();
+			op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+			snapshots[i] = op.snapshot(0, 0);
+			op.close();
+		}
+
+		WordCountPreAggregateFunction preAggFunction = new WordCountPreAggregateFunction();
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			createHarnessWithBundleSerializers(preAggFunction, false);
+		op.initializeState(AbstractStreamOperatorTestHarness.repackageState(snapshots));
+		op.open();
+
+		// partials of the same key cannot be merged, the first one is flushed on restore
+		assertEquals(1, preAggFunction.getFinishCount());
+		op.setProcessingTime(1000);
+		assertEquals(2, preAggFunction.getFinishCount());
+		assertEquals(Collections.singletonList(Tuple2.of("k1", 1)), preAggFunction.getOutputs());
+		op.close();
+	}
+
+	@Test
+	public void testFlushOnCheckpoint() throws Exception {
+		WordCountPreAggregateFunction preAggFunction = new WordCountPreAggregateFunction();
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			createHarnessWithBundleSerializers(preAggFunction, true);
+
+		op.open();
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.prepareSnapshotPreBarrier(0);
+		assertEquals(1, preAggFunction.getFinishCount());
+		OperatorSubtaskState snapshot = op.snapshot(0, 0);
+		op.close();
+
+		// nothing is restored, the bundle was already flushed
+		WordCountPreAggregateFunction restoredPreAggFunction = new WordCountPreAggregateFunction();
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> restoredOp =
+			createHarnessWithBundleSerializers(restoredPreAggFunction, true);
+		restoredOp.initializeState(snapshot);
+		restoredOp.open();
+		restoredOp.setProcessingTime(1000);
+		assertEquals(0, restoredPreAggFunction.getFinishCount());
+		restoredOp.close();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSnapshotAndRestorePrimitiveBundle() throws Exception {
+		KeySelector<Tuple2<Long, Long>, Long> keySelector = (KeySelector<Tuple2<Long, Long>, Long>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new SumPreAggregateFunction(), keySelector, 1000, false);
+		operator.setBundleSerializers(LongSerializer.INSTANCE, LongSerializer.INSTANCE);
+		OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		op.processElement(new StreamRecord<>(Tuple2.of(1L, 1L)));
+		op.processElement(new StreamRecord<>(Tuple2.of(1L, 2L)));
+		OperatorSubtaskState snapshot = op.snapshot(0, 0);
+		assertTrue(op.getOutput().isEmpty());
+		op.close();
+
+		PreAggregateProcTimeStreamOperator<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> restoredOperator =
+			new PreAggregateProcTimeStreamOperator<>(new SumPreAggregateFunction(), keySelector, 1000, false);
+		restoredOperator.setBundleSerializers(LongSerializer.INSTANCE, LongSerializer.INSTANCE);
+		OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> restoredOp =
+			new OneInputStreamOperatorTestHarness<>(restoredOperator);
+		restoredOp.initializeState(snapshot);
+		restoredOp.open();
+		restoredOp.setProcessingTime(1000);
+		assertEquals(1, restoredOp.getOutput().size());
+		assertEquals(Tuple2.of(1L, 3L), ((StreamRecord<Tuple2<Long, Long>>) restoredOp.getOutput().poll()).getValue());
+		restoredOp.close();
+	}
+
+	@Test
+	public void testEventTimePanes() throws Exception {
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new EmittingWordCountPreAggregateFunction(), keySelector, 5, false);
+		operator.setEventTimePaneSize(10);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		op.open();
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1), 1));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 2), 5));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k2", 1), 12));
+		assertTrue(op.getOutput().isEmpty());
+
+		// the first pane is closed, its partials are emitted with the max timestamp of the pane
+		op.processWatermark(new Watermark(9));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("k1", 3), 9));
+		expectedOutput.add(new Watermark(9));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+
+		// late elements are emitted right away
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1), 3));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("k1", 1), 9));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+
+		// the watermark advanced less than the interval, it is held back until the interval timer fires
+		op.processWatermark(new Watermark(12));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+		op.setProcessingTime(1000);
+		expectedOutput.add(new Watermark(12));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+
+		op.processWatermark(new Watermark(19));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("k2", 1), 19));
+		expectedOutput.add(new Watermark(19));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+		op.close();
+	}
+
+	@Test
+	public void testEventTimePanesOfIdleInput() throws Exception {
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new EmittingWordCountPreAggregateFunction(), keySelector, 20, false);
+		operator.setEventTimePaneSize(10);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		op.open();
+		op.processWatermark(new Watermark(9));
+		expectedOutput.add(new Watermark(9));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1), 12));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1), 15));
+		op.processWatermark(new Watermark(21));
+		op.processWatermark(new Watermark(25));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+
+		// the input is idle, the interval timer releases the newest watermark and the pane it closes
+		op.setProcessingTime(20);
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("k1", 2), 19));
+		expectedOutput.add(new Watermark(25));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+
+		// nothing is held back, nothing is forwarded again
+		op.setProcessingTime(40);
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+		op.close();
+	}
+
+	@Test
+	public void testAccumulatingPreAggregateFunction() throws Exception {
+		AverageAggregateFunction averageFunction = new AverageAggregateFunction();
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+		TypeInformation<Tuple2<String, Tuple2<Long, Long>>> partialType =
+			TypeInformation.of(new TypeHint<Tuple2<String, Tuple2<Long, Long>>>() {});
+
+		PreAggregateProcTimeStreamOperator<String, Tuple2<String, Tuple2<Long, Long>>, Tuple2<String, Integer>, Tuple2<String, Tuple2<Long, Long>>> operator =
+			new PreAggregateProcTimeStreamOperator<>(
+				new AccumulatingPreAggregateFunction<>(averageFunction, keySelector), keySelector, 1000, false);
+		operator.setBundleSerializers(StringSerializer.INSTANCE, partialType.createSerializer(new ExecutionConfig()));
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Tuple2<Long, Long>>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 3)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k2", 5)));
+
+		// the accumulators are kept in the operator state with their serializer
+		OperatorSubtaskState snapshot = op.snapshot(0, 0);
+		op.close();
+
+		operator = new PreAggregateProcTimeStreamOperator<>(
+			new AccumulatingPreAggregateFunction<>(averageFunction, keySelector), keySelector, 1000, false);
+		operator.setBundleSerializers(StringSerializer.INSTANCE, partialType.createSerializer(new ExecutionConfig()));
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Tuple2<Long, Long>>> restoredOp =
+			new OneInputStreamOperatorTestHarness<>(operator);
+		restoredOp.initializeState(snapshot);
+		restoredOp.open();
+		restoredOp.processElement(new StreamRecord<>(new Tuple2<>("k2", 7)));
+		restoredOp.setProcessingTime(1000);
+
+		List<Tuple2<String, Tuple2<Long, Long>>> partials = new ArrayList<>();
+		for (Object record : restoredOp.getOutput()) {
+			partials.add(((StreamRecord<Tuple2<String, Tuple2<Long, Long>>>) record).getValue());
+		}
+		assertEquals(2, partials.size());
+		assertTrue(partials.contains(Tuple2.of("k1", Tuple2.of(4L, 2L))));
+		assertTrue(partials.contains(Tuple2.of("k2", Tuple2.of(12L, 2L))));
+		restoredOp.close();
+
+		// the partials are merged after the shuffle
+		Tuple2<String, Tuple2<Long, Long>> merged = new AccumulatorMergingReduceFunction<String, Tuple2<Long, Long>>(averageFunction)
+			.reduce(Tuple2.of("k1", Tuple2.of(4L, 2L)), Tuple2.of("k1", Tuple2.of(8L, 2L)));
+		assertEquals(3.0, new AccumulatorResultFunction<String, Tuple2<Long, Long>, Double>(averageFunction).map(merged));
+	}
+
+	@Test
+	public void testReducingFunctionCopiesReusedInput() throws Exception {
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+		TypeInformation<Tuple2<String, Integer>> type = TypeInformation.of(new TypeHint<Tuple2<String, Integer>>() {});
+		// modifies the first element in place, as reduce functions usually do
+		ReduceFunction<Tuple2<String, Integer>> sum = (value1, value2) -> {
+			value1.f1 += value2.f1;
+			return value1;
+		};
+		PreAggregateProcTimeStreamOperator<String, Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(
+				new ReducingPreAggregateFunction<>(sum, type.createSerializer(new ExecutionConfig())), keySelector, 1000, false);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		// an upstream operator with object reuse emits the same object for every element
+		Tuple2<String, Integer> reused = new Tuple2<>("k1", 1);
+		op.processElement(new StreamRecord<>(reused));
+		reused.f1 = 2;
+		op.processElement(new StreamRecord<>(reused));
+		reused.f0 = "k2";
+		reused.f1 = 5;
+		op.processElement(new StreamRecord<>(reused));
+
+		op.setProcessingTime(1000);
+		assertEquals(
+			new HashSet<>(Arrays.asList(Tuple2.of("k1", 3), Tuple2.of("k2", 5))),
+			new HashSet<>(op.extractOutputValues()));
+		op.close();
+	}
+
+	@Test
+	public void testHeavyHitterBundle() throws Exception {
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new EmittingWordCountPreAggregateFunction(), keySelector, 1000, false);
+		operator.setHeavyHitterMinFrequency(2);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k2", 1)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+
+		// the first occurrences are forwarded until a key is estimated to be a heavy hitter
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+		expectedOutput.add(new StreamRecord<>(Tuple2.of("k1", 1)));
+		expectedOutput.add(new StreamRecord<>(Tuple2.of("k2", 1)));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+
+		op.setProcessingTime(1000);
+		expectedOutput.add(new StreamRecord<>(Tuple2.of("k1", 2)));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+
+		// the frequencies are reset with the bundle
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		expectedOutput.add(new StreamRecord<>(Tuple2.of("k1", 1)));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+		op.close();
+	}
+
+	@Test
+	public void testHeavyHitterBundleForwardsLongTail() throws Exception {
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new EmittingWordCountPreAggregateFunction(), keySelector, 1000, false);
+		operator.setHeavyHitterMinFrequency(3);
+		operator.setHeavyHitterCapacity(64);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		// far more elements of distinct keys in one interval than counters times the minimum frequency
+		int numColdKeys = 20_000;
+		for (int round = 0; round < 2; round++) {
+			for (int i = 0; i < numColdKeys; i++) {
+				op.processElement(new StreamRecord<>(new Tuple2<>("cold-" + i, 1)));
+			}
+		}
+		for (int i = 0; i < 3; i++) {
+			op.processElement(new StreamRecord<>(new Tuple2<>("hot", 1)));
+		}
+
+		// every element of a cold key is forwarded, only the hot key is buffered from its third occurrence
+		assertEquals(2 * numColdKeys + 2, op.getOutput().size());
+		op.setProcessingTime(1000);
+		assertEquals(2 * numColdKeys + 3, op.getOutput().size());
+		assertEquals(Tuple2.of("hot", 1), op.extractOutputValues().get(2 * numColdKeys + 2));
+		op.close();
+	}
+
+	@Test
+	public void testBypassWhenBundleDoesNotReduce() throws Exception {
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new EmittingWordCountPreAggregateFunction(), keySelector, 1000, false);
+		operator.setBypass(0.9, 5000);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+		// every key occurs once per interval, the bundle does not reduce the data
+		for (int i = 1; i <= BundleBypass.NUM_FLUSHES_TO_BYPASS; i++) {
+			assertFalse(operator.isBypassing());
+			op.processElement(new StreamRecord<>(new Tuple2<>("k" + i, 1)));
+			op.setProcessingTime(i * 1000);
+			expectedOutput.add(new StreamRecord<>(Tuple2.of("k" + i, 1)));
+		}
+		assertTrue(operator.isBypassing());
+
+		// the elements are forwarded without buffering them
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		expectedOutput.add(new StreamRecord<>(Tuple2.of("k1", 1)));
+		expectedOutput.add(new StreamRecord<>(Tuple2.of("k1", 1)));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+
+		// the bundle is probed after the probe interval, a single flush without reduction bypasses it again
+		op.setProcessingTime(8000);
+		assertFalse(operator.isBypassing());
+		op.processElement(new StreamRecord<>(new Tuple2<>("k2", 1)));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+		op.setProcessingTime(9000);
+		expectedOutput.add(new StreamRecord<>(Tuple2.of("k2", 1)));
+		assertTrue(operator.isBypassing());
+
+		// the bundle is kept after the next probe because it reduces the data
+		op.setProcessingTime(14000);
+		assertFalse(operator.isBypassing());
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.setProcessingTime(15000);
+		expectedOutput.add(new StreamRecord<>(Tuple2.of("k1", 2)));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, op.getOutput());
+		assertFalse(operator.isBypassing());
+		op.close();
+	}
+
+	@Test
+	public void testLatencySloViolations() throws Exception {
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new WordCountPreAggregateFunction(), keySelector, 1000, false);
+		operator.setLatencySlo(1000, 0.99);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		// the records need 300 ms up to the operator
+		op.setProcessingTime(300);
+		operator.processLatencyMarker(new LatencyMarker(0, new OperatorID(), 0));
+
+		// the oldest element waits 600 ms in the bundle
+		op.setProcessingTime(400);
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.setProcessingTime(1000);
+		assertEquals(0, operator.getLatencySloViolations());
+
+		// the oldest element waits 900 ms in the bundle
+		op.setProcessingTime(1100);
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", 1)));
+		op.setProcessingTime(2000);
+		assertEquals(1, operator.getLatencySloViolations());
+
+		// an empty bundle does not violate the objective
+		op.setProcessingTime(3000);
+		assertEquals(1, operator.getLatencySloViolations());
+		op.close();
+	}
+
+	@Test
+	public void testSlicedFlush() throws Exception {
+		EmittingWordCountPreAggregateFunction preAggFunction = new EmittingWordCountPreAggregateFunction();
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(preAggFunction, keySelector, 1000, false);
+		operator.setFlushSliceSize(2);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		for (int i = 0; i < 5; i++) {
+			op.processElement(new StreamRecord<>(Tuple2.of("k" + i, 1)));
+		}
+
+		// the timer emits the first slice and leaves the next one to a mail
+		op.setProcessingTime(1000);
+		assertEquals(2, op.getOutput().size());
+		// the elements between two slices are added to a new bundle
+		op.processElement(new StreamRecord<>(Tuple2.of("k0", 1)));
+		assertTrue(runNextMail(op));
+		assertEquals(4, op.getOutput().size());
+		assertTrue(runNextMail(op));
+		assertEquals(5, op.getOutput().size());
+		assertFalse(runNextMail(op));
+
+		op.setProcessingTime(2000);
+		assertEquals(6, op.getOutput().size());
+		assertEquals(Collections.singletonList(Tuple2.of("k0", 1)), preAggFunction.getOutputs());
+		op.close();
+	}
+
+	@Test
+	public void testSlicedFlushCompletesBeforeCheckpoint() throws Exception {
+		KeySelector<Tuple2<Long, Long>, Long> keySelector = (KeySelector<Tuple2<Long, Long>, Long>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new SumPreAggregateFunction(), keySelector, 1000, false);
+		operator.setBundleSerializers(LongSerializer.INSTANCE, LongSerializer.INSTANCE);
+		operator.setFlushSliceSize(1);
+		OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> op =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		op.open();
+		op.processElement(new StreamRecord<>(Tuple2.of(1L, 1L)));
+		op.processElement(new StreamRecord<>(Tuple2.of(2L, 1L)));
+		op.processElement(new StreamRecord<>(Tuple2.of(3L, 1L)));
+		op.setProcessingTime(1000);
+		assertEquals(1, op.getOutput().size());
+		op.processElement(new StreamRecord<>(Tuple2.of(1L, 5L)));
+
+		// the remaining slices are emitted before the barrier, the new bundle is written to the state
+		op.prepareSnapshotPreBarrier(0);
+		assertEquals(3, op.getOutput().size());
+		op.snapshot(0, 0);
+		// the mail of the next slice finds nothing left to emit
+		assertTrue(runNextMail(op));
+		assertEquals(3, op.getOutput().size());
+
+		op.setProcessingTime(2000);
+		assertEquals(4, op.getOutput().size());
+		op.close();
+	}
+
+	@Test
+	public void testTaskManagerCombining() throws Exception {
+		JobID jobId = new JobID();
+		OperatorID operatorId = new OperatorID();
+		// two co-located subtasks of the same operator
+		try (MockEnvironment env1 = createSubtaskEnvironment(jobId, 0); MockEnvironment env2 = createSubtaskEnvironment(jobId, 1)) {
+			OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> op1 =
+				createTaskManagerCombiningHarness(env1, operatorId);
+			OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> op2 =
+				createTaskManagerCombiningHarness(env2, operatorId);
+			op1.open();
+			op2.open();
+
+			op1.processElement(new StreamRecord<>(Tuple2.of(1L, 1L)));
+			op1.processElement(new StreamRecord<>(Tuple2.of(1L, 1L)));
+			op1.processElement(new StreamRecord<>(Tuple2.of(2L, 1L)));
+			op2.processElement(new StreamRecord<>(Tuple2.of(1L, 1L)));
+			op2.processElement(new StreamRecord<>(Tuple2.of(3L, 1L)));
+
+			// the subtask that contributes last emits the partials of both
+			op1.setProcessingTime(1000);
+			assertTrue(op1.getOutput().isEmpty());
+			op2.setProcessingTime(1000);
+			assertTrue(op1.getOutput().isEmpty());
+			assertEquals(
+				Arrays.asList(Tuple2.of(1L, 3L), Tuple2.of(2L, 1L), Tuple2.of(3L, 1L)),
+				sortedOutputValues(op2));
+
+			// the partials are not held back by an idle subtask for more than an interval
+			op1.processElement(new StreamRecord<>(Tuple2.of(1L, 1L)));
+			op1.setProcessingTime(2000);
+			assertTrue(op1.getOutput().isEmpty());
+			op1.setProcessingTime(3000);
+			assertEquals(Collections.singletonList(Tuple2.of(1L, 1L)), sortedOutputValues(op1));
+
+			// the shared partials are emitted before the checkpoint barrier
+			op2.processElement(new StreamRecord<>(Tuple2.of(5L, 1L)));
+			op2.setProcessingTime(2000);
+			assertEquals(3, op2.getOutput().size());
+			op1.prepareSnapshotPreBarrier(0);
+			assertEquals(Arrays.asList(Tuple2.of(1L, 1L), Tuple2.of(5L, 1L)), sortedOutputValues(op1));
+
+			op1.close();
+			op2.close();
+		}
+	}
+
+	@Test
+	public void testTaskManagerCombiningWithInterleavedBarriers() throws Exception {
+		JobID jobId = new JobID();
+		OperatorID operatorId = new OperatorID();
+		try (MockEnvironment env1 = createSubtaskEnvironment(jobId, 0); MockEnvironment env2 = createSubtaskEnvironment(jobId, 1)) {
+			OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> op1 =
+				createTaskManagerCombiningHarness(env1, operatorId);
+			OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> op2 =
+				createTaskManagerCombiningHarness(env2, operatorId);
+			op1.open();
+			op2.open();
+
+			op1.processElement(new StreamRecord<>(Tuple2.of(1L, 1L)));
+			// the barrier of checkpoint 1 reaches the second subtask first
+			op2.prepareSnapshotPreBarrier(1);
+			op2.processElement(new StreamRecord<>(Tuple2.of(2L, 1L)));
+
+			// the partials of the first subtask precede its barrier, the second subtask does not emit them after its own
+			op1.setProcessingTime(1000);
+			op2.setProcessingTime(1000);
+			assertTrue(op1.getOutput().isEmpty());
+			assertTrue(op2.getOutput().isEmpty());
+			op1.prepareSnapshotPreBarrier(1);
+			assertEquals(Collections.singletonList(Tuple2.of(1L, 1L)), sortedOutputValues(op1));
+
+			// both subtasks have passed the barrier, the partials after it are merged again
+			op1.processElement(new StreamRecord<>(Tuple2.of(2L, 1L)));
+			op1.setProcessingTime(2000);
+			assertEquals(Arrays.asList(Tuple2.of(1L, 1L), Tuple2.of(2L, 2L)), sortedOutputValues(op1));
+			assertTrue(op2.getOutput().isEmpty());
+
+			op1.close();
+			op2.close();
+		}
+	}
+
+	@Test
+	public void testChannelGroupingWithMaxParallelismOfDownstream() throws Exception {
+		final int maxParallelism = 7;
+		final int numChannels = 4;
+		try (MockEnvironment env = new MockEnvironmentBuilder().build()) {
+			// the writer of the task targets the key groups of the downstream operator
+			env.addOutputs(Collections.singletonList(new MockResultPartitionWriter() {
+				@Override
+				public int getNumberOfSubpartitions() {
+					return numChannels;
+				}
+
+				@Override
+				public int getNumTargetKeyGroups() {
+					return maxParallelism;
+				}
+			}));
+			KeySelector<Tuple2<Long, Long>, Long> keySelector = (KeySelector<Tuple2<Long, Long>, Long>) value -> value.f0;
+			PreAggregateProcTimeStreamOperator<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> operator =
+				new PreAggregateProcTimeStreamOperator<>(new MergingSumPreAggregateFunction(), keySelector, 1000, false);
+			operator.setChannelGrouping(true);
+			OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> op =
+				new OneInputStreamOperatorTestHarness<>(operator, env);
+			// the partitioner of the edge still has the default max parallelism until the record writer configures it
+			StreamNode source = new StreamNode(0, null, null, operator, "PreAggregate", OneInputStreamTask.class);
+			StreamNode target = new StreamNode(1, null, null, operator, "Reduce", OneInputStreamTask.class);
+			op.getStreamConfig().setNonChainedOutputs(Collections.singletonList(new StreamEdge(source, target, 0,
+				new KeyGroupStreamPartitioner<>(keySelector, KeyGroupRangeAssignment.DEFAULT_LOWER_BOUND_MAX_PARALLELISM), null)));
+			op.getStreamConfig().setTypeSerializerOut(
+				TypeInformation.of(new TypeHint<Tuple2<Long, Long>>() {}).createSerializer(new ExecutionConfig()));
+			op.open();
+
+			for (long key = 0; key < 100; key++) {
+				op.processElement(new StreamRecord<>(Tuple2.of(key, 1L)));
+			}
+			op.setProcessingTime(1000);
+
+			List<Tuple2<Long, Long>> partials = op.extractOutputValues();
+			assertEquals(100, partials.size());
+			int lastChannel = 0;
+			for (Tuple2<Long, Long> partial : partials) {
+				int channel = KeyGroupRangeAssignment.assignKeyToParallelOperator(partial.f0, maxParallelism, numChannels);
+				assertTrue("The partials of a channel are not emitted together.", channel >= lastChannel);
+				lastChannel = channel;
+			}
+			op.close();
+		}
+	}
+
+	private static MockEnvironment createSubtaskEnvironment(JobID jobId, int subtaskIndex) {
+		return new MockEnvironmentBuilder()
+			.setJobID(jobId)
+			.setMaxParallelism(2)
+			.setParallelism(2)
+			.setSubtaskIndex(subtaskIndex)
+			.build();
+	}
+
+	private static OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> createTaskManagerCombiningHarness(
+		MockEnvironment env,
+		OperatorID operatorId) throws Exception {
+		KeySelector<Tuple2<Long, Long>, Long> keySelector = (KeySelector<Tuple2<Long, Long>, Long>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<Long, Long, Tuple2<Long, Long>, Tuple2<Long, Long>> operator =
+			new PreAggregateProcTimeStreamOperator<>(new MergingSumPreAggregateFunction(), keySelector, 1000, false);
+		operator.setTaskManagerCombining(true);
+		OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> harness =
+			new OneInputStreamOperatorTestHarness<>(operator, env);
+		harness.getStreamConfig().setOperatorID(operatorId);
+		return harness;
+	}
+
+	private static List<Tuple2<Long, Long>> sortedOutputValues(
+		OneInputStreamOperatorTestHarness<Tuple2<Long, Long>, Tuple2<Long, Long>> op) {
+		List<Tuple2<Long, Long>> values = op.extractOutputValues();
+		values.sort((a, b) -> Long.compare(a.f0, b.f0));
+		return values;
+	}
+
+	/**
+	 * Runs the next mail of the operator as the mailbox does between two inputs.
+	 */
+	private static boolean runNextMail(AbstractStreamOperatorTestHarness<?> op) throws Exception {
+		Optional<Mail> mail = op.getTaskMailbox().tryTake(TaskMailbox.MIN_PRIORITY);
+		if (!mail.isPresent()) {
+			return false;
+		}
+		mail.get().run();
+		return true;
+	}
+
+	private static OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> createHarnessWithBundleSerializers(
+		WordCountPreAggregateFunction preAggFunction,
+		boolean flushOnCheckpoint) throws Exception {
+		KeySelector<Tuple2<String, Integer>, String> keySelector = (KeySelector<Tuple2<String, Integer>, String>) value -> value.f0;
+		PreAggregateProcTimeStreamOperator<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			new PreAggregateProcTimeStreamOperator<>(preAggFunction, keySelector, 1000, false);
+		operator.setBundleSerializers(StringSerializer.INSTANCE, IntSerializer.INSTANCE);
+		operator.setFlushOnCheckpoint(flushOnCheckpoint);
+		return new OneInputStreamOperatorTestHarness<>(operator);
+	}
+
+	private static class AverageAggregateFunction implements AggregateFunction<Tuple2<String, Integer>, Tuple2<Long, Long>, Double> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Tuple2<Long, Long> createAccumulator() {
+			return Tuple2.of(0L, 0L);
+		}
+
+		@Override
+		public Tuple2<Long, Long> add(Tuple2<String, Integer> value, Tuple2<Long, Long> accumulator) {
+			return Tuple2.of(accumulator.f0 + value.f1, accumulator.f1 + 1);
+		}
+
+		@Override
+		public Double getResult(Tuple2<Long, Long> accumulator) {
+			return (double) accumulator.f0 / accumulator.f1;
+		}
+
+		@Override
+		public Tuple2<Long, Long> merge(Tuple2<Long, Long> a, Tuple2<Long, Long> b) {
+			return Tuple2.of(a.f0 + b.f0, a.f1 + b.f1);
+		}
+	}
+
+	private static class SumPreAggregateFunction
+		extends LongLongPreAggregateFunction<Tuple2<Long, Long>, Tuple2<Long, Long>> {
+		private final Tuple2<Long, Long> output = new Tuple2<>();
+
+		@Override
+		public long getKey(Tuple2<Long, Long> input) {
+			return input.f0;
+		}
+
+		@Override
+		public long initialValue() {
+			return 0L;
+		}
+
+		@Override
+		public long add(long value, Tuple2<Long, Long> input) {
+			return value + input.f1;
+		}
+
+		@Override
+		public void collect(long key, long value, Collector<Tuple2<Long, Long>> out) {
+			output.f0 = key;
+			output.f1 = value;
+			out.collect(output);
+		}
+	}
+
+	private static class MergingSumPreAggregateFunction
+		extends LongLongPreAggregateFunction<Tuple2<Long, Long>, Tuple2<Long, Long>>
+		implements PreAggregateValueMerger<Long> {
+
+		@Override
+		public long getKey(Tuple2<Long, Long> input) {
+			return input.f0;
+		}
+
+		@Override
+		public long initialValue() {
+			return 0L;
+		}
+
+		@Override
+		public long add(long value, Tuple2<Long, Long> input) {
+			return value + input.f1;
+		}
+
+		@Override
+		public Long merge(Long value, Long other) {
+			return value + other;
+		}
+
+		@Override
+		public void collect(long key, long value, Collector<Tuple2<Long, Long>> out) {
+			out.collect(Tuple2.of(key, value));
+		}
+	}
+
 	private static class WordCountPreAggregateFunction
 		extends PreAggregateFunction<String, Integer, Tuple2<String, Integer>, Tuple2<String, Integer>> {
 		private final List<Tuple2<String, Integer>> outputs = new ArrayList<>();
@@ -96,4 +993,15 @@ public class PreAggregateProcTimeStreamOperatorTest {
 			return outputs;
 		}
 	}
+
+	private static class EmittingWordCountPreAggregateFunction extends WordCountPreAggregateFunction {
+
+		@Override
+		public void collect(Map<String, Integer> buffer, Collector<Tuple2<String, Integer>> out) {
+			super.collect(buffer, out);
+			for (Map.Entry<String, Integer> entry : buffer.entrySet()) {
+				out.collect(Tuple2.of(entry.getKey(), entry.getValue()));
+			}
+		}
+	}
 }
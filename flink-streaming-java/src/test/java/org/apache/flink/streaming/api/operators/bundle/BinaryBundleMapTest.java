@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BinaryBundleMap}.
+ */
+public class BinaryBundleMapTest extends TestLogger {
+
+	private static final int SEGMENT_SIZE = 1024;
+
+	@Test
+	public void testPutAndGet() throws Exception {
+		BinaryBundleMap<String, Long> map = createMap(8);
+		assertNull(map.get("k1"));
+
+		assertTrue(map.tryPut("k1", 1L));
+		assertTrue(map.tryPut("k2", 2L));
+		// the same key instance as the last lookup
+		String key = "k1";
+		Long value = map.get(key);
+		assertTrue(map.tryPut(key, value + 10L));
+
+		assertEquals(2, map.size());
+		assertEquals(Long.valueOf(11L), map.get("k1"));
+		assertEquals(Long.valueOf(2L), map.get("k2"));
+	}
+
+	@Test
+	public void testValueOfDifferentLength() throws Exception {
+		BinaryBundleMap<Long, String> map = new BinaryBundleMap<>(
+			segments(8), LongSerializer.INSTANCE, StringSerializer.INSTANCE);
+		assertTrue(map.tryPut(1L, "a"));
+		assertTrue(map.tryPut(2L, "b"));
+		assertTrue(map.tryPut(1L, "a much longer value"));
+
+		assertEquals(2, map.size());
+		assertEquals("a much longer value", map.get(1L));
+
+		Map<Long, String> copy = new HashMap<>(map);
+		assertEquals(2, copy.size());
+		assertEquals("a much longer value", copy.get(1L));
+		assertEquals("b", copy.get(2L));
+	}
+
+	@Test
+	public void testAgainstHashMap() throws Exception {
+		BinaryBundleMap<String, Long> map = createMap(64);
+		Map<String, Long> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 10_000; i++) {
+			String key = "key-" + random.nextInt(500);
+			Long value = map.get(key);
+			Long newValue = value == null ? 1L : value + 1L;
+			assertTrue(map.tryPut(key, newValue));
+			expected.merge(key, 1L, Long::sum);
+		}
+		assertEquals(expected, new HashMap<>(map));
+	}
+
+	@Test
+	public void testFullAndClear() throws Exception {
+		BinaryBundleMap<String, Long> map = createMap(4);
+		int numKeys = 0;
+		while (map.tryPut("key-" + numKeys, (long) numKeys)) {
+			numKeys++;
+		}
+		assertTrue(numKeys > 0);
+		assertEquals(numKeys, map.size());
+		assertEquals(numKeys, new HashMap<>(map).size());
+		// existing keys whose values keep their size are still updated in place
+		assertTrue(map.tryPut("key-0", 42L));
+		assertFalse(map.tryPut("another-key", 0L));
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertEquals(0, map.getUsedBytes());
+		assertNull(map.get("key-0"));
+		assertFalse(map.entrySet().iterator().hasNext());
+
+		// the memory is reused after a clear
+		for (int i = 0; i < numKeys; i++) {
+			assertTrue(map.tryPut("key-" + i, (long) i));
+		}
+		assertEquals(Long.valueOf(1L), map.get("key-1"));
+	}
+
+	private static BinaryBundleMap<String, Long> createMap(int numSegments) {
+		return new BinaryBundleMap<>(segments(numSegments), StringSerializer.INSTANCE, LongSerializer.INSTANCE);
+	}
+
+	private static List<MemorySegment> segments(int numSegments) {
+		List<MemorySegment> segments = new ArrayList<>();
+		for (int i = 0; i < numSegments; i++) {
+			segments.add(MemorySegmentFactory.allocateUnpooledSegment(SEGMENT_SIZE));
+		}
+		return segments;
+	}
+}
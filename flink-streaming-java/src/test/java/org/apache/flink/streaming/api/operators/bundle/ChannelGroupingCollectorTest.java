@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.functions.util.ListCollector;
+import org.apache.flink.api.common.typeinfo.TypeHint;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.streaming.runtime.partitioner.KeyGroupStreamPartitioner;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ChannelGroupingCollector}.
+ */
+public class ChannelGroupingCollectorTest extends TestLogger {
+
+	private static final int MAX_PARALLELISM = 128;
+	private static final int NUM_CHANNELS = 4;
+
+	@Test
+	public void testEmitsPartialsGroupedByChannel() {
+		TypeSerializer<Tuple2<Long, Long>> serializer =
+			TypeInformation.of(new TypeHint<Tuple2<Long, Long>>() {}).createSerializer(new ExecutionConfig());
+		KeySelector<Tuple2<Long, Long>, Long> keySelector = value -> value.f0;
+		ChannelGroupingCollector<Tuple2<Long, Long>> groupingCollector = new ChannelGroupingCollector<>(
+			new KeyGroupStreamPartitioner<>(keySelector, MAX_PARALLELISM), NUM_CHANNELS, serializer);
+
+		// the output record is reused as by the primitive pre-aggregate functions
+		Tuple2<Long, Long> output = new Tuple2<>();
+		for (long key = 0; key < 100; key++) {
+			output.f0 = key;
+			output.f1 = key * 10;
+			groupingCollector.collect(output);
+		}
+		List<Tuple2<Long, Long>> emitted = new ArrayList<>();
+		groupingCollector.emit(new ListCollector<>(emitted));
+
+		assertEquals(100, emitted.size());
+		int lastChannel = 0;
+		long sumOfKeys = 0;
+		for (Tuple2<Long, Long> partial : emitted) {
+			int channel = KeyGroupRangeAssignment.assignKeyToParallelOperator(partial.f0, MAX_PARALLELISM, NUM_CHANNELS);
+			assertTrue("The partials of a channel are not emitted together.", channel >= lastChannel);
+			assertEquals(partial.f0 * 10, (long) partial.f1);
+			lastChannel = channel;
+			sumOfKeys += partial.f0;
+		}
+		assertEquals(99 * 100 / 2, sumOfKeys);
+
+		// the partials are cleared after they are emitted
+		emitted.clear();
+		groupingCollector.emit(new ListCollector<>(emitted));
+		assertTrue(emitted.isEmpty());
+	}
+
+	@Test
+	public void testEmitsPartialsWithTheirChannel() {
+		KeySelector<Tuple2<Long, Long>, Long> keySelector = value -> value.f0;
+		// the partials are distinct objects, they are not copied
+		ChannelGroupingCollector<Tuple2<Long, Long>> groupingCollector = new ChannelGroupingCollector<>(
+			new KeyGroupStreamPartitioner<>(keySelector, MAX_PARALLELISM), NUM_CHANNELS, null);
+
+		List<Tuple2<Long, Long>> partials = new ArrayList<>();
+		for (long key = 0; key < 100; key++) {
+			Tuple2<Long, Long> partial = Tuple2.of(key, key * 10);
+			partials.add(partial);
+			groupingCollector.collect(partial);
+		}
+		List<Tuple2<Long, Long>> emitted = new ArrayList<>();
+		groupingCollector.emit((partial, channel) -> {
+			assertEquals(
+				KeyGroupRangeAssignment.assignKeyToParallelOperator(partial.f0, MAX_PARALLELISM, NUM_CHANNELS),
+				channel);
+			emitted.add(partial);
+		});
+
+		assertEquals(100, emitted.size());
+		for (Tuple2<Long, Long> partial : emitted) {
+			assertSame(partials.get(partial.f0.intValue()), partial);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link HeavyHitterSketch}.
+ */
+public class HeavyHitterSketchTest extends TestLogger {
+
+	@Test
+	public void testHeavyHitter() {
+		HeavyHitterSketch sketch = new HeavyHitterSketch(3, 4);
+		assertFalse(sketch.addAndTest("k1"));
+		assertFalse(sketch.addAndTest("k2"));
+		assertFalse(sketch.addAndTest("k1"));
+		assertTrue(sketch.addAndTest("k1"));
+		assertFalse(sketch.addAndTest("k2"));
+	}
+
+	@Test
+	public void testColdKeysOfLongTail() {
+		HeavyHitterSketch sketch = new HeavyHitterSketch(3, 16);
+		// far more distinct keys than counters, each of them occurs twice
+		for (int round = 0; round < 2; round++) {
+			for (int key = 0; key < 100_000; key++) {
+				assertFalse("Cold key " + key + " taken for a heavy hitter.", sketch.addAndTest(key));
+			}
+		}
+	}
+
+	@Test
+	public void testHeavyHitterInLongTail() {
+		HeavyHitterSketch sketch = new HeavyHitterSketch(3, 16);
+		int occurrences = 0;
+		boolean detected = false;
+		for (int key = 0; key < 100_000; key++) {
+			assertFalse(sketch.addAndTest(key));
+			// the hot key makes more than 1 / capacity of the elements
+			if (key % 8 == 0) {
+				occurrences++;
+				detected = sketch.addAndTest(-1);
+				if (detected) {
+					break;
+				}
+			}
+		}
+		assertTrue(detected);
+		assertTrue(occurrences >= 3);
+	}
+
+	@Test
+	public void testReset() {
+		HeavyHitterSketch sketch = new HeavyHitterSketch(2, 2);
+		assertFalse(sketch.addAndTest("k1"));
+		assertTrue(sketch.addAndTest("k1"));
+
+		sketch.reset();
+		assertFalse(sketch.addAndTest("k1"));
+		assertFalse(sketch.addAndTest("k2"));
+		assertFalse(sketch.addAndTest("k3"));
+		assertTrue(sketch.addAndTest("k3"));
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LongLongOpenHashMap}.
+ */
+public class LongLongOpenHashMapTest extends TestLogger {
+
+	@Test
+	public void testAgainstHashMap() {
+		// a small initial size to grow the map several times
+		LongLongOpenHashMap map = new LongLongOpenHashMap(1);
+		Map<Long, Long> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 100_000; i++) {
+			long key = random.nextInt(5_000) - 2_500;
+			int slot = map.findOrInsert(key, 0L);
+			map.setValueAt(slot, map.valueAt(slot) + i);
+			expected.merge(key, (long) i, Long::sum);
+		}
+
+		assertEquals(expected.size(), map.size());
+		Map<Long, Long> actual = new HashMap<>();
+		for (int i = 0; i < map.size(); i++) {
+			int slot = map.slotAt(i);
+			actual.put(map.keyAt(slot), map.valueAt(slot));
+		}
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testClearKeepsCapacity() {
+		LongLongOpenHashMap map = new LongLongOpenHashMap(16);
+		for (long key = 0; key < 1_000; key++) {
+			map.findOrInsert(key, key);
+		}
+		long memoryBytes = map.getMemoryBytes();
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertEquals(memoryBytes, map.getMemoryBytes());
+
+		// cleared keys are inserted again with the initial value
+		int slot = map.findOrInsert(7L, -1L);
+		assertEquals(-1L, map.valueAt(slot));
+		assertEquals(1, map.size());
+	}
+}
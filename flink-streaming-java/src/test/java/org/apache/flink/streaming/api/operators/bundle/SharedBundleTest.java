@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle;
+
+import org.apache.flink.api.common.functions.PreAggregateValueMerger;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SharedBundle}.
+ */
+public class SharedBundleTest extends TestLogger {
+
+	private static final PreAggregateValueMerger<Long> SUM = (value, other) -> value + other;
+
+	@Test
+	public void testLastContributorEmitsMergedPartials() throws Exception {
+		Object member1 = new Object();
+		Object member2 = new Object();
+		SharedBundle<String, Long> bundle = SharedBundle.join("last-contributor", member1);
+		assertSame(bundle, SharedBundle.join("last-contributor", member2));
+		assertEquals(2, bundle.getNumberOfMembers());
+
+		assertNull(bundle.contribute(member1, 0, partials("a", 1L, "b", 2L), SUM, 0, 1000));
+		// a second flush of the same member does not complete the interval
+		assertNull(bundle.contribute(member1, 0, partials("a", 3L), SUM, 10, 1000));
+		Map<String, Long> merged = bundle.contribute(member2, 0, partials("a", 5L, "c", 1L), SUM, 20, 1000);
+		assertEquals(partials("a", 9L, "b", 2L, "c", 1L), merged);
+
+		// the next interval starts with an empty bundle
+		assertNull(bundle.contribute(member2, 0, partials("a", 1L), SUM, 30, 1000));
+		assertEquals(partials("a", 1L), bundle.contribute(member1, 0, Collections.emptyMap(), SUM, 40, 1000));
+
+		bundle.leave(member1);
+		bundle.leave(member2);
+	}
+
+	@Test
+	public void testEmitsAfterMaxDelay() throws Exception {
+		Object member1 = new Object();
+		Object member2 = new Object();
+		SharedBundle<String, Long> bundle = SharedBundle.join("max-delay", member1);
+		SharedBundle.join("max-delay", member2);
+
+		assertNull(bundle.contribute(member1, 0, partials("a", 1L), SUM, 1000, 1000));
+		assertNull(bundle.contribute(member1, 0, partials("a", 1L), SUM, 1500, 1000));
+		// the other member is idle, the partials are not held back for more than the interval
+		assertEquals(partials("a", 3L), bundle.contribute(member1, 0, partials("a", 1L), SUM, 2000, 1000));
+
+		bundle.leave(member1);
+		bundle.leave(member2);
+	}
+
+	@Test
+	public void testTakeAndLeave() throws Exception {
+		Object member1 = new Object();
+		Object member2 = new Object();
+		SharedBundle<String, Long> bundle = SharedBundle.join("take-and-leave", member1);
+		SharedBundle.join("take-and-leave", member2);
+
+		assertNull(bundle.contribute(member1, 0, partials("a", 1L), SUM, 0, 1000));
+		assertEquals(partials("a", 1L), bundle.take(0));
+		assertTrue(bundle.take(0).isEmpty());
+
+		// a member that leaves no longer holds back the partials of the others
+		bundle.leave(member2);
+		assertEquals(partials("b", 1L), bundle.contribute(member1, 0, partials("b", 1L), SUM, 10, 1000));
+
+		bundle.leave(member1);
+		assertFalse(SharedBundle.isRegistered("take-and-leave"));
+		// a member of a new attempt joins a new bundle
+		SharedBundle<String, Long> newBundle = SharedBundle.join("take-and-leave", member1);
+		assertEquals(1, newBundle.getNumberOfMembers());
+		assertTrue(newBundle.take(0).isEmpty());
+		newBundle.leave(member1);
+	}
+
+	@Test
+	public void testContributionsOfDifferentCheckpointEpochsAreNotMerged() throws Exception {
+		Object member1 = new Object();
+		Object member2 = new Object();
+		SharedBundle<String, Long> bundle = SharedBundle.join("checkpoint-epochs", member1);
+		SharedBundle.join("checkpoint-epochs", member2);
+
+		// the second member has passed the barrier of checkpoint 1, the first one has not yet
+		assertNull(bundle.contribute(member1, 0, partials("a", 1L), SUM, 0, 1000));
+		assertNull(bundle.contribute(member2, 1, partials("a", 2L), SUM, 10, 1000));
+		// the partials of a member are only emitted within its epoch, before its next barrier
+		assertNull(bundle.contribute(member2, 1, partials("b", 1L), SUM, 20, 1000));
+		assertEquals(partials("a", 1L), bundle.take(0));
+
+		// both members are in the same epoch again after the barrier of the first one
+		assertEquals(partials("a", 2L, "b", 1L), bundle.contribute(member1, 1, Collections.emptyMap(), SUM, 30, 1000));
+		assertTrue(bundle.take(1).isEmpty());
+
+		bundle.leave(member1);
+		bundle.leave(member2);
+	}
+
+	private static Map<String, Long> partials(Object... keysAndValues) {
+		Map<String, Long> partials = new HashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			partials.put((String) keysAndValues[i], (Long) keysAndValues[i + 1]);
+		}
+		return partials;
+	}
+}
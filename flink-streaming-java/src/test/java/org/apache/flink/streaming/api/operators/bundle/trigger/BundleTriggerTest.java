@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle.trigger;
+
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * Tests for {@link KeyCountBundleTrigger}, {@link MemoryBundleTrigger} and {@link TimeBundleTrigger}.
+ */
+public class BundleTriggerTest {
+
+	@Test
+	public void testKeyCountTrigger() throws Exception {
+		KeyCountBundleTrigger<Object> trigger = new KeyCountBundleTrigger<>(2);
+		TestTriggerCallback callback = new TestTriggerCallback();
+		TestTriggerContext ctx = new TestTriggerContext();
+		trigger.registerCallback(callback);
+
+		ctx.numberOfKeys = 1;
+		trigger.onElement(null, ctx);
+		trigger.onElement(null, ctx);
+		assertEquals(0, callback.getTriggerCount());
+
+		ctx.numberOfKeys = 2;
+		trigger.onElement(null, ctx);
+		assertEquals(1, callback.getTriggerCount());
+	}
+
+	@Test
+	public void testMemoryTrigger() throws Exception {
+		MemoryBundleTrigger<Object> trigger = new MemoryBundleTrigger<>(1024);
+		TestTriggerCallback callback = new TestTriggerCallback();
+		TestTriggerContext ctx = new TestTriggerContext();
+		trigger.registerCallback(callback);
+
+		ctx.estimatedBytes = 1023;
+		trigger.onElement(null, ctx);
+		assertEquals(0, callback.getTriggerCount());
+
+		ctx.estimatedBytes = 2048;
+		trigger.onElement(null, ctx);
+		assertEquals(1, callback.getTriggerCount());
+	}
+
+	@Test
+	public void testTimeTrigger() throws Exception {
+		TimeBundleTrigger<Object> trigger = new TimeBundleTrigger<>(100);
+		TestTriggerCallback callback = new TestTriggerCallback();
+		TestTriggerContext ctx = new TestTriggerContext();
+		trigger.registerCallback(callback);
+
+		ctx.currentProcessingTime = 1000;
+		trigger.onElement(null, ctx);
+		ctx.currentProcessingTime = 1099;
+		trigger.onElement(null, ctx);
+		assertEquals(0, callback.getTriggerCount());
+
+		ctx.currentProcessingTime = 1100;
+		trigger.onElement(null, ctx);
+		assertEquals(1, callback.getTriggerCount());
+
+		// the age of the bundle starts with the first element after a reset
+		trigger.reset();
+		ctx.currentProcessingTime = 1150;
+		trigger.onElement(null, ctx);
+		assertEquals(1, callback.getTriggerCount());
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.bundle.trigger;
+
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * Tests for {@link AnyBundleTrigger} and {@link AllBundleTrigger}.
+ */
+public class CompositeBundleTriggerTest {
+
+	@Test
+	public void testAnyTrigger() throws Exception {
+		AnyBundleTrigger<Object> trigger = new AnyBundleTrigger<>(
+			new KeyCountBundleTrigger<>(10), new MemoryBundleTrigger<>(1024));
+		TestTriggerCallback callback = new TestTriggerCallback();
+		TestTriggerContext ctx = new TestTriggerContext();
+		trigger.registerCallback(callback);
+
+		ctx.numberOfKeys = 5;
+		ctx.estimatedBytes = 512;
+		trigger.onElement(null, ctx);
+		assertEquals(0, callback.getTriggerCount());
+
+		ctx.estimatedBytes = 1024;
+		trigger.onElement(null, ctx);
+		assertEquals(1, callback.getTriggerCount());
+		trigger.reset();
+
+		ctx.numberOfKeys = 10;
+		ctx.estimatedBytes = 0;
+		trigger.onElement(null, ctx);
+		assertEquals(2, callback.getTriggerCount());
+	}
+
+	@Test
+	public void testAllTrigger() throws Exception {
+		AllBundleTrigger<Object> trigger = new AllBundleTrigger<>(
+			new KeyCountBundleTrigger<>(10), new TimeBundleTrigger<>(100));
+		TestTriggerCallback callback = new TestTriggerCallback();
+		TestTriggerContext ctx = new TestTriggerContext();
+		trigger.registerCallback(callback);
+
+		ctx.numberOfKeys = 10;
+		ctx.currentProcessingTime = 0;
+		trigger.onElement(null, ctx);
+		assertEquals(0, callback.getTriggerCount());
+
+		// the key count condition holds until the bundle is flushed
+		ctx.numberOfKeys = 0;
+		ctx.currentProcessingTime = 100;
+		trigger.onElement(null, ctx);
+		assertEquals(1, callback.getTriggerCount());
+		trigger.reset();
+
+		ctx.currentProcessingTime = 300;
+		trigger.onElement(null, ctx);
+		assertEquals(1, callback.getTriggerCount());
+	}
+
+	@Test
+	public void testExplain() {
+		AnyBundleTrigger<Object> trigger = new AnyBundleTrigger<>(
+			new KeyCountBundleTrigger<>(10), new MemoryBundleTrigger<>(1024));
+		assertEquals(
+			"AnyBundleTrigger(KeyCountBundleTrigger with 10 keys, MemoryBundleTrigger with 1024 bytes)",
+			trigger.explain());
+	}
+}
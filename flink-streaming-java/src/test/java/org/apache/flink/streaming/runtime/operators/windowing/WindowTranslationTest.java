@@ -39,7 +39,9 @@ import org.apache.flink.streaming.api.functions.windowing.ProcessWindowFunction;
 import org.apache.flink.streaming.api.functions.windowing.WindowFunction;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.OutputTypeConfigurable;
+import org.apache.flink.streaming.api.operators.PreAggregateProcTimeStreamOperator;
 import org.apache.flink.streaming.api.transformations.OneInputTransformation;
+import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.api.windowing.assigners.EventTimeSessionWindows;
 import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.SlidingProcessingTimeWindows;
@@ -56,11 +58,14 @@ import org.apache.flink.streaming.api.windowing.triggers.TriggerResult;
 import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.TestHarnessUtil;
 import org.apache.flink.util.Collector;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertTrue;
@@ -532,6 +537,85 @@ public class WindowTranslationTest {
 				winOperator, winOperator.getKeySelector(), BasicTypeInfo.STRING_TYPE_INFO, new Tuple3<>("hello", "hallo", 1));
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCombineEventTime() throws Exception {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+
+		DataStream<Tuple3<String, String, Integer>> source = env.fromElements(
+			Tuple3.of("hello", "hallo", 1),
+			Tuple3.of("hello", "hallo", 2));
+
+		DataStream<Integer> window1 = source
+				.keyBy(new Tuple3KeySelector())
+				.window(SlidingEventTimeWindows.of(Time.of(300, TimeUnit.MILLISECONDS), Time.of(100, TimeUnit.MILLISECONDS)))
+				.combine(new SumAggregationFunction(), 100);
+
+		final OneInputTransformation<Tuple2<String, Integer>, Integer> transform =
+			(OneInputTransformation<Tuple2<String, Integer>, Integer>) window1.getTransformation();
+
+		final OneInputStreamOperator<Tuple2<String, Integer>, Integer> operator = transform.getOperator();
+
+		Assert.assertTrue(operator instanceof WindowOperator);
+		WindowOperator<String, Tuple2<String, Integer>, ?, Integer, ?> winOperator =
+				(WindowOperator<String, Tuple2<String, Integer>, ?, Integer, ?>) operator;
+
+		Assert.assertTrue(winOperator.getTrigger() instanceof EventTimeTrigger);
+		Assert.assertTrue(winOperator.getWindowAssigner() instanceof SlidingEventTimeWindows);
+		Assert.assertTrue(winOperator.getStateDescriptor() instanceof AggregatingStateDescriptor);
+
+		// the combiner is in front of the shuffle by key
+		final OneInputTransformation<Tuple3<String, String, Integer>, Tuple2<String, Integer>> combineTransform =
+			(OneInputTransformation<Tuple3<String, String, Integer>, Tuple2<String, Integer>>)
+				transform.getInputs().get(0).getInputs().get(0);
+		Assert.assertTrue(combineTransform.getOperator() instanceof PreAggregateProcTimeStreamOperator);
+
+		OneInputStreamOperatorTestHarness<Tuple3<String, String, Integer>, Tuple2<String, Integer>> combineHarness =
+			new OneInputStreamOperatorTestHarness<>(combineTransform.getOperator());
+		KeyedOneInputStreamOperatorTestHarness<String, Tuple2<String, Integer>, Integer> windowHarness =
+			new KeyedOneInputStreamOperatorTestHarness<>(winOperator, winOperator.getKeySelector(), BasicTypeInfo.STRING_TYPE_INFO);
+
+		combineHarness.open();
+		windowHarness.open();
+		combineHarness.processElement(new StreamRecord<>(Tuple3.of("hello", "hallo", 1), 10));
+		combineHarness.processElement(new StreamRecord<>(Tuple3.of("hello", "hallo", 2), 50));
+		combineHarness.processElement(new StreamRecord<>(Tuple3.of("hello", "hallo", 4), 150));
+		combineHarness.processWatermark(Long.MAX_VALUE);
+
+		// one partial per pane of 100 milliseconds
+		Assert.assertEquals(3, combineHarness.getOutput().size());
+		for (Object partial : combineHarness.getOutput()) {
+			if (partial instanceof Watermark) {
+				windowHarness.processWatermark((Watermark) partial);
+			} else {
+				windowHarness.processElement((StreamRecord<Tuple2<String, Integer>>) partial);
+			}
+		}
+
+		Assert.assertEquals(
+			Arrays.asList(3, 7, 7, 4),
+			TestHarnessUtil.getRawElementsFromOutput(windowHarness.getOutput()));
+
+		combineHarness.close();
+		windowHarness.close();
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testCombineProcessingTimeFails() throws Exception {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+
+		DataStream<Tuple3<String, String, Integer>> source = env.fromElements(
+			Tuple3.of("hello", "hallo", 1),
+			Tuple3.of("hello", "hallo", 2));
+
+		source
+			.keyBy(new Tuple3KeySelector())
+			.window(TumblingProcessingTimeWindows.of(Time.of(1, TimeUnit.SECONDS)))
+			.combine(new SumAggregationFunction(), 100);
+
+		fail("exception was not thrown");
+	}
+
 	@Test
 	public void testAggregateProcessingTime() throws Exception {
 		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
@@ -1265,6 +1349,30 @@ public class WindowTranslationTest {
 		}
 	}
 
+	private static class SumAggregationFunction
+			implements AggregateFunction<Tuple3<String, String, Integer>, Integer, Integer> {
+
+		@Override
+		public Integer createAccumulator() {
+			return 0;
+		}
+
+		@Override
+		public Integer add(Tuple3<String, String, Integer> value, Integer accumulator) {
+			return accumulator + value.f2;
+		}
+
+		@Override
+		public Integer getResult(Integer accumulator) {
+			return accumulator;
+		}
+
+		@Override
+		public Integer merge(Integer a, Integer b) {
+			return a + b;
+		}
+	}
+
 	private static class TupleKeySelector implements KeySelector<Tuple2<String, Integer>, String> {
 
 		@Override
@@ -244,6 +244,17 @@ public class ExecutionConfigOptions {
 				"NOTE: MiniBatch only works for non-windowed aggregations currently. If " + TABLE_EXEC_MINIBATCH_ENABLED.key() +
 				" is set true, its value must be positive.");
 
+	@Documentation.TableOption(execMode = Documentation.ExecMode.STREAMING)
+	public static final ConfigOption<Boolean> TABLE_EXEC_MINIBATCH_ADAPTIVE_ENABLED =
+		key("table.exec.mini-batch.adaptive.enabled")
+			.defaultValue(false)
+			.withDescription("Specifies whether the local aggregation of a two-phase aggregation adapts its " +
+				"MiniBatch latency at runtime. Its bundle is then finished on an interval that starts at " +
+				"'table.exec.mini-batch.allow-latency' and is adapted by the pre-aggregate controller from the " +
+				"backpressure of the operator, instead of at the end of every MiniBatch. The bundle is still " +
+				"finished when 'table.exec.mini-batch.size' records are buffered. The controller is configured " +
+				"by the 'pre-aggregate.controller' options.");
+
 	// ------------------------------------------------------------------------
 	//  Other Exec Options
 	// ------------------------------------------------------------------------
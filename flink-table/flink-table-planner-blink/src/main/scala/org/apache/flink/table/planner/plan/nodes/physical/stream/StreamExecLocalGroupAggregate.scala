@@ -19,7 +19,9 @@ package org.apache.flink.table.planner.plan.nodes.physical.stream
 
 import org.apache.flink.api.dag.Transformation
 import org.apache.flink.api.java.functions.KeySelector
+import org.apache.flink.streaming.api.operators.{PreAggregateOperatorFactory, SimpleOperatorFactory, StreamOperatorFactory}
 import org.apache.flink.streaming.api.transformations.OneInputTransformation
+import org.apache.flink.table.api.config.ExecutionConfigOptions
 import org.apache.flink.table.data.RowData
 import org.apache.flink.table.planner.calcite.FlinkTypeFactory
 import org.apache.flink.table.planner.codegen.CodeGeneratorContext
@@ -29,7 +31,7 @@ import org.apache.flink.table.planner.plan.PartialFinalType
 import org.apache.flink.table.planner.plan.nodes.exec.{ExecNode, StreamExecNode}
 import org.apache.flink.table.planner.plan.utils.{KeySelectorUtil, _}
 import org.apache.flink.table.runtime.operators.aggregate.MiniBatchLocalGroupAggFunction
-import org.apache.flink.table.runtime.operators.bundle.MapBundleOperator
+import org.apache.flink.table.runtime.operators.bundle.{AdaptiveMapBundleOperator, MapBundleOperator}
 import org.apache.flink.table.runtime.typeutils.InternalTypeInfo
 
 import org.apache.calcite.plan.{RelOptCluster, RelTraitSet}
@@ -130,15 +132,28 @@ class StreamExecLocalGroupAggregate(
     val inputTypeInfo = inputTransformation.getOutputType.asInstanceOf[InternalTypeInfo[RowData]]
     val selector = KeySelectorUtil.getRowDataSelector(grouping, inputTypeInfo)
 
-    val operator = new MapBundleOperator(
-      aggFunction,
-      AggregateUtil.createMiniBatchTrigger(planner.getTableConfig),
-      selector.asInstanceOf[KeySelector[RowData, RowData]])
+    val config = planner.getTableConfig.getConfiguration
+    val operatorFactory: StreamOperatorFactory[RowData] = if (config.getBoolean(
+        ExecutionConfigOptions.TABLE_EXEC_MINIBATCH_ADAPTIVE_ENABLED)) {
+      // the bundle is finished on an interval adapted by the pre-aggregate controller
+      val operator = new AdaptiveMapBundleOperator(
+        aggFunction,
+        AggregateUtil.createMiniBatchTrigger(planner.getTableConfig),
+        selector.asInstanceOf[KeySelector[RowData, RowData]],
+        config.get(ExecutionConfigOptions.TABLE_EXEC_MINIBATCH_ALLOW_LATENCY).toMillis)
+      operator.configure(config)
+      new PreAggregateOperatorFactory[RowData](operator, true, config)
+    } else {
+      SimpleOperatorFactory.of(new MapBundleOperator(
+        aggFunction,
+        AggregateUtil.createMiniBatchTrigger(planner.getTableConfig),
+        selector.asInstanceOf[KeySelector[RowData, RowData]]))
+    }
 
     val transformation = new OneInputTransformation(
       inputTransformation,
       getRelDetailedDescription,
-      operator,
+      operatorFactory,
       InternalTypeInfo.of(outRowType),
       inputTransformation.getParallelism)
 
@@ -19,13 +19,25 @@
 package org.apache.flink.table.planner.plan.stream.sql.agg
 
 import org.apache.flink.api.common.time.Time
+import org.apache.flink.api.dag.Transformation
 import org.apache.flink.api.scala._
+import org.apache.flink.configuration.PreAggregateControllerOptions
+import org.apache.flink.streaming.api.operators.PreAggregateOperatorFactory
+import org.apache.flink.streaming.api.transformations.OneInputTransformation
 import org.apache.flink.table.api._
-import org.apache.flink.table.api.config.OptimizerConfigOptions
-import org.apache.flink.table.planner.utils.{AggregatePhaseStrategy, TableTestBase}
+import org.apache.flink.table.api.config.{ExecutionConfigOptions, OptimizerConfigOptions}
+import org.apache.flink.table.planner.delegation.StreamPlanner
+import org.apache.flink.table.planner.plan.nodes.exec.ExecNode
+import org.apache.flink.table.planner.utils.{AggregatePhaseStrategy, TableTestBase, TableTestUtil}
+import org.apache.flink.table.runtime.operators.bundle.AdaptiveMapBundleOperator
 
+import org.junit.Assert.{assertEquals, assertTrue}
 import org.junit.{Before, Test}
 
+import java.time.Duration
+
+import scala.collection.JavaConversions._
+
 class TwoStageAggregateTest extends TableTestBase {
 
   private val util = streamTestUtil()
@@ -76,4 +88,33 @@ class TwoStageAggregateTest extends TableTestBase {
     util.verifyPlan("SELECT four, SUM(a) FROM " +
       "(SELECT b, 4 AS four, a FROM MyTable) GROUP BY b, four")
   }
+
+  @Test
+  def testAdaptiveMiniBatchLocalAggregate(): Unit = {
+    val config = util.tableEnv.getConfig.getConfiguration
+    config.setBoolean(ExecutionConfigOptions.TABLE_EXEC_MINIBATCH_ADAPTIVE_ENABLED, true)
+    config.set(PreAggregateControllerOptions.SIGNALS_SAMPLING_INTERVAL, Duration.ofSeconds(5))
+
+    val planner = util.getPlanner
+    val optimized = planner.optimize(
+      TableTestUtil.toRelNode(util.tableEnv.sqlQuery("SELECT COUNT(a) FROM MyTable GROUP BY b")))
+    val transformation = planner.translateToExecNodePlan(Seq(optimized)).head
+      .asInstanceOf[ExecNode[StreamPlanner, _]]
+      .translateToPlan(planner.asInstanceOf[StreamPlanner])
+
+    def findLocalAggregate(t: Transformation[_]): Option[OneInputTransformation[_, _]] = t match {
+      case one: OneInputTransformation[_, _]
+        if one.getOperatorFactory.isInstanceOf[PreAggregateOperatorFactory[_]] => Some(one)
+      case _ => t.getInputs.toList.flatMap(findLocalAggregate).headOption
+    }
+
+    val localAggregate = findLocalAggregate(transformation)
+    assertTrue("The local aggregate is not adaptive.", localAggregate.isDefined)
+    val operator = localAggregate.get.getOperatorFactory
+      .asInstanceOf[PreAggregateOperatorFactory[_]].getOperator
+    assertTrue(operator.isInstanceOf[AdaptiveMapBundleOperator[_, _, _, _]])
+    // the operator is configured with the options of the table config
+    assertEquals(5000L,
+      operator.asInstanceOf[AdaptiveMapBundleOperator[_, _, _, _]].getSignalsSamplingIntervalMs)
+  }
 }
@@ -138,10 +138,20 @@ public abstract class AbstractMapBundleOperator<K, V, IN, OUT>
 
 	@Override
 	public void processWatermark(Watermark mark) throws Exception {
-		finishBundle();
+		if (finishBundleOnWatermark()) {
+			finishBundle();
+		}
 		super.processWatermark(mark);
 	}
 
+	/**
+	 * Whether the bundle is finished before a watermark is forwarded, which is when the
+	 * mini-batch of a {@code MiniBatchAssigner} ends.
+	 */
+	protected boolean finishBundleOnWatermark() {
+		return true;
+	}
+
 	@Override
 	public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
 		finishBundle();
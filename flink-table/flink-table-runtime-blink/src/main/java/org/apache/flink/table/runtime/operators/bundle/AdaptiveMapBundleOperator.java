@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.bundle;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.runtime.controller.PreAggregateIntervalEvent;
+import org.apache.flink.runtime.operators.coordination.OperatorEvent;
+import org.apache.flink.runtime.operators.coordination.OperatorEventGateway;
+import org.apache.flink.streaming.api.operators.PreAggregateIntervalHandler;
+import org.apache.flink.streaming.api.operators.PreAggregateOperatorFactory;
+import org.apache.flink.streaming.api.operators.PreAggregateProcTimeSignalsMonitor;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback;
+import org.apache.flink.table.runtime.operators.bundle.trigger.BundleTrigger;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A {@link MapBundleOperator} whose bundle is finished on a processing time interval adapted at
+ * runtime by the pre-aggregate controller, instead of at the end of every mini-batch. The
+ * {@link BundleTrigger} still bounds the number of buffered records. The operator publishes the
+ * same backpressure signals as the {@code PreAggregate} operator of the DataStream API, sampled on a
+ * timer of their own, and has to be created by a {@link PreAggregateOperatorFactory}.
+ *
+ * @param <K>   The type of the key in the bundle map
+ * @param <V>   The type of the value in the bundle map
+ * @param <IN>  Input type for the operator.
+ * @param <OUT> Output type for the operator.
+ */
+public class AdaptiveMapBundleOperator<K, V, IN, OUT> extends MapBundleOperator<K, V, IN, OUT>
+		implements ProcessingTimeCallback, PreAggregateIntervalHandler {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Intervals less than 50 milliseconds are not allowed. */
+	private static final long MIN_INTERVAL_MS = 50;
+
+	private final long initialIntervalMs;
+
+	/** Sampling and publish interval of the controller signals and weight of the newest sample, 0 for histograms. */
+	private long signalsSamplingIntervalMs = PreAggregateControllerOptions.SIGNALS_SAMPLING_INTERVAL.defaultValue().toMillis();
+	private long signalsPublishIntervalMs = PreAggregateControllerOptions.SIGNALS_PUBLISH_INTERVAL.defaultValue().toMillis();
+	private double signalsEwmaAlpha = PreAggregateControllerOptions.SIGNALS_EWMA_ALPHA.defaultValue();
+
+	/** The current interval to finish the bundle, updated by the controller coordinator. */
+	private transient long intervalMs;
+
+	private transient PreAggregateProcTimeSignalsMonitor preAggregateMonitor;
+
+	private transient OperatorEventGateway operatorEventGateway;
+
+	public AdaptiveMapBundleOperator(
+			MapBundleFunction<K, V, IN, OUT> function,
+			BundleTrigger<IN> bundleTrigger,
+			KeySelector<IN, K> keySelector,
+			long intervalMs) {
+		super(function, bundleTrigger, keySelector);
+		this.initialIntervalMs = Math.max(intervalMs, MIN_INTERVAL_MS);
+	}
+
+	/**
+	 * Applies the {@link PreAggregateControllerOptions} of the signals, see
+	 * {@link #setSignalsSampling(long, long, double)}.
+	 */
+	public void configure(ReadableConfig configuration) {
+		setSignalsSampling(
+			configuration.get(PreAggregateControllerOptions.SIGNALS_SAMPLING_INTERVAL).toMillis(),
+			configuration.get(PreAggregateControllerOptions.SIGNALS_PUBLISH_INTERVAL).toMillis(),
+			configuration.get(PreAggregateControllerOptions.SIGNALS_EWMA_ALPHA));
+	}
+
+	/**
+	 * Samples the signals of the controller every {@code samplingIntervalMs} and publishes them every
+	 * {@code publishIntervalMs}, independently of the interval of the bundle. A positive
+	 * {@code ewmaAlpha} publishes exponentially weighted statistics of the buffer usages instead of
+	 * reservoir histograms, see {@link PreAggregateProcTimeSignalsMonitor}.
+	 */
+	public void setSignalsSampling(long samplingIntervalMs, long publishIntervalMs, double ewmaAlpha) {
+		checkArgument(samplingIntervalMs > 0, "The sampling interval of the signals must be positive.");
+		checkArgument(publishIntervalMs >= samplingIntervalMs,
+			"The publish interval of the signals cannot be lower than the sampling interval.");
+		checkArgument(ewmaAlpha >= 0 && ewmaAlpha <= 1, "The weight of the newest sample must be in [0, 1].");
+		this.signalsSamplingIntervalMs = samplingIntervalMs;
+		this.signalsPublishIntervalMs = publishIntervalMs;
+		this.signalsEwmaAlpha = ewmaAlpha;
+	}
+
+	@Override
+	public void open() throws Exception {
+		super.open();
+		this.intervalMs = initialIntervalMs;
+		this.preAggregateMonitor = PreAggregateProcTimeSignalsMonitor.create(
+			getRuntimeContext().getMetricGroup(),
+			initialIntervalMs,
+			getRuntimeContext().getIndexOfThisSubtask(),
+			true,
+			signalsSamplingIntervalMs,
+			signalsPublishIntervalMs,
+			signalsEwmaAlpha);
+
+		long now = getProcessingTimeService().getCurrentProcessingTime();
+		getProcessingTimeService().registerTimer(now + intervalMs, this);
+		getProcessingTimeService().registerTimer(now + signalsSamplingIntervalMs, this::onSamplingTime);
+	}
+
+	@Override
+	protected boolean finishBundleOnWatermark() {
+		return false;
+	}
+
+	@Override
+	public void onProcessingTime(long timestamp) throws Exception {
+		finishBundle();
+		long now = getProcessingTimeService().getCurrentProcessingTime();
+		getProcessingTimeService().registerTimer(now + intervalMs, this);
+	}
+
+	/**
+	 * Samples the signals and publishes them to the controller coordinator when they are due.
+	 */
+	private void onSamplingTime(long timestamp) {
+		long now = getProcessingTimeService().getCurrentProcessingTime();
+		preAggregateMonitor.sampleSignals(now);
+		preAggregateMonitor.publishSignals(operatorEventGateway, now);
+		getProcessingTimeService().registerTimer(now + signalsSamplingIntervalMs, this::onSamplingTime);
+	}
+
+	@Override
+	public void setOperatorEventGateway(OperatorEventGateway operatorEventGateway) {
+		this.operatorEventGateway = operatorEventGateway;
+	}
+
+	/**
+	 * Receives the new interval from the controller coordinator on the JobManager.
+	 */
+	@Override
+	public void handleOperatorEvent(OperatorEvent evt) {
+		if (!(evt instanceof PreAggregateIntervalEvent)) {
+			throw new IllegalStateException("Received unexpected operator event " + evt);
+		}
+		this.intervalMs = Math.max(((PreAggregateIntervalEvent) evt).getIntervalMs(), MIN_INTERVAL_MS);
+		this.preAggregateMonitor.setIntervalMs(this.intervalMs);
+	}
+
+	@VisibleForTesting
+	long getIntervalMs() {
+		return intervalMs;
+	}
+
+	@VisibleForTesting
+	public long getSignalsSamplingIntervalMs() {
+		return signalsSamplingIntervalMs;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.bundle;
+
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PreAggregateControllerOptions;
+import org.apache.flink.runtime.controller.PreAggregateIntervalEvent;
+import org.apache.flink.runtime.controller.PreAggregateSignalsEvent;
+import org.apache.flink.runtime.operators.coordination.OperatorEvent;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.table.runtime.operators.bundle.trigger.CountBundleTrigger;
+import org.apache.flink.util.Collector;
+
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AdaptiveMapBundleOperator}.
+ */
+public class AdaptiveMapBundleOperatorTest {
+
+	@Test
+	public void testFinishBundleOnAdaptedInterval() throws Exception {
+		CountMapBundleFunction func = new CountMapBundleFunction();
+		KeySelector<Tuple2<String, String>, String> keySelector =
+				(KeySelector<Tuple2<String, String>, String>) value -> value.f0;
+		AdaptiveMapBundleOperator<String, Integer, Tuple2<String, String>, String> operator =
+				new AdaptiveMapBundleOperator<>(func, new CountBundleTrigger<>(100), keySelector, 1000);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, String>, String> op =
+				new OneInputStreamOperatorTestHarness<>(operator);
+		op.setProcessingTime(0);
+		op.open();
+
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", "v1")));
+		op.processElement(new StreamRecord<>(new Tuple2<>("k1", "v2")));
+
+		// the end of a mini-batch does not finish the bundle
+		op.processWatermark(new Watermark(10));
+		assertEquals(0, func.finishCount);
+
+		op.setProcessingTime(1000);
+		assertEquals(1, func.finishCount);
+
+		// the controller shortens the interval, which applies from the next timer on
+		operator.handleOperatorEvent(new PreAggregateIntervalEvent(200));
+		assertEquals(200, operator.getIntervalMs());
+		op.processElement(new StreamRecord<>(new Tuple2<>("k2", "v3")));
+		op.setProcessingTime(2000);
+		assertEquals(2, func.finishCount);
+		op.processElement(new StreamRecord<>(new Tuple2<>("k2", "v4")));
+		op.setProcessingTime(2200);
+		assertEquals(3, func.finishCount);
+
+		// intervals are bounded from below
+		operator.handleOperatorEvent(new PreAggregateIntervalEvent(1));
+		assertEquals(50, operator.getIntervalMs());
+		op.close();
+	}
+
+	@Test
+	public void testSamplesSignalsOnTheirOwnInterval() throws Exception {
+		CountMapBundleFunction func = new CountMapBundleFunction();
+		KeySelector<Tuple2<String, String>, String> keySelector =
+				(KeySelector<Tuple2<String, String>, String>) value -> value.f0;
+		AdaptiveMapBundleOperator<String, Integer, Tuple2<String, String>, String> operator =
+				new AdaptiveMapBundleOperator<>(func, new CountBundleTrigger<>(100), keySelector, 1000);
+		Configuration configuration = new Configuration();
+		configuration.set(PreAggregateControllerOptions.SIGNALS_SAMPLING_INTERVAL, Duration.ofMillis(100));
+		configuration.set(PreAggregateControllerOptions.SIGNALS_PUBLISH_INTERVAL, Duration.ofMillis(200));
+		operator.configure(configuration);
+		List<OperatorEvent> signals = new ArrayList<>();
+		operator.setOperatorEventGateway(signals::add);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, String>, String> op =
+				new OneInputStreamOperatorTestHarness<>(operator);
+		op.setProcessingTime(0);
+		op.open();
+
+		// the first sample starts the publish interval, the signals are published long before the bundle is finished
+		op.setProcessingTime(100);
+		op.setProcessingTime(200);
+		assertTrue(signals.isEmpty());
+		op.setProcessingTime(300);
+		assertEquals(1, signals.size());
+		assertTrue(signals.get(0) instanceof PreAggregateSignalsEvent);
+		assertEquals(0, func.finishCount);
+		op.close();
+	}
+
+	private static class CountMapBundleFunction extends MapBundleFunction<String, Integer, Tuple2<String, String>, String> {
+
+		private int finishCount = 0;
+
+		@Override
+		public Integer addInput(@Nullable Integer value, Tuple2<String, String> input) {
+			return value == null ? 1 : value + 1;
+		}
+
+		@Override
+		public void finishBundle(Map<String, Integer> buffer, Collector<String> out) {
+			finishCount++;
+			for (Map.Entry<String, Integer> entry : buffer.entrySet()) {
+				out.collect(entry.getKey() + "=" + entry.getValue());
+			}
+		}
+	}
+}